@@ -3,18 +3,21 @@ import exception.AppointmentClashException;
 import exception.DuplicatePatientIDException;
 import exception.InvalidInputFormatException;
 import exception.PatientNotFoundException;
+import exception.StorageLockedException;
 import exception.UnknownCommandException;
 import exception.UnloadedStorageException;
 import manager.ManagementSystem;
-import manager.Patient;
-import manager.Appointment;
-import manager.Prescription;
 import miscellaneous.Parser;
 import miscellaneous.Ui;
+import storage.DurabilityPolicy;
+import storage.FollowerStorageBackend;
+import storage.JournaledStorageBackend;
 import storage.Storage;
+import storage.StorageBackend;
+import storage.StorageFormat;
+import storage.TextStorageBackend;
 
 import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Main class of the ClinicEase application, responsible for initializing
@@ -25,35 +28,93 @@ import java.util.List;
  */
 public class ClinicEase {
 
+    private static final String DURABILITY_PROPERTY = "clinicease.durability";
+    private static final String FORMAT_PROPERTY = "clinicease.format";
+    private static final String TIMING_PROPERTY = "clinicease.timing";
+    private static final String SHARDS_PROPERTY = "clinicease.shards";
+    private static final String PATIENT_INDEX_PROPERTY = "clinicease.patientIndexPages";
+    private static final String ARCHIVE_PROPERTY = "clinicease.archiveDays";
+    private static final String FOLLOW_PROPERTY = "clinicease.follow";
+    private static final String JOURNAL_PROPERTY = "clinicease.journal";
+
     private ManagementSystem manager;
     private Ui ui;
-    private Storage storage;
+    private StorageBackend storage;
 
     /**
      * Constructs a new ClinicEase application with a specified storage location.
-     * Initializes the UI, storage, and management system components.
-     * Attempts to load existing data from storage files if available.
+     * Storage saves straight to the text files unless system properties choose otherwise: the journal,
+     * with the durability it is saved with, or a binary or sharded layout, which only the journal supports,
+     * or following the data read-only while another process writes to it. A directory that is already
+     * sharded is always journaled. Paging patients in through the patient index uses the text files alone.
      *
      * @param filePath The directory path where data files will be stored
      */
     public ClinicEase(String filePath) {
-        assert filePath != null : "File path cannot be null";
+        this(createStorage(filePath));
+    }
+
+    /**
+     * Constructs a new ClinicEase application that stores its data through a storage backend.
+     * Initializes the UI and attempts to load existing data from the backend,
+     * starting with no data if it cannot be loaded. If another process is already writing to the data,
+     * it is followed read-only instead.
+     *
+     * @param storage The backend where data is stored
+     */
+    public ClinicEase(StorageBackend storage) {
+        assert storage != null : "Storage backend cannot be null";
         this.ui = new Ui();
-        this.storage = new Storage(filePath);
+        this.storage = storage;
 
         try {
-            List<Patient> patients = Storage.loadPatients();
-            List<Prescription> prescriptions = Storage.loadPrescriptions();
-            this.manager = new ManagementSystem(patients, new ArrayList<>(), prescriptions);
-
-            List<Appointment> appointments = Storage.loadAppointments(manager);
-            manager.setAppointments(appointments);
+            this.manager = loadOrFollow();
+            if (Boolean.getBoolean(TIMING_PROPERTY)) {
+                ui.showStorageReport(this.storage.getLoadReport());
+            }
         } catch (UnloadedStorageException e) {
             ui.showError("Could not load data: " + e.getMessage());
-            this.manager = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+            this.manager = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                    this.storage);
+        }
+    }
+
+    private ManagementSystem loadOrFollow() throws UnloadedStorageException {
+        try {
+            return storage.load();
+        } catch (StorageLockedException e) {
+            if (!(storage instanceof TextStorageBackend)) {
+                throw e;
+            }
+            ui.showError(e.getMessage() + " Its data is shown read-only, and changes cannot be saved.");
+            storage = ((TextStorageBackend) storage).createFollower();
+            return storage.load();
         }
     }
 
+    private static StorageBackend createStorage(String filePath) {
+        StorageFormat format = StorageFormat.parse(System.getProperty(FORMAT_PROPERTY), StorageFormat.TEXT);
+        if (Boolean.getBoolean(FOLLOW_PROPERTY)) {
+            return new FollowerStorageBackend(filePath, format);
+        }
+        int patientIndexPages = Integer.getInteger(PATIENT_INDEX_PROPERTY, 0);
+        int shardCount = Integer.getInteger(SHARDS_PROPERTY, 0);
+        boolean isJournaled = Boolean.getBoolean(JOURNAL_PROPERTY) || format != StorageFormat.TEXT || shardCount > 0
+                || Storage.hasShards(filePath);
+        TextStorageBackend storage;
+        if (patientIndexPages > 0) {
+            storage = new TextStorageBackend(filePath, patientIndexPages);
+        } else if (isJournaled) {
+            storage = new JournaledStorageBackend(filePath, format,
+                    DurabilityPolicy.parse(System.getProperty(DURABILITY_PROPERTY), DurabilityPolicy.BATCHED_FSYNC),
+                    shardCount);
+        } else {
+            storage = new TextStorageBackend(filePath);
+        }
+        storage.setArchiveAfterDays(Integer.getInteger(ARCHIVE_PROPERTY, 0));
+        return storage;
+    }
+
     /**
      * Starts the application's main execution loop.
      * Displays welcome message, continuously reads user commands,
@@ -71,13 +132,32 @@ public class ClinicEase {
                     continue;
                 }
                 Command command = Parser.parse(input);
+                storage.refresh();
                 command.execute(manager, ui);
                 running = !command.isExit();
+                showCompactionReport();
             } catch (InvalidInputFormatException | UnknownCommandException | DuplicatePatientIDException |
                      UnloadedStorageException | PatientNotFoundException | AppointmentClashException e) {
                 ui.showError(e.getMessage());
             }
         }
+
+        try {
+            storage.close();
+        } catch (UnloadedStorageException e) {
+            ui.showError(e.getMessage());
+        }
+    }
+
+    /**
+     * Shows the outcome of background storage work, such as a compaction, that finished since the last command.
+     * That work runs off the command loop, so its reports are surfaced between commands.
+     */
+    private void showCompactionReport() {
+        String report = storage.pollReport();
+        if (report != null) {
+            ui.showStorageReport(report);
+        }
     }
 
     /**
@@ -1,5 +1,6 @@
 package command;
 
+import exception.UnloadedStorageException;
 import manager.ManagementSystem;
 import miscellaneous.Ui;
 
@@ -10,13 +11,15 @@ import miscellaneous.Ui;
 public class ExitCommand extends Command {
 
     /**
-     * Executes the exit command by displaying the goodbye message.
+     * Executes the exit command by writing out any pending saves and displaying the goodbye message.
      *
-     * @param manager The management system (unused in this command).
+     * @param manager The management system whose pending saves are written.
      * @param ui      The user interface used to display the goodbye message.
+     * @throws UnloadedStorageException If pending saves could not be written.
      */
     @Override
-    public void execute(ManagementSystem manager, Ui ui) {
+    public void execute(ManagementSystem manager, Ui ui) throws UnloadedStorageException {
+        manager.getStorage().flush();
         ui.showBye();
     }
 
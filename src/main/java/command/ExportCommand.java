@@ -0,0 +1,40 @@
+package command;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import miscellaneous.Ui;
+import storage.RecordExporter;
+
+/**
+ * Represents a command to export patients, appointments and prescriptions to a CSV or JSONL file.
+ * Records can be limited to one patient and to appointments and prescriptions within a date range.
+ */
+public class ExportCommand extends Command {
+    private final String filePath;
+    private final RecordExporter.Filter filter;
+
+    /**
+     * Constructs an ExportCommand for the specified file and filter.
+     *
+     * @param filePath The path of the CSV or JSONL file to write
+     * @param filter   Selects the records to export
+     */
+    public ExportCommand(String filePath, RecordExporter.Filter filter) {
+        this.filePath = filePath;
+        this.filter = filter;
+    }
+
+    /**
+     * Executes the export command.
+     * Streams the matching records to the file and shows how many were written and how fast.
+     *
+     * @param manager The management system holding the records
+     * @param ui      The user interface to display the export report
+     * @throws UnloadedStorageException If the file could not be written or stored records could not be read
+     */
+    @Override
+    public void execute(ManagementSystem manager, Ui ui) throws UnloadedStorageException {
+        RecordExporter.Report report = RecordExporter.exportFile(filePath, manager, filter);
+        ui.showStorageReport(report.getSummary());
+    }
+}
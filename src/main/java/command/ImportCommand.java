@@ -0,0 +1,37 @@
+package command;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import miscellaneous.Ui;
+import storage.RecordImporter;
+
+/**
+ * Represents a command to import patients, appointments and prescriptions from a CSV or JSONL file.
+ * Lines that fail validation are reported and skipped; the remaining records are saved together.
+ */
+public class ImportCommand extends Command {
+    private final String filePath;
+
+    /**
+     * Constructs an ImportCommand for the specified file.
+     *
+     * @param filePath The path of the CSV or JSONL file to import
+     */
+    public ImportCommand(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Executes the import command.
+     * Streams the file into the management system and shows the throughput and any rejected lines.
+     *
+     * @param manager The management system to add the records to
+     * @param ui      The user interface to display the import report
+     * @throws UnloadedStorageException If the file could not be read or the records could not be saved
+     */
+    @Override
+    public void execute(ManagementSystem manager, Ui ui) throws UnloadedStorageException {
+        RecordImporter.Report report = RecordImporter.importFile(filePath, manager);
+        ui.showImportReport(report.getSummary(), report.getErrors());
+    }
+}
@@ -1,8 +1,12 @@
 package command;
 
+import exception.UnloadedStorageException;
 import manager.ManagementSystem;
 import miscellaneous.Ui;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a command to list all patients in the system.
  */
@@ -10,13 +14,19 @@ public class ListPatientCommand extends Command {
 
     /**
      * Executes the list patient command.
-     * Displays all patients stored in the management system using the UI.
+     * Displays all patients stored in the management system using the UI, including patients
+     * that are only on disk because patients are paged in through the patient index.
      *
      * @param manager The management system containing the patients.
      * @param ui      The user interface to interact with the user.
+     * @throws UnloadedStorageException If the stored patients could not be read.
      */
     @Override
-    public void execute(ManagementSystem manager, Ui ui) {
-        ui.showPatientList(manager.getPatients());
+    public void execute(ManagementSystem manager, Ui ui) throws UnloadedStorageException {
+        AtomicInteger count = new AtomicInteger();
+        manager.forEachPatient(patient -> ui.showPatientListEntry(count.incrementAndGet(), patient));
+        if (count.get() == 0) {
+            ui.showPatientList(List.of());
+        }
     }
 }
@@ -0,0 +1,70 @@
+package command;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import miscellaneous.Ui;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a command to generate the printable HTML files of every prescription issued within a date range.
+ * Prescriptions can be limited to one patient. The files are written in parallel into the prescriptions folder.
+ */
+public class PrintPrescriptionsCommand extends Command {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final String nric;
+
+    /**
+     * Constructs a PrintPrescriptionsCommand for the specified date range and patient.
+     *
+     * @param from The earliest issue date printed
+     * @param to   The latest issue date printed
+     * @param nric The NRIC of the only patient whose prescriptions are printed, or null for all patients
+     */
+    public PrintPrescriptionsCommand(LocalDate from, LocalDate to, String nric) {
+        this.from = from;
+        this.to = to;
+        this.nric = nric;
+    }
+
+    /**
+     * Executes the print prescriptions command.
+     * Finds the matching prescriptions and their patients, writes the HTML files that are not already current,
+     * and shows how many were printed and how long it took.
+     *
+     * @param manager The management system holding the prescriptions
+     * @param ui      The user interface to display the result
+     * @throws UnloadedStorageException If prescriptions could not be read or a file could not be written
+     */
+    @Override
+    public void execute(ManagementSystem manager, Ui ui) throws UnloadedStorageException {
+        long start = System.nanoTime();
+        List<Prescription> prescriptions = manager.getPrescriptionsIssuedBetween(from, to, nric);
+        if (prescriptions.isEmpty()) {
+            ui.showStorageReport("No prescriptions were issued from " + from + " to " + to
+                    + (nric == null ? "." : " for patient " + nric + "."));
+            return;
+        }
+
+        // Patients are looked up once each, before printing, since the lookup may page them in
+        Map<String, Patient> patients = new HashMap<>();
+        for (Prescription prescription : prescriptions) {
+            if (!patients.containsKey(prescription.getPatientId())) {
+                patients.put(prescription.getPatientId(), manager.viewPatient(prescription.getPatientId()));
+            }
+        }
+
+        int writtenCount = manager.getStorage().savePrescriptionHtml(prescriptions, patients);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        ui.showStorageReport("Printed " + prescriptions.size() + " prescriptions for " + patients.size()
+                + " patients to the prescriptions folder in " + millis + " ms ("
+                + (prescriptions.size() - writtenCount) + " already up to date).");
+    }
+}
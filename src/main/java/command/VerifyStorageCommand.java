@@ -0,0 +1,27 @@
+package command;
+
+import manager.ManagementSystem;
+import miscellaneous.Ui;
+
+/**
+ * Represents a command to check every stored record against its checksum without stopping the application.
+ * The check runs in the background, and its result is shown after a later command once it finishes.
+ */
+public class VerifyStorageCommand extends Command {
+    /**
+     * Executes the verify storage command by starting the check in the background.
+     *
+     * @param manager The management system whose storage is checked
+     * @param ui      The user interface to display whether the check was started
+     */
+    @Override
+    public void execute(ManagementSystem manager, Ui ui) {
+        if (manager.getStorage().startVerification()) {
+            ui.showStorageReport("Verifying stored records in the background. "
+                    + "The result will be shown when the check finishes.");
+        } else {
+            ui.showStorageReport("Stored records cannot be verified now: a check is already running, "
+                    + "or this storage keeps no checksums.");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package command;
 
 import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
 import manager.ManagementSystem;
 import miscellaneous.Ui;
 
@@ -31,9 +32,10 @@ public class ViewMedHistoryCommand extends Command {
      * @param manager The ManagementSystem that manages patient data.
      * @param ui      The Ui used to display output to the user.
      * @throws PatientNotFoundException if no matching patient is found when searching by NRIC.
+     * @throws UnloadedStorageException if the patient is not loaded and storage could not be read.
      */
     @Override
-    public void execute(ManagementSystem manager, Ui ui) throws PatientNotFoundException {
+    public void execute(ManagementSystem manager, Ui ui) throws PatientNotFoundException, UnloadedStorageException {
         if (type.equals("ic")) {
             manager.viewMedicalHistoryByNric(nameOrIc);
         } else {
@@ -1,5 +1,6 @@
 package command;
 
+import exception.UnloadedStorageException;
 import manager.ManagementSystem;
 import manager.Patient;
 import miscellaneous.Ui;
@@ -35,11 +36,12 @@ public class ViewPatientCommand extends Command {
      *
      * @param manager the {@link ManagementSystem} responsible for handling patient data
      * @param ui      the {@link Ui} responsible for displaying the patient information
+     * @throws UnloadedStorageException if the patient is not loaded and storage could not be read
      * @throws AssertionError if the manager or ui instances are null
      * @throws AssertionError if no patient is found for the given NRIC
      */
     @Override
-    public void execute(ManagementSystem manager, Ui ui) {
+    public void execute(ManagementSystem manager, Ui ui) throws UnloadedStorageException {
         assert manager != null : "ManagementSystem instance can't be empty";
         assert ui != null : "Ui instance can't be empty";
 
@@ -5,7 +5,6 @@ import manager.ManagementSystem;
 import manager.Patient;
 import manager.Prescription;
 import miscellaneous.Ui;
-import storage.Storage;
 
 import java.io.File;
 
@@ -52,7 +51,7 @@ public class ViewPrescriptionCommand extends Command {
         System.out.println("");
 
         // Generate HTML file
-        Storage.savePrescriptionHtml(prescription, patient);
+        manager.getStorage().savePrescriptionHtml(prescription, patient);
 
         String fileName = "prescription_" + prescription.getPatientId() + "_"
                 + prescription.getPrescriptionId().split("-")[1] + ".html";
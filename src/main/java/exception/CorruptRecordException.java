@@ -0,0 +1,20 @@
+package exception;
+
+import java.io.IOException;
+
+/**
+ * Represents a stored record whose content no longer matches the checksum written with it.
+ * This exception is thrown when a record was damaged on disk, for example by a torn write or a bad sector.
+ */
+public class CorruptRecordException extends IOException {
+
+    /**
+     * Constructs a CorruptRecordException with the specified detail message.
+     *
+     * @param message The detail message describing the damaged record
+     */
+    public CorruptRecordException(String message) {
+        super(message);
+    }
+
+}
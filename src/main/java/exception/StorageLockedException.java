@@ -0,0 +1,19 @@
+package exception;
+
+/**
+ * Represents a data directory that another process is already writing to.
+ * This exception is thrown when a writer cannot take the directory's lock, since two writers
+ * saving whole files over each other would lose changes.
+ */
+public class StorageLockedException extends UnloadedStorageException {
+
+    /**
+     * Constructs a StorageLockedException with the specified detail message.
+     *
+     * @param message The detail message naming the locked directory
+     */
+    public StorageLockedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,65 @@
+package manager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Index over the appointment list by upper-cased ID and by start time.
+ * The start times are kept sorted, so the appointments near a time are found from its neighbours alone,
+ * however many appointments, past or upcoming, the list holds.
+ */
+class AppointmentIndex extends ListIndex<Appointment> {
+    private final NavigableMap<LocalDateTime, List<Appointment>> appointmentsByTime = new TreeMap<>();
+
+    /**
+     * Constructs an index over the appointments already in a list, which are indexed on first use.
+     *
+     * @param appointments The list of appointments, which the index adds to and removes from
+     */
+    AppointmentIndex(List<Appointment> appointments) {
+        super(appointments, Appointment::getId, id -> id.trim().toUpperCase());
+    }
+
+    /**
+     * Finds an appointment that starts less than a given duration before or after a time.
+     *
+     * @param dateTime The time
+     * @param window   The duration either side of the time
+     * @return The earliest such appointment, or null if there is none
+     */
+    Appointment findWithin(LocalDateTime dateTime, Duration window) {
+        ensureIndexed();
+        Map.Entry<LocalDateTime, List<Appointment>> next = appointmentsByTime.higherEntry(dateTime.minus(window));
+        if (next == null || !next.getKey().isBefore(dateTime.plus(window))) {
+            return null;
+        }
+        return next.getValue().get(0);
+    }
+
+    @Override
+    void indexed(Appointment appointment) {
+        appointmentsByTime.computeIfAbsent(appointment.getDateTime(), time -> new ArrayList<>()).add(appointment);
+    }
+
+    @Override
+    void unindexed(Appointment appointment) {
+        List<Appointment> sameTime = appointmentsByTime.get(appointment.getDateTime());
+        if (sameTime == null) {
+            return;
+        }
+        sameTime.removeIf(indexed -> indexed == appointment);
+        if (sameTime.isEmpty()) {
+            appointmentsByTime.remove(appointment.getDateTime());
+        }
+    }
+
+    @Override
+    void cleared() {
+        appointmentsByTime.clear();
+    }
+}
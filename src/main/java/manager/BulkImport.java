@@ -0,0 +1,152 @@
+package manager;
+
+import exception.AppointmentClashException;
+import exception.DuplicatePatientIDException;
+import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
+import storage.StorageBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds many records to a management system and saves them together.
+ * Records are checked against the same rules as adding them one at a time. Clashing appointments
+ * and duplicate patients are found, and prescriptions numbered, through the system's own indexes,
+ * which include the records imported so far.
+ * Nothing is saved until {@link #commit()} is called.
+ */
+public class BulkImport {
+    private final ManagementSystem system;
+    private final StorageBackend storage;
+    private final List<Patient> addedPatients = new ArrayList<>();
+    private final List<Appointment> addedAppointments = new ArrayList<>();
+    private final List<Prescription> addedPrescriptions = new ArrayList<>();
+
+    /**
+     * Begins an import into a management system.
+     *
+     * @param system The management system to add records to
+     */
+    BulkImport(ManagementSystem system) {
+        assert system != null : "Management system cannot be null";
+        this.system = system;
+        this.storage = system.getStorage();
+    }
+
+    /**
+     * Adds a patient, unless a patient with the same NRIC is already loaded, stored or imported.
+     *
+     * @param patient The patient to add
+     * @throws DuplicatePatientIDException If a patient with the same NRIC already exists
+     * @throws UnloadedStorageException    If the stored patients could not be read
+     */
+    public void addPatient(Patient patient) throws DuplicatePatientIDException, UnloadedStorageException {
+        assert patient != null : "Patient cannot be null";
+        if (findPatient(patient.getId()) != null) {
+            throw new DuplicatePatientIDException("Patient ID already exists!");
+        }
+        system.addLoadedPatient(patient);
+        addedPatients.add(patient);
+    }
+
+    /**
+     * Adds an appointment, unless it clashes with another appointment within an hour.
+     *
+     * @param appointment The appointment to add
+     * @throws PatientNotFoundException  If the patient of the appointment does not exist
+     * @throws AppointmentClashException If the appointment clashes with an existing or imported one
+     * @throws UnloadedStorageException  If the stored patients could not be read
+     */
+    public void addAppointment(Appointment appointment) throws PatientNotFoundException, AppointmentClashException,
+            UnloadedStorageException {
+        assert appointment != null : "Appointment cannot be null";
+        if (system.findClashingAppointment(appointment.getDateTime()) != null) {
+            throw new AppointmentClashException("This appointment clashes with another scheduled within 1 hour.");
+        }
+
+        Patient patient = findPatient(appointment.getNric());
+        if (patient == null) {
+            throw new PatientNotFoundException("Patient with NRIC: " + appointment.getNric() + " not found");
+        }
+        system.addLoadedAppointment(appointment);
+        patient.addAppointment(appointment);
+        addedAppointments.add(appointment);
+    }
+
+    /**
+     * Adds a prescription, numbering it after the patient's existing prescriptions.
+     *
+     * @param prescription The prescription to add (without final ID)
+     * @return The added prescription with its final ID
+     * @throws IllegalArgumentException If the patient doesn't exist or maximum prescriptions reached
+     * @throws UnloadedStorageException If the stored patients could not be read
+     */
+    public Prescription addPrescription(Prescription prescription) throws IllegalArgumentException,
+            UnloadedStorageException {
+        assert prescription != null : "Prescription cannot be null";
+        Patient patient = findPatient(prescription.getPatientId());
+        if (patient == null) {
+            throw new IllegalArgumentException("Patient with NRIC: " + prescription.getPatientId() + " not found");
+        }
+
+        String patientId = patient.getId();
+        if (system.countPrescriptions(patientId) >= ManagementSystem.MAX_PRESCRIPTIONS_PER_PATIENT) {
+            throw new IllegalArgumentException("Maximum number of prescriptions ("
+                    + ManagementSystem.MAX_PRESCRIPTIONS_PER_PATIENT + ") reached for patient: " + patientId);
+        }
+
+        int sequence = system.nextPrescriptionSequence(patientId);
+        Prescription newPrescription = new Prescription(patientId, patientId + "-" + sequence,
+                prescription.getTimestamp(), prescription.getSymptoms(), prescription.getMedicines(),
+                prescription.getNotes());
+        system.addLoadedPrescription(newPrescription);
+        addedPrescriptions.add(newPrescription);
+        return newPrescription;
+    }
+
+    /**
+     * Gets the number of records added so far.
+     *
+     * @return The number of imported patients, appointments and prescriptions
+     */
+    public int getAddedCount() {
+        return addedPatients.size() + addedAppointments.size() + addedPrescriptions.size();
+    }
+
+    /**
+     * Saves every record added by the import in one go.
+     * If saving fails, the added records are removed again so memory matches storage.
+     *
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public void commit() throws UnloadedStorageException {
+        try {
+            storage.recordImport(addedPatients, addedAppointments, addedPrescriptions, system);
+        } catch (UnloadedStorageException e) {
+            rollBack();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes every record added by the import from the management system, without saving anything.
+     * Used when the import cannot be finished, so memory matches storage again.
+     */
+    public void rollBack() {
+        for (Appointment appointment : addedAppointments) {
+            Patient patient = system.findLoadedPatient(appointment.getNric());
+            if (patient != null) {
+                patient.removeAppointment(appointment);
+            }
+        }
+        system.removeLoadedPatients(addedPatients);
+        system.removeLoadedAppointments(addedAppointments);
+        system.removeLoadedPrescriptions(addedPrescriptions);
+    }
+
+    private Patient findPatient(String nric) throws UnloadedStorageException {
+        // A patient that is stored but not loaded is paged in, as when adding records one at a time
+        return system.findPatientByNric(nric);
+    }
+}
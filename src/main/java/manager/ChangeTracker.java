@@ -0,0 +1,58 @@
+package manager;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Tracks which entities a mutation actually changed, so unchanged ones are not written to storage.
+ * Before mutating an entity, its stored form is recorded as clean; afterwards the entity is dirty only
+ * if its stored form differs. Every check counts either a write that is needed or one that was avoided.
+ */
+public class ChangeTracker {
+    private final Map<Object, String> cleanStates = new IdentityHashMap<>();
+    private long writeCount;
+    private long avoidedWriteCount;
+
+    /**
+     * Records the stored form of an entity before it is mutated.
+     *
+     * @param entity The entity about to be mutated
+     * @param state  The stored form of the entity, such as its file format
+     */
+    public void markClean(Object entity, String state) {
+        assert entity != null && state != null : "Entity and state cannot be null";
+        cleanStates.put(entity, state);
+    }
+
+    /**
+     * Checks whether an entity changed since it was marked clean, and forgets its clean state.
+     * An entity that was never marked clean is treated as dirty.
+     *
+     * @param entity The mutated entity
+     * @param state  The stored form of the entity after the mutation
+     * @return true if the entity must be written, false if writing it would change nothing
+     */
+    public boolean isDirty(Object entity, String state) {
+        String cleanState = cleanStates.remove(entity);
+        if (cleanState != null && cleanState.equals(state)) {
+            avoidedWriteCount++;
+            return false;
+        }
+        writeCount++;
+        return true;
+    }
+
+    /**
+     * @return the number of checks that found an entity changed
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * @return the number of writes skipped because the entity did not change
+     */
+    public long getAvoidedWriteCount() {
+        return avoidedWriteCount;
+    }
+}
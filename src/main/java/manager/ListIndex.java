@@ -0,0 +1,142 @@
+package manager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Hash index over a list of records by a normalized ID, kept in step with the list.
+ * The records already in the list are indexed on first use. From then on, records must only be added and
+ * removed through the index, and any other change to the list must be followed by {@link #rebuild()};
+ * the owner of the list hands out read-only views of it so that nothing else can change it.
+ * Where several records share an ID, the first in the list is the one found,
+ * as a scan of the list would find it. Subclasses can keep further indexes over the same records in step
+ * by overriding the methods called as records are indexed and unindexed.
+ *
+ * @param <T> The type of record
+ */
+class ListIndex<T> {
+    private final List<T> records;
+    private final Function<T, String> idOf;
+    private final UnaryOperator<String> normalizer;
+    private final Map<String, T> recordsById = new HashMap<>();
+    private boolean isIndexed;
+    private int hiddenCount;
+
+    /**
+     * Constructs an index over the records already in a list, which are indexed on first use.
+     *
+     * @param records    The list of records, which the index adds to and removes from
+     * @param idOf       Gets the ID of a record
+     * @param normalizer Turns an ID into the key it is indexed by, so that IDs written differently match
+     */
+    ListIndex(List<T> records, Function<T, String> idOf, UnaryOperator<String> normalizer) {
+        this.records = records;
+        this.idOf = idOf;
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Indexes every record in the list again, after the list was changed other than through the index.
+     */
+    void rebuild() {
+        recordsById.clear();
+        hiddenCount = 0;
+        cleared();
+        for (T record : records) {
+            index(record);
+        }
+        isIndexed = true;
+    }
+
+    /**
+     * Finds the record with an ID.
+     *
+     * @param id The ID, written in any way the normalizer accepts
+     * @return The record, or null if there is none
+     */
+    T get(String id) {
+        ensureIndexed();
+        return recordsById.get(normalizer.apply(id));
+    }
+
+    /**
+     * Adds a record to the end of the list.
+     *
+     * @param record The record to add
+     */
+    void add(T record) {
+        ensureIndexed();
+        records.add(record);
+        index(record);
+    }
+
+    /**
+     * Removes records from the list.
+     *
+     * @param removed The records to remove
+     * @return true if any record was removed
+     */
+    boolean removeAll(Collection<T> removed) {
+        ensureIndexed();
+        if (removed.isEmpty() || !records.removeAll(new HashSet<>(removed))) {
+            return false;
+        }
+        if (hiddenCount > 0) {
+            // A record hidden behind a removed one with the same ID must take its place
+            rebuild();
+            return true;
+        }
+        for (T record : removed) {
+            recordsById.remove(keyOf(record), record);
+            unindexed(record);
+        }
+        return true;
+    }
+
+    /**
+     * Indexes the records in the list, unless they were already indexed.
+     */
+    void ensureIndexed() {
+        if (!isIndexed) {
+            rebuild();
+        }
+    }
+
+    private void index(T record) {
+        if (recordsById.putIfAbsent(keyOf(record), record) != null) {
+            hiddenCount++;
+        }
+        indexed(record);
+    }
+
+    /**
+     * Called for every record indexed, including those hidden behind another record with the same ID.
+     *
+     * @param record The record indexed
+     */
+    void indexed(T record) {
+    }
+
+    /**
+     * Called for every record removed without indexing every record again.
+     *
+     * @param record The record removed
+     */
+    void unindexed(T record) {
+    }
+
+    /**
+     * Called before every record is indexed again.
+     */
+    void cleared() {
+    }
+
+    private String keyOf(T record) {
+        return normalizer.apply(idOf.apply(record));
+    }
+}
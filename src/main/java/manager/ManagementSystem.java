@@ -6,26 +6,50 @@ import exception.DuplicatePatientIDException;
 import exception.InvalidInputFormatException;
 import exception.UnloadedStorageException;
 import miscellaneous.Ui;
-import storage.Storage;
+import storage.RecordVisitor;
+import storage.StorageBackend;
+import storage.TextStorageBackend;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The ManagementSystem class handles all business logic for the clinic management system.
  * It manages patients, appointments, and prescriptions, and coordinates with the storage system.
  * This class serves as the central component that maintains the state of the application
  * and provides operations to access and modify that state.
+ * Patients are indexed by their normalized NRIC and appointments by their upper-cased ID and start time,
+ * so neither lookups nor clash checks scan a list. Prescriptions are indexed by ID and by patient,
+ * with the highest sequence number used in each patient's prescription IDs. The lists are handed out
+ * read-only, so they only change through this class and the indexes are kept in step with them.
+ * The lists a system is constructed with belong to it from then on, and must not be changed by their creator.
  */
 public class ManagementSystem {
+    static final int MAX_PRESCRIPTIONS_PER_PATIENT = 100;
+    private static final Duration CLASH_WINDOW = Duration.ofMinutes(60);
+
     private final List<Appointment> appointments;
     private final List<Patient> patients;
+    private final List<Patient> patientView;
+    private final List<Appointment> appointmentView;
+    private final ListIndex<Patient> patientsByNric;
+    private final AppointmentIndex appointmentIndex;
+    private final PatientPrescriptionIndex prescriptionIndex;
     private final List<Prescription> prescriptions;
+    private final List<Prescription> prescriptionView;
+    private final StorageBackend storage;
+    private final ChangeTracker changes = new ChangeTracker();
 
     /**
      * Constructs a ManagementSystem with patients and appointments but no prescriptions.
@@ -38,11 +62,19 @@ public class ManagementSystem {
         assert loadedAppointments != null : "Appointment list cannot be null";
         appointments = loadedAppointments;
         patients = loadedPatients;
+        patientView = Collections.unmodifiableList(patients);
+        appointmentView = Collections.unmodifiableList(appointments);
         prescriptions = new ArrayList<>();
+        prescriptionView = Collections.unmodifiableList(prescriptions);
+        storage = new TextStorageBackend();
+        patientsByNric = new ListIndex<>(patients, Patient::getId, ManagementSystem::normalize);
+        appointmentIndex = new AppointmentIndex(appointments);
+        prescriptionIndex = new PatientPrescriptionIndex(prescriptions, storage::findArchivedPrescriptions);
     }
 
     /**
-     * Constructs a ManagementSystem with patients, appointments, and prescriptions.
+     * Constructs a ManagementSystem with patients, appointments, and prescriptions,
+     * saving changes to the text data files.
      *
      * @param loadedPatients      The list of patients to initialize with
      * @param loadedAppointments  The list of appointments to initialize with
@@ -50,21 +82,167 @@ public class ManagementSystem {
      */
     public ManagementSystem(List<Patient> loadedPatients, List<Appointment> loadedAppointments,
                             List<Prescription> loadedPrescriptions) {
+        this(loadedPatients, loadedAppointments, loadedPrescriptions, new TextStorageBackend());
+    }
+
+    /**
+     * Constructs a ManagementSystem with patients, appointments, and prescriptions,
+     * saving changes through the given storage backend.
+     *
+     * @param loadedPatients      The list of patients to initialize with
+     * @param loadedAppointments  The list of appointments to initialize with
+     * @param loadedPrescriptions The list of prescriptions to initialize with
+     * @param storage             The backend that changes are saved through
+     */
+    public ManagementSystem(List<Patient> loadedPatients, List<Appointment> loadedAppointments,
+                            List<Prescription> loadedPrescriptions, StorageBackend storage) {
         assert loadedPatients != null : "Patient list cannot be null";
         assert loadedAppointments != null : "Appointment list cannot be null";
         assert loadedPrescriptions != null : "Prescription list cannot be null";
+        assert storage != null : "Storage backend cannot be null";
         appointments = loadedAppointments;
         patients = loadedPatients;
+        patientView = Collections.unmodifiableList(patients);
+        appointmentView = Collections.unmodifiableList(appointments);
         prescriptions = loadedPrescriptions;
+        prescriptionView = Collections.unmodifiableList(prescriptions);
+        this.storage = storage;
+        patientsByNric = new ListIndex<>(patients, Patient::getId, ManagementSystem::normalize);
+        appointmentIndex = new AppointmentIndex(appointments);
+        prescriptionIndex = new PatientPrescriptionIndex(prescriptions, storage::findArchivedPrescriptions);
+    }
+
+    /**
+     * Finds a patient among those in memory, without paging one in from storage.
+     *
+     * @param nric The NRIC of the patient, in any case
+     * @return The loaded patient, or null if it is not loaded
+     */
+    Patient findLoadedPatient(String nric) {
+        return patientsByNric.get(nric);
+    }
+
+    private static String normalize(String nric) {
+        return nric.trim().toUpperCase();
+    }
+
+    /**
+     * Gets the tracker that decides whether an edit changed anything worth saving.
+     *
+     * @return The change tracker, counting the writes it avoided
+     */
+    public ChangeTracker getChangeTracker() {
+        return changes;
+    }
+
+    /**
+     * Gets the storage backend that changes are saved through.
+     *
+     * @return The storage backend
+     */
+    public StorageBackend getStorage() {
+        return storage;
+    }
+
+    /**
+     * Begins adding many records at once, checked through indexes and saved together when committed.
+     *
+     * @return The import, which adds records to this system
+     */
+    public BulkImport beginImport() {
+        return new BulkImport(this);
     }
 
     /**
      * Gets the list of all patients in the system.
+     * The list cannot be changed directly, since the NRIC index must change with it.
      *
-     * @return List of all Patient objects
+     * @return Read-only list of all Patient objects
      */
     public List<Patient> getPatients() {
-        return patients;
+        return patientView;
+    }
+
+    /**
+     * Visits every patient, first those in memory and then those the storage backend holds but has not
+     * paged in, without paging any more in. Lists every patient even when patients are paged in from disk.
+     *
+     * @param visitor Receives each patient
+     * @throws UnloadedStorageException If the stored patients could not be read
+     */
+    public void forEachPatient(RecordVisitor<Patient> visitor) throws UnloadedStorageException {
+        Set<String> loadedNrics = new HashSet<>();
+        try {
+            for (Patient patient : patients) {
+                loadedNrics.add(normalize(patient.getId()));
+                visitor.visit(patient);
+            }
+            storage.forEachUnloadedPatient(loadedNrics, visitor);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to read stored patients: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a patient to memory without saving it, for a patient that is already stored
+     * or that the caller saves itself, such as one replayed from the journal or imported in bulk.
+     *
+     * @param patient The patient to add
+     */
+    public void addLoadedPatient(Patient patient) {
+        assert patient != null : "Patient cannot be null";
+        patientsByNric.add(patient);
+    }
+
+    /**
+     * Removes patients from memory without saving the change, for changes that are already stored
+     * or that failed to be saved.
+     *
+     * @param removed The patients to remove
+     */
+    public void removeLoadedPatients(Collection<Patient> removed) {
+        patientsByNric.removeAll(removed);
+    }
+
+    /**
+     * Finds a loaded appointment by its ID, ignoring case.
+     *
+     * @param apptId The appointment ID
+     * @return The appointment, or null if no appointment has the ID
+     */
+    public Appointment findAppointmentById(String apptId) {
+        return appointmentIndex.get(apptId);
+    }
+
+    /**
+     * Finds an appointment that clashes with one at a given time, by starting less than an hour before or after it.
+     *
+     * @param dateTime The start of the appointment to check
+     * @return The earliest clashing appointment, or null if there is none
+     */
+    public Appointment findClashingAppointment(LocalDateTime dateTime) {
+        return appointmentIndex.findWithin(dateTime, CLASH_WINDOW);
+    }
+
+    /**
+     * Adds an appointment to memory without saving it or linking it to its patient,
+     * for an appointment that is already stored or that the caller saves itself.
+     *
+     * @param appointment The appointment to add
+     */
+    public void addLoadedAppointment(Appointment appointment) {
+        assert appointment != null : "Appointment cannot be null";
+        appointmentIndex.add(appointment);
+    }
+
+    /**
+     * Removes appointments from memory without saving the change or unlinking them from their patients,
+     * for changes that are already stored or that failed to be saved.
+     *
+     * @param removed The appointments to remove
+     */
+    public void removeLoadedAppointments(Collection<Appointment> removed) {
+        appointmentIndex.removeAll(removed);
     }
 
     /**
@@ -76,15 +254,35 @@ public class ManagementSystem {
     public void setAppointments(List<Appointment> appointments) {
         this.appointments.clear();
         this.appointments.addAll(appointments);
+        appointmentIndex.rebuild();
+    }
+
+    /**
+     * Replaces every record in the system with those of another, such as one just reloaded from storage.
+     * The lists are updated in place, so lists obtained from this system earlier stay current.
+     *
+     * @param loaded The system holding the records to keep
+     */
+    public void replaceRecords(ManagementSystem loaded) {
+        patients.clear();
+        patients.addAll(loaded.getPatients());
+        patientsByNric.rebuild();
+        appointments.clear();
+        appointments.addAll(loaded.getAppointments());
+        appointmentIndex.rebuild();
+        prescriptions.clear();
+        prescriptions.addAll(loaded.getPrescriptions());
+        prescriptionIndex.rebuild();
     }
 
     /**
      * Gets the list of all appointments in the system.
+     * The list cannot be changed directly, since the appointment index must change with it.
      *
-     * @return List of all Appointment objects
+     * @return Read-only list of all Appointment objects
      */
     public List<Appointment> getAppointments() {
-        return appointments;
+        return appointmentView;
     }
 
     /**
@@ -100,14 +298,11 @@ public class ManagementSystem {
         assert patient != null : "Patient cannot be null";
         assert patients != null : "Patient list cannot be null";
 
-        for (Patient existingPatient : patients) {
-            assert existingPatient != null : "Existing patient in list cannot be null";
-            if (existingPatient.getId().equals(patient.getId())) {
-                throw new DuplicatePatientIDException("Patient ID already exists!");
-            }
+        if (findPatientByNric(patient.getId()) != null) {
+            throw new DuplicatePatientIDException("Patient ID already exists!");
         }
-        patients.add(patient);
-        Storage.savePatients(patients);
+        addLoadedPatient(patient);
+        storage.recordPatientUpsert(patient, patientView);
     }
 
     /**
@@ -123,17 +318,15 @@ public class ManagementSystem {
         assert nric != null && !nric.isBlank() : "NRIC must not be null or blank";
         assert patients != null : "Patient list cannot be null";
 
-        for (Patient patient : patients) {
-            if (patient.getId().equals(nric)) {
-                patients.remove(patient);
-                // delete all appointments associated with a patient to be deleted
-                appointments.removeIf(appointment -> appointment.getNric().equals(nric));
-                Storage.savePatients(patients);
-                Storage.saveAppointments(appointments);
-                return patient;
-            }
+        Patient patient = viewPatient(nric);
+        if (patient == null) {
+            return null;
         }
-        return null;
+        removeLoadedPatients(List.of(patient));
+        // delete all appointments associated with a patient to be deleted
+        removeLoadedAppointments(findAppointmentsByNric(nric));
+        storage.recordPatientDelete(patient.getId(), patientView, appointmentView);
+        return patient;
     }
 
     //@@author dylancmznus
@@ -141,21 +334,25 @@ public class ManagementSystem {
     /**
      * Retrieves the patient object that matches the specified NRIC.
      *
-     * <p>The method iterates through the list of existing patients to find a match
-     * based on the NRIC. If a match is found, the corresponding Patient object is returned;
-     * otherwise, it returns null.</p>
+     * <p>The method looks the NRIC up in the index of loaded patients,
+     * then asks the storage backend for a patient that has not been loaded.
+     * If a match is found, the corresponding Patient object is returned; otherwise, it returns null.</p>
      *
      * @param nric The NRIC of the patient to be retrieved.
      * @return The Patient object matching the given NRIC, or null if no match is found.
+     * @throws UnloadedStorageException if the patient is not loaded and storage could not be read.
      * @throws AssertionError if the input NRIC is null or blank.
      */
-    public Patient viewPatient(String nric) {
+    public Patient viewPatient(String nric) throws UnloadedStorageException {
         assert nric != null && !nric.isBlank() : "NRIC must not be null or blank";
-        Patient matchedPatient = null;
-        for (Patient patient : patients) {
-            if (patient.getId().equals(nric)) {
-                matchedPatient = patient;
-                break;
+        Patient matchedPatient = findLoadedPatient(nric);
+        if (matchedPatient != null && !matchedPatient.getId().equals(nric)) {
+            matchedPatient = null;
+        }
+        if (matchedPatient == null) {
+            Patient storedPatient = pageInPatient(nric);
+            if (storedPatient != null && storedPatient.getId().equals(nric)) {
+                matchedPatient = storedPatient;
             }
         }
         return matchedPatient;
@@ -165,7 +362,7 @@ public class ManagementSystem {
     /**
      * Edits an existing patient's information.
      * Updates only the fields that are provided (non-null).
-     * Saves changes to storage after successful update.
+     * Saves changes to storage after successful update, unless no field actually changed.
      *
      * @param nric       The NRIC of the patient to edit (cannot be changed)
      * @param newName    New name for the patient, or null to keep unchanged
@@ -188,20 +385,26 @@ public class ManagementSystem {
         if (patient == null) {
             throw new PatientNotFoundException("Patient with NRIC " + nric + " not found.");
         }
-        if (newName != null && !newName.isBlank()) {
-            patient.setName(newName);
-        }
+        // The date of birth is checked before anything is changed, so an invalid one leaves the patient as it was
+        LocalDate parsedDob = null;
         if (newDob != null && !newDob.isBlank()) {
             try {
                 DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                LocalDate parsedDob = LocalDate.parse(newDob, formatter);
-                if (parsedDob.isAfter(LocalDate.now())) {
-                    throw new InvalidInputFormatException("Date of birth must be before today.");
-                }
-                patient.setDob(parsedDob);
+                parsedDob = LocalDate.parse(newDob, formatter);
             } catch (DateTimeParseException e) {
                 throw new InvalidInputFormatException("Invalid date format. Use yyyy-MM-dd.");
             }
+            if (parsedDob.isAfter(LocalDate.now())) {
+                throw new InvalidInputFormatException("Date of birth must be before today.");
+            }
+        }
+
+        changes.markClean(patient, patient.toFileFormat());
+        if (newName != null && !newName.isBlank()) {
+            patient.setName(newName);
+        }
+        if (parsedDob != null) {
+            patient.setDob(parsedDob);
         }
 
         if (newGender != null && !newGender.isBlank()) {
@@ -213,14 +416,14 @@ public class ManagementSystem {
         if (newPhone != null && !newPhone.isBlank()) {
             patient.setContactInfo(newPhone);
         }
-        Storage.savePatients(patients);
+        savePatientIfChanged(patient);
         System.out.println("Patient with NRIC " + nric + " updated successfully.");
     }
 
     /**
      * Stores new medical history entries for a patient.
      * If an entry already exists in the patient's history, it will not be duplicated.
-     * Saves the updated patient list to storage.
+     * Saves the updated patient list to storage, unless every entry was already present.
      *
      * @param nric       The NRIC of the patient
      * @param medHistory Comma-separated medical history entries to add
@@ -241,13 +444,14 @@ public class ManagementSystem {
             Ui.showLine();
         }
 
+        changes.markClean(existingPatient, existingPatient.toFileFormat());
         String[] historyEntries = medHistory.split(",\\s*");
         for (String entry : historyEntries) {
             if (!existingPatient.getMedicalHistory().contains(entry.trim())) {
                 existingPatient.getMedicalHistory().add(entry.trim());
             }
         }
-        Storage.savePatients(patients);
+        savePatientIfChanged(existingPatient);
         System.out.println("Medical history added for patient with NRIC: " + nric + ".");
         Ui.showLine();
     }
@@ -259,8 +463,9 @@ public class ManagementSystem {
      *
      * @param nric The NRIC of the patient whose medical history should be displayed.
      * @throws PatientNotFoundException if no patient with the specified NRIC is found.
+     * @throws UnloadedStorageException if the patient is not loaded and storage could not be read.
      */
-    public void viewMedicalHistoryByNric(String nric) throws PatientNotFoundException {
+    public void viewMedicalHistoryByNric(String nric) throws PatientNotFoundException, UnloadedStorageException {
         Patient foundPatients = findPatientByNric(nric.trim());
 
         if (foundPatients == null) {
@@ -296,6 +501,7 @@ public class ManagementSystem {
     /**
      * Edits a specific medical history entry for a patient.
      * Replaces the old history text with new text if the old text is found.
+     * Nothing is saved if the old text is not found.
      *
      * @param nric       The patient's unique identifier
      * @param oldHistory The existing history text to be replaced
@@ -313,6 +519,7 @@ public class ManagementSystem {
             System.out.println("Patient with NRIC " + nric + " not found.");
             return;
         }
+        changes.markClean(patient, patient.toFileFormat());
         List<String> histories = patient.getMedicalHistory();
         boolean foundOld = false;
         for (int i = 0; i < histories.size(); i++) {
@@ -323,28 +530,58 @@ public class ManagementSystem {
                 break;
             }
         }
-        Storage.savePatients(patients);
+        savePatientIfChanged(patient);
         if (!foundOld) {
             System.out.println("Old history \"" + oldHistory + "\" not found for patient " + patient.getName());
         }
     }
 
 
+    /**
+     * Saves an edited patient unless the edit left the patient as it was.
+     *
+     * @param patient The patient, marked clean before it was edited
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    private void savePatientIfChanged(Patient patient) throws UnloadedStorageException {
+        if (changes.isDirty(patient, patient.toFileFormat())) {
+            storage.recordPatientUpsert(patient, patientView);
+        }
+    }
+
     /**
      * Finds a patient by their NRIC, ignoring case.
      *
      * @param nric The NRIC string to search for.
      * @return The Patient object if found, or null if no matching patient is found.
+     * @throws UnloadedStorageException If the patient is not loaded and storage could not be read
      */
-    public Patient findPatientByNric(String nric) {
-        String object = nric.trim().toUpperCase();
-        for (Patient p : patients) {
-            String patientId = p.getId().trim().toUpperCase();
-            if (patientId.equals(object)) {
-                return p;
-            }
+    public Patient findPatientByNric(String nric) throws UnloadedStorageException {
+        Patient patient = findLoadedPatient(nric);
+        if (patient != null) {
+            return patient;
         }
-        return null;
+        return pageInPatient(nric);
+    }
+
+    /**
+     * Pages in a patient that is stored but was not loaded into memory, keeping it loaded from then on.
+     *
+     * @param nric The NRIC of the patient, in any case
+     * @return The loaded patient, or null if the storage backend has no such patient
+     * @throws UnloadedStorageException If the stored patients could not be read
+     */
+    private Patient pageInPatient(String nric) throws UnloadedStorageException {
+        Patient storedPatient = storage.findPatient(nric);
+        if (storedPatient == null) {
+            return null;
+        }
+        Patient loadedPatient = findLoadedPatient(storedPatient.getId());
+        if (loadedPatient != null) {
+            return loadedPatient;
+        }
+        addLoadedPatient(storedPatient);
+        return storedPatient;
     }
 
     /**
@@ -381,12 +618,8 @@ public class ManagementSystem {
         assert patients != null : "Patient list cannot be null";
 
         // Check if there is any scheduled appointment in the list clashing with this newly-added one
-        for (Appointment appointmentInList : appointments) {
-            long timeDiff = Math.abs(Duration.between(appointmentInList.getDateTime(),
-                    appointment.getDateTime()).toMinutes());
-            if (timeDiff < 60) {
-                throw new AppointmentClashException("This appointment clashes with another scheduled within 1 hour.");
-            }
+        if (findClashingAppointment(appointment.getDateTime()) != null) {
+            throw new AppointmentClashException("This appointment clashes with another scheduled within 1 hour.");
         }
 
         Patient patient = findPatientByNric(appointment.getNric());
@@ -394,9 +627,9 @@ public class ManagementSystem {
             throw new PatientNotFoundException("Patient with NRIC: " + appointment.getNric() + " not found");
         }
 
-        appointments.add(appointment);
+        addLoadedAppointment(appointment);
         patient.addAppointment(appointment);
-        Storage.saveAppointments(appointments);
+        storage.recordAppointmentAdd(appointment, appointmentView);
     }
 
     /**
@@ -412,18 +645,17 @@ public class ManagementSystem {
         assert apptId != null && !apptId.isBlank() : "Appointment ID cannot be null or blank";
         assert appointments != null : "Appointment list cannot be null";
 
-        for (Appointment appointment : appointments) {
-            if (appointment.getId().equalsIgnoreCase(apptId)) {
-                appointments.remove(appointment);
-                Patient patient = findPatientByNric(appointment.getNric());
-                if (patient != null) {
-                    patient.deleteAppointment(apptId);
-                    Storage.saveAppointments(appointments);
-                }
-                return appointment;
-            }
+        Appointment appointment = findAppointmentById(apptId);
+        if (appointment == null) {
+            return null;
         }
-        return null;
+        removeLoadedAppointments(List.of(appointment));
+        Patient patient = findPatientByNric(appointment.getNric());
+        if (patient != null) {
+            patient.removeAppointment(appointment);
+        }
+        storage.recordAppointmentDelete(appointment, appointmentView);
+        return appointment;
     }
 
     /**
@@ -450,42 +682,79 @@ public class ManagementSystem {
         return appointments;
     }
 
+    /**
+     * Sorts the appointments in the system by date and time, the order they are then listed and saved in.
+     *
+     * @return Read-only list of the sorted appointments
+     */
+    public List<Appointment> sortAppointmentsByDateTime() {
+        return sortStoredAppointments(Comparator.comparing(Appointment::getDateTime));
+    }
+
+    /**
+     * Sorts the appointments in the system by their ID, the order they are then listed and saved in.
+     *
+     * @return Read-only list of the sorted appointments
+     */
+    public List<Appointment> sortAppointmentsById() {
+        return sortStoredAppointments(Comparator.comparing(Appointment::getId));
+    }
+
+    private List<Appointment> sortStoredAppointments(Comparator<Appointment> order) {
+        appointments.sort(order);
+        // The order decides which of several appointments with the same ID is found first
+        appointmentIndex.rebuild();
+        return appointmentView;
+    }
+
     /**
      * Marks an appointment as completed.
-     * Updates the appointment status and saves changes to storage.
+     * Updates the appointment status and saves changes to storage if the status changed.
      *
      * @param apptId The ID of the appointment to mark as done
      * @return The updated appointment, or null if no appointment with the given ID was found
      * @throws UnloadedStorageException If there was an error saving to storage
      */
     public Appointment markAppointment(String apptId) throws UnloadedStorageException {
-        for (Appointment appointment : appointments) {
-            if (appointment.getId().equalsIgnoreCase(apptId)) {
-                appointment.markAsDone();
-                Storage.saveAppointments(appointments);
-                return appointment;
-            }
+        Appointment appointment = findAppointmentById(apptId);
+        if (appointment == null) {
+            return null;
         }
-        return null;
+        changes.markClean(appointment, appointment.toFileFormat());
+        appointment.markAsDone();
+        saveAppointmentStatusIfChanged(appointment);
+        return appointment;
     }
 
     /**
      * Unmarks a previously completed appointment.
-     * Updates the appointment status and saves changes to storage.
+     * Updates the appointment status and saves changes to storage if the status changed.
      *
      * @param apptId The ID of the appointment to unmark
      * @return The updated appointment, or null if no appointment with the given ID was found
      * @throws UnloadedStorageException If there was an error saving to storage
      */
     public Appointment unmarkAppointment(String apptId) throws UnloadedStorageException {
-        for (Appointment appointment : appointments) {
-            if (appointment.getId().equalsIgnoreCase(apptId)) {
-                appointment.unmarkAsDone();
-                Storage.saveAppointments(appointments);
-                return appointment;
-            }
+        Appointment appointment = findAppointmentById(apptId);
+        if (appointment == null) {
+            return null;
+        }
+        changes.markClean(appointment, appointment.toFileFormat());
+        appointment.unmarkAsDone();
+        saveAppointmentStatusIfChanged(appointment);
+        return appointment;
+    }
+
+    /**
+     * Saves a marked or unmarked appointment unless its status was already as requested.
+     *
+     * @param appointment The appointment, marked clean before its status was set
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    private void saveAppointmentStatusIfChanged(Appointment appointment) throws UnloadedStorageException {
+        if (changes.isDirty(appointment, appointment.toFileFormat())) {
+            storage.recordAppointmentStatus(appointment, appointmentView);
         }
-        return null;
     }
 
 
@@ -512,11 +781,55 @@ public class ManagementSystem {
 
     /**
      * Gets all prescriptions stored in the system.
+     * The list cannot be changed directly, since the prescription index must change with it.
      *
-     * @return A list of all prescription records
+     * @return A read-only list of all prescription records
      */
     public List<Prescription> getPrescriptions() {
-        return prescriptions;
+        return prescriptionView;
+    }
+
+    /**
+     * Adds a prescription to memory without saving it, for a prescription that is already stored
+     * or that the caller saves itself.
+     *
+     * @param prescription The prescription to add, with its final ID
+     */
+    public void addLoadedPrescription(Prescription prescription) {
+        assert prescription != null : "Prescription cannot be null";
+        prescriptionIndex.add(prescription);
+    }
+
+    /**
+     * Removes prescriptions from memory without saving the change, for additions that failed to be saved.
+     *
+     * @param removed The prescriptions to remove
+     */
+    public void removeLoadedPrescriptions(Collection<Prescription> removed) {
+        prescriptionIndex.removeAll(removed);
+    }
+
+    /**
+     * Gets the sequence number for the next prescription of a patient, so that no ID of a loaded
+     * or archived prescription is reused.
+     *
+     * @param patientId The NRIC of the patient
+     * @return The next sequence number, starting from 1
+     * @throws UnloadedStorageException If the patient's archived prescriptions could not be read
+     */
+    int nextPrescriptionSequence(String patientId) throws UnloadedStorageException {
+        return prescriptionIndex.nextSequence(patientId);
+    }
+
+    /**
+     * Counts the loaded and archived prescriptions of a patient, for the limit on prescriptions per patient.
+     *
+     * @param patientId The NRIC of the patient
+     * @return The number of the patient's prescriptions
+     * @throws UnloadedStorageException If the patient's archived prescriptions could not be read
+     */
+    int countPrescriptions(String patientId) throws UnloadedStorageException {
+        return prescriptionIndex.countPrescriptions(patientId);
     }
 
     //@@author Basudeb2005
@@ -524,7 +837,8 @@ public class ManagementSystem {
     /**
      * Adds a new prescription to the system.
      * Verifies the patient exists before adding the prescription.
-     * Generates a unique prescription ID based on patient ID and prescription count.
+     * Generates a unique prescription ID based on patient ID and the highest sequence number in use.
+     * A patient may have at most 100 prescriptions, counting archived ones.
      * Saves the updated prescription list to storage.
      *
      * @param prescription The prescription to add (without final ID)
@@ -542,23 +856,16 @@ public class ManagementSystem {
             throw new IllegalArgumentException("Patient with NRIC: " + prescription.getPatientId() + " not found");
         }
 
-        // Generate prescription ID with counter
-        int prescriptionCount = 1;
-        for (Prescription p : prescriptions) {
-            if (p.getPatientId().equals(prescription.getPatientId())) {
-                prescriptionCount++;
-            }
-        }
-
-        // Check for maximum prescription limit
-        final int MAX_PRESCRIPTIONS_PER_PATIENT = 100; // Reasonable upper limit
-        if (prescriptionCount > MAX_PRESCRIPTIONS_PER_PATIENT) {
+        // Check for maximum prescription limit, counting archived prescriptions too
+        if (countPrescriptions(prescription.getPatientId()) >= MAX_PRESCRIPTIONS_PER_PATIENT) {
             throw new IllegalArgumentException("Maximum number of prescriptions (" +
                     MAX_PRESCRIPTIONS_PER_PATIENT +
                     ") reached for patient: " + prescription.getPatientId());
         }
 
-        String prescriptionId = prescription.getPatientId() + "-" + prescriptionCount;
+        // Number the prescription after the highest ID in use, so no loaded or archived ID is reused
+        int sequence = nextPrescriptionSequence(prescription.getPatientId());
+        String prescriptionId = prescription.getPatientId() + "-" + sequence;
 
         // Create a new prescription with updated ID
         Prescription newPrescription = new Prescription(
@@ -570,13 +877,13 @@ public class ManagementSystem {
                 prescription.getNotes()
         );
 
-        prescriptions.add(newPrescription);
+        addLoadedPrescription(newPrescription);
 
         try {
-            Storage.savePrescriptions(prescriptions);
+            storage.recordPrescriptionAdd(newPrescription, prescriptionView);
         } catch (UnloadedStorageException e) {
             // Roll back the addition if saving fails
-            prescriptions.remove(newPrescription);
+            removeLoadedPrescriptions(List.of(newPrescription));
             throw e; // Re-throw to notify the caller
         }
 
@@ -587,36 +894,114 @@ public class ManagementSystem {
 
     /**
      * Retrieves all prescriptions for a specific patient.
-     * Filters the complete prescription list to find those matching the provided patient ID.
+     * Archived prescriptions of the patient come first, followed by the patient's loaded prescriptions,
+     * which are found through the index without scanning the prescriptions of other patients.
+     * Details of lazily loaded prescriptions are read from storage for the matches only.
      *
      * @param patientId The unique identifier of the patient
      * @return A list of prescriptions for the specified patient (may be empty if none found)
+     * @throws UnloadedStorageException If the patient's archived prescriptions could not be read
      */
-    public List<Prescription> getPrescriptionsForPatient(String patientId) {
+    public List<Prescription> getPrescriptionsForPatient(String patientId) throws UnloadedStorageException {
         List<Prescription> patientPrescriptions = new ArrayList<>();
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getPatientId().equals(patientId)) {
-                patientPrescriptions.add(prescription);
+        for (Prescription archived : storage.findArchivedPrescriptions(patientId)) {
+            // A prescription still in the loaded list after an interrupted archiving run is listed once
+            if (findLoadedPrescription(archived.getPrescriptionId()) == null) {
+                patientPrescriptions.add(archived);
             }
         }
+        for (Prescription prescription : prescriptionIndex.getPrescriptions(patientId)) {
+            patientPrescriptions.add(prescription.loadDetails());
+        }
         return patientPrescriptions;
     }
 
     //@@author Basudeb2005
 
     /**
-     * Finds a specific prescription by its unique identifier.
+     * Finds a specific prescription by its unique identifier, through the index of loaded prescriptions.
+     * Details of a lazily loaded prescription are read from storage once it is found.
+     * A prescription that is not loaded is looked up in the archive of the patient named by its ID.
      *
      * @param prescriptionId The unique ID of the prescription to find
      * @return The prescription if found, or null if no matching prescription exists
+     * @throws UnloadedStorageException If the prescription is not loaded and the archive could not be read
      */
-    public Prescription getPrescriptionById(String prescriptionId) {
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getPrescriptionId().equals(prescriptionId)) {
-                return prescription;
+    public Prescription getPrescriptionById(String prescriptionId) throws UnloadedStorageException {
+        Prescription prescription = findLoadedPrescription(prescriptionId);
+        if (prescription != null) {
+            return prescription.loadDetails();
+        }
+
+        int separator = prescriptionId.lastIndexOf('-');
+        if (separator <= 0) {
+            return null;
+        }
+        for (Prescription archived : storage.findArchivedPrescriptions(prescriptionId.substring(0, separator))) {
+            if (archived.getPrescriptionId().equals(prescriptionId)) {
+                return archived;
             }
         }
         return null;
     }
 
+    /**
+     * Retrieves the prescriptions issued within a date range, optionally for one patient only.
+     * Archived prescriptions are included. Details of lazily loaded prescriptions are read from storage
+     * for the matches only.
+     *
+     * @param from      The earliest issue date included
+     * @param to        The latest issue date included
+     * @param patientId The NRIC of the only patient whose prescriptions are included, or null for all patients
+     * @return The matching prescriptions, archived ones first
+     * @throws UnloadedStorageException If the archived prescriptions could not be read
+     */
+    public List<Prescription> getPrescriptionsIssuedBetween(LocalDate from, LocalDate to, String patientId)
+            throws UnloadedStorageException {
+        assert !from.isAfter(to) : "The date range must not be empty";
+        if (patientId != null) {
+            List<Prescription> matches = new ArrayList<>();
+            for (Prescription prescription : getPrescriptionsForPatient(patientId)) {
+                if (isIssuedBetween(prescription, from, to)) {
+                    matches.add(prescription);
+                }
+            }
+            return matches;
+        }
+
+        List<Prescription> matches = new ArrayList<>();
+        try {
+            storage.forEachArchivedPrescription(archived -> {
+                if (findLoadedPrescription(archived.getPrescriptionId()) == null
+                        && isIssuedBetween(archived, from, to)) {
+                    matches.add(archived);
+                }
+            });
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to read archived prescriptions: " + e.getMessage());
+        }
+        for (Prescription prescription : prescriptions) {
+            if (isIssuedBetween(prescription, from, to)) {
+                matches.add(prescription.loadDetails());
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isIssuedBetween(Prescription prescription, LocalDate from, LocalDate to) {
+        LocalDate issued = prescription.getTimestamp().toLocalDate();
+        return !issued.isBefore(from) && !issued.isAfter(to);
+    }
+
+    /**
+     * Finds a loaded prescription by its ID through the index, without reading lazily loaded details
+     * from storage or searching the archive.
+     *
+     * @param prescriptionId The prescription ID
+     * @return The prescription, or null if no loaded prescription has the ID
+     */
+    public Prescription findLoadedPrescription(String prescriptionId) {
+        return prescriptionIndex.get(prescriptionId);
+    }
+
 }
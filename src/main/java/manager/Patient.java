@@ -5,15 +5,23 @@ import exception.InvalidInputFormatException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
  * Represents a patient in the clinic management system.
  * Stores patient details such as NRIC, name, date of birth, contact info, gender,
  * address, medical history, and appointments.
+ * The appointments are kept by their upper-cased ID in the order they were added,
+ * so one can be removed without searching the others.
  */
 public class Patient {
 
@@ -24,7 +32,8 @@ public class Patient {
     private String gender;
     private String address;
     private final List<String> medicalHistory;
-    private final List<Appointment> appointments;
+    private final Map<String, Appointment> appointments;
+    private final List<Appointment> appointmentView = new AppointmentView();
 
     /**
      * Constructs a new Patient object with the given details.
@@ -55,7 +64,35 @@ public class Patient {
         this.address = address;
         this.contactInfo = parseContactInfo(contactInfo);
         this.medicalHistory = new ArrayList<>(medicalHistory);
-        this.appointments = new ArrayList<>();
+        this.appointments = new LinkedHashMap<>();
+    }
+
+    /**
+     * Constructs a Patient from fields that were validated before they were stored
+     * (used for loading from binary storage, where re-validating every field is wasted work).
+     *
+     * @param id             The NRIC of the patient.
+     * @param name           The name of the patient.
+     * @param dob            The date of birth.
+     * @param gender         The gender (M or F).
+     * @param address        The address.
+     * @param contactInfo    The 8-digit contact number.
+     * @param medicalHistory A list of past medical history.
+     */
+    public Patient(String id, String name, LocalDate dob, String gender, String address,
+                   String contactInfo, List<String> medicalHistory) {
+        assert id != null && !id.isBlank() : "Patient ID cannot be null or blank";
+        assert dob != null : "Date of birth cannot be null";
+        assert medicalHistory != null : "Medical history list cannot be null";
+
+        this.id = id;
+        this.name = name;
+        this.dob = dob;
+        this.gender = gender;
+        this.address = address;
+        this.contactInfo = contactInfo;
+        this.medicalHistory = new ArrayList<>(medicalHistory);
+        this.appointments = new LinkedHashMap<>();
     }
 
     /**
@@ -159,10 +196,36 @@ public class Patient {
     }
 
     /**
-     * @return the patient's list of appointments
+     * @return a read-only view of the patient's appointments, in the order they were added
      */
     public List<Appointment> getAppointments() {
-        return appointments;
+        return appointmentView;
+    }
+
+    /**
+     * Read-only list view of the appointments map, which changes as appointments are added and removed.
+     * Iterating it walks the map directly; getting by position walks it up to that position.
+     */
+    private class AppointmentView extends AbstractList<Appointment> {
+        @Override
+        public Appointment get(int index) {
+            Objects.checkIndex(index, appointments.size());
+            Iterator<Appointment> iterator = iterator();
+            for (int i = 0; i < index; i++) {
+                iterator.next();
+            }
+            return iterator.next();
+        }
+
+        @Override
+        public int size() {
+            return appointments.size();
+        }
+
+        @Override
+        public Iterator<Appointment> iterator() {
+            return Collections.unmodifiableCollection(appointments.values()).iterator();
+        }
     }
 
     /**
@@ -173,22 +236,31 @@ public class Patient {
     public void addAppointment(Appointment appointment) {
         assert appointment != null : "Appointment cannot be null";
         assert appointment.getNric().equals(this.id) : "Appointment NRIC must match patient ID";
-        appointments.add(appointment);
+        appointments.putIfAbsent(appointmentKey(appointment.getId()), appointment);
     }
 
     /**
-     * Removes an appointment from the patient by appointment ID.
+     * Removes an appointment from the patient by appointment ID, ignoring case.
      *
      * @param apptId ID of the appointment to be removed.
      */
     public void deleteAppointment(String apptId) {
         assert apptId != null && !apptId.isBlank() : "Appointment ID cannot be null or blank";
-        for (Appointment appt : appointments) {
-            if (appt.getId().equals(apptId)) {
-                appointments.remove(appt);
-                break;
-            }
-        }
+        appointments.remove(appointmentKey(apptId));
+    }
+
+    /**
+     * Removes an appointment from the patient, if it is the one the patient holds under its ID.
+     *
+     * @param appointment Appointment to be removed.
+     */
+    public void removeAppointment(Appointment appointment) {
+        assert appointment != null : "Appointment cannot be null";
+        appointments.remove(appointmentKey(appointment.getId()), appointment);
+    }
+
+    private static String appointmentKey(String apptId) {
+        return apptId.trim().toUpperCase();
     }
 
     /**
@@ -215,7 +287,7 @@ public class Patient {
             result += "\nAppointments: None";
         } else {
             result += "\nAppointments:";
-            for (Appointment appt : appointments) {
+            for (Appointment appt : appointments.values()) {
                 result += String.format(
                         "\n- [%s][%s]: %s (%s)",
                         appt.getId(),
@@ -255,7 +327,7 @@ public class Patient {
             result += "\n   Appointments: None";
         } else {
             result += "\n   Appointments:";
-            for (Appointment appt : appointments) {
+            for (Appointment appt : appointments.values()) {
                 result += String.format(
                         "\n   - [%s][%s]: %s (%s)",
                         appt.getId(),
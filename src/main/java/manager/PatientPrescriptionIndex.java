@@ -0,0 +1,163 @@
+package manager;
+
+import exception.UnloadedStorageException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index over the prescription list by prescription ID and by patient.
+ * Each patient's prescriptions are kept in list order, with the highest sequence number among their IDs,
+ * so numbering a new prescription, counting or listing a patient's prescriptions only looks at that patient's
+ * records. The number and highest sequence number of a patient's archived prescriptions are read from the
+ * archive when the patient is first numbered or counted, and again after any of the patient's prescriptions
+ * leaves the list, as it does when archived, so their IDs are not reused.
+ */
+class PatientPrescriptionIndex extends ListIndex<Prescription> {
+    private final ArchiveLookup findArchived;
+    private final Map<String, List<Prescription>> prescriptionsByPatient = new HashMap<>();
+    private final Map<String, Integer> lastSequences = new HashMap<>();
+    private final Map<String, ArchivedSummary> archivedSummaries = new HashMap<>();
+
+    /**
+     * Finds the archived prescriptions of a patient in storage.
+     */
+    interface ArchiveLookup {
+        /**
+         * Finds the archived prescriptions of a patient.
+         *
+         * @param patientId The NRIC of the patient
+         * @return The patient's archived prescriptions, or an empty list if there are none
+         * @throws UnloadedStorageException If the archive could not be read
+         */
+        List<Prescription> find(String patientId) throws UnloadedStorageException;
+    }
+
+    /**
+     * The number of a patient's archived prescriptions that are not also loaded, and their highest sequence number.
+     */
+    private static class ArchivedSummary {
+        private final int count;
+        private final int lastSequence;
+
+        ArchivedSummary(int count, int lastSequence) {
+            this.count = count;
+            this.lastSequence = lastSequence;
+        }
+    }
+
+    /**
+     * Constructs an index over the prescriptions already in a list, which are indexed on first use.
+     *
+     * @param prescriptions The list of prescriptions, which the index adds to and removes from
+     * @param findArchived  Finds the archived prescriptions of a patient
+     */
+    PatientPrescriptionIndex(List<Prescription> prescriptions, ArchiveLookup findArchived) {
+        super(prescriptions, Prescription::getPrescriptionId, id -> id);
+        this.findArchived = findArchived;
+    }
+
+    /**
+     * Gets the loaded prescriptions of a patient.
+     *
+     * @param patientId The NRIC of the patient, as written in the prescriptions
+     * @return The patient's prescriptions in list order, or an empty list if there are none
+     */
+    List<Prescription> getPrescriptions(String patientId) {
+        ensureIndexed();
+        return new ArrayList<>(prescriptionsByPatient.getOrDefault(patientId, List.of()));
+    }
+
+    /**
+     * Gets the sequence number for the next prescription of a patient, one past the highest
+     * among the patient's loaded and archived prescriptions.
+     *
+     * @param patientId The NRIC of the patient, as written in the prescriptions
+     * @return The next sequence number, starting from 1
+     * @throws UnloadedStorageException If the patient's archived prescriptions could not be read
+     */
+    int nextSequence(String patientId) throws UnloadedStorageException {
+        ensureIndexed();
+        int lastArchived = getArchivedSummary(patientId).lastSequence;
+        return Math.max(lastSequences.getOrDefault(patientId, 0), lastArchived) + 1;
+    }
+
+    /**
+     * Counts the prescriptions of a patient, loaded and archived, counting one that is in both only once.
+     *
+     * @param patientId The NRIC of the patient, as written in the prescriptions
+     * @return The number of the patient's prescriptions
+     * @throws UnloadedStorageException If the patient's archived prescriptions could not be read
+     */
+    int countPrescriptions(String patientId) throws UnloadedStorageException {
+        ensureIndexed();
+        List<Prescription> loaded = prescriptionsByPatient.getOrDefault(patientId, List.of());
+        return loaded.size() + getArchivedSummary(patientId).count;
+    }
+
+    private ArchivedSummary getArchivedSummary(String patientId) throws UnloadedStorageException {
+        ArchivedSummary summary = archivedSummaries.get(patientId);
+        if (summary == null) {
+            List<Prescription> archived = findArchived.find(patientId);
+            int count = 0;
+            for (Prescription prescription : archived) {
+                if (get(prescription.getPrescriptionId()) == null) {
+                    count++;
+                }
+            }
+            summary = new ArchivedSummary(count, lastSequenceOf(archived));
+            archivedSummaries.put(patientId, summary);
+        }
+        return summary;
+    }
+
+    @Override
+    void indexed(Prescription prescription) {
+        String patientId = prescription.getPatientId();
+        prescriptionsByPatient.computeIfAbsent(patientId, id -> new ArrayList<>()).add(prescription);
+        lastSequences.merge(patientId, sequenceOf(prescription), Math::max);
+    }
+
+    @Override
+    void unindexed(Prescription prescription) {
+        String patientId = prescription.getPatientId();
+        archivedSummaries.remove(patientId);
+        List<Prescription> patientPrescriptions = prescriptionsByPatient.get(patientId);
+        if (patientPrescriptions == null) {
+            return;
+        }
+        patientPrescriptions.removeIf(indexed -> indexed == prescription);
+        if (patientPrescriptions.isEmpty()) {
+            prescriptionsByPatient.remove(patientId);
+            lastSequences.remove(patientId);
+        } else {
+            lastSequences.put(patientId, lastSequenceOf(patientPrescriptions));
+        }
+    }
+
+    @Override
+    void cleared() {
+        prescriptionsByPatient.clear();
+        lastSequences.clear();
+        archivedSummaries.clear();
+    }
+
+    private static int lastSequenceOf(List<Prescription> prescriptions) {
+        int last = 0;
+        for (Prescription prescription : prescriptions) {
+            last = Math.max(last, sequenceOf(prescription));
+        }
+        return last;
+    }
+
+    private static int sequenceOf(Prescription prescription) {
+        String id = prescription.getPrescriptionId();
+        try {
+            return Integer.parseInt(id.substring(id.lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package manager;
 
+import miscellaneous.HtmlOutput;
+import miscellaneous.HtmlTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -14,13 +21,95 @@ import java.util.List;
 //@@author Basudeb2005
 public class Prescription {
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int HTML_SIZE_HINT = 2048;
+    private static final HtmlTemplate HTML_TEMPLATE = HtmlTemplate.compile("<!DOCTYPE html>\n"
+            + "<html lang=\"en\">\n"
+            + "<head>\n"
+            + "  <meta charset=\"UTF-8\">\n"
+            + "  <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n"
+            + "  <title>Prescription {{id}}</title>\n"
+            + "  <style>\n"
+            + "    body { font-family: Arial, sans-serif; margin: 40px; }\n"
+            + "    .prescription { border: 1px solid #333; padding: 20px; max-width: 800px; margin: 0 auto; }\n"
+            + "    .header { text-align: center; border-bottom: 2px solid #333; padding-bottom: 10px;\n"
+            + "             margin-bottom: 20px; }\n"
+            + "    .section { margin-bottom: 15px; }\n"
+            + "    h1 { color: #333; }\n"
+            + "    h2 { color: #555; margin-bottom: 5px; }\n"
+            + "    .footer { margin-top: 50px; border-top: 1px solid #ccc; padding-top: 10px;\n"
+            + "             text-align: center; }\n"
+            + "    @media print { .no-print { display: none; } }\n"
+            + "    table { width: 100%; border-collapse: collapse; }\n"
+            + "    td { padding: 5px; }\n"
+            + "    .patient-info td:first-child { font-weight: bold; width: 150px; }\n"
+            + "  </style>\n"
+            + "</head>\n"
+            + "<body>\n"
+            + "  <div class=\"prescription\">\n"
+            + "    <div class=\"header\">\n"
+            + "      <h1>ClinicEase Medical Prescription</h1>\n"
+            + "      <p>Prescription ID: {{id}}</p>\n"
+            + "      <p>Date: {{date}}</p>\n"
+            + "    </div>\n"
+            + "    <div class=\"section\">\n"
+            + "      <h2>Patient Information</h2>\n"
+            + "      <table class=\"patient-info\">\n"
+            + "{{patient}}"
+            + "      </table>\n"
+            + "    </div>\n"
+            + "    <div class=\"section\">\n"
+            + "      <h2>Symptoms</h2>\n"
+            + "      <ul>\n"
+            + "{{symptoms}}"
+            + "      </ul>\n"
+            + "    </div>\n"
+            + "    <div class=\"section\">\n"
+            + "      <h2>Prescribed Medications</h2>\n"
+            + "      <ul>\n"
+            + "{{medicines}}"
+            + "      </ul>\n"
+            + "    </div>\n"
+            + "{{notes}}"
+            + "    <div class=\"footer\">\n"
+            + "      <p>This prescription was generated by ClinicEase System</p>\n"
+            + "      <button class=\"no-print\" onclick=\"window.print();\">Print Prescription</button>\n"
+            + "    </div>\n"
+            + "  </div>\n"
+            + "</body>\n"
+            + "</html>\n");
+    private static final HtmlTemplate PATIENT_HTML_TEMPLATE = HtmlTemplate.compile(
+            "        <tr><td>Patient ID:</td><td>{{id}}</td></tr>\n"
+            + "        <tr><td>Name:</td><td>{{name}}</td></tr>\n"
+            + "        <tr><td>Gender:</td><td>{{gender}}</td></tr>\n"
+            + "        <tr><td>Date of Birth:</td><td>{{dob}}</td></tr>\n"
+            + "        <tr><td>Contact:</td><td>{{contact}}</td></tr>\n");
+    private static final HtmlTemplate PATIENT_ID_HTML_TEMPLATE = HtmlTemplate.compile(
+            "        <tr><td>Patient ID:</td><td>{{id}}</td></tr>\n");
+    private static final HtmlTemplate LIST_ITEM_HTML_TEMPLATE = HtmlTemplate.compile("        <li>{{item}}</li>\n");
+    private static final HtmlTemplate NOTES_HTML_TEMPLATE = HtmlTemplate.compile("    <div class=\"section\">\n"
+            + "      <h2>Special Instructions</h2>\n"
+            + "      <p>{{notes}}</p>\n"
+            + "    </div>\n");
 
     private final String patientId;
     private final LocalDateTime timestamp;
     private final String prescriptionId;
-    private final List<String> symptoms;
-    private final List<String> medicines;
-    private final String notes;
+    private List<String> symptoms;
+    private List<String> medicines;
+    private String notes;
+    private volatile RecordReader recordReader;
+
+    /**
+     * Reads the stored record of a prescription whose details are not held in memory.
+     */
+    public interface RecordReader {
+        /**
+         * Reads the record.
+         *
+         * @return The record in the format produced by {@link #toFileFormat()}
+         */
+        String readRecord();
+    }
 
     /**
      * Constructs a new Prescription with the current timestamp.
@@ -61,6 +150,76 @@ public class Prescription {
         this.notes = notes;
     }
 
+    /**
+     * Constructs a Prescription whose symptoms, medicines and notes stay in storage until first used.
+     * This constructor is used when loading prescriptions lazily from storage.
+     *
+     * @param patientId      The ID of the patient this prescription is for
+     * @param prescriptionId The unique identifier for this prescription
+     * @param timestamp      The date and time when the prescription was created
+     * @param recordReader   Reads the full stored record when the details are needed
+     */
+    public Prescription(String patientId, String prescriptionId, LocalDateTime timestamp,
+                        RecordReader recordReader) {
+        assert recordReader != null : "Record reader cannot be null";
+        this.patientId = patientId;
+        this.timestamp = timestamp;
+        this.prescriptionId = prescriptionId;
+        this.recordReader = recordReader;
+    }
+
+    /**
+     * Reads the symptoms, medicines and notes from storage if they are not in memory yet.
+     *
+     * @return This prescription, with its details loaded
+     */
+    public synchronized Prescription loadDetails() {
+        RecordReader reader = recordReader;
+        if (reader == null) {
+            return this;
+        }
+
+        Prescription stored = fromFileFormat(reader.readRecord());
+        if (stored != null) {
+            symptoms = stored.symptoms;
+            medicines = stored.medicines;
+            notes = stored.notes;
+        } else {
+            symptoms = new ArrayList<>();
+            medicines = new ArrayList<>();
+            notes = "";
+        }
+        recordReader = null;
+        return this;
+    }
+
+    /**
+     * Gets the symptoms, medicines and notes without keeping them in memory if they are only in storage.
+     * Used to read through many prescriptions once, where keeping every record would use up memory.
+     *
+     * @return This prescription if its details are loaded, otherwise a copy read from storage
+     */
+    public Prescription readDetails() {
+        RecordReader reader = recordReader;
+        if (reader == null) {
+            return this;
+        }
+        Prescription stored = fromFileFormat(reader.readRecord());
+        if (stored == null) {
+            return new Prescription(patientId, prescriptionId, timestamp, new ArrayList<>(), new ArrayList<>(), "");
+        }
+        return stored;
+    }
+
+    /**
+     * Checks whether the symptoms, medicines and notes are held in memory.
+     *
+     * @return true if the details are loaded, false if they are still only in storage
+     */
+    public boolean isLoaded() {
+        return recordReader == null;
+    }
+
     /**
      * Gets the patient ID associated with this prescription.
      *
@@ -94,6 +253,7 @@ public class Prescription {
      * @return List of symptom descriptions
      */
     public List<String> getSymptoms() {
+        loadDetails();
         return symptoms;
     }
 
@@ -103,6 +263,7 @@ public class Prescription {
      * @return List of medicine names and dosage instructions
      */
     public List<String> getMedicines() {
+        loadDetails();
         return medicines;
     }
 
@@ -112,6 +273,7 @@ public class Prescription {
      * @return Notes string or empty if no notes were provided
      */
     public String getNotes() {
+        loadDetails();
         return notes;
     }
 
@@ -123,6 +285,7 @@ public class Prescription {
      */
     @Override
     public String toString() {
+        loadDetails();
         StringBuilder symptomsStr = new StringBuilder();
         for (String symptom : symptoms) {
             symptomsStr.append("- ").append(symptom).append("\n");
@@ -146,10 +309,15 @@ public class Prescription {
     /**
      * Converts the prescription to a storage-friendly string format.
      * Uses pipe-delimited format to store all prescription attributes.
+     * A prescription whose details are still in storage returns its stored record without loading it.
      *
      * @return A string representation suitable for file storage
      */
     public String toFileFormat() {
+        RecordReader reader = recordReader;
+        if (reader != null) {
+            return reader.readRecord();
+        }
         return String.join("|",
                 prescriptionId,
                 patientId,
@@ -194,95 +362,77 @@ public class Prescription {
      * @return A string containing HTML markup for the prescription
      */
     public String generateHtml(Patient patient) {
-        StringBuilder html = new StringBuilder();
-        html.append("<!DOCTYPE html>\n")
-                .append("<html lang=\"en\">\n")
-                .append("<head>\n")
-                .append("  <meta charset=\"UTF-8\">\n")
-                .append("  <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n")
-                .append("  <title>Prescription ").append(prescriptionId).append("</title>\n")
-                .append("  <style>\n")
-                .append("    body { font-family: Arial, sans-serif; margin: 40px; }\n")
-                .append("    .prescription { border: 1px solid #333; padding: " +
-                        "20px; max-width: 800px; margin: 0 auto; }\n")
-                .append("    .header { text-align: center; border-bottom: 2px solid #333; padding-bottom: 10px;\n")
-                .append("             margin-bottom: 20px; }\n")
-                .append("    .section { margin-bottom: 15px; }\n")
-                .append("    h1 { color: #333; }\n")
-                .append("    h2 { color: #555; margin-bottom: 5px; }\n")
-                .append("    .footer { margin-top: 50px; border-top: 1px solid #ccc; padding-top: 10px;\n")
-                .append("             text-align: center; }\n")
-                .append("    @media print { .no-print { display: none; } }\n")
-                .append("    table { width: 100%; border-collapse: collapse; }\n")
-                .append("    td { padding: 5px; }\n")
-                .append("    .patient-info td:first-child { font-weight: bold; width: 150px; }\n")
-                .append("  </style>\n")
-                .append("</head>\n")
-                .append("<body>\n")
-                .append("  <div class=\"prescription\">\n")
-                .append("    <div class=\"header\">\n")
-                .append("      <h1>ClinicEase Medical Prescription</h1>\n")
-                .append("      <p>Prescription ID: ").append(prescriptionId).append("</p>\n")
-                .append("      <p>Date: ").append(timestamp.format(DATE_TIME_FORMATTER)).append("</p>\n")
-                .append("    </div>\n");
-
-        if (patient != null) {
-            html.append("    <div class=\"section\">\n")
-                    .append("      <h2>Patient Information</h2>\n")
-                    .append("      <table class=\"patient-info\">\n")
-                    .append("        <tr><td>Patient ID:</td><td>").append(patient.getId()).append("</td></tr>\n")
-                    .append("        <tr><td>Name:</td><td>").append(patient.getName()).append("</td></tr>\n")
-                    .append("        <tr><td>Gender:</td><td>").append(patient.getGender()).append("</td></tr>\n")
-                    .append("        <tr><td>Date of Birth:</td><td>").append(patient.getDob()).append("</td></tr>\n")
-                    .append("        <tr><td>Contact:</td><td>").append(patient.getContactInfo()).append("</td></tr>\n")
-                    .append("      </table>\n")
-                    .append("    </div>\n");
-        } else {
-            html.append("    <div class=\"section\">\n")
-                    .append("      <h2>Patient Information</h2>\n")
-                    .append("      <table class=\"patient-info\">\n")
-                    .append("        <tr><td>Patient ID:</td><td>").append(patientId).append("</td></tr>\n")
-                    .append("      </table>\n")
-                    .append("    </div>\n");
-        }
-
-        html.append("    <div class=\"section\">\n")
-                .append("      <h2>Symptoms</h2>\n")
-                .append("      <ul>\n");
-
-        for (String symptom : symptoms) {
-            html.append("        <li>").append(symptom).append("</li>\n");
-        }
-
-        html.append("      </ul>\n")
-                .append("    </div>\n")
-                .append("    <div class=\"section\">\n")
-                .append("      <h2>Prescribed Medications</h2>\n")
-                .append("      <ul>\n");
-
-        for (String medicine : medicines) {
-            html.append("        <li>").append(medicine).append("</li>\n");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HTML_SIZE_HINT);
+        try (HtmlOutput out = new HtmlOutput(bytes)) {
+            writeHtml(patient, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
 
-        html.append("      </ul>\n")
-                .append("    </div>\n");
+    /**
+     * Writes the HTML document of the prescription straight to an output, without building it as a string.
+     * Text from the prescription and the patient is escaped, so it cannot break the markup.
+     *
+     * @param patient The Patient object (can be null if patient details unavailable)
+     * @param out     The output to write the document to
+     * @throws IOException If the output could not be written
+     */
+    public void writeHtml(Patient patient, HtmlOutput out) throws IOException {
+        loadDetails();
+        HTML_TEMPLATE.render(out, (slot, slotOut) -> {
+            switch (slot) {
+            case "id":
+                slotOut.writeText(prescriptionId);
+                break;
+            case "date":
+                slotOut.writeText(DATE_TIME_FORMATTER, timestamp);
+                break;
+            case "patient":
+                if (patient != null) {
+                    PATIENT_HTML_TEMPLATE.render(slotOut,
+                            (patientSlot, patientOut) -> writePatientField(patientSlot, patient, patientOut));
+                } else {
+                    PATIENT_ID_HTML_TEMPLATE.renderEach(slotOut, List.of(patientId));
+                }
+                break;
+            case "symptoms":
+                LIST_ITEM_HTML_TEMPLATE.renderEach(slotOut, symptoms);
+                break;
+            case "medicines":
+                LIST_ITEM_HTML_TEMPLATE.renderEach(slotOut, medicines);
+                break;
+            case "notes":
+                if (notes != null && !notes.isEmpty()) {
+                    NOTES_HTML_TEMPLATE.renderEach(slotOut, List.of(notes));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown prescription template slot: " + slot);
+            }
+        });
+    }
 
-        if (notes != null && !notes.isEmpty()) {
-            html.append("    <div class=\"section\">\n")
-                    .append("      <h2>Special Instructions</h2>\n")
-                    .append("      <p>").append(notes).append("</p>\n")
-                    .append("    </div>\n");
+    private static void writePatientField(String slot, Patient patient, HtmlOutput out) throws IOException {
+        switch (slot) {
+        case "id":
+            out.writeText(patient.getId());
+            break;
+        case "name":
+            out.writeText(patient.getName());
+            break;
+        case "gender":
+            out.writeText(patient.getGender());
+            break;
+        case "dob":
+            out.writeText(DateTimeFormatter.ISO_LOCAL_DATE, patient.getDob());
+            break;
+        case "contact":
+            out.writeText(patient.getContactInfo());
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown patient template slot: " + slot);
         }
-
-        html.append("    <div class=\"footer\">\n")
-                .append("      <p>This prescription was generated by ClinicEase System</p>\n")
-                .append("      <button class=\"no-print\" onclick=\"window.print();\">Print Prescription</button>\n")
-                .append("    </div>\n")
-                .append("  </div>\n")
-                .append("</body>\n")
-                .append("</html>\n");
-
-        return html.toString();
     }
-} 
-
+}
@@ -0,0 +1,176 @@
+package miscellaneous;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+/**
+ * Writes an HTML document as UTF-8 bytes to an output stream.
+ * Markup is copied as pre-encoded bytes, while text is HTML-escaped and encoded one character at a time
+ * into an internal buffer, so no intermediate strings are built for the document.
+ */
+public class HtmlOutput implements Closeable {
+    private static final int BUFFER_BYTES = 8 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private final StringBuilder scratch = new StringBuilder();
+    private int position;
+
+    /**
+     * Constructs an output that writes to a stream.
+     * The stream is written in blocks, so it does not need its own buffer.
+     *
+     * @param out The stream the document is written to
+     */
+    public HtmlOutput(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes bytes of markup as they are.
+     *
+     * @param markup UTF-8 encoded markup
+     * @throws IOException If the stream could not be written
+     */
+    public void writeMarkup(byte[] markup) throws IOException {
+        if (markup.length > buffer.length - position) {
+            flushBuffer();
+            if (markup.length > buffer.length) {
+                out.write(markup);
+                return;
+            }
+        }
+        System.arraycopy(markup, 0, buffer, position, markup.length);
+        position += markup.length;
+    }
+
+    /**
+     * Writes text, escaping the characters that have a meaning in HTML.
+     *
+     * @param text The text to write; null writes nothing
+     * @throws IOException If the stream could not be written
+     */
+    public void writeText(CharSequence text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '&':
+                writeAscii("&amp;");
+                break;
+            case '<':
+                writeAscii("&lt;");
+                break;
+            case '>':
+                writeAscii("&gt;");
+                break;
+            case '"':
+                writeAscii("&quot;");
+                break;
+            case '\'':
+                writeAscii("&#39;");
+                break;
+            default:
+                if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+                } else {
+                    writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Writes the text form of a value, escaping the characters that have a meaning in HTML.
+     *
+     * @param value The value to write; null writes nothing
+     * @throws IOException If the stream could not be written
+     */
+    public void writeText(Object value) throws IOException {
+        if (value != null) {
+            writeText(value.toString());
+        }
+    }
+
+    /**
+     * Writes a formatted date or time, reusing an internal buffer for the formatted text.
+     *
+     * @param formatter The format to write the value in
+     * @param value     The date or time to write
+     * @throws IOException If the stream could not be written
+     */
+    public void writeText(DateTimeFormatter formatter, TemporalAccessor value) throws IOException {
+        scratch.setLength(0);
+        formatter.formatTo(value, scratch);
+        writeText(scratch);
+    }
+
+    /**
+     * Writes out everything buffered so far and flushes the stream.
+     *
+     * @throws IOException If the stream could not be written
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes out everything buffered and closes the stream.
+     *
+     * @throws IOException If the stream could not be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            writeByte(text.charAt(i));
+        }
+    }
+
+    private void writeCodePoint(int codePoint) throws IOException {
+        if (codePoint < 0x80) {
+            writeByte(codePoint);
+        } else if (codePoint < 0x800) {
+            writeByte(0xC0 | (codePoint >> 6));
+            writeByte(0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            writeByte(0xE0 | (codePoint >> 12));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            writeByte(0x80 | (codePoint & 0x3F));
+        } else {
+            writeByte(0xF0 | (codePoint >> 18));
+            writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+            writeByte(0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
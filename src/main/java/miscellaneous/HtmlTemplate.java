@@ -0,0 +1,111 @@
+package miscellaneous;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An HTML document template with named slots, such as {@code <p>{{name}}</p>}.
+ * The markup between the slots is encoded to bytes once, when the template is compiled, and copied as is on
+ * every render. The content of each slot is written by the caller straight to the output, usually as escaped
+ * text, or by rendering a smaller template once or for every entry of a list.
+ */
+public class HtmlTemplate {
+    private static final String SLOT_START = "{{";
+    private static final String SLOT_END = "}}";
+
+    private final byte[][] markup;
+    private final String[] slots;
+
+    private HtmlTemplate(byte[][] markup, String[] slots) {
+        assert markup.length == slots.length + 1 : "Slots must lie between pieces of markup";
+        this.markup = markup;
+        this.slots = slots;
+    }
+
+    /**
+     * Fills the slots of a template while it is rendered.
+     */
+    public interface Slots {
+        /**
+         * Writes the content of one slot.
+         *
+         * @param slot The name of the slot, as written between the braces in the template
+         * @param out  The output to write the content to
+         * @throws IOException If the output could not be written
+         */
+        void fill(String slot, HtmlOutput out) throws IOException;
+    }
+
+    /**
+     * Compiles a template from its source.
+     *
+     * @param source The markup, with each slot written as {@code {{name}}}
+     * @return The compiled template
+     * @throws IllegalArgumentException If a slot is not closed or has no name
+     */
+    public static HtmlTemplate compile(String source) {
+        List<byte[]> markup = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int start = 0;
+        int slotStart = source.indexOf(SLOT_START);
+        while (slotStart >= 0) {
+            int slotEnd = source.indexOf(SLOT_END, slotStart + SLOT_START.length());
+            if (slotEnd < 0) {
+                throw new IllegalArgumentException("Unclosed template slot at index " + slotStart);
+            }
+            String slot = source.substring(slotStart + SLOT_START.length(), slotEnd).trim();
+            if (slot.isEmpty()) {
+                throw new IllegalArgumentException("Empty template slot at index " + slotStart);
+            }
+            markup.add(source.substring(start, slotStart).getBytes(StandardCharsets.UTF_8));
+            slots.add(slot);
+            start = slotEnd + SLOT_END.length();
+            slotStart = source.indexOf(SLOT_START, start);
+        }
+        markup.add(source.substring(start).getBytes(StandardCharsets.UTF_8));
+        return new HtmlTemplate(markup.toArray(new byte[0][]), slots.toArray(new String[0]));
+    }
+
+    /**
+     * Renders the template, asking for the content of each slot in order.
+     *
+     * @param out   The output to write to
+     * @param slots Writes the content of each slot
+     * @throws IOException If the output could not be written
+     */
+    public void render(HtmlOutput out, Slots slots) throws IOException {
+        for (int i = 0; i < this.slots.length; i++) {
+            out.writeMarkup(markup[i]);
+            slots.fill(this.slots[i], out);
+        }
+        out.writeMarkup(markup[this.slots.length]);
+    }
+
+    /**
+     * Renders the template once for each entry of a list, with every slot filled by the entry as escaped text.
+     *
+     * @param out     The output to write to
+     * @param entries The entries to render
+     * @throws IOException If the output could not be written
+     */
+    public void renderEach(HtmlOutput out, List<?> entries) throws IOException {
+        for (Object entry : entries) {
+            for (int i = 0; i < slots.length; i++) {
+                out.writeMarkup(markup[i]);
+                out.writeText(entry);
+            }
+            out.writeMarkup(markup[slots.length]);
+        }
+    }
+
+    /**
+     * Gets the names of the slots, in the order they are filled.
+     *
+     * @return The slot names
+     */
+    public List<String> getSlots() {
+        return List.of(slots);
+    }
+}
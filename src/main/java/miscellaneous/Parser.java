@@ -22,12 +22,19 @@ import command.FindAppointmentCommand;
 import command.AddPrescriptionCommand;
 import command.ViewAllPrescriptionsCommand;
 import command.ViewPrescriptionCommand;
+import command.ImportCommand;
+import command.ExportCommand;
+import command.PrintPrescriptionsCommand;
+import command.VerifyStorageCommand;
 import exception.InvalidInputFormatException;
 import exception.UnknownCommandException;
 import manager.Appointment;
 import manager.Patient;
 import manager.Prescription;
+import storage.RecordExporter;
+import storage.RecordFileFormat;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
@@ -44,6 +51,12 @@ import static manager.Appointment.INPUT_FORMAT;
  * medical history, and prescription management.
  */
 public class Parser {
+    private static final String[] PREFIXES = {
+        "n/", "ic/", "dob/", "g/", "p/", "a/", "dt/", "t/",
+        "dsc/", "h/", "old/", "new/", "s/", "m/", "nt/"
+    };
+    // Only commands taking a date range read these, so "to/" and "from/" stay free text everywhere else
+    private static final String[] DATE_RANGE_PREFIXES = {"ic/", "from/", "to/"};
 
     /**
      * Parses raw user input and returns the corresponding Command object.
@@ -104,6 +117,14 @@ public class Parser {
             return new ViewAllPrescriptionsCommand(parseViewAllPrescriptions(userInput));
         case "view-prescription":
             return new ViewPrescriptionCommand(parseViewPrescription(userInput));
+        case "import":
+            return new ImportCommand(parseImport(userInput));
+        case "export":
+            return parseExport(userInput);
+        case "print-prescriptions":
+            return parsePrintPrescriptions(userInput);
+        case "verify-storage":
+            return new VerifyStorageCommand();
         default:
             throw new UnknownCommandException("Unknown command. Please try again.");
         }
@@ -301,6 +322,18 @@ public class Parser {
      * @return The extracted value or null if not found
      */
     private static String extractValue(String input, String prefix) {
+        return extractValue(input, prefix, PREFIXES);
+    }
+
+    /**
+     * Extracts parameter values from command strings, where a value ends at the next of the given prefixes.
+     *
+     * @param input    The string containing parameters
+     * @param prefix   The parameter prefix to extract (e.g. "ic/")
+     * @param possible The prefixes the command takes
+     * @return The extracted value or null if not found
+     */
+    private static String extractValue(String input, String prefix, String[] possible) {
         assert prefix != null : "Prefix cannot be null";
 
         String lowerInput = input.toLowerCase();
@@ -324,10 +357,6 @@ public class Parser {
         }
 
         start += prefix.length();
-        String[] possible = {
-            "n/", "ic/", "dob/", "g/", "p/", "a/", "dt/", "t/",
-            "dsc/", "h/", "old/", "new/", "s/", "m/", "nt/"
-        };
         int end = input.length();
 
         // Determine where the current parameter's detail ends by finding the start of the next parameter
@@ -539,4 +568,86 @@ public class Parser {
         return prescriptionId;
     }
 
+    /**
+     * Parses the import command to extract the path of the file to import.
+     *
+     * @param input The full user input string
+     * @return The path of the file to import
+     * @throws InvalidInputFormatException If the path is missing or not a CSV or JSONL file
+     */
+    public static String parseImport(String input) throws InvalidInputFormatException {
+        String filePath = input.replaceFirst("(?i)import\\s*", "").trim();
+        if (filePath.isEmpty() || RecordFileFormat.of(filePath) == null) {
+            throw new InvalidInputFormatException("Invalid command format. Use: import FILE_PATH, "
+                    + "where the file ends in .csv or .jsonl");
+        }
+        return filePath;
+    }
+
+    /**
+     * Parses the export command into a command that writes the selected records to a file.
+     * The file path comes first, optionally followed by ic/NRIC, from/DATE and to/DATE.
+     *
+     * @param input The full user input string
+     * @return The export command
+     * @throws InvalidInputFormatException If the path is missing or not a CSV or JSONL file, or a date is invalid
+     */
+    public static ExportCommand parseExport(String input) throws InvalidInputFormatException {
+        String temp = input.replaceFirst("(?i)export\\s*", "");
+        String filePath = temp.split("\\s+(?i)(?=(ic|from|to)/)", 2)[0].trim();
+        if (filePath.isEmpty() || RecordFileFormat.of(filePath) == null) {
+            throw new InvalidInputFormatException("Invalid command format. Use: export FILE_PATH [ic/NRIC] "
+                    + "[from/DATE] [to/DATE], where the file ends in .csv or .jsonl");
+        }
+
+        String nric = extractValue(temp, "ic/", DATE_RANGE_PREFIXES);
+        if (nric != null && !nric.trim().matches("(?i)[STFGM]\\d{7}[A-Z]")) {
+            throw new InvalidInputFormatException("Invalid IC format. Please use a valid IC e.g. S1234567D");
+        }
+        LocalDate from = parseOptionalDate(extractValue(temp, "from/", DATE_RANGE_PREFIXES));
+        LocalDate to = parseOptionalDate(extractValue(temp, "to/", DATE_RANGE_PREFIXES));
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidInputFormatException("The from/ date cannot be after the to/ date");
+        }
+        return new ExportCommand(filePath, new RecordExporter.Filter(nric == null ? null : nric.trim(), from, to));
+    }
+
+    /**
+     * Parses the print-prescriptions command into a command that writes the HTML files of a date range.
+     * Both from/DATE and to/DATE are required; ic/NRIC optionally limits printing to one patient.
+     *
+     * @param input The full user input string
+     * @return The print prescriptions command
+     * @throws InvalidInputFormatException If a date is missing or invalid, or the NRIC is invalid
+     */
+    public static PrintPrescriptionsCommand parsePrintPrescriptions(String input) throws InvalidInputFormatException {
+        String temp = input.replaceFirst("(?i)print-prescriptions\\s*", "");
+        LocalDate from = parseOptionalDate(extractValue(temp, "from/", DATE_RANGE_PREFIXES));
+        LocalDate to = parseOptionalDate(extractValue(temp, "to/", DATE_RANGE_PREFIXES));
+        if (from == null || to == null) {
+            throw new InvalidInputFormatException("Invalid command format. Use: print-prescriptions "
+                    + "from/DATE to/DATE [ic/NRIC]");
+        }
+        if (from.isAfter(to)) {
+            throw new InvalidInputFormatException("The from/ date cannot be after the to/ date");
+        }
+
+        String nric = extractValue(temp, "ic/", DATE_RANGE_PREFIXES);
+        if (nric != null && !nric.trim().matches("(?i)[STFGM]\\d{7}[A-Z]")) {
+            throw new InvalidInputFormatException("Invalid IC format. Please use a valid IC e.g. S1234567D");
+        }
+        return new PrintPrescriptionsCommand(from, to, nric == null ? null : nric.trim().toUpperCase());
+    }
+
+    private static LocalDate parseOptionalDate(String date) throws InvalidInputFormatException {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.trim());
+        } catch (DateTimeParseException e) {
+            throw new InvalidInputFormatException("Invalid date format. Please use: yyyy-MM-dd");
+        }
+    }
+
 }
@@ -52,6 +52,21 @@ public class Ui {
         showLine();
     }
 
+    public void showStorageReport(String report) {
+        showLine();
+        System.out.println(report);
+        showLine();
+    }
+
+    public void showImportReport(String summary, List<String> errors) {
+        showLine();
+        System.out.println(summary);
+        for (String error : errors) {
+            System.out.println("- " + error);
+        }
+        showLine();
+    }
+
     public void showHelp() {
         showLine();
         System.out.println("These are the available commands:");
@@ -76,6 +91,11 @@ public class Ui {
         System.out.println("- add-prescription ic/PATIENT_ID s/SYMPTOMS m/MEDICINES [nt/NOTES]");
         System.out.println("- view-all-prescriptions PATIENT_ID");
         System.out.println("- view-prescription PRESCRIPTION_ID");
+        System.out.println("- print-prescriptions from/DATE to/DATE [ic/NRIC]");
+        System.out.println("Data: ");
+        System.out.println("- import FILE_PATH (.csv or .jsonl)");
+        System.out.println("- export FILE_PATH [ic/NRIC] [from/DATE] [to/DATE]");
+        System.out.println("- verify-storage");
         showLine();
     }
 
@@ -111,6 +131,21 @@ public class Ui {
         showLine();
     }
 
+    /**
+     * Shows one entry of a patient list that is printed as the patients are read, heading the list
+     * before its first entry.
+     *
+     * @param position The position of the patient in the list, starting from 1
+     * @param patient  The patient to show
+     */
+    public void showPatientListEntry(int position, Patient patient) {
+        if (position == 1) {
+            System.out.println("-".repeat(42) + "Patient Details" + "-".repeat(42));
+        }
+        System.out.println(position + ". " + patient.toStringForListView());
+        showLine();
+    }
+
     //@@author judHoka
     public void showPatientList(List<Patient> patients) {
         if (patients.isEmpty()) {
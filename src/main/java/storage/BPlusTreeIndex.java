@@ -0,0 +1,310 @@
+package storage;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * An on-disk B+tree mapping string keys to long values, built from page-aligned blocks.
+ * The tree is bulk-built bottom-up from sorted entries: leaves are filled in key order, then each
+ * level of internal nodes indexes the first key of every node below it, until a single root is left.
+ * A trailer page at the end of the file records the root and the size of the source data the index
+ * was built from. Lookups walk from the root to a leaf through a bounded {@link PageCache}, so only
+ * the pages on recently used paths are kept in memory.
+ */
+public class BPlusTreeIndex {
+    public static final int PAGE_SIZE = 4096;
+    public static final long NOT_FOUND = -1;
+
+    private static final int MAGIC = 0x43454254;
+    private static final int VERSION = 1;
+    private static final byte INTERNAL = 0;
+    private static final byte LEAF = 1;
+    private static final int MAX_KEY_BYTES = 255;
+    private static final int LEAF_HEADER_BYTES = 3;
+    private static final int INTERNAL_HEADER_BYTES = 7;
+
+    private final FileChannel channel;
+    private final PageCache cache;
+    private final int rootPage;
+    private final int height;
+    private final long entryCount;
+    private final long sourceLength;
+    private final long sourceModified;
+
+    private BPlusTreeIndex(FileChannel channel, int cachePages, ByteBuffer trailer) throws IOException {
+        if (trailer.getInt() != MAGIC) {
+            throw new IOException("Not an index file");
+        }
+        int version = trailer.getInt();
+        if (version != VERSION || trailer.getInt() != PAGE_SIZE) {
+            throw new IOException("Unsupported index file version " + version);
+        }
+        this.channel = channel;
+        this.cache = new PageCache(channel, PAGE_SIZE, cachePages);
+        this.rootPage = trailer.getInt();
+        this.height = trailer.getInt();
+        this.entryCount = trailer.getLong();
+        this.sourceLength = trailer.getLong();
+        this.sourceModified = trailer.getLong();
+    }
+
+    /**
+     * Opens an index file for lookups.
+     *
+     * @param file       The index file
+     * @param cachePages The most pages of the index to keep in memory
+     * @return The opened index
+     * @throws IOException If the file could not be read or is not an index file
+     */
+    public static BPlusTreeIndex open(File file, int cachePages) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < PAGE_SIZE || size % PAGE_SIZE != 0) {
+                throw new IOException("Index file is truncated");
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(PAGE_SIZE);
+            while (trailer.hasRemaining()) {
+                if (channel.read(trailer, size - PAGE_SIZE + trailer.position()) < 0) {
+                    throw new IOException("Index file is truncated");
+                }
+            }
+            trailer.flip();
+            return new BPlusTreeIndex(channel, cachePages, trailer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Builds an index file from sorted entries, replacing any existing file.
+     *
+     * @param writer         The writer used to replace the file
+     * @param filePath       The index file
+     * @param entries        The keys and values to index
+     * @param sourceLength   The size of the data the entries were read from
+     * @param sourceModified The modification time of the data the entries were read from
+     * @return The size of the index file in bytes
+     * @throws IOException If a key is too long or the file could not be written
+     */
+    public static long build(DurableFileWriter writer, String filePath, SortedMap<String, Long> entries,
+                             long sourceLength, long sourceModified) throws IOException {
+        return writer.writeBinary(filePath, out -> {
+            PageWriter pages = new PageWriter(out);
+            List<Separator> level = writeLeaves(pages, entries);
+            int height = 1;
+            while (level.size() > 1) {
+                level = writeInternalLevel(pages, level);
+                height++;
+            }
+
+            ByteBuffer trailer = pages.start();
+            trailer.putInt(MAGIC).putInt(VERSION).putInt(PAGE_SIZE).putInt(level.get(0).page).putInt(height)
+                    .putLong(entries.size()).putLong(sourceLength).putLong(sourceModified);
+            pages.finish();
+        });
+    }
+
+    /**
+     * Looks up the value of a key.
+     *
+     * @param key The key to look up
+     * @return The value of the key, or {@link #NOT_FOUND} if the key is not in the index
+     * @throws IOException If a page of the index could not be read
+     */
+    public long find(String key) throws IOException {
+        int pageNumber = rootPage;
+        for (int depth = 1; depth < height; depth++) {
+            ByteBuffer page = cache.get(pageNumber);
+            if (page.get() != INTERNAL) {
+                throw new IOException("Index page " + pageNumber + " is corrupted");
+            }
+            int count = page.getShort();
+            pageNumber = page.getInt();
+            for (int i = 0; i < count; i++) {
+                String separator = readKey(page);
+                int child = page.getInt();
+                if (key.compareTo(separator) < 0) {
+                    break;
+                }
+                pageNumber = child;
+            }
+        }
+
+        ByteBuffer leaf = cache.get(pageNumber);
+        if (leaf.get() != LEAF) {
+            throw new IOException("Index page " + pageNumber + " is corrupted");
+        }
+        int count = leaf.getShort();
+        for (int i = 0; i < count; i++) {
+            int comparison = key.compareTo(readKey(leaf));
+            long value = leaf.getLong();
+            if (comparison == 0) {
+                return value;
+            } else if (comparison < 0) {
+                break;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return the number of keys in the index
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the size of the data the index was built from
+     */
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * @return the modification time of the data the index was built from
+     */
+    public long getSourceModified() {
+        return sourceModified;
+    }
+
+    /**
+     * @return the cache holding the pages read by lookups
+     */
+    public PageCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Releases the handle on the index file.
+     *
+     * @throws IOException If the file could not be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String readKey(ByteBuffer page) {
+        byte[] key = new byte[page.get() & 0xFF];
+        page.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] keyBytes(String key) throws IOException {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_KEY_BYTES) {
+            throw new IOException("Index key is too long: " + key);
+        }
+        return bytes;
+    }
+
+    private static List<Separator> writeLeaves(PageWriter pages, SortedMap<String, Long> entries)
+            throws IOException {
+        List<Separator> leaves = new ArrayList<>();
+        ByteBuffer page = null;
+        int count = 0;
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            byte[] key = keyBytes(entry.getKey());
+            if (page != null && page.position() + 1 + key.length + Long.BYTES > PAGE_SIZE) {
+                page.putShort(1, (short) count);
+                pages.finish();
+                page = null;
+            }
+            if (page == null) {
+                leaves.add(new Separator(entry.getKey(), pages.pageCount));
+                page = pages.start();
+                page.put(LEAF).position(LEAF_HEADER_BYTES);
+                count = 0;
+            }
+            page.put((byte) key.length).put(key).putLong(entry.getValue());
+            count++;
+        }
+
+        if (page == null) {
+            // An empty index still has a root to search
+            leaves.add(new Separator("", pages.pageCount));
+            page = pages.start();
+            page.put(LEAF).position(LEAF_HEADER_BYTES);
+        }
+        page.putShort(1, (short) count);
+        pages.finish();
+        return leaves;
+    }
+
+    private static List<Separator> writeInternalLevel(PageWriter pages, List<Separator> children)
+            throws IOException {
+        List<Separator> nodes = new ArrayList<>();
+        ByteBuffer page = null;
+        int count = 0;
+        for (Separator child : children) {
+            byte[] key = keyBytes(child.key);
+            if (page != null && page.position() + 1 + key.length + Integer.BYTES > PAGE_SIZE) {
+                page.putShort(1, (short) count);
+                pages.finish();
+                page = null;
+            }
+            if (page == null) {
+                // The first child of a node needs no separator, as every key below the node reaches it
+                nodes.add(new Separator(child.key, pages.pageCount));
+                page = pages.start();
+                page.put(INTERNAL).putShort((short) 0).putInt(child.page);
+                count = 0;
+                continue;
+            }
+            page.put((byte) key.length).put(key).putInt(child.page);
+            count++;
+        }
+        page.putShort(1, (short) count);
+        pages.finish();
+        return nodes;
+    }
+
+    /**
+     * The first key under a node, and the page of the node.
+     */
+    private static class Separator {
+        private final String key;
+        private final int page;
+
+        Separator(String key, int page) {
+            this.key = key;
+            this.page = page;
+        }
+    }
+
+    /**
+     * Writes pages one after another, padding each to the page size.
+     */
+    private static class PageWriter {
+        private final DataOutputStream out;
+        private final ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        private int pageCount;
+
+        PageWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        ByteBuffer start() {
+            Arrays.fill(page.array(), (byte) 0);
+            page.clear();
+            return page;
+        }
+
+        void finish() throws IOException {
+            out.write(page.array());
+            pageCount++;
+        }
+    }
+}
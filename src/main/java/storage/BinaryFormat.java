@@ -0,0 +1,292 @@
+package storage;
+
+import manager.Appointment;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned binary encoding of the patient, appointment and prescription data files.
+ * Each file starts with a magic number, a kind byte and a format version, followed by the
+ * record count and the records. Strings are length-prefixed UTF-8, dates are stored as epoch days,
+ * date-times as epoch minutes and numeric IDs as varints, so loading needs no regex splitting
+ * or date parsing.
+ */
+public class BinaryFormat {
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x43454246; // "CEBF"
+    private static final byte KIND_PATIENTS = 1;
+    private static final byte KIND_APPOINTMENTS = 2;
+    private static final byte KIND_PRESCRIPTIONS = 3;
+
+    /**
+     * Writes patients in binary form.
+     *
+     * @param out      The stream to write to
+     * @param patients The patients to write
+     * @throws IOException If the stream could not be written
+     */
+    public static void writePatients(DataOutputStream out, List<Patient> patients) throws IOException {
+        writeHeader(out, KIND_PATIENTS);
+        writeVarInt(out, patients.size());
+        for (Patient patient : patients) {
+            writeString(out, patient.getId());
+            writeString(out, patient.getName());
+            writeVarLong(out, zigZag(patient.getDob().toEpochDay()));
+            writeString(out, patient.getGender());
+            writeString(out, patient.getAddress());
+            writeString(out, patient.getContactInfo());
+            writeStrings(out, patient.getMedicalHistory());
+        }
+    }
+
+    /**
+     * Reads patients written by {@link #writePatients(DataOutputStream, List)}.
+     *
+     * @param in The stream to read from
+     * @return The patients read
+     * @throws IOException If the stream is not a supported patient file or is truncated
+     */
+    public static List<Patient> readPatients(DataInputStream in) throws IOException {
+        readHeader(in, KIND_PATIENTS);
+        int count = readVarInt(in);
+        List<Patient> patients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(in);
+            String name = readString(in);
+            LocalDate dob = LocalDate.ofEpochDay(unZigZag(readVarLong(in)));
+            String gender = readString(in);
+            String address = readString(in);
+            String contact = readString(in);
+            List<String> history = readStrings(in);
+            patients.add(new Patient(id, name, dob, gender, address, contact, history));
+        }
+        return patients;
+    }
+
+    /**
+     * Writes appointments and the appointment ID counter in binary form.
+     *
+     * @param out          The stream to write to
+     * @param appointments The appointments to write
+     * @param runningId    The next appointment ID to hand out
+     * @throws IOException If the stream could not be written
+     */
+    public static void writeAppointments(DataOutputStream out, List<Appointment> appointments, int runningId)
+            throws IOException {
+        writeHeader(out, KIND_APPOINTMENTS);
+        writeVarInt(out, runningId);
+        writeVarInt(out, appointments.size());
+        for (Appointment appointment : appointments) {
+            writeVarInt(out, Integer.parseInt(appointment.getId().substring(1)));
+            out.writeBoolean(appointment.isDone());
+            writeString(out, appointment.getNric());
+            writeVarLong(out, zigZag(toEpochMinute(appointment.getDateTime())));
+            writeString(out, appointment.getDescription());
+        }
+    }
+
+    /**
+     * Reads appointments written by {@link #writeAppointments(DataOutputStream, List, int)}
+     * and restores the appointment ID counter, as loading the text file does.
+     *
+     * @param in The stream to read from
+     * @return The appointments read
+     * @throws IOException If the stream is not a supported appointment file or is truncated
+     */
+    public static List<Appointment> readAppointments(DataInputStream in) throws IOException {
+        readHeader(in, KIND_APPOINTMENTS);
+        int runningId = readVarInt(in);
+        int count = readVarInt(in);
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = "A" + readVarInt(in);
+            boolean isDone = in.readBoolean();
+            String nric = readString(in);
+            LocalDateTime dateTime = fromEpochMinute(unZigZag(readVarLong(in)));
+            String description = readString(in);
+            Appointment appointment = new Appointment(id, nric, dateTime, description);
+            appointment.setIsDone(isDone);
+            appointments.add(appointment);
+        }
+        Appointment.setRunningId(runningId);
+        return appointments;
+    }
+
+    /**
+     * Writes prescriptions in binary form.
+     * A prescription ID of the usual {@code PATIENT_ID-N} form is stored as the varint N alone.
+     *
+     * @param out           The stream to write to
+     * @param prescriptions The prescriptions to write
+     * @throws IOException If the stream could not be written
+     */
+    public static void writePrescriptions(DataOutputStream out, List<Prescription> prescriptions)
+            throws IOException {
+        writeHeader(out, KIND_PRESCRIPTIONS);
+        writeVarInt(out, prescriptions.size());
+        for (Prescription prescription : prescriptions) {
+            String patientId = prescription.getPatientId();
+            writeString(out, patientId);
+            int sequence = parseSequence(prescription.getPrescriptionId(), patientId);
+            writeVarInt(out, sequence);
+            if (sequence == 0) {
+                writeString(out, prescription.getPrescriptionId());
+            }
+            writeVarLong(out, zigZag(toEpochMinute(prescription.getTimestamp())));
+            writeStrings(out, prescription.getSymptoms());
+            writeStrings(out, prescription.getMedicines());
+            writeString(out, prescription.getNotes());
+        }
+    }
+
+    /**
+     * Reads prescriptions written by {@link #writePrescriptions(DataOutputStream, List)}.
+     *
+     * @param in The stream to read from
+     * @return The prescriptions read
+     * @throws IOException If the stream is not a supported prescription file or is truncated
+     */
+    public static List<Prescription> readPrescriptions(DataInputStream in) throws IOException {
+        readHeader(in, KIND_PRESCRIPTIONS);
+        int count = readVarInt(in);
+        List<Prescription> prescriptions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String patientId = readString(in);
+            int sequence = readVarInt(in);
+            String prescriptionId = sequence == 0 ? readString(in) : patientId + "-" + sequence;
+            LocalDateTime timestamp = fromEpochMinute(unZigZag(readVarLong(in)));
+            List<String> symptoms = readStrings(in);
+            List<String> medicines = readStrings(in);
+            String notes = readString(in);
+            prescriptions.add(new Prescription(patientId, prescriptionId, timestamp, symptoms, medicines, notes));
+        }
+        return prescriptions;
+    }
+
+    private static int parseSequence(String prescriptionId, String patientId) {
+        String prefix = patientId + "-";
+        if (!prescriptionId.startsWith(prefix) || prescriptionId.length() == prefix.length()) {
+            return 0;
+        }
+        try {
+            int sequence = Integer.parseInt(prescriptionId.substring(prefix.length()));
+            return sequence > 0 && prescriptionId.equals(prefix + sequence) ? sequence : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte kind) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(kind);
+        writeVarInt(out, VERSION);
+    }
+
+    private static void readHeader(DataInputStream in, byte kind) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a ClinicEase binary data file");
+        }
+        if (in.readByte() != kind) {
+            throw new IOException("Binary data file holds a different kind of record");
+        }
+        int version = readVarInt(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary format version " + version);
+        }
+    }
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Writes a string as its UTF-8 length plus one, followed by the bytes; a length of zero means null.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        writeVarInt(out, values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = readVarInt(in);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
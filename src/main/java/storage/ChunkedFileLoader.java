@@ -0,0 +1,282 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a line-based UTF-8 data file by reading it in chunks and parsing them in parallel.
+ * The file is split into chunks that end on a newline, each chunk is read into a heap buffer with a
+ * positional read and parsed on a {@link ForkJoinPool}, and the parsed records are merged back in file order.
+ * Chunks are read rather than memory-mapped because Windows refuses to replace a file while any part of it
+ * is mapped, which would break the atomic replace of a data file loaded earlier.
+ * Files no larger than one chunk are parsed on the calling thread.
+ */
+public class ChunkedFileLoader {
+    public static final int DEFAULT_CHUNK_BYTES = 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_BYTES = 4096;
+
+    /**
+     * Parses one line of a data file.
+     *
+     * @param <T> The type of record parsed
+     */
+    public interface LineParser<T> {
+        /**
+         * Parses a line.
+         *
+         * @param line A non-blank line of the file
+         * @return The parsed record, or null if the line does not hold a valid record
+         * @throws Exception If the line could not be parsed
+         */
+        T parse(String line) throws Exception;
+    }
+
+    /**
+     * A line that did not produce a record.
+     */
+    public static class Failure {
+        private final int lineNumber;
+        private final String line;
+        private final Exception error;
+
+        Failure(int lineNumber, String line, Exception error) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.error = error;
+        }
+
+        /**
+         * @return the 1-based line number in the file
+         */
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * @return the text of the line, without its line break
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the exception thrown by the parser, or null if the parser returned null
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+
+    /**
+     * The records parsed from a file, in file order, with the lines that failed.
+     *
+     * @param <T> The type of record parsed
+     */
+    public static class Result<T> {
+        private final List<T> records = new ArrayList<>();
+        private final List<Failure> failures = new ArrayList<>();
+        private int lineCount;
+
+        /**
+         * @return the parsed records in file order
+         */
+        public List<T> getRecords() {
+            return records;
+        }
+
+        /**
+         * @return the lines that did not produce a record, in file order
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return the number of lines in the file, including blank ones
+         */
+        public int getLineCount() {
+            return lineCount;
+        }
+    }
+
+    private final int chunkBytes;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a loader that parses chunks of the given size on the common ForkJoinPool.
+     * Files are decoded as UTF-8, which is what the data files are written in.
+     *
+     * @param chunkBytes The target size of a chunk in bytes
+     */
+    public ChunkedFileLoader(int chunkBytes) {
+        this(chunkBytes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a loader that parses chunks of the given size on the given pool.
+     *
+     * @param chunkBytes The target size of a chunk in bytes
+     * @param pool       The pool that parses the chunks
+     */
+    public ChunkedFileLoader(int chunkBytes, ForkJoinPool pool) {
+        assert chunkBytes > 0 : "Chunk size must be positive";
+        this.chunkBytes = chunkBytes;
+        this.pool = pool;
+    }
+
+    /**
+     * Parses every non-blank line of a file.
+     *
+     * @param file   The file to load
+     * @param parser Parses one line into a record
+     * @param <T>    The type of record parsed
+     * @return The parsed records and failed lines, in file order
+     * @throws IOException If the file could not be read
+     */
+    public <T> Result<T> load(File file, LineParser<T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<long[]> ranges = splitAtNewlines(channel);
+            List<ChunkTask<T>> tasks = new ArrayList<>(ranges.size());
+            for (long[] range : ranges) {
+                tasks.add(new ChunkTask<>(channel, range[0], range[1], parser));
+            }
+
+            try {
+                if (tasks.size() == 1) {
+                    tasks.get(0).invoke();
+                } else if (tasks.size() > 1) {
+                    pool.invoke(new RecursiveTask<Void>() {
+                        @Override
+                        protected Void compute() {
+                            ForkJoinTask.invokeAll(tasks);
+                            return null;
+                        }
+                    });
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return merge(tasks);
+        }
+    }
+
+    private static <T> Result<T> merge(List<ChunkTask<T>> tasks) {
+        Result<T> result = new Result<>();
+        for (ChunkTask<T> task : tasks) {
+            Result<T> chunk = task.join();
+            result.records.addAll(chunk.records);
+            for (Failure failure : chunk.failures) {
+                result.failures.add(new Failure(result.lineCount + failure.lineNumber, failure.line, failure.error));
+            }
+            result.lineCount += chunk.lineCount;
+        }
+        return result;
+    }
+
+    /**
+     * Splits the file into ranges of roughly the chunk size, each ending just after a newline
+     * or at the end of the file.
+     */
+    private List<long[]> splitAtNewlines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> ranges = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkBytes >= size ? size : nextLineStart(channel, start + chunkBytes, size);
+            ranges.add(new long[] {start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long offset = position;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private class ChunkTask<T> extends RecursiveTask<Result<T>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final LineParser<T> parser;
+
+        ChunkTask(FileChannel channel, long start, long end, LineParser<T> parser) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.parser = parser;
+        }
+
+        @Override
+        protected Result<T> compute() {
+            String text;
+            try {
+                ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(end - start));
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes, start + bytes.position()) < 0) {
+                        break;
+                    }
+                }
+                bytes.flip();
+                text = StandardCharsets.UTF_8.decode(bytes).toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            Result<T> result = new Result<>();
+            int lineStart = 0;
+            while (lineStart < text.length()) {
+                int lineEnd = text.indexOf('\n', lineStart);
+                if (lineEnd < 0) {
+                    lineEnd = text.length();
+                }
+                int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                result.lineCount++;
+                parseLine(text.substring(lineStart, contentEnd), result);
+                lineStart = lineEnd + 1;
+            }
+            return result;
+        }
+
+        private void parseLine(String line, Result<T> result) {
+            if (line.trim().isEmpty()) {
+                return;
+            }
+            try {
+                T record = parser.parse(line);
+                if (record != null) {
+                    result.records.add(record);
+                } else {
+                    result.failures.add(new Failure(result.lineCount, line, null));
+                }
+            } catch (Exception e) {
+                result.failures.add(new Failure(result.lineCount, line, e));
+            }
+        }
+    }
+}
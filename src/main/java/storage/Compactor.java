@@ -0,0 +1,169 @@
+package storage;
+
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Folds the journal back into the data files once it grows past a configurable size or record count.
+ * The journal is rotated and the records copied on the calling thread, so the snapshot holds exactly the
+ * records as they were at rotation, however they are edited afterwards. The copies are then written to the
+ * data files on a background thread. The rotated journal is only discarded after every snapshot file has been
+ * forced to disk and atomically moved into place.
+ */
+public class Compactor {
+    public static final long DEFAULT_MAX_JOURNAL_BYTES = 1024 * 1024;
+    public static final int DEFAULT_MAX_JOURNAL_RECORDS = 5000;
+
+    private final Journal journal;
+    private final ManagementSystem system;
+    private final DurableFileWriter fileWriter;
+    private final long maxJournalBytes;
+    private final int maxJournalRecords;
+    private final ExecutorService executor;
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final AtomicReference<String> lastReport = new AtomicReference<>();
+
+    /**
+     * Constructs a Compactor for the given journal and data files.
+     *
+     * @param journal           The journal to compact
+     * @param system            The management system whose state is snapshotted
+     * @param fileWriter        The writer used to replace the data files
+     * @param maxJournalBytes   Journal size in bytes that triggers a compaction
+     * @param maxJournalRecords Journal record count that triggers a compaction
+     */
+    public Compactor(Journal journal, ManagementSystem system, DurableFileWriter fileWriter, long maxJournalBytes,
+                     int maxJournalRecords) {
+        assert maxJournalBytes > 0 : "Journal size trigger must be positive";
+        assert maxJournalRecords > 0 : "Journal record trigger must be positive";
+        this.journal = journal;
+        this.system = system;
+        this.fileWriter = fileWriter;
+        this.maxJournalBytes = maxJournalBytes;
+        this.maxJournalRecords = maxJournalRecords;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a compaction if the journal has reached either trigger and none is already running.
+     *
+     * @return true if a compaction was started, false otherwise
+     * @throws IOException If the journal could not be rotated
+     */
+    public boolean compactIfNeeded() throws IOException {
+        boolean isTriggered = journal.getSizeBytes() >= maxJournalBytes
+                || journal.getRecordCount() >= maxJournalRecords;
+        if (!isTriggered) {
+            return false;
+        }
+        return compact();
+    }
+
+    /**
+     * Starts a compaction unless one is already running.
+     * Must be called from the thread that mutates the management system.
+     *
+     * @return true if a compaction was started, false otherwise
+     * @throws IOException If the journal could not be rotated
+     */
+    public boolean compact() throws IOException {
+        if (!isRunning.compareAndSet(false, true)) {
+            return false;
+        }
+
+        try {
+            journal.rotate();
+        } catch (IOException e) {
+            isRunning.set(false);
+            throw e;
+        }
+
+        // Patients and appointments are edited in place, so they are copied before the command thread moves on;
+        // prescriptions never change once created and are shared
+        List<Patient> patients = new ArrayList<>();
+        for (Patient patient : system.getPatients()) {
+            patients.add(new Patient(patient.getId(), patient.getName(), patient.getDob(), patient.getGender(),
+                    patient.getAddress(), patient.getContactInfo(), patient.getMedicalHistory()));
+        }
+        List<Appointment> appointments = new ArrayList<>();
+        for (Appointment appointment : system.getAppointments()) {
+            Appointment copy = new Appointment(appointment.getId(), appointment.getNric(), appointment.getDateTime(),
+                    appointment.getDescription());
+            copy.setIsDone(appointment.isDone());
+            appointments.add(copy);
+        }
+        List<Prescription> prescriptions = new ArrayList<>(system.getPrescriptions());
+        int runningId = Appointment.getRunningId();
+
+        executor.submit(() -> writeSnapshot(patients, appointments, prescriptions, runningId));
+        return true;
+    }
+
+    /**
+     * Takes the report of the most recently finished compaction, if there is one that has not been taken.
+     *
+     * @return A one-line report, or null if no compaction finished since the last call
+     */
+    public String pollReport() {
+        return lastReport.getAndSet(null);
+    }
+
+    /**
+     * Checks whether a compaction is currently running.
+     *
+     * @return true if a snapshot is being written, false otherwise
+     */
+    public boolean isRunning() {
+        return isRunning.get();
+    }
+
+    /**
+     * Waits for a running compaction to finish and stops the background thread.
+     *
+     * @param timeoutMillis The maximum time to wait in milliseconds
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void shutdown(long timeoutMillis) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeSnapshot(List<Patient> patients, List<Appointment> appointments,
+                               List<Prescription> prescriptions, int runningId) {
+        long start = System.nanoTime();
+        try {
+            long bytesBefore = journal.getPreviousFile().length() + Storage.getDataFileBytes();
+
+            long bytesAfter = Storage.writePatientData(fileWriter, patients);
+            bytesAfter += Storage.writeAppointmentData(fileWriter, appointments, runningId);
+            bytesAfter += Storage.writePrescriptionData(fileWriter, prescriptions, new AtomicInteger());
+            fileWriter.forceDirectories();
+            journal.discardPrevious();
+
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastReport.set("Storage compacted in " + elapsedMillis + " ms, reclaimed "
+                    + (bytesBefore - bytesAfter) + " bytes.");
+        } catch (IOException | RuntimeException e) {
+            // The rotated journal is kept, so the next compaction or restart picks its records up again
+            lastReport.set("Storage compaction failed, journal kept: " + e);
+        } finally {
+            isRunning.set(false);
+        }
+    }
+}
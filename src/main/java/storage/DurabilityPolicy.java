@@ -0,0 +1,40 @@
+package storage;
+
+/**
+ * Levels of durability for data written by {@link Storage}.
+ * Every level replaces data files atomically through a temporary file, so a crash never leaves
+ * a half-written data file behind. The levels differ in how often data is forced to the disk.
+ */
+public enum DurabilityPolicy {
+    /** Never forces data to disk and leaves flushing to the operating system. */
+    NONE,
+    /**
+     * Forces every data file before it is moved into place, but forces the directory holding it only when
+     * the renames must be relied on, such as before a rotated journal is discarded or on close.
+     * Forces the journal once per batch of records.
+     */
+    BATCHED_FSYNC,
+    /**
+     * Forces every data file before it is moved into place and its directory after, so every rename is durable
+     * as soon as the write returns. Forces the journal after every record.
+     */
+    ALWAYS_FSYNC;
+
+    /**
+     * Parses a policy name, ignoring case.
+     *
+     * @param value    The policy name, may be null
+     * @param fallback The policy to use if the name is missing or not recognised
+     * @return The matching policy, or the fallback
+     */
+    public static DurabilityPolicy parse(String value, DurabilityPolicy fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
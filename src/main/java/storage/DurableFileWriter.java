@@ -0,0 +1,202 @@
+package storage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replaces data files atomically according to a {@link DurabilityPolicy}.
+ * Content is written to a temporary file in the same directory, forced to disk if the policy
+ * requires it, and then moved over the target with an atomic rename. The rename itself is only durable
+ * once the directory holding the file is forced: under always fsync that happens after every write,
+ * while under batched fsync the directories written to are remembered and forced together by
+ * {@link #forceDirectories()}, which callers run before relying on the new files, such as before
+ * discarding a rotated journal. Write and fsync latencies are accumulated so that the cost of each
+ * policy can be measured on a real deployment.
+ */
+public class DurableFileWriter {
+
+    /**
+     * Writes the content of a text file.
+     */
+    public interface Content {
+        void writeTo(BufferedWriter writer) throws IOException;
+    }
+
+    /**
+     * Writes the content of a binary file.
+     */
+    public interface BinaryContent {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private final DurabilityPolicy policy;
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong forceCount = new AtomicLong();
+    private final AtomicLong forceNanos = new AtomicLong();
+    private final Set<Path> unforcedDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a DurableFileWriter that follows the given policy.
+     *
+     * @param policy The durability policy
+     */
+    public DurableFileWriter(DurabilityPolicy policy) {
+        assert policy != null : "Durability policy cannot be null";
+        this.policy = policy;
+    }
+
+    public DurabilityPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Atomically replaces a text file with new content, encoded as UTF-8.
+     *
+     * @param filePath The file to replace
+     * @param content  Writes the new content of the file
+     * @return The size of the new file in bytes
+     * @throws IOException If the file could not be written or moved into place
+     */
+    public long write(String filePath, Content content) throws IOException {
+        return replace(filePath, out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            content.writeTo(writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Atomically replaces a binary file with new content.
+     *
+     * @param filePath The file to replace
+     * @param content  Writes the new content of the file
+     * @return The size of the new file in bytes
+     * @throws IOException If the file could not be written or moved into place
+     */
+    public long writeBinary(String filePath, BinaryContent content) throws IOException {
+        return replace(filePath, out -> {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            content.writeTo(data);
+            data.flush();
+        });
+    }
+
+    private interface StreamContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private long replace(String filePath, StreamContent content) throws IOException {
+        long start = System.nanoTime();
+        Path target = new File(filePath).toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                content.writeTo(out);
+                if (policy != DurabilityPolicy.NONE) {
+                    force(out.getChannel());
+                }
+            }
+            move(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (policy == DurabilityPolicy.ALWAYS_FSYNC) {
+            forceDirectory(target.getParent());
+        } else if (policy == DurabilityPolicy.BATCHED_FSYNC) {
+            unforcedDirectories.add(target.getParent());
+        }
+        writeCount.incrementAndGet();
+        writeNanos.addAndGet(System.nanoTime() - start);
+        return Files.size(target);
+    }
+
+    /**
+     * Forces a channel's content to disk and records how long it took.
+     *
+     * @param channel The channel to force
+     * @throws IOException If the channel could not be forced
+     */
+    public void force(FileChannel channel) throws IOException {
+        force(channel, false);
+    }
+
+    /**
+     * Forces the directories of files replaced since the last call, so that their renames survive a crash.
+     * Does nothing unless the policy is batched fsync, as always fsync forces the directory after every write.
+     *
+     * @throws IOException If a directory could not be forced
+     */
+    public void forceDirectories() throws IOException {
+        for (Path directory : unforcedDirectories) {
+            unforcedDirectories.remove(directory);
+            forceDirectory(directory);
+        }
+    }
+
+    private void forceDirectory(Path directory) throws IOException {
+        if (File.separatorChar == '\\') {
+            // Windows cannot open a directory as a channel, and commits a rename to its file system journal itself
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            force(channel, true);
+        }
+    }
+
+    private void force(FileChannel channel, boolean isMetadataForced) throws IOException {
+        long start = System.nanoTime();
+        channel.force(isMetadataForced);
+        forceCount.incrementAndGet();
+        forceNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    public long getForceCount() {
+        return forceCount.get();
+    }
+
+    /**
+     * Summarises the write and fsync latencies measured so far.
+     *
+     * @return A one-line summary of the measurements
+     */
+    public String getStatsSummary() {
+        return policy + ": " + writeCount.get() + " file writes averaging "
+                + averageMicros(writeNanos.get(), writeCount.get()) + " us, "
+                + forceCount.get() + " fsyncs averaging "
+                + averageMicros(forceNanos.get(), forceCount.get()) + " us";
+    }
+
+    private static long averageMicros(long totalNanos, long count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / count);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a data directory that another process writes to, without ever saving to it.
+ * Used by a second ClinicEase, such as a waiting-room display or a reporting terminal, to spread reads
+ * across processes. The records are brought up to date before each command: records the writer appended
+ * to its journal since the last refresh are replayed, and all records are reloaded once the writer
+ * replaces the data files, as it does when it compacts the journal or saves a file in full.
+ * Changes are refused, and the records are reloaded afterwards to undo them in memory.
+ * Nothing is ever written to the directory, including prescription HTML, which the writer owns.
+ */
+public class FollowerStorageBackend implements StorageBackend {
+    private static final String READ_ONLY_MESSAGE =
+            "This ClinicEase is read-only, as another one is writing to the data. The change was not saved.";
+    private static final String HTML_MESSAGE =
+            "This ClinicEase is read-only, as another one is writing to the data. No HTML file was written.";
+
+    private final String directoryPath;
+    private final StorageFormat format;
+    private long session;
+    private ManagementSystem system;
+    private Journal journal;
+    private String loadedDataFiles;
+    private long previousJournalLength;
+    private long journalOffset;
+    private boolean isStale;
+    private int reloadCount;
+    private String loadReport;
+
+    /**
+     * Constructs a follower of a data directory.
+     *
+     * @param directoryPath The directory the writer stores its data files in
+     * @param format        The format the writer saves its data files in
+     */
+    public FollowerStorageBackend(String directoryPath, StorageFormat format) {
+        assert directoryPath != null && format != null : "Directory and format cannot be null";
+        this.directoryPath = directoryPath;
+        this.format = format;
+    }
+
+    /**
+     * Opens the directory, closing the one storage had open before, then loads the data files and replays
+     * the writer's journal on top of them, without folding the journal, archiving old prescriptions or
+     * starting any background saving.
+     *
+     * @return The loaded management system
+     * @throws UnloadedStorageException If the previous directory could not be closed, or the data files or
+     *                                  the journal could not be read
+     */
+    @Override
+    public ManagementSystem load() throws UnloadedStorageException {
+        session = Storage.open(directoryPath);
+        Storage.setReadOnly();
+        Storage.setFormat(format);
+        journal = new Journal(Storage.journalPath());
+        StartupLoader loader = new StartupLoader();
+        system = loadRecords(loader);
+        loadReport = loader.getTimingReport();
+        return system;
+    }
+
+    /**
+     * Brings the records up to date with the changes the writer saved since the last refresh.
+     *
+     * @throws UnloadedStorageException If the data files or the journal could not be read
+     */
+    @Override
+    public void refresh() throws UnloadedStorageException {
+        assert system != null : "Records must be loaded before they are refreshed";
+        if (session != Storage.getSession()) {
+            throw new UnloadedStorageException("Storage was opened on another directory, so this one is no longer"
+                    + " followed.");
+        }
+        long journalLength = journal.getFile().length();
+        boolean isRotated = journal.getPreviousFile().length() != previousJournalLength
+                || journalLength < journalOffset;
+        if (isStale || isRotated || !Storage.describeDataFiles().equals(loadedDataFiles)) {
+            system.replaceRecords(loadRecords(new StartupLoader()));
+            reloadCount++;
+            return;
+        }
+        if (journalLength > journalOffset) {
+            try {
+                journalOffset = journal.follow(system, journalOffset);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to read the journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of times the records were reloaded in full since they were first loaded.
+     *
+     * @return The reload count
+     */
+    public int getReloadCount() {
+        return reloadCount;
+    }
+
+    private ManagementSystem loadRecords(StartupLoader loader) throws UnloadedStorageException {
+        // The files are described before they are read, so a replacement made while reading is seen next time
+        previousJournalLength = journal.getPreviousFile().length();
+        if (Storage.hasShards()) {
+            Storage.enableSharding(ShardManifest.DEFAULT_SHARD_COUNT);
+        }
+        loadedDataFiles = Storage.describeDataFiles();
+        ManagementSystem loaded = loader.load(this);
+        try {
+            journalOffset = journal.catchUp(loaded);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to read the journal: " + e.getMessage());
+        }
+        isStale = false;
+        return loaded;
+    }
+
+    @Override
+    public String getLoadReport() {
+        return loadReport;
+    }
+
+    @Override
+    public List<Prescription> findArchivedPrescriptions(String patientId) throws UnloadedStorageException {
+        return Storage.findArchivedPrescriptions(patientId);
+    }
+
+    @Override
+    public void forEachArchivedPrescription(RecordVisitor<Prescription> visitor) throws IOException {
+        Storage.forEachArchivedPrescription(visitor);
+    }
+
+    @Override
+    public void recordPatientUpsert(Patient patient, List<Patient> patientList) throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    @Override
+    public void recordPatientDelete(String nric, List<Patient> patientList, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    @Override
+    public void recordAppointmentAdd(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    @Override
+    public void recordAppointmentDelete(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    @Override
+    public void recordAppointmentStatus(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    @Override
+    public void recordPrescriptionAdd(Prescription prescription, List<Prescription> prescriptionList)
+            throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    @Override
+    public void recordImport(List<Patient> addedPatients, List<Appointment> addedAppointments,
+                             List<Prescription> addedPrescriptions, ManagementSystem system)
+            throws UnloadedStorageException {
+        throw refuseChange();
+    }
+
+    private UnloadedStorageException refuseChange() {
+        // The change was already made in memory, so the records are reloaded before the next command
+        isStale = true;
+        return new UnloadedStorageException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public void savePrescriptionHtml(Prescription prescription, Patient patient) throws UnloadedStorageException {
+        // The HTML files and their cache belong to the writer; no record changed, so nothing is reloaded
+        throw new UnloadedStorageException(HTML_MESSAGE);
+    }
+
+    @Override
+    public int savePrescriptionHtml(List<Prescription> prescriptions, Map<String, Patient> patients)
+            throws UnloadedStorageException {
+        throw new UnloadedStorageException(HTML_MESSAGE);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws UnloadedStorageException {
+        if (session != Storage.getSession()) {
+            // Opening the other directory already closed this one
+            return;
+        }
+        Storage.close();
+    }
+}
@@ -0,0 +1,90 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+
+import java.util.ArrayList;
+
+/**
+ * Converts a storage directory between the text and binary data file formats.
+ * The files of the source format are left in place, so a conversion can be undone by loading
+ * with the source format again.
+ */
+public class FormatConverter {
+
+    /**
+     * Rewrites the text data files of a directory as binary data files.
+     *
+     * @param directory The storage directory
+     * @return The number of records converted
+     * @throws UnloadedStorageException If the data could not be loaded or saved
+     */
+    public static int textToBinary(String directory) throws UnloadedStorageException {
+        return convert(directory, StorageFormat.TEXT, StorageFormat.BINARY);
+    }
+
+    /**
+     * Rewrites the binary data files of a directory as text data files.
+     *
+     * @param directory The storage directory
+     * @return The number of records converted
+     * @throws UnloadedStorageException If the data could not be loaded or saved
+     */
+    public static int binaryToText(String directory) throws UnloadedStorageException {
+        return convert(directory, StorageFormat.BINARY, StorageFormat.TEXT);
+    }
+
+    private static int convert(String directory, StorageFormat from, StorageFormat to)
+            throws UnloadedStorageException {
+        Storage.open(directory);
+        Storage.setFormat(from);
+        Storage.enableJournal();
+        ManagementSystem system = new ManagementSystem(Storage.loadPatients(), new ArrayList<>(),
+                Storage.loadPrescriptions());
+        system.setAppointments(Storage.loadAppointments(system));
+        // Journal records are idempotent, so the journal is kept and replays harmlessly over the converted files
+        Storage.replayJournal(system);
+        Storage.close();
+
+        Storage.setFormat(to);
+        Storage.savePatients(system.getPatients());
+        Storage.saveAppointments(system.getAppointments());
+        Storage.savePrescriptions(system.getPrescriptions());
+        return system.getPatients().size() + system.getAppointments().size() + system.getPrescriptions().size();
+    }
+
+    /**
+     * Converts a storage directory from the command line.
+     * Usage: {@code FormatConverter text-to-binary|binary-to-text [directory]}, where the directory
+     * defaults to {@code data}.
+     *
+     * @param args The conversion direction, optionally followed by the directory
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: FormatConverter text-to-binary|binary-to-text [directory]");
+            return;
+        }
+        String directory = args.length == 2 ? args[1] : "data";
+
+        try {
+            long start = System.nanoTime();
+            int count;
+            switch (args[0]) {
+            case "text-to-binary":
+                count = textToBinary(directory);
+                break;
+            case "binary-to-text":
+                count = binaryToText(directory);
+                break;
+            default:
+                System.out.println("Unknown conversion: " + args[0]);
+                return;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Converted " + count + " records in " + elapsedMillis + " ms.");
+        } catch (UnloadedStorageException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
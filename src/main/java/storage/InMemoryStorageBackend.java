@@ -0,0 +1,111 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps records in memory only, discarding every change.
+ * Used to measure the business logic without the cost of storage; the number of changes reported
+ * is counted so a benchmark can check that the work it timed really reached the backend.
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+    private final List<Patient> patients;
+    private final List<Appointment> appointments;
+    private final List<Prescription> prescriptions;
+    private long recordCount;
+
+    /**
+     * Constructs an in-memory backend that starts out empty.
+     */
+    public InMemoryStorageBackend() {
+        this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * Constructs an in-memory backend that starts out with the given records.
+     *
+     * @param patients      The patients to load
+     * @param appointments  The appointments to load
+     * @param prescriptions The prescriptions to load
+     */
+    public InMemoryStorageBackend(List<Patient> patients, List<Appointment> appointments,
+                                  List<Prescription> prescriptions) {
+        assert patients != null && appointments != null && prescriptions != null : "Records cannot be null";
+        this.patients = patients;
+        this.appointments = appointments;
+        this.prescriptions = prescriptions;
+    }
+
+    @Override
+    public ManagementSystem load() {
+        return new ManagementSystem(patients, appointments, prescriptions, this);
+    }
+
+    @Override
+    public String getLoadReport() {
+        return "Loaded " + patients.size() + " patients, " + appointments.size() + " appointments and "
+                + prescriptions.size() + " prescriptions from memory.";
+    }
+
+    /**
+     * Gets the number of changes reported since the backend was constructed.
+     *
+     * @return The number of changes
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    private synchronized void count() {
+        recordCount++;
+    }
+
+    @Override
+    public void recordPatientUpsert(Patient patient, List<Patient> patientList) {
+        count();
+    }
+
+    @Override
+    public void recordPatientDelete(String nric, List<Patient> patientList, List<Appointment> appointmentList) {
+        count();
+    }
+
+    @Override
+    public void recordAppointmentAdd(Appointment appointment, List<Appointment> appointmentList) {
+        count();
+    }
+
+    @Override
+    public void recordAppointmentDelete(Appointment appointment, List<Appointment> appointmentList) {
+        count();
+    }
+
+    @Override
+    public void recordAppointmentStatus(Appointment appointment, List<Appointment> appointmentList) {
+        count();
+    }
+
+    @Override
+    public void recordPrescriptionAdd(Prescription prescription, List<Prescription> prescriptionList)
+            throws UnloadedStorageException {
+        count();
+    }
+
+    @Override
+    public void savePrescriptionHtml(Prescription prescription, Patient patient) {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,523 @@
+package storage;
+
+import exception.InvalidInputFormatException;
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import miscellaneous.Parser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of the mutations made since the data files were last written in full.
+ * Each line holds a single record in the form {@code TYPE|PAYLOAD}, where the payload is
+ * the same pipe-delimited format used by the data files (or a bare ID for deletions),
+ * sealed with a checksum by {@link RecordChecksum}.
+ * On startup the data files are loaded first and the journal is replayed on top of them.
+ */
+public class Journal {
+    public static final String PATIENT_UPSERT = "patient-upsert";
+    public static final String PATIENT_DELETE = "patient-delete";
+    public static final String APPOINTMENT_ADD = "appointment-add";
+    public static final String APPOINTMENT_DELETE = "appointment-delete";
+    public static final String APPOINTMENT_MARK = "appointment-mark";
+    public static final String APPOINTMENT_UNMARK = "appointment-unmark";
+    public static final String PRESCRIPTION_ADD = "prescription-add";
+
+    private static final int BATCHED_FSYNC_RECORDS = 32;
+
+    private final File file;
+    private final File previousFile;
+    private BufferedWriter writer;
+    private FileOutputStream stream;
+    private DurableFileWriter fileWriter;
+    private Quarantine quarantine;
+    private int unforcedRecords;
+    private boolean isGroupCommit;
+    private int recordCount;
+    private long sizeBytes;
+    private int followedLineCount;
+
+    /**
+     * Constructs a Journal backed by the given file.
+     * The file is only created once the first record is appended.
+     *
+     * @param filePath The path of the journal file
+     */
+    public Journal(String filePath) {
+        this.file = new File(filePath);
+        this.previousFile = new File(filePath + ".old");
+        this.sizeBytes = file.length();
+    }
+
+    /**
+     * Gets the file backing this journal.
+     *
+     * @return The journal file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the file holding records that were rotated out for compaction.
+     * The file only exists while a compaction is in progress or after one failed.
+     *
+     * @return The rotated journal file
+     */
+    public File getPreviousFile() {
+        return previousFile;
+    }
+
+    /**
+     * Gets the number of records in the current journal file.
+     *
+     * @return The record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the size of the current journal file in bytes.
+     *
+     * @return The journal size in bytes
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Sets the writer whose durability policy decides when records are forced to disk.
+     * Without one, records are never forced.
+     *
+     * @param fileWriter The writer providing the policy and collecting fsync timings
+     */
+    public synchronized void setFileWriter(DurableFileWriter fileWriter) {
+        this.fileWriter = fileWriter;
+    }
+
+    /**
+     * Sets the side file that records which cannot be replayed are copied to.
+     * Without one, such records are only reported.
+     *
+     * @param quarantine The side file for unreadable records
+     */
+    public synchronized void setQuarantine(Quarantine quarantine) {
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Sets whether appended records are left in the buffer until {@link #flush()} is called,
+     * so that several records reach the file in a single write.
+     *
+     * @param isGroupCommit true to defer writing until flushed, false to write every record immediately
+     */
+    public synchronized void setGroupCommit(boolean isGroupCommit) {
+        this.isGroupCommit = isGroupCommit;
+    }
+
+    /**
+     * Appends a single record to the end of the journal.
+     * Unless group commit is on, the record is written to the file before this method returns.
+     *
+     * @param type    The record type, one of the constants in this class
+     * @param payload The record payload
+     * @throws IOException If the record could not be written
+     */
+    public synchronized void append(String type, String payload) throws IOException {
+        assert type != null && !type.isBlank() : "Journal record type cannot be null or blank";
+        assert payload != null : "Journal record payload cannot be null";
+
+        if (writer == null) {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            stream = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        }
+        String line = RecordChecksum.seal(type + "|" + payload);
+        writer.write(line);
+        writer.newLine();
+        unforcedRecords++;
+        if (!isGroupCommit) {
+            writer.flush();
+            forceIfDue(false);
+        }
+        recordCount++;
+        sizeBytes += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+    }
+
+    /**
+     * Appends records of one type to the end of the journal in a single write.
+     * The records are written together once all are buffered, whether or not group commit is on.
+     *
+     * @param type     The record type, one of the constants in this class
+     * @param payloads The record payloads, in order
+     * @throws IOException If the records could not be written
+     */
+    public synchronized void appendAll(String type, List<String> payloads) throws IOException {
+        boolean wasGroupCommit = isGroupCommit;
+        isGroupCommit = true;
+        try {
+            for (String payload : payloads) {
+                append(type, payload);
+            }
+        } finally {
+            isGroupCommit = wasGroupCommit;
+        }
+        if (!wasGroupCommit) {
+            flush();
+        }
+    }
+
+    /**
+     * Moves the current records aside so that a snapshot can be written without blocking appends.
+     * If records from an earlier, unfinished compaction are still set aside, the current records
+     * are appended to them so that no record is lost. Appends after this call start a new file.
+     *
+     * @throws IOException If the journal files could not be moved or merged
+     */
+    public synchronized void rotate() throws IOException {
+        close();
+        if (!file.exists()) {
+            return;
+        }
+
+        if (previousFile.exists()) {
+            try (FileOutputStream out = new FileOutputStream(previousFile, true)) {
+                Files.copy(file.toPath(), out);
+            }
+            Files.delete(file.toPath());
+        } else {
+            Files.move(file.toPath(), previousFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        recordCount = 0;
+        sizeBytes = 0;
+    }
+
+    /**
+     * Discards the records set aside by {@link #rotate()} once a snapshot containing them is durable.
+     *
+     * @return The number of bytes freed
+     * @throws IOException If the rotated journal file could not be deleted
+     */
+    public long discardPrevious() throws IOException {
+        long freed = previousFile.length();
+        Files.deleteIfExists(previousFile.toPath());
+        return freed;
+    }
+
+    /**
+     * Writes out any records buffered by group commit.
+     *
+     * @throws IOException If the records could not be written
+     */
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            forceIfDue(true);
+        }
+    }
+
+    /**
+     * Closes the underlying writer if it is open, writing out any buffered records.
+     * The journal reopens the file on the next append.
+     *
+     * @throws IOException If the writer could not be closed
+     */
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            forceIfDue(true);
+            writer.close();
+            writer = null;
+            stream = null;
+        }
+    }
+
+    /**
+     * Forces written records to disk if the durability policy calls for it.
+     * Under batched fsync, records are forced at the end of a group commit or once enough
+     * records have built up; under always fsync, every write is forced.
+     *
+     * @param isBatchEnd true if a group of records has just been written out
+     * @throws IOException If the journal could not be forced
+     */
+    private void forceIfDue(boolean isBatchEnd) throws IOException {
+        if (fileWriter == null || unforcedRecords == 0) {
+            return;
+        }
+
+        DurabilityPolicy policy = fileWriter.getPolicy();
+        boolean isDue = policy == DurabilityPolicy.ALWAYS_FSYNC
+                || (policy == DurabilityPolicy.BATCHED_FSYNC
+                        && (isBatchEnd || unforcedRecords >= BATCHED_FSYNC_RECORDS));
+        if (isDue) {
+            fileWriter.force(stream.getChannel());
+            unforcedRecords = 0;
+        }
+    }
+
+    /**
+     * Replays every record in the journal onto the given management system,
+     * starting with any records left over from an unfinished compaction.
+     * Records are applied directly to the system's lists so that replaying does not
+     * append new records. Every record type is idempotent, so replaying a record whose
+     * effect is already present in the data files leaves the system unchanged.
+     * Unreadable records, such as a line torn by a crash, are skipped with a warning and copied to the quarantine.
+     *
+     * @param system The management system to apply the records to
+     * @return The number of records applied
+     * @throws IOException If the journal file could not be read
+     */
+    public int replay(ManagementSystem system) throws IOException {
+        int applied = replayFile(previousFile, system);
+        recordCount = 0;
+        applied += replayFile(file, system);
+        sizeBytes = file.length();
+        return applied;
+    }
+
+    /**
+     * Replays the journal as a reader that is not its writer, while the writer may still be appending to it.
+     * Records left over from an unfinished compaction are replayed in full, but only the complete lines of
+     * the current file are, since its last line may still be being written.
+     *
+     * @param system The management system to apply the records to
+     * @return The offset in the current file up to which records were replayed, to pass to {@link #follow}
+     * @throws IOException If the journal file could not be read
+     */
+    public long catchUp(ManagementSystem system) throws IOException {
+        replayFile(previousFile, system);
+        followedLineCount = 0;
+        return follow(system, 0);
+    }
+
+    /**
+     * Replays the complete records appended to the current journal file since an earlier replay.
+     * The writer may rotate the file for compaction, after which an offset into it no longer applies;
+     * readers must replay from the start with {@link #catchUp} once the rotated file appears or the
+     * data files are replaced.
+     *
+     * @param system The management system to apply the records to
+     * @param offset The offset up to which records were already replayed
+     * @return The offset up to which records have now been replayed
+     * @throws IOException If the journal file could not be read
+     */
+    public long follow(ManagementSystem system, long offset) throws IOException {
+        if (!file.exists() || file.length() <= offset) {
+            return offset;
+        }
+
+        byte[] bytes;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(offset);
+            bytes = new byte[(int) (in.length() - offset)];
+            in.readFully(bytes);
+        }
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        if (end == 0) {
+            return offset;
+        }
+
+        String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\r?\n");
+        List<ChunkedFileLoader.Failure> failures = new ArrayList<>();
+        for (String line : lines) {
+            followedLineCount++;
+            replayLine(system, line, followedLineCount, failures);
+        }
+        return offset + end;
+    }
+
+    private int replayFile(File source, ManagementSystem system) throws IOException {
+        if (!source.exists()) {
+            return 0;
+        }
+
+        int applied = 0;
+        int lineNumber = 0;
+        List<ChunkedFileLoader.Failure> failures = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (replayLine(system, line, lineNumber, failures)) {
+                    applied++;
+                }
+            }
+        }
+        if (quarantine != null) {
+            quarantine.addAll(source, failures);
+        }
+        return applied;
+    }
+
+    /**
+     * Applies one journal line, reporting and collecting it if it cannot be applied.
+     *
+     * @return true if the record was applied
+     * @throws IOException If storage could not be read while applying the record, which is no fault of the record
+     */
+    private boolean replayLine(ManagementSystem system, String line, int lineNumber,
+                               List<ChunkedFileLoader.Failure> failures) throws IOException {
+        if (line.isBlank()) {
+            return false;
+        }
+        recordCount++;
+        try {
+            if (apply(system, RecordChecksum.unseal(line, true))) {
+                return true;
+            }
+            System.out.println("Warning: Skipped invalid journal record at line " + lineNumber);
+            failures.add(new ChunkedFileLoader.Failure(lineNumber, line, null));
+        } catch (UnloadedStorageException e) {
+            throw new IOException(e.getMessage(), e);
+        } catch (Exception e) {
+            System.out.println("Warning: Error replaying journal record at line " + lineNumber
+                    + ": " + e.getMessage());
+            failures.add(new ChunkedFileLoader.Failure(lineNumber, line, e));
+        }
+        return false;
+    }
+
+    /**
+     * Applies a single journal line to the management system.
+     *
+     * @param system The management system to apply the record to
+     * @param line   The journal line
+     * @return true if the record was recognised, false otherwise
+     * @throws InvalidInputFormatException If a patient payload fails validation
+     * @throws UnloadedStorageException    If a patient the record refers to could not be read from storage
+     */
+    private static boolean apply(ManagementSystem system, String line) throws InvalidInputFormatException,
+            UnloadedStorageException {
+        int separator = line.indexOf('|');
+        if (separator < 0) {
+            return false;
+        }
+        String type = line.substring(0, separator);
+        String payload = line.substring(separator + 1);
+
+        switch (type) {
+        case PATIENT_UPSERT:
+            return applyPatientUpsert(system, payload);
+        case PATIENT_DELETE:
+            system.removeLoadedPatients(system.getPatients().stream()
+                    .filter(patient -> patient.getId().equals(payload)).toList());
+            system.removeLoadedAppointments(system.findAppointmentsByNric(payload));
+            return true;
+        case APPOINTMENT_ADD:
+            return applyAppointmentAdd(system, payload);
+        case APPOINTMENT_DELETE:
+            applyAppointmentDelete(system, payload);
+            return true;
+        case APPOINTMENT_MARK:
+        case APPOINTMENT_UNMARK:
+            Appointment marked = system.findAppointmentById(payload);
+            if (marked != null) {
+                marked.setIsDone(type.equals(APPOINTMENT_MARK));
+            }
+            return true;
+        case PRESCRIPTION_ADD:
+            return applyPrescriptionAdd(system, payload);
+        default:
+            return false;
+        }
+    }
+
+    private static boolean applyPatientUpsert(ManagementSystem system, String payload)
+            throws InvalidInputFormatException, UnloadedStorageException {
+        Patient loaded = Parser.parseLoadPatient(payload);
+        if (loaded == null) {
+            return false;
+        }
+
+        Patient existing = system.findPatientByNric(loaded.getId());
+        if (existing == null) {
+            system.addLoadedPatient(loaded);
+            return true;
+        }
+
+        // Update in place so that appointments already linked to the patient are kept
+        existing.setName(loaded.getName());
+        existing.setDob(loaded.getDob());
+        existing.setGender(loaded.getGender());
+        existing.setAddress(loaded.getAddress());
+        existing.setContactInfo(loaded.getContactInfo());
+        List<String> history = existing.getMedicalHistory();
+        history.clear();
+        history.addAll(loaded.getMedicalHistory());
+        return true;
+    }
+
+    private static boolean applyAppointmentAdd(ManagementSystem system, String payload)
+            throws UnloadedStorageException {
+        Appointment appointment = Parser.parseLoadAppointment(payload);
+        if (appointment == null) {
+            return false;
+        }
+
+        // Appointment IDs are never reused, so the counter must move past every replayed ID
+        int idNumber = Integer.parseInt(appointment.getId().substring(1));
+        if (idNumber >= Appointment.getRunningId()) {
+            Appointment.setRunningId(idNumber + 1);
+        }
+
+        if (system.findAppointmentById(appointment.getId()) != null) {
+            return true;
+        }
+
+        system.addLoadedAppointment(appointment);
+        Patient patient = system.findPatientByNric(appointment.getNric());
+        if (patient != null) {
+            patient.addAppointment(appointment);
+        }
+        return true;
+    }
+
+    private static void applyAppointmentDelete(ManagementSystem system, String apptId)
+            throws UnloadedStorageException {
+        Appointment removed = system.findAppointmentById(apptId);
+        if (removed == null) {
+            return;
+        }
+
+        system.removeLoadedAppointments(List.of(removed));
+        Patient patient = system.findPatientByNric(removed.getNric());
+        if (patient != null) {
+            patient.removeAppointment(removed);
+        }
+    }
+
+    private static boolean applyPrescriptionAdd(ManagementSystem system, String payload) {
+        Prescription prescription = Prescription.fromFileFormat(payload);
+        if (prescription == null) {
+            return false;
+        }
+        if (system.findLoadedPrescription(prescription.getPrescriptionId()) == null) {
+            system.addLoadedPrescription(prescription);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+
+/**
+ * Stores records by appending each change to a journal, in either the text or the binary format.
+ * The data files are rewritten as snapshots by background compaction, saves are grouped by a
+ * write-behind queue, and prescription details are read from disk only when first needed.
+ * Like {@link TextStorageBackend}, it works through {@link Storage}, so only one file-backed
+ * backend can be in use at a time.
+ */
+public class JournaledStorageBackend extends TextStorageBackend {
+    private final StorageFormat format;
+    private final DurabilityPolicy policy;
+    private final int shardCount;
+
+    /**
+     * Constructs a journaled backend that stores its files in a directory.
+     *
+     * @param directoryPath The directory where data files are stored
+     * @param format        The format of the data files
+     * @param policy        How far saves are forced to disk
+     * @param shardCount    The number of shards to split the data files into, or 0 to shard only
+     *                      a directory that is already sharded
+     */
+    public JournaledStorageBackend(String directoryPath, StorageFormat format, DurabilityPolicy policy,
+                                   int shardCount) {
+        super(directoryPath);
+        assert format != null && policy != null : "Format and durability policy cannot be null";
+        assert shardCount >= 0 : "Shard count cannot be negative";
+        this.format = format;
+        this.policy = policy;
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * Locks the data directory for writing, loads the data files, replays the journal on top of them,
+     * archives old prescriptions if an archive age is set, and starts background compaction and
+     * write-behind saving.
+     *
+     * @return The loaded management system
+     * @throws UnloadedStorageException If another process is writing to the directory or the data files
+     *                                  or the journal could not be loaded
+     */
+    @Override
+    public ManagementSystem load() throws UnloadedStorageException {
+        openSession();
+        Storage.setDurabilityPolicy(policy);
+        Storage.setFormat(format);
+        Storage.lockForWriting();
+        if (shardCount > 0 || Storage.hasShards()) {
+            Storage.enableSharding(shardCount > 0 ? shardCount : ShardManifest.DEFAULT_SHARD_COUNT);
+        }
+        Storage.enableJournal();
+        Storage.enableLazyPrescriptions();
+        ManagementSystem system = loadFiles();
+        Storage.replayJournal(system);
+        archiveOldPrescriptions(system);
+        Storage.enableCompaction(system, Compactor.DEFAULT_MAX_JOURNAL_BYTES, Compactor.DEFAULT_MAX_JOURNAL_RECORDS);
+        Storage.enableWriteBehind(WriteBehindQueue.DEFAULT_WINDOW_MILLIS,
+                WriteBehindQueue.DEFAULT_MAX_STALENESS_MILLIS);
+        return system;
+    }
+
+    @Override
+    protected StorageFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public String pollReport() {
+        String report = super.pollReport();
+        return report != null ? report : Storage.pollCompactionReport();
+    }
+}
@@ -0,0 +1,88 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of fixed-size pages read from a file.
+ * Pages are read with positional reads and kept until the cache is full, after which the least
+ * recently used page is evicted, so memory use stays at the capacity whatever the size of the file.
+ */
+public class PageCache {
+    private final FileChannel channel;
+    private final int pageSize;
+    private final Map<Integer, ByteBuffer> pages;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Constructs a page cache over a file.
+     *
+     * @param channel       The file to read pages from
+     * @param pageSize      The size of a page in bytes
+     * @param capacityPages The most pages kept in memory at once
+     */
+    public PageCache(FileChannel channel, int pageSize, int capacityPages) {
+        assert pageSize > 0 && capacityPages > 0 : "Page size and capacity must be positive";
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                return size() > capacityPages;
+            }
+        };
+    }
+
+    /**
+     * Gets a page, reading it from the file if it is not cached.
+     *
+     * @param pageNumber The page to get, counting from 0 at the start of the file
+     * @return A read-only view of the page positioned at its start
+     * @throws IOException If the page could not be read
+     */
+    public synchronized ByteBuffer get(int pageNumber) throws IOException {
+        ByteBuffer page = pages.get(pageNumber);
+        if (page != null) {
+            hitCount++;
+            return page.duplicate();
+        }
+
+        missCount++;
+        ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        long position = (long) pageNumber * pageSize;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Page " + pageNumber + " is past the end of the file");
+            }
+        }
+        buffer.flip();
+        page = buffer.asReadOnlyBuffer();
+        pages.put(pageNumber, page);
+        return page.duplicate();
+    }
+
+    /**
+     * @return the number of pages currently cached
+     */
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    /**
+     * @return the number of lookups served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups that had to read the file
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
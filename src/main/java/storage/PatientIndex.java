@@ -0,0 +1,214 @@
+package storage;
+
+import exception.InvalidInputFormatException;
+import manager.Patient;
+import miscellaneous.Parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Index of the records in the patient file, keyed by normalized NRIC.
+ * The index is a {@link BPlusTreeIndex} file kept next to the patient file, mapping each NRIC to where
+ * the patient's record lies. Looking up a patient reads the few index pages on the way to its key and
+ * then the record itself, so patients can be found without loading the whole file into memory.
+ * The index is rebuilt whenever it does not match the patient file it was built from.
+ */
+public class PatientIndex {
+    public static final int DEFAULT_CACHE_PAGES = 256;
+
+    private static final int LENGTH_BITS = 24;
+    private static final long MAX_RECORD_BYTES = (1L << LENGTH_BITS) - 1;
+
+    private final BPlusTreeIndex tree;
+    private final FileChannel data;
+    private final boolean isSealRequired;
+
+    private PatientIndex(BPlusTreeIndex tree, FileChannel data, boolean isSealRequired) {
+        this.tree = tree;
+        this.data = data;
+        this.isSealRequired = isSealRequired;
+    }
+
+    /**
+     * Opens the index of a patient file, building it first if it is missing or out of date.
+     *
+     * @param dataFile   The patient data file
+     * @param indexFile  The index file
+     * @param cachePages The most pages of the index to keep in memory
+     * @param writer     The writer used to replace the index file
+     * @return The opened index
+     * @throws IOException If the patient file or the index could not be read or written
+     */
+    public static PatientIndex open(File dataFile, File indexFile, int cachePages, DurableFileWriter writer)
+            throws IOException {
+        BPlusTreeIndex tree = openIfCurrent(dataFile, indexFile, cachePages);
+        if (tree == null) {
+            build(dataFile, indexFile, writer);
+            tree = BPlusTreeIndex.open(indexFile, cachePages);
+        }
+        if (!dataFile.exists()) {
+            return new PatientIndex(tree, null, false);
+        }
+        try {
+            boolean isSealRequired = RecordChecksum.isSealedFile(dataFile);
+            return new PatientIndex(tree, FileChannel.open(dataFile.toPath(), StandardOpenOption.READ), isSealRequired);
+        } catch (IOException e) {
+            tree.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Normalizes an NRIC into the form used as the index key.
+     *
+     * @param nric The NRIC to normalize
+     * @return The NRIC without surrounding whitespace, in upper case
+     */
+    public static String normalize(String nric) {
+        return nric.trim().toUpperCase();
+    }
+
+    /**
+     * Reads the patient with an NRIC from the patient file.
+     *
+     * @param nric The NRIC of the patient, in any case
+     * @return A new Patient read from the file, or null if the file has no patient with the NRIC
+     * @throws IOException If the index or the patient file could not be read, or the record is damaged
+     */
+    public Patient find(String nric) throws IOException {
+        long location = tree.find(normalize(nric));
+        if (location == BPlusTreeIndex.NOT_FOUND || data == null) {
+            return null;
+        }
+
+        long offset = location >>> LENGTH_BITS;
+        ByteBuffer record = ByteBuffer.allocate((int) (location & MAX_RECORD_BYTES));
+        while (record.hasRemaining()) {
+            if (data.read(record, offset + record.position()) < 0) {
+                throw new IOException("Patient file is shorter than its index");
+            }
+        }
+        record.flip();
+        try {
+            String line = StandardCharsets.UTF_8.decode(record).toString();
+            return Parser.parseLoadPatient(RecordChecksum.unseal(line, isSealRequired));
+        } catch (InvalidInputFormatException e) {
+            throw new IOException("Invalid patient record for " + nric + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of patients in the index
+     */
+    public long size() {
+        return tree.getEntryCount();
+    }
+
+    /**
+     * @return the cache holding the index pages read by lookups
+     */
+    public PageCache getCache() {
+        return tree.getCache();
+    }
+
+    /**
+     * Releases the handles on the index and the patient file.
+     *
+     * @throws IOException If a file could not be closed
+     */
+    public void close() throws IOException {
+        try {
+            tree.close();
+        } finally {
+            if (data != null) {
+                data.close();
+            }
+        }
+    }
+
+    private static BPlusTreeIndex openIfCurrent(File dataFile, File indexFile, int cachePages) {
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            BPlusTreeIndex tree = BPlusTreeIndex.open(indexFile, cachePages);
+            if (tree.getSourceLength() == dataFile.length() && tree.getSourceModified() == dataFile.lastModified()) {
+                return tree;
+            }
+            tree.close();
+        } catch (IOException e) {
+            // An unreadable index is rebuilt like an out of date one
+        }
+        return null;
+    }
+
+    /**
+     * Builds the index file from the patient file.
+     * Where an NRIC appears more than once, the first record is indexed, as that is the one a scan finds.
+     *
+     * @param dataFile  The patient data file
+     * @param indexFile The index file
+     * @param writer    The writer used to replace the index file
+     * @throws IOException If the patient file could not be read or the index could not be written
+     */
+    public static void build(File dataFile, File indexFile, DurableFileWriter writer) throws IOException {
+        SortedMap<String, Long> entries = new TreeMap<>();
+        long sourceLength = dataFile.length();
+        long sourceModified = dataFile.lastModified();
+        if (dataFile.exists()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(dataFile))) {
+                scan(in, entries);
+            }
+        }
+        BPlusTreeIndex.build(writer, indexFile.getPath(), entries, sourceLength, sourceModified);
+    }
+
+    private static void scan(InputStream in, SortedMap<String, Long> entries) throws IOException {
+        ByteArrayOutputStream key = new ByteArrayOutputStream();
+        boolean isInKey = true;
+        long offset = 0;
+        long lineStart = 0;
+        int previous = -1;
+        int b;
+        while ((b = in.read()) != -1) {
+            offset++;
+            if (b == '\n') {
+                long length = offset - 1 - lineStart - (previous == '\r' ? 1 : 0);
+                addEntry(entries, key.toString(StandardCharsets.UTF_8), lineStart, length, isInKey);
+                key.reset();
+                isInKey = true;
+                lineStart = offset;
+            } else if (b == '|') {
+                isInKey = false;
+            } else if (isInKey && b != '\r') {
+                key.write(b);
+            }
+            previous = b;
+        }
+        long length = offset - lineStart - (previous == '\r' ? 1 : 0);
+        addEntry(entries, key.toString(StandardCharsets.UTF_8), lineStart, length, isInKey);
+    }
+
+    private static void addEntry(SortedMap<String, Long> entries, String key, long lineStart, long length,
+                                 boolean isInKey) throws IOException {
+        // A line without a field separator cannot be a patient record
+        if (isInKey || key.isBlank()) {
+            return;
+        }
+        if (length > MAX_RECORD_BYTES) {
+            throw new IOException("Patient record for " + key + " is too long to index");
+        }
+        entries.putIfAbsent(normalize(key), lineStart << LENGTH_BITS | length);
+    }
+}
@@ -0,0 +1,351 @@
+package storage;
+
+import manager.Prescription;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archive tier for old prescriptions, kept out of the prescription file that is loaded at startup.
+ * Each archiving run writes one segment file. A segment holds its prescriptions sorted by patient in
+ * blocks of about {@link #BLOCK_BYTES} that are compressed with {@link Deflater}, followed by a sparse
+ * index of the first patient in each block. Finding a patient's prescriptions reads the sparse indexes,
+ * which are loaded when the archive is opened, and inflates only the blocks that can hold the patient.
+ */
+public class PrescriptionArchive {
+    public static final int BLOCK_BYTES = 32 * 1024;
+
+    private static final int MAGIC = 0x43454152;
+    private static final int VERSION = 1;
+    private static final int FOOTER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".cea";
+
+    private final File directory;
+    private final List<Segment> segments = new ArrayList<>();
+
+    private PrescriptionArchive(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the archive in a directory, reading the sparse index of every segment.
+     * A directory that does not exist is an empty archive.
+     *
+     * @param directoryPath The directory holding the segments
+     * @return The opened archive
+     * @throws IOException If a segment could not be read
+     */
+    public static PrescriptionArchive open(String directoryPath) throws IOException {
+        PrescriptionArchive archive = new PrescriptionArchive(new File(directoryPath));
+        File[] files = archive.directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX)
+                && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            return archive;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        try {
+            for (File file : files) {
+                archive.segments.add(Segment.open(file));
+            }
+        } catch (IOException e) {
+            archive.close();
+            throw e;
+        }
+        return archive;
+    }
+
+    /**
+     * Writes prescriptions into a new segment.
+     *
+     * @param prescriptions The prescriptions to archive
+     * @param writer        The writer used to create the segment file
+     * @return The size of the new segment in bytes
+     * @throws IOException If the segment could not be written
+     */
+    public synchronized long append(List<Prescription> prescriptions, DurableFileWriter writer) throws IOException {
+        List<Prescription> sorted = new ArrayList<>(prescriptions);
+        // The sort is stable, so each patient's prescriptions stay in the order they were given
+        sorted.sort(Comparator.comparing(Prescription::getPatientId));
+        directory.mkdirs();
+        File file = new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, nextSegmentNumber(),
+                SEGMENT_SUFFIX));
+        long size = writer.writeBinary(file.getPath(), out -> writeSegment(out, sorted));
+        segments.add(Segment.open(file));
+        return size;
+    }
+
+    /**
+     * Finds the archived prescriptions of a patient, oldest segment first.
+     *
+     * @param patientId The NRIC of the patient
+     * @return The archived prescriptions of the patient, with their details loaded
+     * @throws IOException If a segment could not be read
+     */
+    public synchronized List<Prescription> find(String patientId) throws IOException {
+        List<Prescription> found = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.find(patientId, found);
+        }
+        return found;
+    }
+
+    /**
+     * Streams every archived prescription, oldest segment first.
+     * Only one block of one segment is held in memory at a time.
+     *
+     * @param visitor Receives each prescription, with its details loaded
+     * @throws IOException If a segment could not be read, or the visitor failed
+     */
+    public synchronized void forEach(RecordVisitor<Prescription> visitor) throws IOException {
+        for (Segment segment : segments) {
+            segment.forEach(visitor);
+        }
+    }
+
+    /**
+     * @return the number of segments in the archive
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the number of prescriptions in the archive
+     */
+    public synchronized long getRecordCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.recordCount;
+        }
+        return count;
+    }
+
+    /**
+     * Releases the handles on the segment files.
+     *
+     * @throws IOException If a segment could not be closed
+     */
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        segments.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int nextSegmentNumber() {
+        if (segments.isEmpty()) {
+            return 1;
+        }
+        String name = segments.get(segments.size() - 1).file.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                + 1;
+    }
+
+    private static void writeSegment(DataOutputStream out, List<Prescription> sorted) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        long offset = Integer.BYTES + 1;
+
+        List<String> firstKeys = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            for (int i = 0; i < sorted.size(); i++) {
+                Prescription prescription = sorted.get(i);
+                if (block.size() == 0) {
+                    firstKeys.add(prescription.getPatientId());
+                    offsets.add(offset);
+                }
+                block.write(prescription.toFileFormat().getBytes(StandardCharsets.UTF_8));
+                block.write('\n');
+                if (block.size() >= BLOCK_BYTES || i == sorted.size() - 1) {
+                    offset += writeBlock(out, deflater, block.toByteArray());
+                    block.reset();
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+
+        long indexOffset = offset;
+        out.writeInt(firstKeys.size());
+        for (int i = 0; i < firstKeys.size(); i++) {
+            out.writeLong(offsets.get(i));
+            out.writeUTF(firstKeys.get(i));
+        }
+        out.writeLong(indexOffset);
+        out.writeLong(sorted.size());
+        out.writeInt(MAGIC);
+    }
+
+    private static int writeBlock(DataOutputStream out, Deflater deflater, byte[] raw) throws IOException {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            compressed.write(buffer, 0, length);
+        }
+        out.writeInt(raw.length);
+        out.writeInt(compressed.size());
+        compressed.writeTo(out);
+        return Integer.BYTES * 2 + compressed.size();
+    }
+
+    /**
+     * One segment file with its sparse index.
+     */
+    private static class Segment {
+        private final File file;
+        private final FileChannel channel;
+        private final String[] firstKeys;
+        private final long[] offsets;
+        private final long recordCount;
+
+        private Segment(File file, FileChannel channel, String[] firstKeys, long[] offsets, long recordCount) {
+            this.file = file;
+            this.channel = channel;
+            this.firstKeys = firstKeys;
+            this.offsets = offsets;
+            this.recordCount = recordCount;
+        }
+
+        static Segment open(File file) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size < Integer.BYTES + 1 + FOOTER_BYTES) {
+                    throw new IOException("Archive segment is truncated: " + file.getName());
+                }
+                ByteBuffer header = read(channel, 0, Integer.BYTES + 1);
+                ByteBuffer footer = read(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Not an archive segment: " + file.getName());
+                }
+                int version = header.get();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported archive segment version " + version + ": " + file.getName());
+                }
+                long indexOffset = footer.getLong();
+                long recordCount = footer.getLong();
+                if (footer.getInt() != MAGIC) {
+                    throw new IOException("Archive segment is truncated: " + file.getName());
+                }
+
+                ByteBuffer index = read(channel, indexOffset, (int) (size - FOOTER_BYTES - indexOffset));
+                int blockCount = index.getInt();
+                String[] firstKeys = new String[blockCount];
+                long[] offsets = new long[blockCount];
+                for (int i = 0; i < blockCount; i++) {
+                    offsets[i] = index.getLong();
+                    byte[] key = new byte[index.getShort() & 0xFFFF];
+                    index.get(key);
+                    // writeUTF uses modified UTF-8, which matches standard UTF-8 for NRICs
+                    firstKeys[i] = new String(key, StandardCharsets.UTF_8);
+                }
+                return new Segment(file, channel, firstKeys, offsets, recordCount);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void find(String patientId, List<Prescription> found) throws IOException {
+            // A patient's prescriptions can start inside the last block whose first patient sorts before them
+            int block = 0;
+            for (int i = 0; i < firstKeys.length && firstKeys[i].compareTo(patientId) < 0; i++) {
+                block = i;
+            }
+            for (; block < firstKeys.length && firstKeys[block].compareTo(patientId) <= 0; block++) {
+                for (String line : inflate(block).split("\n")) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    Prescription prescription = Prescription.fromFileFormat(line);
+                    if (prescription != null && prescription.getPatientId().equals(patientId)) {
+                        found.add(prescription);
+                    }
+                }
+            }
+        }
+
+        void forEach(RecordVisitor<Prescription> visitor) throws IOException {
+            for (int block = 0; block < firstKeys.length; block++) {
+                for (String line : inflate(block).split("\n")) {
+                    Prescription prescription = line.isEmpty() ? null : Prescription.fromFileFormat(line);
+                    if (prescription != null) {
+                        visitor.visit(prescription);
+                    }
+                }
+            }
+        }
+
+        private String inflate(int block) throws IOException {
+            ByteBuffer lengths = read(channel, offsets[block], Integer.BYTES * 2);
+            int rawLength = lengths.getInt();
+            int compressedLength = lengths.getInt();
+            ByteBuffer compressed = read(channel, offsets[block] + Integer.BYTES * 2, compressedLength);
+
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array(), 0, compressedLength);
+                byte[] raw = new byte[rawLength];
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Archive block is corrupted: " + file.getName());
+                }
+                return new String(raw, StandardCharsets.UTF_8);
+            } catch (DataFormatException e) {
+                throw new IOException("Archive block is corrupted: " + file.getName(), e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+            if (position < 0 || length < 0) {
+                throw new IOException("Archive segment is truncated");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Archive segment is truncated");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
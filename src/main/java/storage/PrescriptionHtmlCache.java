@@ -0,0 +1,116 @@
+package storage;
+
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which prescription documents on disk are current, so they are not generated and written again.
+ * Each document is recorded with a version stamp of the content it was generated from, and with the size
+ * and modification time of the file written. A document is current while the stamp is unchanged and the
+ * file has not been replaced or removed since.
+ * Safe to use from several printing threads at once.
+ */
+public class PrescriptionHtmlCache {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private static class Entry {
+        private final long version;
+        private final long length;
+        private final long lastModified;
+
+        Entry(long version, long length, long lastModified) {
+            this.version = version;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Computes the version stamp of the content a prescription document is generated from.
+     * The stamp covers the patient fields shown in the document and the time the prescription was issued,
+     * whose details never change once it is added.
+     *
+     * @param prescription The prescription
+     * @param patient      The patient shown in the document, may be null
+     * @return A 64-bit hash that changes whenever the content of the document would
+     */
+    public static long versionOf(Prescription prescription, Patient patient) {
+        long hash = hash(FNV_OFFSET_BASIS, prescription.getPatientId());
+        hash = hash(hash, prescription.getTimestamp().toString());
+        if (patient == null) {
+            return hash;
+        }
+        hash = hash(hash, patient.getId());
+        hash = hash(hash, patient.getName());
+        hash = hash(hash, patient.getGender());
+        hash = hash(hash, patient.getDob().toString());
+        return hash(hash, patient.getContactInfo());
+    }
+
+    private static long hash(long hash, String value) {
+        String text = value == null ? "" : value;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        // A separator after each field keeps ("ab", "c") and ("a", "bc") apart
+        return (hash ^ 0xFFFF) * FNV_PRIME;
+    }
+
+    /**
+     * Checks whether the document of a prescription on disk is current, counting a hit or a miss.
+     *
+     * @param prescriptionId The ID of the prescription
+     * @param version        The version stamp of the content the document would be generated from now
+     * @param file           The document's file
+     * @return true if the file was written from the same content and is unchanged since
+     */
+    public boolean isCurrent(String prescriptionId, long version, File file) {
+        Entry entry = entries.get(prescriptionId);
+        boolean isCurrent = entry != null && entry.version == version
+                && file.length() == entry.length && file.lastModified() == entry.lastModified;
+        (isCurrent ? hitCount : missCount).incrementAndGet();
+        return isCurrent;
+    }
+
+    /**
+     * Records that the document of a prescription was just written.
+     *
+     * @param prescriptionId The ID of the prescription
+     * @param version        The version stamp of the content the document was generated from
+     * @param file           The document's file
+     */
+    public void put(String prescriptionId, long version, File file) {
+        entries.put(prescriptionId, new Entry(version, file.length(), file.lastModified()));
+    }
+
+    /**
+     * @return the number of documents recorded
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of documents that were current and not written again
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of documents that had to be generated and written
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+}
@@ -0,0 +1,195 @@
+package storage;
+
+import exception.CorruptRecordException;
+import manager.Prescription;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of the records in the prescription file, used to load prescriptions lazily.
+ * Opening the index scans the file once and decodes only the prescription ID, patient ID and
+ * timestamp of each record, remembering where in the file the record lies. The symptoms, medicines
+ * and notes are read back from that offset the first time a prescription needs them.
+ * The index keeps its own handle on the file, so records stay readable after the prescription file
+ * has been replaced by a newer save.
+ */
+public class PrescriptionIndex {
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int MIN_FIELDS = 5;
+
+    private final FileChannel channel;
+    private final boolean isSealRequired;
+    private final List<Prescription> prescriptions = new ArrayList<>();
+    private final List<ChunkedFileLoader.Failure> failures = new ArrayList<>();
+
+    private PrescriptionIndex(FileChannel channel, boolean isSealRequired) {
+        this.channel = channel;
+        this.isSealRequired = isSealRequired;
+    }
+
+    /**
+     * Opens the prescription file and indexes its records.
+     * Records that cannot be indexed are skipped and listed by {@link #getFailures()}, as when loading eagerly.
+     *
+     * @param file The prescription data file
+     * @return The index, holding a lazily loaded prescription for each valid record
+     * @throws IOException If the file could not be read
+     */
+    public static PrescriptionIndex open(File file) throws IOException {
+        boolean isSealRequired = RecordChecksum.isSealedFile(file);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        PrescriptionIndex index = new PrescriptionIndex(channel, isSealRequired);
+        try {
+            index.scan();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the indexed prescriptions in file order.
+     * Their details are read from the file when first used.
+     *
+     * @return The indexed prescriptions
+     */
+    public List<Prescription> getPrescriptions() {
+        return prescriptions;
+    }
+
+    /**
+     * Gets the records that could not be indexed, because they failed their checksum or lack fields.
+     *
+     * @return The unreadable lines in file order
+     */
+    public List<ChunkedFileLoader.Failure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Releases the handle on the prescription file.
+     * Prescriptions whose details were not loaded can no longer be read afterwards.
+     *
+     * @throws IOException If the file could not be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void scan() throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)));
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long offset = 0;
+        long lineStart = 0;
+        int lineNumber = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            offset++;
+            if (b == '\n') {
+                lineNumber++;
+                indexLine(line.toByteArray(), lineStart, lineNumber);
+                line.reset();
+                lineStart = offset;
+            } else {
+                line.write(b);
+            }
+        }
+        if (line.size() > 0) {
+            lineNumber++;
+            indexLine(line.toByteArray(), lineStart, lineNumber);
+        }
+
+        // If no prescriptions were loaded but file exists and has content, this is suspicious
+        if (prescriptions.isEmpty() && lineNumber > 0) {
+            System.out.println("Warning: No valid prescriptions were loaded from file with " +
+                    lineNumber + " lines");
+        }
+    }
+
+    private void indexLine(byte[] bytes, long lineStart, int lineNumber) {
+        int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+        if (isBlank(bytes, length)) {
+            return;
+        }
+        // Checked once here, so the details can be read back later without checking them again
+        String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        try {
+            RecordChecksum.unseal(line, isSealRequired);
+        } catch (CorruptRecordException e) {
+            failures.add(new ChunkedFileLoader.Failure(lineNumber, line, e));
+            return;
+        }
+
+        // Count fields the way String.split does, ignoring trailing empty ones
+        int lastContent = length - 1;
+        while (lastContent >= 0 && bytes[lastContent] == '|') {
+            lastContent--;
+        }
+        int[] pipes = new int[3];
+        int fieldCount = 1;
+        for (int i = 0; i < lastContent; i++) {
+            if (bytes[i] == '|') {
+                if (fieldCount <= pipes.length) {
+                    pipes[fieldCount - 1] = i;
+                }
+                fieldCount++;
+            }
+        }
+        if (fieldCount < MIN_FIELDS) {
+            failures.add(new ChunkedFileLoader.Failure(lineNumber, line, null));
+            return;
+        }
+
+        try {
+            String prescriptionId = new String(bytes, 0, pipes[0], StandardCharsets.UTF_8);
+            String patientId = new String(bytes, pipes[0] + 1, pipes[1] - pipes[0] - 1, StandardCharsets.UTF_8);
+            LocalDateTime timestamp = LocalDateTime.parse(
+                    new String(bytes, pipes[1] + 1, pipes[2] - pipes[1] - 1, StandardCharsets.UTF_8),
+                    DATE_TIME_FORMATTER);
+            prescriptions.add(new Prescription(patientId, prescriptionId, timestamp,
+                    () -> readRecord(lineStart, length)));
+        } catch (RuntimeException e) {
+            failures.add(new ChunkedFileLoader.Failure(lineNumber, line, e));
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if ((bytes[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readRecord(long offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, offset + buffer.position());
+                if (read < 0) {
+                    throw new IOException("Prescription file is shorter than its index");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read prescription record: " + e.getMessage(), e);
+        }
+        buffer.flip();
+        return RecordChecksum.strip(StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+}
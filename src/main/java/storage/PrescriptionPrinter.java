@@ -0,0 +1,154 @@
+package storage;
+
+import manager.Patient;
+import manager.Prescription;
+import miscellaneous.HtmlOutput;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the printable HTML versions of prescriptions into a directory.
+ * A batch of prescriptions is rendered and written on a fixed number of threads, so printing many
+ * prescriptions at once is not held up by writing one file at a time.
+ * With a cache, a document that is already current on disk is left as it is.
+ */
+public class PrescriptionPrinter {
+    /** Default number of threads a batch is printed on; more would mostly wait on the disk. */
+    public static final int DEFAULT_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private final File directory;
+    private final int threadCount;
+    private final PrescriptionHtmlCache cache;
+
+    /**
+     * Constructs a printer that writes into a directory, writing every document it is asked to print.
+     *
+     * @param directory   The directory the HTML files are written to, created when first needed
+     * @param threadCount The most threads a batch is printed on
+     */
+    public PrescriptionPrinter(File directory, int threadCount) {
+        this(directory, threadCount, null);
+    }
+
+    /**
+     * Constructs a printer that writes into a directory, skipping documents that a cache knows are current.
+     *
+     * @param directory   The directory the HTML files are written to, created when first needed
+     * @param threadCount The most threads a batch is printed on
+     * @param cache       Records the documents written, or null to write every document
+     */
+    public PrescriptionPrinter(File directory, int threadCount, PrescriptionHtmlCache cache) {
+        assert threadCount > 0 : "A printer needs at least one thread";
+        this.directory = directory;
+        this.threadCount = threadCount;
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the name of the HTML file of a prescription.
+     *
+     * @param prescription The prescription
+     * @return The file name, made from the patient's NRIC and the prescription's number
+     */
+    public static String getFileName(Prescription prescription) {
+        return "prescription_" + prescription.getPatientId() + "_"
+                + prescription.getPrescriptionId().split("-")[1] + ".html";
+    }
+
+    /**
+     * Writes the HTML file of one prescription, unless it is already current.
+     *
+     * @param prescription The prescription to print
+     * @param patient      The patient the prescription belongs to, may be null
+     * @return true if the file was written, false if it was already current
+     * @throws IOException If the file could not be written
+     */
+    public boolean print(Prescription prescription, Patient patient) throws IOException {
+        createDirectory();
+        return write(prescription, patient);
+    }
+
+    /**
+     * Writes the HTML files of a batch of prescriptions in parallel.
+     * Printing stops at the first file that cannot be written. Files that are already current are left as they are.
+     *
+     * @param prescriptions The prescriptions to print
+     * @param patients      The patients the prescriptions belong to, by NRIC; a missing patient is left blank
+     * @return The number of files written, not counting those that were already current
+     * @throws IOException If a file could not be written, or printing was interrupted
+     */
+    public int printAll(List<Prescription> prescriptions, Map<String, Patient> patients) throws IOException {
+        if (prescriptions.isEmpty()) {
+            return 0;
+        }
+        createDirectory();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, prescriptions.size()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "prescription-printer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            List<Future<Boolean>> writes = new ArrayList<>(prescriptions.size());
+            for (Prescription prescription : prescriptions) {
+                writes.add(executor.submit(() -> write(prescription, patients.get(prescription.getPatientId()))));
+            }
+            int writtenCount = 0;
+            for (Future<Boolean> write : writes) {
+                if (await(write)) {
+                    writtenCount++;
+                }
+            }
+            return writtenCount;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void createDirectory() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Unable to create " + directory.getPath());
+        }
+    }
+
+    private boolean write(Prescription prescription, Patient patient) throws IOException {
+        File file = new File(directory, getFileName(prescription));
+        long version = cache == null ? 0 : PrescriptionHtmlCache.versionOf(prescription, patient);
+        if (cache != null && cache.isCurrent(prescription.getPrescriptionId(), version, file)) {
+            return false;
+        }
+
+        try (HtmlOutput out = new HtmlOutput(new FileOutputStream(file))) {
+            prescription.writeHtml(patient, out);
+        }
+        if (cache != null) {
+            cache.put(prescription.getPrescriptionId(), version, file);
+        }
+        return true;
+    }
+
+    private static boolean await(Future<Boolean> write) throws IOException {
+        try {
+            return write.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Printing was interrupted");
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Side file that keeps the stored lines that could not be read, so they are not lost when the data
+ * files are next rewritten from memory. Each line is preceded by a comment saying where it came from and why
+ * it was set aside. A line already in the file is not added again, so reading the same damaged file twice
+ * leaves one copy.
+ */
+public class Quarantine {
+    private static final String COMMENT = "# ";
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final File file;
+    private Set<String> quarantinedLines;
+    private int addedCount;
+
+    /**
+     * Constructs a quarantine backed by a file, which is only created once a line is added.
+     *
+     * @param file The side file
+     */
+    public Quarantine(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the side file holding the quarantined lines.
+     *
+     * @return The side file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Sets aside the lines of a data file that could not be read.
+     *
+     * @param source   The data file the lines came from
+     * @param failures The lines that could not be read
+     * @return The number of lines added, not counting those already quarantined
+     * @throws IOException If the side file could not be read or written
+     */
+    public synchronized int addAll(File source, List<ChunkedFileLoader.Failure> failures) throws IOException {
+        if (failures.isEmpty()) {
+            return 0;
+        }
+        Set<String> known = getQuarantinedLines();
+        int added = 0;
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            String time = LocalDateTime.now().format(TIME_FORMAT);
+            for (ChunkedFileLoader.Failure failure : failures) {
+                if (!known.add(failure.getLine())) {
+                    continue;
+                }
+                out.write(COMMENT + time + " " + source.getName() + " line " + failure.getLineNumber() + ": "
+                        + (failure.getError() == null ? "invalid record" : failure.getError().getMessage()));
+                out.newLine();
+                out.write(failure.getLine());
+                out.newLine();
+                added++;
+            }
+        }
+        addedCount += added;
+        return added;
+    }
+
+    /**
+     * @return the number of lines added since this quarantine was constructed
+     */
+    public synchronized int getAddedCount() {
+        return addedCount;
+    }
+
+    private Set<String> getQuarantinedLines() throws IOException {
+        if (quarantinedLines != null) {
+            return quarantinedLines;
+        }
+        quarantinedLines = new HashSet<>();
+        if (file.exists()) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.startsWith(COMMENT)) {
+                        quarantinedLines.add(line);
+                    }
+                }
+            }
+        }
+        return quarantinedLines;
+    }
+}
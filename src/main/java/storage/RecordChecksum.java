@@ -0,0 +1,136 @@
+package storage;
+
+import exception.CorruptRecordException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Seals stored records with a CRC32C checksum and checks them when they are read back.
+ * A sealed line is the record followed by a tab and the checksum of the record's UTF-8 bytes as
+ * eight hexadecimal digits. Every journal line is sealed, and so is every record of a data file written since
+ * checksums were added, so a line without a suffix there was cut short or damaged. Only a data file written
+ * before checksums existed, told apart by {@link #isSealedFile(File)}, may hold records without one.
+ */
+public class RecordChecksum {
+    /** Separates a record from its checksum; records never end in a tab followed by eight hex digits. */
+    public static final char SEPARATOR = '\t';
+
+    private static final int HEX_DIGITS = 8;
+    private static final int SUFFIX_LENGTH = HEX_DIGITS + 1;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Appends the checksum of a record to it.
+     *
+     * @param record The record, without a line break
+     * @return The sealed line
+     */
+    public static String seal(String record) {
+        StringBuilder line = new StringBuilder(record.length() + SUFFIX_LENGTH).append(record).append(SEPARATOR);
+        int checksum = checksumOf(record);
+        for (int shift = (HEX_DIGITS - 1) * 4; shift >= 0; shift -= 4) {
+            line.append(HEX[(checksum >>> shift) & 0xF]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Writes a record sealed with its checksum, followed by a line break.
+     *
+     * @param out    The writer to write to
+     * @param record The record, without a line break
+     * @throws IOException If the writer failed
+     */
+    public static void writeSealed(BufferedWriter out, String record) throws IOException {
+        out.write(seal(record));
+        out.newLine();
+    }
+
+    /**
+     * Checks whether a line carries a checksum.
+     *
+     * @param line A stored line, without its line break
+     * @return true if the line ends in a checksum suffix
+     */
+    public static boolean isSealed(String line) {
+        int start = line.length() - SUFFIX_LENGTH;
+        if (start < 0 || line.charAt(start) != SEPARATOR) {
+            return false;
+        }
+        for (int i = start + 1; i < line.length(); i++) {
+            if (Character.digit(line.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a data file was written with checksums, from the first line that holds a record.
+     * Lines without a field separator, such as the appointment counter, are never sealed and are skipped.
+     *
+     * @param file The data file
+     * @return true if the file's records are sealed, false if it was written before checksums or has no records
+     * @throws IOException If the file could not be read
+     */
+    public static boolean isSealedFile(File file) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        try (BufferedReader in = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.indexOf('|') >= 0) {
+                    return isSealed(line);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a line against its checksum and removes the checksum.
+     * A line without a checksum is returned as it is only if checksums are not required.
+     *
+     * @param line           A stored line, without its line break
+     * @param isSealRequired true if the line comes from the journal or a sealed data file
+     * @return The record held by the line
+     * @throws CorruptRecordException If the record does not match its checksum, or has none when one is required
+     */
+    public static String unseal(String line, boolean isSealRequired) throws CorruptRecordException {
+        if (!isSealed(line)) {
+            if (isSealRequired) {
+                throw new CorruptRecordException("Record has no checksum, so it may have been cut short");
+            }
+            return line;
+        }
+        String record = line.substring(0, line.length() - SUFFIX_LENGTH);
+        int expected = Integer.parseUnsignedInt(line.substring(line.length() - HEX_DIGITS), 16);
+        if (checksumOf(record) != expected) {
+            throw new CorruptRecordException("Record does not match its checksum");
+        }
+        return record;
+    }
+
+    /**
+     * Removes the checksum from a line that has already been checked.
+     *
+     * @param line A stored line, without its line break
+     * @return The record held by the line
+     */
+    public static String strip(String line) {
+        return isSealed(line) ? line.substring(0, line.length() - SUFFIX_LENGTH) : line;
+    }
+
+    private static int checksumOf(String record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,398 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports patients, appointments and prescriptions to a CSV or JSONL file that can be imported again.
+ * Records are written one at a time through a buffered writer, field by field, without building a string
+ * for each record, so memory use does not grow with the number of records exported. Patients that are only
+ * on disk and archived prescriptions are streamed from storage rather than loaded.
+ * The file is written beside its destination and moved into place once complete.
+ */
+public class RecordExporter {
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final Writer out;
+    private final RecordFileFormat format;
+    private final Filter filter;
+    private int patientCount;
+    private int appointmentCount;
+    private int prescriptionCount;
+
+    private RecordExporter(Writer out, RecordFileFormat format, Filter filter) {
+        this.out = out;
+        this.format = format;
+        this.filter = filter;
+    }
+
+    /**
+     * Selects the records to export. Unset bounds select everything.
+     */
+    public static class Filter {
+        private final String nric;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        /**
+         * Constructs a filter.
+         *
+         * @param nric The NRIC of the only patient whose records are exported, or null for all patients
+         * @param from The earliest appointment or prescription date exported, or null for no lower bound
+         * @param to   The latest appointment or prescription date exported, or null for no upper bound
+         */
+        public Filter(String nric, LocalDate from, LocalDate to) {
+            this.nric = nric == null ? null : nric.trim().toUpperCase();
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Gets a filter that selects every record.
+         *
+         * @return The filter
+         */
+        public static Filter all() {
+            return new Filter(null, null, null);
+        }
+
+        boolean matchesPatient(String patientNric) {
+            return nric == null || nric.equals(patientNric.trim().toUpperCase());
+        }
+
+        boolean matches(String patientNric, LocalDate date) {
+            return matchesPatient(patientNric) && (from == null || !date.isBefore(from))
+                    && (to == null || !date.isAfter(to));
+        }
+    }
+
+    /**
+     * Exports the records of a management system that match a filter.
+     * Patients are written first, then appointments, then prescriptions, so the file imports in order.
+     *
+     * @param filePath The path of the file to write, ending in .csv or .jsonl
+     * @param system   The management system holding the records
+     * @param filter   Selects the records to export
+     * @return A report of the records exported and the throughput
+     * @throws UnloadedStorageException If the file could not be written or stored records could not be read
+     */
+    public static Report exportFile(String filePath, ManagementSystem system, Filter filter)
+            throws UnloadedStorageException {
+        RecordFileFormat format = RecordFileFormat.of(filePath);
+        if (format == null) {
+            throw new UnloadedStorageException("Export files must end in .csv or .jsonl: " + filePath);
+        }
+
+        long start = System.nanoTime();
+        Path target = Path.of(filePath).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        RecordExporter exporter;
+        try {
+            Files.createDirectories(target.getParent());
+            try (BufferedWriter writer = new BufferedWriter(
+                    Files.newBufferedWriter(temp, StandardCharsets.UTF_8), BUFFER_CHARS)) {
+                exporter = new RecordExporter(writer, format, filter);
+                exporter.writeAll(system);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | UncheckedIOException e) {
+            throw new UnloadedStorageException("Unable to export records: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // A leftover partial export is overwritten by the next export to the same file
+            }
+        }
+        return new Report(target.toString(), exporter.patientCount, exporter.appointmentCount,
+                exporter.prescriptionCount, System.nanoTime() - start);
+    }
+
+    private void writeAll(ManagementSystem system) throws IOException {
+        StorageBackend storage = system.getStorage();
+
+        Set<String> loadedNrics = new HashSet<>();
+        for (Patient patient : system.getPatients()) {
+            loadedNrics.add(PatientIndex.normalize(patient.getId()));
+            writePatient(patient);
+        }
+        storage.forEachUnloadedPatient(loadedNrics, this::writePatient);
+
+        for (Appointment appointment : system.getAppointments()) {
+            if (filter.matches(appointment.getNric(), appointment.getDate())) {
+                writeAppointment(appointment);
+                appointmentCount++;
+            }
+        }
+
+        List<Prescription> prescriptions = system.getPrescriptions();
+        Set<String> loadedIds = new HashSet<>();
+        storage.forEachArchivedPrescription(prescription -> {
+            // A prescription left in the loaded list by an interrupted archiving run is written once, below
+            if (loadedIds.isEmpty()) {
+                for (Prescription loaded : prescriptions) {
+                    loadedIds.add(loaded.getPrescriptionId());
+                }
+            }
+            if (!loadedIds.contains(prescription.getPrescriptionId())) {
+                writePrescriptionIfMatching(prescription);
+            }
+        });
+        for (Prescription prescription : prescriptions) {
+            writePrescriptionIfMatching(prescription);
+        }
+    }
+
+    private void writePatient(Patient patient) throws IOException {
+        if (!filter.matchesPatient(patient.getId())) {
+            return;
+        }
+        beginRecord(RecordFileFormat.PATIENT);
+        writeField("nric", patient.getId());
+        writeField("name", patient.getName());
+        writeField("dob", DateTimeFormatter.ISO_LOCAL_DATE, patient.getDob());
+        writeField("gender", patient.getGender());
+        writeField("phone", patient.getContactInfo());
+        writeField("address", patient.getAddress());
+        writeListField("history", patient.getMedicalHistory());
+        endRecord();
+        patientCount++;
+    }
+
+    private void writeAppointment(Appointment appointment) throws IOException {
+        beginRecord(RecordFileFormat.APPOINTMENT);
+        writeField("nric", appointment.getNric());
+        writeField("date", DateTimeFormatter.ISO_LOCAL_DATE, appointment.getDateTime());
+        writeField("time", RecordFileFormat.TIME_FORMAT, appointment.getDateTime());
+        writeField("description", appointment.getDescription());
+        writeLiteralField("done", appointment.isDone() ? "true" : "false");
+        writeField("id", appointment.getId());
+        endRecord();
+    }
+
+    private void writePrescriptionIfMatching(Prescription prescription) throws IOException {
+        if (!filter.matches(prescription.getPatientId(), prescription.getTimestamp().toLocalDate())) {
+            return;
+        }
+        // Details of lazily loaded prescriptions are read for this record only, not kept in memory
+        Prescription details = prescription.readDetails();
+        beginRecord(RecordFileFormat.PRESCRIPTION);
+        writeField("nric", details.getPatientId());
+        writeListField("symptoms", details.getSymptoms());
+        writeListField("medicines", details.getMedicines());
+        writeField("notes", details.getNotes());
+        writeField("issued", RecordFileFormat.ISSUED_FORMAT, details.getTimestamp());
+        writeField("id", details.getPrescriptionId());
+        endRecord();
+        prescriptionCount++;
+    }
+
+    private void beginRecord(String type) throws IOException {
+        if (format == RecordFileFormat.CSV) {
+            out.write(type);
+        } else {
+            out.write("{\"type\":\"");
+            out.write(type);
+            out.write('"');
+        }
+    }
+
+    private void endRecord() throws IOException {
+        if (format == RecordFileFormat.JSONL) {
+            out.write('}');
+        }
+        out.write('\n');
+    }
+
+    private void beginField(String name) throws IOException {
+        out.write(',');
+        if (format == RecordFileFormat.JSONL) {
+            out.write('"');
+            out.write(name);
+            out.write("\":");
+        }
+    }
+
+    private void writeField(String name, String value) throws IOException {
+        beginField(name);
+        String text = value == null ? "" : value;
+        if (format == RecordFileFormat.JSONL) {
+            writeJsonString(text);
+        } else if (needsCsvQuotes(text)) {
+            writeCsvQuoted(text);
+        } else {
+            out.write(text);
+        }
+    }
+
+    private void writeField(String name, DateTimeFormatter formatter, TemporalAccessor value)
+            throws IOException {
+        // Dates and times never need escaping, so they are formatted straight into the writer
+        beginField(name);
+        if (format == RecordFileFormat.JSONL) {
+            out.write('"');
+            formatter.formatTo(value, out);
+            out.write('"');
+        } else {
+            formatter.formatTo(value, out);
+        }
+    }
+
+    private void writeLiteralField(String name, String literal) throws IOException {
+        beginField(name);
+        out.write(literal);
+    }
+
+    private void writeListField(String name, List<String> entries) throws IOException {
+        beginField(name);
+        if (format == RecordFileFormat.JSONL) {
+            out.write('[');
+            for (int i = 0; i < entries.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeJsonString(entries.get(i));
+            }
+            out.write(']');
+            return;
+        }
+
+        boolean isQuoted = false;
+        for (String entry : entries) {
+            isQuoted |= needsCsvQuotes(entry);
+        }
+        if (isQuoted) {
+            out.write('"');
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            if (i > 0) {
+                out.write(RecordFileFormat.LIST_SEPARATOR);
+            }
+            writeCsvChars(entries.get(i), isQuoted);
+        }
+        if (isQuoted) {
+            out.write('"');
+        }
+    }
+
+    private static boolean needsCsvQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeCsvQuoted(String value) throws IOException {
+        out.write('"');
+        writeCsvChars(value, true);
+        out.write('"');
+    }
+
+    private void writeCsvChars(String value, boolean isQuoted) throws IOException {
+        if (!isQuoted) {
+            out.write(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            // Line breaks would split the record across lines, which the importer reads one at a time
+            out.write(c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+                break;
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Outcome of an export: how many records of each kind were written and how fast.
+     */
+    public static class Report {
+        private final String filePath;
+        private final int patientCount;
+        private final int appointmentCount;
+        private final int prescriptionCount;
+        private final long nanos;
+
+        Report(String filePath, int patientCount, int appointmentCount, int prescriptionCount, long nanos) {
+            this.filePath = filePath;
+            this.patientCount = patientCount;
+            this.appointmentCount = appointmentCount;
+            this.prescriptionCount = prescriptionCount;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the total number of records exported
+         */
+        public int getRecordCount() {
+            return patientCount + appointmentCount + prescriptionCount;
+        }
+
+        /**
+         * Summarises the export in one line.
+         *
+         * @return The number of records of each kind, the file, the time taken and the throughput
+         */
+        public String getSummary() {
+            long recordsPerSecond = nanos <= 0 ? getRecordCount()
+                    : getRecordCount() * TimeUnit.SECONDS.toNanos(1) / nanos;
+            return "Exported " + patientCount + " patients, " + appointmentCount + " appointments and "
+                    + prescriptionCount + " prescriptions to " + filePath + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms (" + recordsPerSecond + " records/sec).";
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package storage;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Encodings of the files that records are imported from and exported to.
+ * Both hold one record per line, so a file of any size can be streamed.
+ */
+public enum RecordFileFormat {
+    /** Comma-separated values, with the record type in the first column. */
+    CSV(".csv"),
+    /** One JSON object per line, with the record type in its {@code type} field. */
+    JSONL(".jsonl");
+
+    public static final String PATIENT = "patient";
+    public static final String APPOINTMENT = "appointment";
+    public static final String PRESCRIPTION = "prescription";
+    /** Fields of a patient record, in the order of the CSV columns after the type. */
+    public static final List<String> PATIENT_FIELDS =
+            List.of("nric", "name", "dob", "gender", "phone", "address", "history");
+    /** Fields of an appointment record, in the order of the CSV columns after the type. */
+    public static final List<String> APPOINTMENT_FIELDS =
+            List.of("nric", "date", "time", "description", "done", "id");
+    /** Fields of a prescription record, in the order of the CSV columns after the type. */
+    public static final List<String> PRESCRIPTION_FIELDS =
+            List.of("nric", "symptoms", "medicines", "notes", "issued", "id");
+    /** Format of the time a prescription was issued. */
+    public static final DateTimeFormatter ISSUED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    /** Format of the time of an appointment, matching the time given to add-appointment. */
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HHmm");
+    /** Separates the entries of a list field, such as the medical history, within a CSV column. */
+    public static final String LIST_SEPARATOR = ";";
+
+    private final String extension;
+
+    RecordFileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the file name extension of the format.
+     *
+     * @return The extension, including the leading dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Finds the format of a file from its name, ignoring case.
+     *
+     * @param fileName The name or path of the file
+     * @return The matching format, or null if the extension is not recognised
+     */
+    public static RecordFileFormat of(String fileName) {
+        String lowerCaseName = fileName.trim().toLowerCase();
+        for (RecordFileFormat format : values()) {
+            if (lowerCaseName.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,496 @@
+package storage;
+
+import exception.AppointmentClashException;
+import exception.DuplicatePatientIDException;
+import exception.InvalidInputFormatException;
+import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.BulkImport;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports patients, appointments and prescriptions from a CSV or JSONL file.
+ * The file is streamed one line at a time, so its size is not limited by memory. Each line is checked
+ * against the same rules as the matching add command, except that appointments may be in the past so that
+ * an exported file can be imported again; a line that fails is reported and skipped without stopping the
+ * import. All imported records are saved together once the file has been read, and none are kept if the
+ * file cannot be read to the end.
+ */
+public class RecordImporter {
+    private static final String TYPE_FIELD = "type";
+    private static final String COMMENT_PREFIX = "#";
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * Imports every record in a file into a management system.
+     *
+     * @param filePath The path of the CSV or JSONL file
+     * @param system   The management system to add the records to
+     * @return A report of the records imported, the lines rejected and the throughput
+     * @throws UnloadedStorageException If the file could not be read or the imported records could not be saved
+     */
+    public static Report importFile(String filePath, ManagementSystem system) throws UnloadedStorageException {
+        RecordFileFormat format = RecordFileFormat.of(filePath);
+        if (format == null) {
+            throw new UnloadedStorageException("Import files must end in .csv or .jsonl: " + filePath);
+        }
+
+        long start = System.nanoTime();
+        BulkImport batch = system.beginImport();
+        Report report = new Report();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith(COMMENT_PREFIX)) {
+                    continue;
+                }
+                importLine(line, lineNumber, format, batch, report);
+            }
+        } catch (IOException e) {
+            batch.rollBack();
+            throw new UnloadedStorageException("Unable to read import file: " + e.getMessage());
+        } catch (UnloadedStorageException e) {
+            batch.rollBack();
+            throw e;
+        }
+
+        batch.commit();
+        report.importedCount = batch.getAddedCount();
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static void importLine(String line, int lineNumber, RecordFileFormat format, BulkImport batch,
+                                   Report report) throws UnloadedStorageException {
+        try {
+            Map<String, Object> fields = format == RecordFileFormat.CSV ? parseCsvLine(line) : parseJsonLine(line);
+            if (fields == null) {
+                return;
+            }
+            String type = requireText(fields, TYPE_FIELD).toLowerCase();
+            switch (type) {
+            case RecordFileFormat.PATIENT:
+                batch.addPatient(toPatient(fields));
+                break;
+            case RecordFileFormat.APPOINTMENT:
+                batch.addAppointment(toAppointment(fields));
+                break;
+            case RecordFileFormat.PRESCRIPTION:
+                batch.addPrescription(toPrescription(fields));
+                break;
+            default:
+                throw new InvalidInputFormatException("Unknown record type '" + type + "'");
+            }
+        } catch (InvalidInputFormatException | DuplicatePatientIDException | PatientNotFoundException
+                 | AppointmentClashException | IllegalArgumentException e) {
+            report.addError("Line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    private static Patient toPatient(Map<String, Object> fields) throws InvalidInputFormatException {
+        return new Patient(requireText(fields, "nric"), requireText(fields, "name"), requireText(fields, "dob"),
+                requireText(fields, "gender"), requireText(fields, "address"), requireText(fields, "phone"),
+                list(fields, "history"));
+    }
+
+    private static Appointment toAppointment(Map<String, Object> fields) throws InvalidInputFormatException {
+        String nric = requireText(fields, "nric");
+        if (!nric.matches("(?i)[STFGM]\\d{7}[A-Z]")) {
+            throw new InvalidInputFormatException("Invalid IC format. Please use a valid IC e.g. S1234567D");
+        }
+
+        LocalDateTime dateTime;
+        try {
+            dateTime = LocalDateTime.parse(requireText(fields, "date") + " " + requireText(fields, "time"),
+                    Appointment.INPUT_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new InvalidInputFormatException("Invalid date/time format. Please use yyyy-MM-dd and HHmm");
+        }
+        Appointment appointment = new Appointment(nric, dateTime, requireText(fields, "description"));
+        appointment.setIsDone(Boolean.parseBoolean(text(fields, "done")));
+        return appointment;
+    }
+
+    private static Prescription toPrescription(Map<String, Object> fields) throws InvalidInputFormatException {
+        String nric = requireText(fields, "nric");
+        List<String> symptoms = list(fields, "symptoms");
+        List<String> medicines = list(fields, "medicines");
+        if (symptoms.isEmpty() || medicines.isEmpty()) {
+            throw new InvalidInputFormatException("A prescription needs at least one symptom and one medicine");
+        }
+        String notes = text(fields, "notes");
+        String issued = text(fields, "issued");
+        if (issued == null) {
+            return new Prescription(nric, symptoms, medicines, notes == null ? "" : notes);
+        }
+        try {
+            LocalDateTime timestamp = LocalDateTime.parse(issued, RecordFileFormat.ISSUED_FORMAT);
+            return new Prescription(nric, nric + "-1", timestamp, symptoms, medicines, notes == null ? "" : notes);
+        } catch (DateTimeParseException e) {
+            throw new InvalidInputFormatException("Invalid issue time format. Please use yyyy-MM-dd HH:mm");
+        }
+    }
+
+    private static String text(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value instanceof List) {
+            return String.join(", ", toStrings((List<?>) value));
+        }
+        return value == null || value.toString().isBlank() ? null : value.toString().trim();
+    }
+
+    private static String requireText(Map<String, Object> fields, String name) throws InvalidInputFormatException {
+        String value = text(fields, name);
+        if (value == null) {
+            throw new InvalidInputFormatException("Missing field '" + name + "'");
+        }
+        return value;
+    }
+
+    private static List<String> list(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        List<String> entries = new ArrayList<>();
+        if (value instanceof List) {
+            for (String entry : toStrings((List<?>) value)) {
+                if (!entry.isBlank()) {
+                    entries.add(entry.trim());
+                }
+            }
+        } else if (value != null) {
+            for (String entry : value.toString().split(RecordFileFormat.LIST_SEPARATOR)) {
+                if (!entry.isBlank()) {
+                    entries.add(entry.trim());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static List<String> toStrings(List<?> values) {
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object value : values) {
+            strings.add(String.valueOf(value));
+        }
+        return strings;
+    }
+
+    /**
+     * Parses a CSV line into named fields, using the column order of its record type.
+     *
+     * @param line The line to parse
+     * @return The fields of the record, or null if the line is a header
+     * @throws InvalidInputFormatException If the line has an unknown record type or too many columns
+     */
+    static Map<String, Object> parseCsvLine(String line) throws InvalidInputFormatException {
+        List<String> columns = splitCsv(line);
+        String type = columns.get(0).trim().toLowerCase();
+        if (type.equals(TYPE_FIELD)) {
+            return null;
+        }
+
+        List<String> names;
+        switch (type) {
+        case RecordFileFormat.PATIENT:
+            names = RecordFileFormat.PATIENT_FIELDS;
+            break;
+        case RecordFileFormat.APPOINTMENT:
+            names = RecordFileFormat.APPOINTMENT_FIELDS;
+            break;
+        case RecordFileFormat.PRESCRIPTION:
+            names = RecordFileFormat.PRESCRIPTION_FIELDS;
+            break;
+        default:
+            throw new InvalidInputFormatException("Unknown record type '" + type + "'");
+        }
+        if (columns.size() - 1 > names.size()) {
+            throw new InvalidInputFormatException("Expected at most " + names.size() + " fields for a " + type
+                    + " but found " + (columns.size() - 1));
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(TYPE_FIELD, type);
+        for (int i = 1; i < columns.size(); i++) {
+            fields.put(names.get(i - 1), columns.get(i));
+        }
+        return fields;
+    }
+
+    private static List<String> splitCsv(String line) throws InvalidInputFormatException {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        boolean isQuoted = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (isQuoted && c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                // A doubled quote inside a quoted column stands for one quote
+                column.append('"');
+                i++;
+            } else if (c == '"') {
+                isQuoted = !isQuoted;
+            } else if (c == ',' && !isQuoted) {
+                columns.add(column.toString());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+            i++;
+        }
+        if (isQuoted) {
+            throw new InvalidInputFormatException("Unterminated quoted field");
+        }
+        columns.add(column.toString());
+        return columns;
+    }
+
+    /**
+     * Parses a JSONL line holding a flat object of strings and arrays of strings.
+     * Numbers and booleans are kept as their text; null values count as missing.
+     *
+     * @param line The line to parse
+     * @return The fields of the object
+     * @throws InvalidInputFormatException If the line is not a flat JSON object
+     */
+    static Map<String, Object> parseJsonLine(String line) throws InvalidInputFormatException {
+        return new JsonLine(line).readObject();
+    }
+
+    /**
+     * Reads a single flat JSON object from one line of text.
+     */
+    private static class JsonLine {
+        private final String text;
+        private int position;
+
+        JsonLine(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> readObject() throws InvalidInputFormatException {
+            skipWhitespace();
+            expect('{');
+            Map<String, Object> fields = new HashMap<>();
+            skipWhitespace();
+            if (!consume('}')) {
+                do {
+                    skipWhitespace();
+                    String name = readString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    fields.put(name, readValue());
+                    skipWhitespace();
+                } while (consume(','));
+                expect('}');
+            }
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("Unexpected text after the JSON object");
+            }
+            return fields;
+        }
+
+        private Object readValue() throws InvalidInputFormatException {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{') {
+                throw error("Nested objects are not supported");
+            }
+            if (c == '[') {
+                position++;
+                List<String> values = new ArrayList<>();
+                skipWhitespace();
+                if (consume(']')) {
+                    return values;
+                }
+                do {
+                    skipWhitespace();
+                    if (peek() == '[') {
+                        throw error("Nested arrays are not supported");
+                    }
+                    Object value = readValue();
+                    if (value != null) {
+                        values.add((String) value);
+                    }
+                    skipWhitespace();
+                } while (consume(','));
+                expect(']');
+                return values;
+            }
+
+            int start = position;
+            while (position < text.length() && ",]} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw error("Expected a value");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString() throws InvalidInputFormatException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Incomplete unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+                    break;
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        private boolean consume(char expected) {
+            if (peek() == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char expected) throws InvalidInputFormatException {
+            if (!consume(expected)) {
+                throw error("Expected '" + expected + "'");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private InvalidInputFormatException error(String message) {
+            return new InvalidInputFormatException("Invalid JSON at column " + (position + 1) + ": " + message);
+        }
+    }
+
+    /**
+     * Outcome of an import: how many records were added, which lines were rejected, and how fast it ran.
+     */
+    public static class Report {
+        private final List<String> errors = new ArrayList<>();
+        private int errorCount;
+        private int importedCount;
+        private long nanos;
+
+        private void addError(String error) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        /**
+         * @return the number of records imported
+         */
+        public int getImportedCount() {
+            return importedCount;
+        }
+
+        /**
+         * @return the number of lines rejected
+         */
+        public int getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * Gets the reasons lines were rejected, each prefixed with its line number.
+         * Only the first errors are kept, so a badly malformed file cannot exhaust memory.
+         *
+         * @return The recorded errors, in file order
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the import throughput.
+         *
+         * @return The number of records imported per second
+         */
+        public long getRecordsPerSecond() {
+            return nanos <= 0 ? importedCount : importedCount * TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+
+        /**
+         * Summarises the import in one line.
+         *
+         * @return The number of records imported and rejected, the time taken and the throughput
+         */
+        public String getSummary() {
+            String summary = "Imported " + importedCount + " records in " + TimeUnit.NANOSECONDS.toMillis(nanos)
+                    + " ms (" + getRecordsPerSecond() + " records/sec).";
+            if (errorCount > 0) {
+                summary += " " + errorCount + " lines were skipped"
+                        + (errorCount > errors.size() ? ", the first " + errors.size() + " are listed below:" : ":");
+            }
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package storage;
+
+import java.io.IOException;
+
+/**
+ * Receives records one at a time while they are streamed out of storage.
+ *
+ * @param <T> The type of record
+ */
+public interface RecordVisitor<T> {
+    /**
+     * Handles one record.
+     *
+     * @param record The record
+     * @throws IOException If the record could not be handled, which stops the stream
+     */
+    void visit(T record) throws IOException;
+}
@@ -0,0 +1,201 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Describes the sharded layout of the data files.
+ * Patients, appointments and prescriptions are split across a fixed number of shards by a hash of the
+ * patient NRIC, so all records of one patient live in the same shard and a change to one patient only
+ * rewrites that patient's shard. The manifest file records the shard count and which kinds of record
+ * have been moved into shards; a kind that is not listed is still read from its unsharded data file.
+ */
+public class ShardManifest {
+    public static final int DEFAULT_SHARD_COUNT = 64;
+    public static final String PATIENTS = "patients";
+    public static final String APPOINTMENTS = "appointments";
+    public static final String PRESCRIPTIONS = "prescriptions";
+
+    private static final int VERSION = 1;
+    private static final String MANIFEST_FILE = "manifest.txt";
+
+    private final String directoryPath;
+    private final int shardCount;
+    private final Set<String> shardedKinds;
+
+    private ShardManifest(String directoryPath, int shardCount, Set<String> shardedKinds) {
+        this.directoryPath = directoryPath;
+        this.shardCount = shardCount;
+        this.shardedKinds = shardedKinds;
+    }
+
+    /**
+     * Opens the shard layout in a directory.
+     * An existing manifest decides the shard count, so changing the requested count never
+     * misplaces records that were already sharded.
+     *
+     * @param directoryPath The directory holding the shards and the manifest
+     * @param shardCount    The number of shards to use if there is no manifest yet
+     * @return The shard layout
+     * @throws IOException If the manifest exists but could not be read
+     */
+    public static ShardManifest open(String directoryPath, int shardCount) throws IOException {
+        assert shardCount > 0 : "Shard count must be positive";
+        File file = new File(directoryPath, MANIFEST_FILE);
+        if (!file.exists()) {
+            return new ShardManifest(directoryPath, shardCount, new LinkedHashSet<>());
+        }
+
+        int storedCount = -1;
+        Set<String> kinds = new LinkedHashSet<>();
+        try {
+            for (String line : Files.readAllLines(file.toPath())) {
+                String[] parts = line.split(":", 2);
+                if (parts.length != 2) {
+                    continue;
+                }
+                String value = parts[1].trim();
+                switch (parts[0].trim()) {
+                case "version":
+                    if (Integer.parseInt(value) != VERSION) {
+                        throw new IOException("Unsupported shard manifest version " + value);
+                    }
+                    break;
+                case "shards":
+                    storedCount = Integer.parseInt(value);
+                    break;
+                case "kinds":
+                    for (String kind : value.split(",")) {
+                        if (!kind.isBlank()) {
+                            kinds.add(kind.trim());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Shard manifest is corrupted: " + e.getMessage());
+        }
+        if (storedCount <= 0) {
+            throw new IOException("Shard manifest is missing the shard count");
+        }
+        return new ShardManifest(directoryPath, storedCount, kinds);
+    }
+
+    /**
+     * Checks whether a directory holds a shard manifest.
+     *
+     * @param directoryPath The directory to check
+     * @return true if the manifest file exists
+     */
+    public static boolean exists(String directoryPath) {
+        return new File(directoryPath, MANIFEST_FILE).exists();
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return The shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Gets the shard that holds the records of a patient.
+     *
+     * @param nric The NRIC of the patient
+     * @return The shard number, from 0 to the shard count minus one
+     */
+    public int shardOf(String nric) {
+        return Math.floorMod(nric.trim().toUpperCase().hashCode(), shardCount);
+    }
+
+    /**
+     * Checks whether a kind of record has been moved into shards.
+     *
+     * @param kind The kind of record
+     * @return true if the kind is read from and written to shards
+     */
+    public synchronized boolean isSharded(String kind) {
+        return shardedKinds.contains(kind);
+    }
+
+    /**
+     * Records that every shard of a kind has been written, so the kind is read from shards from now on.
+     *
+     * @param kind   The kind of record
+     * @param writer The writer used to replace the manifest
+     * @throws IOException If the manifest could not be written
+     */
+    public synchronized void markSharded(String kind, DurableFileWriter writer) throws IOException {
+        if (shardedKinds.add(kind)) {
+            save(writer);
+        }
+    }
+
+    /**
+     * Gets the text data file of one shard.
+     *
+     * @param kind  The kind of record
+     * @param shard The shard number
+     * @return The path of the shard file
+     */
+    public String textPath(String kind, int shard) {
+        return directoryPath + File.separator + String.format("%s-%03d.txt", kind, shard);
+    }
+
+    /**
+     * Gets the binary data file of one shard.
+     *
+     * @param kind  The kind of record
+     * @param shard The shard number
+     * @return The path of the shard file
+     */
+    public String binaryPath(String kind, int shard) {
+        return directoryPath + File.separator + String.format("%s-%03d.bin", kind, shard);
+    }
+
+    /**
+     * Splits records into one list per shard, keeping their relative order.
+     *
+     * @param records The records to split
+     * @param nricOf  Gets the NRIC of the patient a record belongs to
+     * @param <T>     The type of record
+     * @return A list of records for each shard, indexed by shard number
+     */
+    public <T> List<List<T>> partition(List<T> records, Function<T, String> nricOf) {
+        List<List<T>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (T record : records) {
+            if (record != null) {
+                shards.get(shardOf(nricOf.apply(record))).add(record);
+            }
+        }
+        return shards;
+    }
+
+    private void save(DurableFileWriter writer) throws IOException {
+        new File(directoryPath).mkdirs();
+        writer.write(directoryPath + File.separator + MANIFEST_FILE, out -> {
+            out.write("version:" + VERSION);
+            out.newLine();
+            out.write("shards:" + shardCount);
+            out.newLine();
+            out.write("key:nric-hash");
+            out.newLine();
+            out.write("kinds:" + String.join(",", shardedKinds));
+            out.newLine();
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the data files at startup with the independent phases running concurrently.
+ * Patients, prescriptions and appointments are read and parsed at the same time; only linking
+ * appointments to their patients waits for the patients to be loaded. The time spent in each
+ * phase is recorded so the saving over loading one file after another can be reported.
+ */
+public class StartupLoader {
+
+    private long patientMillis;
+    private long prescriptionMillis;
+    private long appointmentParseMillis;
+    private long appointmentLinkMillis;
+    private long totalMillis;
+
+    /**
+     * Loads all data files into a new management system that saves through the text files.
+     * Storage must already be initialized with its directory and format.
+     *
+     * @return A management system holding the loaded patients, appointments and prescriptions
+     * @throws UnloadedStorageException If any of the data files could not be loaded
+     */
+    public ManagementSystem load() throws UnloadedStorageException {
+        return load(new TextStorageBackend());
+    }
+
+    /**
+     * Loads all data files into a new management system that saves through a backend.
+     * Storage must already be initialized with its directory and format.
+     *
+     * @param backend The backend the management system reports its changes to
+     * @return A management system holding the loaded patients, appointments and prescriptions
+     * @throws UnloadedStorageException If any of the data files could not be loaded
+     */
+    public ManagementSystem load(StorageBackend backend) throws UnloadedStorageException {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "startup-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Future<Timed<List<Patient>>> patients = executor.submit(timed(Storage::loadPatients));
+            Future<Timed<List<Prescription>>> prescriptions = executor.submit(timed(Storage::loadPrescriptions));
+            Future<Timed<List<Appointment>>> appointments = executor.submit(timed(Storage::parseAppointments));
+
+            Timed<List<Patient>> loadedPatients = await(patients);
+            Timed<List<Prescription>> loadedPrescriptions = await(prescriptions);
+            Timed<List<Appointment>> parsedAppointments = await(appointments);
+            patientMillis = loadedPatients.millis;
+            prescriptionMillis = loadedPrescriptions.millis;
+            appointmentParseMillis = parsedAppointments.millis;
+
+            ManagementSystem system = new ManagementSystem(loadedPatients.value, parsedAppointments.value,
+                    loadedPrescriptions.value, backend);
+            long linkStart = System.nanoTime();
+            Storage.linkAppointments(parsedAppointments.value, system);
+            appointmentLinkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - linkStart);
+            return system;
+        } finally {
+            executor.shutdownNow();
+            totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Summarises the time spent in each loading phase of the last call to {@link #load()}.
+     *
+     * @return A one-line report of the phase timings, the total, and the sequential sum of the phases
+     */
+    public String getTimingReport() {
+        long sequentialMillis = patientMillis + prescriptionMillis + appointmentParseMillis + appointmentLinkMillis;
+        return "Loaded data in " + totalMillis + " ms (patients " + patientMillis
+                + " ms, prescriptions " + prescriptionMillis + " ms, appointments " + appointmentParseMillis
+                + " ms + " + appointmentLinkMillis + " ms linking; " + sequentialMillis + " ms if run in sequence).";
+    }
+
+    private interface Loader<T> {
+        T load() throws UnloadedStorageException;
+    }
+
+    private static class Timed<T> {
+        private final T value;
+        private final long millis;
+
+        Timed(T value, long millis) {
+            this.value = value;
+            this.millis = millis;
+        }
+    }
+
+    private static <T> Callable<Timed<T>> timed(Loader<T> loader) {
+        return () -> {
+            long start = System.nanoTime();
+            T value = loader.load();
+            return new Timed<>(value, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        };
+    }
+
+    private static <T> T await(Future<T> future) throws UnloadedStorageException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnloadedStorageException) {
+                throw (UnloadedStorageException) e.getCause();
+            }
+            throw new UnloadedStorageException("Unable to load data: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnloadedStorageException("Interrupted while loading data");
+        }
+    }
+}
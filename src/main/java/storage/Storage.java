@@ -1,5 +1,8 @@
 package storage;
 
+import exception.CorruptRecordException;
+import exception.InvalidInputFormatException;
+import exception.StorageLockedException;
 import exception.UnloadedStorageException;
 import manager.Appointment;
 import manager.Patient;
@@ -7,13 +10,25 @@ import manager.Prescription;
 import miscellaneous.Parser;
 import manager.ManagementSystem;
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Handles data persistence for the clinic management system.
@@ -21,25 +36,966 @@ import java.util.Scanner;
  * and generating HTML prescription documents.
  */
 public class Storage {
+    private static final long CLOSE_TIMEOUT_MILLIS = 30000;
+    private static final ChunkedFileLoader LOADER = new ChunkedFileLoader(ChunkedFileLoader.DEFAULT_CHUNK_BYTES);
+    private static final Object PATIENT_INDEX_LOCK = new Object();
+    private static final Set<String> PAGED_OUT_DELETES = ConcurrentHashMap.newKeySet();
+    private static final Object ARCHIVE_LOCK = new Object();
+
     private static String directoryPath;
     private static String patientFilePath;
     private static String appointmentFilePath;
     private static String prescriptionFilePath;
     private static String prescriptionDirPath;
+    private static String patientBinaryPath;
+    private static String appointmentBinaryPath;
+    private static String prescriptionBinaryPath;
+    private static StorageFormat format;
+    private static boolean isLazyPrescriptions;
+    private static List<PrescriptionIndex> prescriptionIndexes = new ArrayList<>();
+    private static ShardManifest shards;
+    private static int patientCachePages;
+    private static PatientIndex patientIndex;
+    private static PrescriptionArchive archive;
     private static Patient patients;
+    private static Journal journal;
+    private static Compactor compactor;
+    private static WriteBehindQueue writeBehind;
+    private static DurableFileWriter fileWriter;
+    private static PrescriptionHtmlCache prescriptionHtmlCache = new PrescriptionHtmlCache();
+    private static Quarantine quarantine;
+    private static WriterLock writerLock;
+    private static boolean isReadOnly;
+    private static long session;
+
+    /**
+     * Constructs a Storage object with specified directory.
+     * Initializes file paths for patients, appointments, and prescriptions.
+     * The previous session is closed first, and a failure to close it is only reported as a warning;
+     * use {@link #open(String)} to have it thrown instead.
+     *
+     * @param directory The root directory for storage files
+     */
+    public Storage(String directory) {
+        try {
+            close();
+        } catch (UnloadedStorageException e) {
+            System.out.println("Warning: " + e.getMessage());
+        }
+        initialize(directory);
+    }
+
+    /**
+     * Closes the current storage session and starts a new one on a directory.
+     * Closing flushes saves still queued, waits for compaction, closes the journal and releases the
+     * writer lock, so nothing saved to the previous directory is lost and none of its threads keep running.
+     *
+     * @param directory The root directory for storage files
+     * @return The new session, which stops being {@link #getSession()} once storage is opened again
+     * @throws UnloadedStorageException If the previous session could not be closed
+     */
+    public static long open(String directory) throws UnloadedStorageException {
+        close();
+        initialize(directory);
+        return session;
+    }
+
+    /**
+     * Gets the current storage session, which changes each time storage is opened on a directory.
+     *
+     * @return The current session
+     */
+    public static long getSession() {
+        return session;
+    }
+
+    private static void initialize(String directory) {
+        session++;
+        directoryPath = directory;
+        patientFilePath = directory + File.separator + "patient_data.txt";
+        appointmentFilePath = directory + File.separator + "appointment_data.txt";
+        prescriptionFilePath = directory + File.separator + "prescription_data.txt";
+        prescriptionDirPath = directory + File.separator + "prescriptions";
+        prescriptionHtmlCache = new PrescriptionHtmlCache();
+        quarantine = new Quarantine(new File(directory, "quarantine.txt"));
+        patientBinaryPath = directory + File.separator + "patient_data.bin";
+        appointmentBinaryPath = directory + File.separator + "appointment_data.bin";
+        prescriptionBinaryPath = directory + File.separator + "prescription_data.bin";
+        format = StorageFormat.TEXT;
+        isLazyPrescriptions = false;
+        closePrescriptionIndex();
+        shards = null;
+        closePatientIndex();
+        patientCachePages = 0;
+        PAGED_OUT_DELETES.clear();
+        closeArchive();
+        journal = null;
+        compactor = null;
+        writeBehind = null;
+        fileWriter = new DurableFileWriter(DurabilityPolicy.BATCHED_FSYNC);
+        isReadOnly = false;
+    }
+
+    /**
+     * Takes the lock that makes this process the only writer of the storage directory.
+     * Does nothing if this process already holds it.
+     * Must be called before loading, so that no other process saves over the data while it is in use.
+     *
+     * @throws StorageLockedException   If another process is writing to the directory
+     * @throws UnloadedStorageException If the storage was not properly initialized or the lock file cannot be opened
+     */
+    public static void lockForWriting() throws UnloadedStorageException {
+        if (directoryPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
+        if (writerLock != null) {
+            return;
+        }
+        try {
+            writerLock = WriterLock.tryAcquire(new File(directoryPath, "writer.lock"));
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to lock " + directoryPath + ": " + e.getMessage());
+        }
+        if (writerLock == null) {
+            throw new StorageLockedException("Another ClinicEase is already using " + directoryPath + ".");
+        }
+    }
+
+    private static void releaseWriterLock() {
+        if (writerLock == null) {
+            return;
+        }
+        try {
+            writerLock.release();
+        } catch (IOException e) {
+            System.out.println("Warning: Unable to release the lock on " + directoryPath + ": " + e.getMessage());
+        } finally {
+            writerLock = null;
+        }
+    }
+
+    /**
+     * Marks storage as read by a process that is not the writer of its directory.
+     * Unreadable records are then only reported when loading, and not copied into the quarantine file.
+     */
+    public static void setReadOnly() {
+        isReadOnly = true;
+    }
+
+    /**
+     * Sets how strongly saved data is forced to disk.
+     * Applies to data files and to the journal if it is enabled afterwards.
+     *
+     * @param policy The durability policy to use
+     */
+    public static void setDurabilityPolicy(DurabilityPolicy policy) {
+        fileWriter = new DurableFileWriter(policy);
+        if (journal != null) {
+            journal.setFileWriter(fileWriter);
+        }
+    }
+
+    /**
+     * Sets the encoding used to save the data files.
+     * Loading reads the files of this format, falling back to the text files if they do not exist yet,
+     * so switching an existing text store to binary converts it on its next save.
+     *
+     * @param storageFormat The format to save and load data files in
+     */
+    public static void setFormat(StorageFormat storageFormat) {
+        assert storageFormat != null : "Storage format cannot be null";
+        format = storageFormat;
+    }
+
+    /**
+     * Gets the encoding used to save the data files.
+     *
+     * @return The current storage format
+     */
+    public static StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Switches prescription loading to lazy mode.
+     * In lazy mode, loading the text prescription file keeps only each prescription's ID, patient ID,
+     * timestamp and file offset in memory, and reads the symptoms, medicines and notes from the file
+     * the first time they are needed. The binary format is always loaded in full.
+     */
+    public static void enableLazyPrescriptions() {
+        isLazyPrescriptions = true;
+    }
+
+    private static void closePrescriptionIndex() {
+        for (PrescriptionIndex index : prescriptionIndexes) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                // Nothing is lost; the index only reads from the file
+            }
+        }
+        prescriptionIndexes = new ArrayList<>();
+    }
+
+    /**
+     * Switches patients to being paged in from disk through an index instead of all being loaded.
+     * Loading patients then only opens a B+tree index of the patient file, keyed by normalized NRIC,
+     * and each patient is read from the file the first time it is looked up. Only looked up patients are
+     * held in memory; listing patients streams the rest from the file. Saving merges them into the patient file,
+     * dropping deleted patients and keeping everyone else as they are on disk.
+     * Requires the unsharded text format without the journal. Must be called before loading.
+     *
+     * @param cachePages The most pages of the index to keep in memory
+     * @throws UnloadedStorageException If the storage was not properly initialized or the journal is enabled
+     */
+    public static void enablePatientIndex(int cachePages) throws UnloadedStorageException {
+        assert cachePages > 0 : "Cache size must be positive";
+        if (directoryPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
+        if (journal != null) {
+            throw new UnloadedStorageException("The patient index cannot be used with the journal!");
+        }
+        patientCachePages = cachePages;
+    }
+
+    /**
+     * Reads a patient that has not been loaded into memory from the patient file.
+     * Does nothing unless patients are paged in through the patient index.
+     *
+     * @param nric The NRIC of the patient, in any case
+     * @return The patient as saved on disk, or null if there is no such patient or it has been deleted
+     * @throws UnloadedStorageException If the index or the patient file could not be read
+     */
+    public static Patient findPatient(String nric) throws UnloadedStorageException {
+        String key = PatientIndex.normalize(nric);
+        synchronized (PATIENT_INDEX_LOCK) {
+            if (patientIndex == null || PAGED_OUT_DELETES.contains(key)) {
+                return null;
+            }
+            try {
+                return patientIndex.find(key);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to read patient " + nric + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void closePatientIndex() {
+        synchronized (PATIENT_INDEX_LOCK) {
+            if (patientIndex == null) {
+                return;
+            }
+            try {
+                patientIndex.close();
+            } catch (IOException e) {
+                // Nothing is lost; the index only reads from the files
+            }
+            patientIndex = null;
+        }
+    }
+
+    /**
+     * Moves prescriptions older than a cutoff out of the prescription file into a new archive segment.
+     * The prescriptions are removed from the management system, and are found again through
+     * {@link #findArchivedPrescriptions(String)}. In journaled mode the data files are all rewritten and the
+     * journal emptied, so replaying it cannot bring archived prescriptions back into the prescription file.
+     * Must be called before compaction and write-behind are enabled.
+     *
+     * @param system The management system holding the loaded prescriptions
+     * @param cutoff Prescriptions issued before this time are archived
+     * @return The number of prescriptions archived
+     * @throws UnloadedStorageException If the archive segment or the data files could not be written
+     */
+    public static int archivePrescriptions(ManagementSystem system, LocalDateTime cutoff)
+            throws UnloadedStorageException {
+        assert compactor == null && writeBehind == null : "Archiving must happen before background saving starts";
+        if (directoryPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
+
+        List<Prescription> prescriptions = system.getPrescriptions();
+        List<Prescription> archived = new ArrayList<>();
+        for (Prescription prescription : prescriptions) {
+            if (prescription.getTimestamp().isBefore(cutoff)) {
+                archived.add(prescription);
+            }
+        }
+        if (archived.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            synchronized (ARCHIVE_LOCK) {
+                openArchive().append(archived, fileWriter);
+            }
+            system.removeLoadedPrescriptions(archived);
+            if (journal != null) {
+                journal.rotate();
+                writePatientData(fileWriter, system.getPatients());
+                writeAppointmentData(fileWriter, system.getAppointments(), Appointment.getRunningId());
+            }
+            writePrescriptionData(fileWriter, prescriptions, new AtomicInteger());
+            if (journal != null) {
+                fileWriter.forceDirectories();
+                journal.discardPrevious();
+            }
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to archive prescriptions: " + e.getMessage());
+        }
+        return archived.size();
+    }
+
+    /**
+     * Finds the archived prescriptions of a patient.
+     *
+     * @param patientId The NRIC of the patient
+     * @return The patient's archived prescriptions, oldest first, or an empty list if there are none
+     * @throws UnloadedStorageException If the archive could not be read
+     */
+    public static List<Prescription> findArchivedPrescriptions(String patientId) throws UnloadedStorageException {
+        if (directoryPath == null) {
+            return new ArrayList<>();
+        }
+        try {
+            synchronized (ARCHIVE_LOCK) {
+                return openArchive().find(patientId);
+            }
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to read prescription archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams every archived prescription.
+     *
+     * @param visitor Receives each archived prescription, with its details loaded
+     * @throws IOException If the archive could not be read, or the visitor failed
+     */
+    public static void forEachArchivedPrescription(RecordVisitor<Prescription> visitor) throws IOException {
+        if (directoryPath == null) {
+            return;
+        }
+        synchronized (ARCHIVE_LOCK) {
+            openArchive().forEach(visitor);
+        }
+    }
+
+    /**
+     * Streams the patients in the patient file that have not been paged in, when patients are paged in on demand.
+     * Patients deleted since the file was last written are left out. Nothing is streamed in other modes,
+     * where every patient is loaded up front.
+     *
+     * @param loadedNrics The normalized NRICs of the patients already in memory, which are left out
+     * @param visitor     Receives each patient that is only on disk
+     * @throws IOException If the patient file could not be read, or the visitor failed
+     */
+    public static void forEachPagedOutPatient(Set<String> loadedNrics, RecordVisitor<Patient> visitor)
+            throws IOException {
+        File file = patientFilePath == null ? null : new File(patientFilePath);
+        if (patientCachePages <= 0 || !file.exists()) {
+            return;
+        }
+        boolean isSealRequired = RecordChecksum.isSealedFile(file);
+        try (BufferedReader in = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int end = line.indexOf('|');
+                String nric = PatientIndex.normalize(end < 0 ? line : line.substring(0, end));
+                if (loadedNrics.contains(nric) || PAGED_OUT_DELETES.contains(nric)) {
+                    continue;
+                }
+                Patient patient;
+                try {
+                    patient = Parser.parseLoadPatient(RecordChecksum.unseal(line, isSealRequired));
+                } catch (InvalidInputFormatException | CorruptRecordException e) {
+                    // Unreadable records are skipped; they are quarantined when the file is verified
+                    continue;
+                }
+                if (patient != null) {
+                    visitor.visit(patient);
+                }
+            }
+        }
+    }
+
+    private static PrescriptionArchive openArchive() throws IOException {
+        if (archive == null) {
+            archive = PrescriptionArchive.open(directoryPath + File.separator + "archive");
+        }
+        return archive;
+    }
+
+    private static void closeArchive() {
+        synchronized (ARCHIVE_LOCK) {
+            if (archive == null) {
+                return;
+            }
+            try {
+                archive.close();
+            } catch (IOException e) {
+                // Nothing is lost; the archive only reads from its segments
+            }
+            archive = null;
+        }
+    }
+
+    /**
+     * Checks whether the storage directory has been sharded before, in which case the data must
+     * be read from the shards rather than the unsharded files left behind.
+     *
+     * @return true if the directory holds a shard manifest
+     */
+    public static boolean hasShards() {
+        return directoryPath != null && hasShards(directoryPath);
+    }
+
+    /**
+     * Checks whether a storage directory has been sharded before, without opening it.
+     *
+     * @param directory The storage directory
+     * @return true if the directory holds a shard manifest
+     */
+    public static boolean hasShards(String directory) {
+        return ShardManifest.exists(directory + File.separator + "shards");
+    }
+
+    /**
+     * Switches storage to the sharded layout under the {@code shards} subdirectory.
+     * Records are split into shards by patient NRIC, and saving a change to one patient, appointment or
+     * prescription rewrites only the shard of the patient it belongs to. Each kind of record moves into
+     * shards the first time it is saved in full, after which it is loaded from the shards.
+     * Must be called before loading.
+     *
+     * @param shardCount The number of shards to create if the directory is not sharded yet
+     * @throws UnloadedStorageException If the storage was not properly initialized or the manifest is unreadable
+     */
+    public static void enableSharding(int shardCount) throws UnloadedStorageException {
+        if (directoryPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
+        try {
+            shards = ShardManifest.open(directoryPath + File.separator + "shards", shardCount);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to read shard manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Summarises the write and fsync latencies measured under the current durability policy.
+     *
+     * @return A one-line summary of the measurements
+     */
+    public static String getDurabilityStats() {
+        return fileWriter.getStatsSummary();
+    }
+
+    /**
+     * Switches storage to journaled mode.
+     * In journaled mode each mutation appends one small record to the journal file
+     * instead of rewriting the whole data file it belongs to.
+     *
+     * @throws UnloadedStorageException If the storage was not properly initialized
+     */
+    public static void enableJournal() throws UnloadedStorageException {
+        if (directoryPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
+        if (patientCachePages > 0) {
+            throw new UnloadedStorageException("The journal cannot be used with the patient index!");
+        }
+        journal = new Journal(journalPath());
+        journal.setFileWriter(fileWriter);
+        journal.setQuarantine(quarantine);
+    }
+
+    /**
+     * Writes the records left in a journal by an earlier journaled session into the data files,
+     * then removes the journal, so the directory can be used without the journal.
+     * Does nothing if storage is in journaled mode or there is no journal left.
+     *
+     * @throws UnloadedStorageException If the data could not be loaded or saved, or the journal not removed
+     */
+    public static void foldJournal() throws UnloadedStorageException {
+        if (journal != null || directoryPath == null) {
+            return;
+        }
+        Journal leftover = new Journal(journalPath());
+        leftover.setQuarantine(quarantine);
+        if (!leftover.getFile().exists() && !leftover.getPreviousFile().exists()) {
+            return;
+        }
+
+        try {
+            journal = leftover;
+            ManagementSystem system = new StartupLoader().load();
+            replayJournal(system);
+            journal = null;
+            savePatients(system.getPatients());
+            saveAppointments(system.getAppointments());
+            savePrescriptions(system.getPrescriptions());
+            Files.deleteIfExists(leftover.getPreviousFile().toPath());
+            Files.deleteIfExists(leftover.getFile().toPath());
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to remove journal: " + e.getMessage());
+        } finally {
+            journal = null;
+        }
+    }
+
+    static String journalPath() {
+        return directoryPath + File.separator + "journal.txt";
+    }
+
+    /**
+     * Checks whether mutations are being recorded in the journal.
+     *
+     * @return true if storage is in journaled mode, false otherwise
+     */
+    public static boolean isJournalEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Replays the journal onto a management system whose data files have already been loaded.
+     * Does nothing if storage is not in journaled mode.
+     *
+     * @param system The management system to apply the journal to
+     * @return The number of journal records applied
+     * @throws UnloadedStorageException If the journal could not be read
+     */
+    public static int replayJournal(ManagementSystem system) throws UnloadedStorageException {
+        if (journal == null) {
+            return 0;
+        }
+
+        try {
+            return journal.replay(system);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to replay journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enables background compaction of the journal into fresh data file snapshots.
+     * A compaction starts once the journal reaches either trigger, and is checked
+     * immediately in case the journal replayed at startup is already past it.
+     *
+     * @param system            The management system whose state is snapshotted
+     * @param maxJournalBytes   Journal size in bytes that triggers a compaction
+     * @param maxJournalRecords Journal record count that triggers a compaction
+     * @throws UnloadedStorageException If storage is not in journaled mode or the journal could not be rotated
+     */
+    public static void enableCompaction(ManagementSystem system, long maxJournalBytes, int maxJournalRecords)
+            throws UnloadedStorageException {
+        if (journal == null) {
+            throw new UnloadedStorageException("Compaction requires the journal to be enabled!");
+        }
+        // The rotated journal is deleted after a snapshot, so snapshots are forced whatever the policy
+        DurableFileWriter snapshotWriter = fileWriter.getPolicy() == DurabilityPolicy.NONE
+                ? new DurableFileWriter(DurabilityPolicy.BATCHED_FSYNC)
+                : fileWriter;
+        compactor = new Compactor(journal, system, snapshotWriter, maxJournalBytes, maxJournalRecords);
+        compactIfNeeded();
+    }
+
+    /**
+     * Takes the report of the most recently finished compaction, if any.
+     *
+     * @return A one-line report with the time taken and bytes reclaimed, or null if there is nothing new
+     */
+    public static String pollCompactionReport() {
+        return compactor == null ? null : compactor.pollReport();
+    }
+
+    /**
+     * Switches storage to write-behind mode.
+     * Saves return immediately and are written by a background thread, with saves that arrive within
+     * the group commit window coalesced into a single write. In journaled mode, journal records are
+     * likewise buffered and written out as a group. A save is never delayed by more than the staleness
+     * bound, so at most that much recent work is lost if the process dies before a flush.
+     *
+     * @param windowMillis       Quiet period after the latest save before writing
+     * @param maxStalenessMillis Longest time a save may wait before it is written
+     */
+    public static void enableWriteBehind(long windowMillis, long maxStalenessMillis) {
+        writeBehind = new WriteBehindQueue(windowMillis, maxStalenessMillis);
+        if (journal != null) {
+            journal.setGroupCommit(true);
+        }
+    }
+
+    /**
+     * Writes out every save still queued in write-behind mode and waits for it to finish.
+     * Does nothing if storage is not in write-behind mode.
+     *
+     * @throws UnloadedStorageException If a queued save could not be written
+     */
+    public static void flush() throws UnloadedStorageException {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Flushes queued saves, waits for any running compaction, closes the journal file
+     * and releases the lock on the storage directory.
+     *
+     * @throws UnloadedStorageException If queued saves could not be written or the journal could not be closed
+     */
+    public static void close() throws UnloadedStorageException {
+        try {
+            closeFiles();
+        } finally {
+            releaseWriterLock();
+        }
+    }
+
+    private static void closeFiles() throws UnloadedStorageException {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+            writeBehind = null;
+        }
+        if (journal == null) {
+            closePrescriptionIndex();
+            closePatientIndex();
+            closeArchive();
+            forceDataDirectories();
+            return;
+        }
+
+        try {
+            if (compactor != null) {
+                compactor.shutdown(CLOSE_TIMEOUT_MILLIS);
+            }
+            fileWriter.forceDirectories();
+            journal.close();
+            closePrescriptionIndex();
+            closeArchive();
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to close journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnloadedStorageException("Interrupted while waiting for compaction to finish");
+        }
+    }
+
+    private static void forceDataDirectories() throws UnloadedStorageException {
+        if (fileWriter == null) {
+            return;
+        }
+        try {
+            fileWriter.forceDirectories();
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to force data directory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Persists an added or edited patient.
+     * Appends a single record in journaled mode, otherwise rewrites the patient file or shard.
+     *
+     * @param patient     The patient that was added or edited
+     * @param patientList The full list of patients, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordPatientUpsert(Patient patient, List<Patient> patientList)
+            throws UnloadedStorageException {
+        PAGED_OUT_DELETES.remove(PatientIndex.normalize(patient.getId()));
+        if (journal == null) {
+            savePatientShard(patient.getId(), patientList);
+            return;
+        }
+        appendToJournal(Journal.PATIENT_UPSERT, patient.toFileFormat());
+    }
+
+    /**
+     * Persists the deletion of a patient together with all of the patient's appointments.
+     * Appends a single record in journaled mode, otherwise rewrites both files, or the patient's shards.
+     *
+     * @param nric            The NRIC of the deleted patient
+     * @param patientList     The full list of patients, used when not in journaled mode
+     * @param appointmentList The full list of appointments, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordPatientDelete(String nric, List<Patient> patientList,
+                                           List<Appointment> appointmentList) throws UnloadedStorageException {
+        if (patientCachePages > 0) {
+            PAGED_OUT_DELETES.add(PatientIndex.normalize(nric));
+        }
+        if (journal == null) {
+            savePatientShard(nric, patientList);
+            saveAppointmentShard(nric, appointmentList);
+            return;
+        }
+        appendToJournal(Journal.PATIENT_DELETE, nric);
+    }
+
+    /**
+     * Persists a newly added appointment.
+     * Appends a single record in journaled mode, otherwise rewrites the appointment file or shard.
+     *
+     * @param appointment     The appointment that was added
+     * @param appointmentList The full list of appointments, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordAppointmentAdd(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        if (journal == null) {
+            saveAppointmentShard(appointment.getNric(), appointmentList);
+            return;
+        }
+        appendToJournal(Journal.APPOINTMENT_ADD, appointment.toFileFormat());
+    }
+
+    /**
+     * Persists the deletion of an appointment.
+     * Appends a single record in journaled mode, otherwise rewrites the appointment file or shard.
+     *
+     * @param appointment     The deleted appointment
+     * @param appointmentList The full list of appointments, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordAppointmentDelete(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        if (journal == null) {
+            saveAppointmentShard(appointment.getNric(), appointmentList);
+            return;
+        }
+        appendToJournal(Journal.APPOINTMENT_DELETE, appointment.getId());
+    }
+
+    /**
+     * Persists a change in the completion status of an appointment.
+     * Appends a single mark or unmark record in journaled mode, otherwise rewrites the appointment file or shard.
+     *
+     * @param appointment     The appointment whose status changed
+     * @param appointmentList The full list of appointments, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordAppointmentStatus(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        if (journal == null) {
+            saveAppointmentShard(appointment.getNric(), appointmentList);
+            return;
+        }
+        String type = appointment.isDone() ? Journal.APPOINTMENT_MARK : Journal.APPOINTMENT_UNMARK;
+        appendToJournal(type, appointment.getId());
+    }
+
+    /**
+     * Persists a newly added prescription.
+     * Appends a single record in journaled mode, otherwise rewrites the prescription file or shard.
+     *
+     * @param prescription     The prescription that was added
+     * @param prescriptionList The full list of prescriptions, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordPrescriptionAdd(Prescription prescription, List<Prescription> prescriptionList)
+            throws UnloadedStorageException {
+        if (journal == null) {
+            savePrescriptionShard(prescription.getPatientId(), prescriptionList);
+            return;
+        }
+        appendToJournal(Journal.PRESCRIPTION_ADD, prescription.toFileFormat());
+    }
+
+    /**
+     * Persists records added by a bulk import in one go.
+     * Appends one batch of records per kind in journaled mode, otherwise rewrites each changed data file once.
+     *
+     * @param addedPatients      The imported patients
+     * @param addedAppointments  The imported appointments
+     * @param addedPrescriptions The imported prescriptions
+     * @param system             The management system holding the full lists, used when not in journaled mode
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    public static void recordImport(List<Patient> addedPatients, List<Appointment> addedAppointments,
+                                    List<Prescription> addedPrescriptions, ManagementSystem system)
+            throws UnloadedStorageException {
+        for (Patient patient : addedPatients) {
+            PAGED_OUT_DELETES.remove(PatientIndex.normalize(patient.getId()));
+        }
+        if (journal == null) {
+            if (!addedPatients.isEmpty()) {
+                savePatients(system.getPatients());
+            }
+            if (!addedAppointments.isEmpty()) {
+                saveAppointments(system.getAppointments());
+            }
+            if (!addedPrescriptions.isEmpty()) {
+                savePrescriptions(system.getPrescriptions());
+            }
+            return;
+        }
+
+        throwPendingWriteError();
+        try {
+            journal.appendAll(Journal.PATIENT_UPSERT, toFileFormats(addedPatients, Patient::toFileFormat));
+            journal.appendAll(Journal.APPOINTMENT_ADD, toFileFormats(addedAppointments, Appointment::toFileFormat));
+            journal.appendAll(Journal.PRESCRIPTION_ADD,
+                    toFileFormats(addedPrescriptions, Prescription::toFileFormat));
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to write to journal: " + e.getMessage());
+        }
+        if (writeBehind != null) {
+            writeBehind.enqueue("journal", Storage::flushJournal);
+        }
+        compactIfNeeded();
+    }
+
+    private static <T> List<String> toFileFormats(List<T> records, Function<T, String> toFileFormat) {
+        List<String> lines = new ArrayList<>(records.size());
+        for (T record : records) {
+            lines.add(toFileFormat.apply(record));
+        }
+        return lines;
+    }
+
+    private static void appendToJournal(String type, String payload) throws UnloadedStorageException {
+        throwPendingWriteError();
+        try {
+            journal.append(type, payload);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to write to journal: " + e.getMessage());
+        }
+        if (writeBehind != null) {
+            writeBehind.enqueue("journal", Storage::flushJournal);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Reports a failed background save before a record is buffered, so a record reported as not saved
+     * is never written later by the buffered journal.
+     */
+    private static void throwPendingWriteError() throws UnloadedStorageException {
+        if (writeBehind != null) {
+            writeBehind.throwPendingError();
+        }
+    }
+
+    private static void flushJournal() throws UnloadedStorageException {
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to write to journal: " + e.getMessage());
+        }
+    }
+
+    private static void compactIfNeeded() throws UnloadedStorageException {
+        if (compactor == null) {
+            return;
+        }
+
+        try {
+            compactor.compactIfNeeded();
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to start journal compaction: " + e.getMessage());
+        }
+    }
+
+    private static void savePatientShard(String nric, List<Patient> patientList) throws UnloadedStorageException {
+        if (shards == null || !shards.isSharded(ShardManifest.PATIENTS)) {
+            savePatients(patientList);
+            return;
+        }
+        int shard = shards.shardOf(nric);
+        List<Patient> records = inShard(patientList, shard, Patient::getId);
+        String textPath = shards.textPath(ShardManifest.PATIENTS, shard);
+        String binaryPath = shards.binaryPath(ShardManifest.PATIENTS, shard);
+        WriteBehindQueue.PendingWrite write = () -> {
+            try {
+                writePatientData(fileWriter, records, textPath, binaryPath);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to save the patient!");
+            }
+        };
+        saveNowOrLater(ShardManifest.PATIENTS + "-" + shard, write);
+    }
+
+    private static void saveAppointmentShard(String nric, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        if (shards == null || !shards.isSharded(ShardManifest.APPOINTMENTS)) {
+            saveAppointments(appointmentList);
+            return;
+        }
+        int shard = shards.shardOf(nric);
+        int runningId = Appointment.getRunningId();
+        List<Appointment> records = inShard(appointmentList, shard, Appointment::getNric);
+        String textPath = shards.textPath(ShardManifest.APPOINTMENTS, shard);
+        String binaryPath = shards.binaryPath(ShardManifest.APPOINTMENTS, shard);
+        WriteBehindQueue.PendingWrite write = () -> {
+            try {
+                writeAppointmentData(fileWriter, records, runningId, textPath, binaryPath);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to save the appointment!");
+            }
+        };
+        saveNowOrLater(ShardManifest.APPOINTMENTS + "-" + shard, write);
+    }
+
+    private static void savePrescriptionShard(String nric, List<Prescription> prescriptionList)
+            throws UnloadedStorageException {
+        if (shards == null || !shards.isSharded(ShardManifest.PRESCRIPTIONS)) {
+            savePrescriptions(prescriptionList);
+            return;
+        }
+        int shard = shards.shardOf(nric);
+        List<Prescription> records = inShard(prescriptionList, shard, Prescription::getPatientId);
+        String textPath = shards.textPath(ShardManifest.PRESCRIPTIONS, shard);
+        String binaryPath = shards.binaryPath(ShardManifest.PRESCRIPTIONS, shard);
+        WriteBehindQueue.PendingWrite write = () -> {
+            try {
+                writePrescriptionData(fileWriter, records, new AtomicInteger(), textPath, binaryPath);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to save prescriptions: " + e.getMessage());
+            }
+        };
+        saveNowOrLater(ShardManifest.PRESCRIPTIONS + "-" + shard, write);
+    }
+
+    private static <T> List<T> inShard(List<T> records, int shard, Function<T, String> nricOf) {
+        List<T> inShard = new ArrayList<>();
+        for (T record : records) {
+            if (record != null && shards.shardOf(nricOf.apply(record)) == shard) {
+                inShard.add(record);
+            }
+        }
+        return inShard;
+    }
+
+    private static void saveNowOrLater(String key, WriteBehindQueue.PendingWrite write)
+            throws UnloadedStorageException {
+        if (writeBehind != null) {
+            writeBehind.enqueue(key, write);
+            return;
+        }
+        write.write();
+    }
 
     /**
-     * Constructs a Storage object with specified directory.
-     * Initializes file paths for patients, appointments, and prescriptions.
-     *
-     * @param directory The root directory for storage files
+     * Writes every shard of one kind of record and then marks the kind as sharded in the manifest,
+     * so a crash part way through leaves the kind loading from its unsharded file.
      */
-    public Storage(String directory) {
-        directoryPath = directory;
-        patientFilePath = directory + File.separator + "patient_data.txt";
-        appointmentFilePath = directory + File.separator + "appointment_data.txt";
-        prescriptionFilePath = directory + File.separator + "prescription_data.txt";
-        prescriptionDirPath = directory + File.separator + "prescriptions";
+    private static <T> long writeShards(DurableFileWriter writer, String kind, List<T> records,
+                                        Function<T, String> nricOf, ShardWrite<T> shardWrite) throws IOException {
+        List<List<T>> partitions = shards.partition(records, nricOf);
+        new File(shards.textPath(kind, 0)).getParentFile().mkdirs();
+        long size = 0;
+        for (int shard = 0; shard < partitions.size(); shard++) {
+            size += shardWrite.write(partitions.get(shard), shards.textPath(kind, shard),
+                    shards.binaryPath(kind, shard));
+        }
+        shards.markSharded(kind, writer);
+        return size;
+    }
+
+    private interface ShardWrite<T> {
+        long write(List<T> records, String textPath, String binaryPath) throws IOException;
     }
 
     /**
@@ -55,21 +1011,117 @@ public class Storage {
             throw new UnloadedStorageException("Storage not initialized with a directory!");
         }
 
+        if (writeBehind != null) {
+            List<Patient> snapshot = new ArrayList<>(patientList);
+            writeBehind.enqueue("patients", () -> writePatientFile(snapshot));
+            return;
+        }
+        writePatientFile(patientList);
+    }
+
+    private static void writePatientFile(List<Patient> patientList) throws UnloadedStorageException {
         File dir = new File(directoryPath);
         if (!dir.exists()) {
             dir.mkdirs();
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(patientFilePath))) {
-            for (Patient patient : patientList) {
-                writer.write(patient.toFileFormat());
-                writer.newLine();
-            }
+        try {
+            writePatientData(fileWriter, patientList);
         } catch (IOException e) {
             throw new UnloadedStorageException("Unable to save the patient!");
         }
     }
 
+    /**
+     * Replaces the patient data file, or every patient shard, in the current storage format.
+     *
+     * @param writer      The writer used to replace the file
+     * @param patientList The patients to write
+     * @return The size of the new files in bytes
+     * @throws IOException If the file could not be written
+     */
+    static long writePatientData(DurableFileWriter writer, List<Patient> patientList) throws IOException {
+        if (shards != null) {
+            return writeShards(writer, ShardManifest.PATIENTS, patientList, Patient::getId,
+                (records, textPath, binaryPath) -> writePatientData(writer, records, textPath, binaryPath));
+        }
+        return writePatientData(writer, patientList, patientFilePath, patientBinaryPath);
+    }
+
+    private static long writePatientData(DurableFileWriter writer, List<Patient> patientList, String textPath,
+                                         String binaryPath) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            return writer.writeBinary(binaryPath, out -> BinaryFormat.writePatients(out, patientList));
+        }
+        if (patientCachePages > 0) {
+            return writePagedPatientData(writer, patientList);
+        }
+        return writer.write(textPath, out -> {
+            for (Patient patient : patientList) {
+                RecordChecksum.writeSealed(out, patient.toFileFormat());
+            }
+        });
+    }
+
+    /**
+     * Rewrites the patient file with the patients in memory merged into those still on disk,
+     * then rebuilds the index over the new file.
+     */
+    private static long writePagedPatientData(DurableFileWriter writer, List<Patient> patientList)
+            throws IOException {
+        Map<String, Patient> loaded = new LinkedHashMap<>();
+        for (Patient patient : patientList) {
+            loaded.putIfAbsent(PatientIndex.normalize(patient.getId()), patient);
+        }
+        Set<String> deleted = new HashSet<>(PAGED_OUT_DELETES);
+        File file = new File(patientFilePath);
+        boolean isSealedFile = RecordChecksum.isSealedFile(file);
+
+        long size = writer.write(patientFilePath, out -> {
+            if (file.exists()) {
+                try (BufferedReader in = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.isBlank()) {
+                            continue;
+                        }
+                        int end = line.indexOf('|');
+                        String nric = PatientIndex.normalize(end < 0 ? line : line.substring(0, end));
+                        Patient patient = loaded.remove(nric);
+                        if (patient != null) {
+                            RecordChecksum.writeSealed(out, patient.toFileFormat());
+                        } else if (!deleted.contains(nric)) {
+                            // Records of a file from before checksums are sealed as they are copied, so the new
+                            // file is sealed throughout; an unsealed line in a sealed file is copied as it is
+                            if (isSealedFile || RecordChecksum.isSealed(line)) {
+                                out.write(line);
+                                out.newLine();
+                            } else {
+                                RecordChecksum.writeSealed(out, line);
+                            }
+                        }
+                    }
+                }
+            }
+            for (Patient patient : loaded.values()) {
+                RecordChecksum.writeSealed(out, patient.toFileFormat());
+            }
+        });
+
+        synchronized (PATIENT_INDEX_LOCK) {
+            closePatientIndex();
+            File indexFile = new File(patientIndexPath());
+            PatientIndex.build(file, indexFile, writer);
+            patientIndex = PatientIndex.open(file, indexFile, patientCachePages, writer);
+            PAGED_OUT_DELETES.removeAll(deleted);
+        }
+        return size;
+    }
+
+    private static String patientIndexPath() {
+        return directoryPath + File.separator + "patient_index.bin";
+    }
+
     /**
      * Loads patients from file storage.
      * Reads and parses patient data from the patient file.
@@ -79,21 +1131,59 @@ public class Storage {
      *                                  or if the data could not be properly parsed
      */
     public static List<Patient> loadPatients() throws UnloadedStorageException {
+        if (patientCachePages > 0) {
+            return openPatientIndex();
+        }
+        if (shards == null || !shards.isSharded(ShardManifest.PATIENTS)) {
+            return loadPatientFile(patientFilePath, patientBinaryPath);
+        }
         List<Patient> patients = new ArrayList<>();
-        File file = new File(patientFilePath);
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            patients.addAll(loadPatientFile(shards.textPath(ShardManifest.PATIENTS, shard),
+                    shards.binaryPath(ShardManifest.PATIENTS, shard)));
+        }
+        return patients;
+    }
+
+    private static List<Patient> openPatientIndex() throws UnloadedStorageException {
+        if (format != StorageFormat.TEXT || shards != null) {
+            throw new UnloadedStorageException("The patient index requires unsharded text storage!");
+        }
+        synchronized (PATIENT_INDEX_LOCK) {
+            closePatientIndex();
+            try {
+                patientIndex = PatientIndex.open(new File(patientFilePath), new File(patientIndexPath()),
+                        patientCachePages, fileWriter);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to load patient index: " + e.getMessage());
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static List<Patient> loadPatientFile(String textPath, String binaryPath)
+            throws UnloadedStorageException {
+        File binaryFile = new File(binaryPath);
+        if (format == StorageFormat.BINARY && binaryFile.exists()) {
+            try (DataInputStream in = openBinary(binaryFile)) {
+                return BinaryFormat.readPatients(in);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to load patient data: " + e.getMessage());
+            }
+        }
+
+        List<Patient> patients = new ArrayList<>();
+        File file = new File(textPath);
         if (!file.exists()) {
             return patients;
         }
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                Patient patient = Parser.parseLoadPatient(line);
-                if (patient != null) {
-                    patients.add(patient);
-                }
-            }
-        } catch (Exception e) {
+        try {
+            boolean isSealedFile = RecordChecksum.isSealedFile(file);
+            ChunkedFileLoader.Result<Patient> result = LOADER.load(file, patientParser(isSealedFile));
+            quarantineFailures(file, result.getFailures());
+            patients.addAll(result.getRecords());
+        } catch (IOException e) {
             throw new UnloadedStorageException("Unable to load patient data!");
         }
 
@@ -113,24 +1203,64 @@ public class Storage {
             throw new UnloadedStorageException("Storage not initialized with a directory!");
         }
 
+        int runningId = Appointment.getRunningId();
+        if (writeBehind != null) {
+            List<Appointment> snapshot = new ArrayList<>(appointmentList);
+            writeBehind.enqueue("appointments", () -> writeAppointmentFile(snapshot, runningId));
+            return;
+        }
+        writeAppointmentFile(appointmentList, runningId);
+    }
+
+    private static void writeAppointmentFile(List<Appointment> appointmentList, int runningId)
+            throws UnloadedStorageException {
         File dir = new File(directoryPath);
         if (!dir.exists()) {
             dir.mkdirs();
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(appointmentFilePath))) {
-            writer.write("countId:" + Appointment.getRunningId());
-            writer.newLine();
-
-            for (Appointment appointment : appointmentList) {
-                writer.write(appointment.toFileFormat());
-                writer.newLine();
-            }
+        try {
+            writeAppointmentData(fileWriter, appointmentList, runningId);
         } catch (IOException e) {
             throw new UnloadedStorageException("Unable to save the appointment!");
         }
     }
 
+    /**
+     * Replaces the appointment data file, or every appointment shard, in the current storage format.
+     *
+     * @param writer          The writer used to replace the file
+     * @param appointmentList The appointments to write
+     * @param runningId       The appointment ID counter to write
+     * @return The size of the new files in bytes
+     * @throws IOException If the file could not be written
+     */
+    static long writeAppointmentData(DurableFileWriter writer, List<Appointment> appointmentList, int runningId)
+            throws IOException {
+        if (shards != null) {
+            return writeShards(writer, ShardManifest.APPOINTMENTS, appointmentList, Appointment::getNric,
+                (records, textPath, binaryPath) -> writeAppointmentData(writer, records, runningId, textPath,
+                        binaryPath));
+        }
+        return writeAppointmentData(writer, appointmentList, runningId, appointmentFilePath, appointmentBinaryPath);
+    }
+
+    private static long writeAppointmentData(DurableFileWriter writer, List<Appointment> appointmentList,
+                                             int runningId, String textPath, String binaryPath) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            return writer.writeBinary(binaryPath,
+                    out -> BinaryFormat.writeAppointments(out, appointmentList, runningId));
+        }
+        return writer.write(textPath, out -> {
+            out.write("countId:" + runningId);
+            out.newLine();
+
+            for (Appointment appointment : appointmentList) {
+                RecordChecksum.writeSealed(out, appointment.toFileFormat());
+            }
+        });
+    }
+
     /**
      * Loads appointments from file storage.
      * Reads and parses appointment data from the appointment file.
@@ -142,40 +1272,68 @@ public class Storage {
      *                                  or if the data could not be properly parsed
      */
     public static List<Appointment> loadAppointments(ManagementSystem system) throws UnloadedStorageException {
+        List<Appointment> appointments = parseAppointments();
+        linkAppointments(appointments, system);
+        return appointments;
+    }
+
+    /**
+     * Reads and parses appointment data from the appointment file without linking it to patients,
+     * and restores the appointment ID counter. Needs no patients, so it can run while they are loading.
+     *
+     * @return A list of Appointment objects loaded from file
+     * @throws UnloadedStorageException If there was an error reading from the file
+     *                                  or if the data could not be properly parsed
+     */
+    public static List<Appointment> parseAppointments() throws UnloadedStorageException {
+        if (shards == null || !shards.isSharded(ShardManifest.APPOINTMENTS)) {
+            return parseAppointmentFile(appointmentFilePath, appointmentBinaryPath);
+        }
+        // Every shard stores the counter as it was when the shard was written, so the newest is the largest
+        List<Appointment> appointments = new ArrayList<>();
+        int runningId = 0;
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            appointments.addAll(parseAppointmentFile(shards.textPath(ShardManifest.APPOINTMENTS, shard),
+                    shards.binaryPath(ShardManifest.APPOINTMENTS, shard)));
+            runningId = Math.max(runningId, Appointment.getRunningId());
+        }
+        Appointment.setRunningId(runningId);
+        return appointments;
+    }
+
+    private static List<Appointment> parseAppointmentFile(String textPath, String binaryPath)
+            throws UnloadedStorageException {
+        File binaryFile = new File(binaryPath);
+        if (format == StorageFormat.BINARY && binaryFile.exists()) {
+            try (DataInputStream in = openBinary(binaryFile)) {
+                return BinaryFormat.readAppointments(in);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to load appointment data: " + e.getMessage());
+            }
+        }
+
         List<Appointment> appointments = new ArrayList<>();
-        File file = new File(appointmentFilePath);
+        File file = new File(textPath);
 
         if (!file.exists()) {
             return appointments;
         }
 
-        try (Scanner scanner = new Scanner(file)) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
             int countId = 100;
 
-            if (scanner.hasNextLine()) {
-                String firstLine = scanner.nextLine();
-                if (firstLine.startsWith("countId:")) {
-                    String[] parts = firstLine.split(":");
-                    if (parts.length == 2) {
-                        countId = Integer.parseInt(parts[1].trim());
-                    }
+            String firstLine = reader.readLine();
+            if (firstLine != null && firstLine.startsWith("countId:")) {
+                String[] parts = firstLine.split(":");
+                if (parts.length == 2) {
+                    countId = Integer.parseInt(parts[1].trim());
                 }
             }
 
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                if (!line.trim().isEmpty()) {
-                    Appointment appointment = Parser.parseLoadAppointment(line);
-                    if (appointment != null) {
-                        appointments.add(appointment);
-
-                        Patient patient = system.findPatientByNric(appointment.getNric());
-                        if (patient != null) {
-                            patient.addAppointment(appointment);
-                        }
-                    }
-                }
-            }
+            boolean isSealedFile = RecordChecksum.isSealedFile(file);
+            ChunkedFileLoader.Result<Appointment> result = LOADER.load(file, appointmentParser(isSealedFile));
+            appointments.addAll(result.getRecords());
+            quarantineFailures(file, withoutCounterLine(result.getFailures()));
 
             Appointment.setRunningId(countId);
 
@@ -186,6 +1344,23 @@ public class Storage {
         return appointments;
     }
 
+    /**
+     * Adds each loaded appointment to the patient it belongs to.
+     *
+     * @param appointments The appointments to link
+     * @param system       The management system used to find patients for appointment association
+     * @throws UnloadedStorageException If a patient that is not loaded could not be read from storage
+     */
+    public static void linkAppointments(List<Appointment> appointments, ManagementSystem system)
+            throws UnloadedStorageException {
+        for (Appointment appointment : appointments) {
+            Patient patient = system.findPatientByNric(appointment.getNric());
+            if (patient != null) {
+                patient.addAppointment(appointment);
+            }
+        }
+    }
+
     /**
      * Saves prescriptions to file storage.
      * Writes each prescription in the list to the prescription file in a formatted string.
@@ -199,36 +1374,105 @@ public class Storage {
             throw new UnloadedStorageException("Storage not initialized with a directory!");
         }
 
+        if (writeBehind != null) {
+            List<Prescription> snapshot = new ArrayList<>(prescriptionList);
+            writeBehind.enqueue("prescriptions", () -> writePrescriptionFile(snapshot));
+            return;
+        }
+        int savedCount = writePrescriptionFile(prescriptionList);
+        System.out.println("Saved " + savedCount + " prescriptions to storage.");
+    }
+
+    private static int writePrescriptionFile(List<Prescription> prescriptionList) throws UnloadedStorageException {
         File dir = new File(directoryPath);
         if (!dir.exists()) {
             dir.mkdirs();
         }
 
-        // Create a backup of the existing file if it exists
-        File file = new File(prescriptionFilePath);
-        if (file.exists()) {
-            File backupFile = new File(prescriptionFilePath + ".bak");
-            file.renameTo(backupFile);
+        // The existing file stays in place until the new one has been written in full
+        AtomicInteger savedCount = new AtomicInteger();
+        try {
+            writePrescriptionData(fileWriter, prescriptionList, savedCount);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to save prescriptions: " + e.getMessage());
+        }
+        return savedCount.get();
+    }
+
+    /**
+     * Replaces the prescription data file, or every prescription shard, in the current storage format.
+     *
+     * @param writer           The writer used to replace the file
+     * @param prescriptionList The prescriptions to write
+     * @param savedCount       Incremented for every prescription written
+     * @return The size of the new files in bytes
+     * @throws IOException If the file could not be written
+     */
+    static long writePrescriptionData(DurableFileWriter writer, List<Prescription> prescriptionList,
+                                      AtomicInteger savedCount) throws IOException {
+        if (shards != null) {
+            return writeShards(writer, ShardManifest.PRESCRIPTIONS, prescriptionList, Prescription::getPatientId,
+                (records, textPath, binaryPath) -> writePrescriptionData(writer, records, savedCount, textPath,
+                        binaryPath));
         }
+        return writePrescriptionData(writer, prescriptionList, savedCount, prescriptionFilePath,
+                prescriptionBinaryPath);
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(prescriptionFilePath))) {
-            int savedCount = 0;
+    private static long writePrescriptionData(DurableFileWriter writer, List<Prescription> prescriptionList,
+                                              AtomicInteger savedCount, String textPath, String binaryPath)
+            throws IOException {
+        if (format == StorageFormat.BINARY) {
+            List<Prescription> nonNull = new ArrayList<>(prescriptionList.size());
+            for (Prescription prescription : prescriptionList) {
+                if (prescription != null) {
+                    nonNull.add(prescription);
+                }
+            }
+            long size = writer.writeBinary(binaryPath,
+                    out -> BinaryFormat.writePrescriptions(out, nonNull));
+            savedCount.addAndGet(nonNull.size());
+            return size;
+        }
+        return writer.write(textPath, out -> {
             for (Prescription prescription : prescriptionList) {
                 if (prescription != null) {
                     try {
-                        String fileFormat = prescription.toFileFormat();
-                        writer.write(fileFormat);
-                        writer.newLine();
-                        savedCount++;
-                    } catch (Exception e) {
+                        RecordChecksum.writeSealed(out, prescription.toFileFormat());
+                        savedCount.incrementAndGet();
+                    } catch (RuntimeException e) {
                         System.out.println("Warning: Unable to save prescription: " + e.getMessage());
                     }
                 }
             }
-            System.out.println("Saved " + savedCount + " prescriptions to storage.");
-        } catch (IOException e) {
-            throw new UnloadedStorageException("Unable to save prescriptions: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Gets the combined size of the data files in the current storage format.
+     *
+     * @return The total size in bytes of the data files that exist
+     */
+    static long getDataFileBytes() {
+        return dataFileBytes(ShardManifest.PATIENTS, patientFilePath, patientBinaryPath)
+                + dataFileBytes(ShardManifest.APPOINTMENTS, appointmentFilePath, appointmentBinaryPath)
+                + dataFileBytes(ShardManifest.PRESCRIPTIONS, prescriptionFilePath, prescriptionBinaryPath);
+    }
+
+    private static long dataFileBytes(String kind, String textPath, String binaryPath) {
+        boolean isBinary = format == StorageFormat.BINARY;
+        if (shards == null || !shards.isSharded(kind)) {
+            return new File(isBinary ? binaryPath : textPath).length();
         }
+        long size = 0;
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            size += new File(isBinary ? shards.binaryPath(kind, shard) : shards.textPath(kind, shard)).length();
+        }
+        return size;
+    }
+
+    private static DataInputStream openBinary(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
     }
 
     /**
@@ -240,38 +1484,59 @@ public class Storage {
      *                                  or if the data could not be properly parsed
      */
     public static List<Prescription> loadPrescriptions() throws UnloadedStorageException {
+        closePrescriptionIndex();
+        if (shards == null || !shards.isSharded(ShardManifest.PRESCRIPTIONS)) {
+            return loadPrescriptionFile(prescriptionFilePath, prescriptionBinaryPath);
+        }
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            prescriptions.addAll(loadPrescriptionFile(shards.textPath(ShardManifest.PRESCRIPTIONS, shard),
+                    shards.binaryPath(ShardManifest.PRESCRIPTIONS, shard)));
+        }
+        return prescriptions;
+    }
+
+    private static List<Prescription> loadPrescriptionFile(String textPath, String binaryPath)
+            throws UnloadedStorageException {
+        File binaryFile = new File(binaryPath);
+        if (format == StorageFormat.BINARY && binaryFile.exists()) {
+            try (DataInputStream in = openBinary(binaryFile)) {
+                return BinaryFormat.readPrescriptions(in);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to load prescription data: " + e.getMessage());
+            }
+        }
+
         List<Prescription> prescriptions = new ArrayList<>();
-        File file = new File(prescriptionFilePath);
+        File file = new File(textPath);
 
         if (!file.exists()) {
             return prescriptions;
         }
 
-        try (Scanner scanner = new Scanner(file)) {
-            int lineNumber = 0;
-            while (scanner.hasNextLine()) {
-                lineNumber++;
-                String line = scanner.nextLine();
-                if (!line.trim().isEmpty()) {
-                    try {
-                        Prescription prescription = Prescription.fromFileFormat(line);
-                        if (prescription != null) {
-                            prescriptions.add(prescription);
-                        } else {
-                            System.out.println("Warning: Skipped invalid prescription at line " + lineNumber);
-                        }
-                    } catch (Exception e) {
-                        // Log the error but continue processing other prescriptions
-                        System.out.println("Warning: Error parsing prescription at line " + lineNumber +
-                                ": " + e.getMessage());
-                    }
-                }
+        if (isLazyPrescriptions) {
+            PrescriptionIndex index;
+            try {
+                index = PrescriptionIndex.open(file);
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to load prescription data: " + e.getMessage());
             }
+            prescriptionIndexes.add(index);
+            prescriptions.addAll(index.getPrescriptions());
+            quarantineFailures(file, index.getFailures());
+            return prescriptions;
+        }
+
+        try {
+            boolean isSealedFile = RecordChecksum.isSealedFile(file);
+            ChunkedFileLoader.Result<Prescription> result = LOADER.load(file, prescriptionParser(isSealedFile));
+            prescriptions.addAll(result.getRecords());
+            quarantineFailures(file, result.getFailures());
 
             // If no prescriptions were loaded but file exists and has content, this is suspicious
-            if (prescriptions.isEmpty() && lineNumber > 0) {
+            if (prescriptions.isEmpty() && result.getLineCount() > 0) {
                 System.out.println("Warning: No valid prescriptions were loaded from file with " +
-                        lineNumber + " lines");
+                        result.getLineCount() + " lines");
             }
         } catch (Exception e) {
             throw new UnloadedStorageException("Unable to load prescription data: " + e.getMessage());
@@ -280,9 +1545,155 @@ public class Storage {
         return prescriptions;
     }
 
+    private static ChunkedFileLoader.LineParser<Patient> patientParser(boolean isSealRequired) {
+        return line -> Parser.parseLoadPatient(RecordChecksum.unseal(line, isSealRequired));
+    }
+
+    private static ChunkedFileLoader.LineParser<Appointment> appointmentParser(boolean isSealRequired) {
+        return line -> Parser.parseLoadAppointment(RecordChecksum.unseal(line, isSealRequired));
+    }
+
+    private static ChunkedFileLoader.LineParser<Prescription> prescriptionParser(boolean isSealRequired) {
+        return line -> Prescription.fromFileFormat(RecordChecksum.unseal(line, isSealRequired));
+    }
+
+    /**
+     * Leaves out the appointment ID counter at the top of the appointment file, which parses to no record.
+     */
+    private static List<ChunkedFileLoader.Failure> withoutCounterLine(List<ChunkedFileLoader.Failure> failures) {
+        List<ChunkedFileLoader.Failure> records = new ArrayList<>(failures.size());
+        for (ChunkedFileLoader.Failure failure : failures) {
+            if (!failure.getLine().startsWith("countId:")) {
+                records.add(failure);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Copies the lines of a data file that could not be read into the quarantine file,
+     * so they are kept when the data file is next rewritten without them.
+     */
+    private static void quarantineFailures(File file, List<ChunkedFileLoader.Failure> failures)
+            throws UnloadedStorageException {
+        if (failures.isEmpty()) {
+            return;
+        }
+        if (isReadOnly) {
+            System.out.println("Warning: Skipped " + failures.size() + " unreadable records in " + file.getName());
+            return;
+        }
+        try {
+            quarantine.addAll(file, failures);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to quarantine unreadable records from " + file.getName()
+                    + ": " + e.getMessage());
+        }
+        System.out.println("Warning: Skipped " + failures.size() + " unreadable records in " + file.getName()
+                + "; they were copied to " + quarantine.getFile().getName());
+    }
+
+    /**
+     * Checks every record in the text data files against its checksum and parses it, as when loading,
+     * and copies the records that fail into the quarantine file. Each file is checked in parallel chunks.
+     * Data files are replaced atomically when saved, so they can be checked while commands keep running.
+     * The journal is not checked here; its records are checked when it is replayed.
+     *
+     * @return A report of the records checked
+     * @throws UnloadedStorageException If the storage was not properly initialized, a data file could not be read
+     *                                  or the quarantine file could not be written
+     */
+    public static VerificationReport verifyRecords() throws UnloadedStorageException {
+        if (directoryPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
+
+        VerificationReport report = new VerificationReport();
+        if (format == StorageFormat.TEXT) {
+            try {
+                for (File file : textFiles(ShardManifest.PATIENTS, patientFilePath)) {
+                    verifyFile(file, Storage::patientParser, report);
+                }
+                for (File file : textFiles(ShardManifest.APPOINTMENTS, appointmentFilePath)) {
+                    verifyFile(file, Storage::appointmentParser, report);
+                }
+                for (File file : textFiles(ShardManifest.PRESCRIPTIONS, prescriptionFilePath)) {
+                    verifyFile(file, Storage::prescriptionParser, report);
+                }
+            } catch (IOException e) {
+                throw new UnloadedStorageException("Unable to verify stored records: " + e.getMessage());
+            }
+        }
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Describes the data files as they are now, so that a reader can tell when a writer has replaced any of them.
+     * Data files are only ever replaced whole, which changes their size or modification time.
+     *
+     * @return The path, size and modification time of every data file
+     */
+    static String describeDataFiles() {
+        StringBuilder description = new StringBuilder();
+        List<File> files = new ArrayList<>();
+        files.addAll(textFiles(ShardManifest.PATIENTS, patientFilePath));
+        files.addAll(textFiles(ShardManifest.APPOINTMENTS, appointmentFilePath));
+        files.addAll(textFiles(ShardManifest.PRESCRIPTIONS, prescriptionFilePath));
+        files.add(new File(patientBinaryPath));
+        files.add(new File(appointmentBinaryPath));
+        files.add(new File(prescriptionBinaryPath));
+        if (shards != null) {
+            for (int shard = 0; shard < shards.getShardCount(); shard++) {
+                files.add(new File(shards.binaryPath(ShardManifest.PATIENTS, shard)));
+                files.add(new File(shards.binaryPath(ShardManifest.APPOINTMENTS, shard)));
+                files.add(new File(shards.binaryPath(ShardManifest.PRESCRIPTIONS, shard)));
+            }
+        }
+        for (File file : files) {
+            description.append(file.getPath()).append(':').append(file.length()).append(':')
+                    .append(file.lastModified()).append('\n');
+        }
+        return description.toString();
+    }
+
+    private static List<File> textFiles(String kind, String textPath) {
+        List<File> files = new ArrayList<>();
+        if (shards == null || !shards.isSharded(kind)) {
+            files.add(new File(textPath));
+            return files;
+        }
+        for (int shard = 0; shard < shards.getShardCount(); shard++) {
+            files.add(new File(shards.textPath(kind, shard)));
+        }
+        return files;
+    }
+
+    private static <T> void verifyFile(File file, Function<Boolean, ChunkedFileLoader.LineParser<T>> parserFor,
+                                       VerificationReport report) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        // In a sealed file a record without a checksum is damaged, so only files from before checksums count any
+        boolean isSealedFile = RecordChecksum.isSealedFile(file);
+        ChunkedFileLoader.LineParser<T> parser = parserFor.apply(isSealedFile);
+        AtomicInteger unsealedCount = new AtomicInteger();
+        ChunkedFileLoader.Result<T> result = LOADER.load(file, line -> {
+            if (!isSealedFile && !line.startsWith("countId:") && !RecordChecksum.isSealed(line)) {
+                unsealedCount.incrementAndGet();
+            }
+            return parser.parse(line);
+        });
+        List<ChunkedFileLoader.Failure> failures = withoutCounterLine(result.getFailures());
+        int quarantinedCount = quarantine.addAll(file, failures);
+        report.addFile(result.getRecords().size() + failures.size(), unsealedCount.get(), failures.size(),
+                quarantinedCount);
+    }
+
     /**
      * Generates and saves an HTML representation of a prescription.
      * Creates a formatted HTML file that can be viewed in a browser and printed.
+     * The file is left as it is if it was already written from the same prescription and patient details.
      *
      * @param prescription The prescription to generate HTML for
      * @param patient      The patient associated with the prescription, may be null
@@ -295,19 +1706,45 @@ public class Storage {
             throw new UnloadedStorageException("Storage not initialized with a directory!");
         }
 
-        File dir = new File(prescriptionDirPath);
-        if (!dir.exists()) {
-            dir.mkdirs();
+        try {
+            new PrescriptionPrinter(new File(prescriptionDirPath), 1, prescriptionHtmlCache)
+                    .print(prescription, patient);
+        } catch (IOException e) {
+            throw new UnloadedStorageException("Unable to generate HTML prescription: " + e.getMessage());
         }
+    }
 
-        String fileName = "prescription_" + prescription.getPatientId() + "_"
-                + prescription.getPrescriptionId().split("-")[1] + ".html";
-        String filePath = prescriptionDirPath + File.separator + fileName;
+    /**
+     * Generates and saves the HTML representations of a batch of prescriptions.
+     * The files are rendered and written in parallel on a bounded number of threads.
+     * Files that are already current are left as they are.
+     *
+     * @param prescriptions The prescriptions to generate HTML for
+     * @param patients      The patients the prescriptions belong to, by NRIC
+     * @return The number of files written, not counting those that were already current
+     * @throws UnloadedStorageException If the storage was not properly initialized
+     *                                  or if there was an error writing an HTML file
+     */
+    public static int savePrescriptionHtml(List<Prescription> prescriptions, Map<String, Patient> patients)
+            throws UnloadedStorageException {
+        if (directoryPath == null || prescriptionDirPath == null) {
+            throw new UnloadedStorageException("Storage not initialized with a directory!");
+        }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write(prescription.generateHtml(patient));
+        try {
+            return new PrescriptionPrinter(new File(prescriptionDirPath), PrescriptionPrinter.DEFAULT_THREADS,
+                    prescriptionHtmlCache).printAll(prescriptions, patients);
         } catch (IOException e) {
-            throw new UnloadedStorageException("Unable to generate HTML prescription: " + e.getMessage());
+            throw new UnloadedStorageException("Unable to generate HTML prescriptions: " + e.getMessage());
         }
     }
+
+    /**
+     * Gets the record of prescription documents already written, with its hit and miss counts.
+     *
+     * @return The cache of prescription documents
+     */
+    public static PrescriptionHtmlCache getPrescriptionHtmlCache() {
+        return prescriptionHtmlCache;
+    }
 }
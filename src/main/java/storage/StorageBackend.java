@@ -0,0 +1,235 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persists the records of a management system.
+ * The management system reports every change through a backend instead of calling a particular
+ * storage engine, so the engine can be swapped, or left out entirely when measuring the business logic.
+ * Each change is reported along with the full list it belongs to, so a backend can choose between
+ * writing the single record and rewriting the whole list.
+ */
+public interface StorageBackend {
+
+    /**
+     * Loads the stored records into a new management system that reports its changes to this backend.
+     *
+     * @return The loaded management system
+     * @throws UnloadedStorageException If the stored records could not be loaded
+     */
+    ManagementSystem load() throws UnloadedStorageException;
+
+    /**
+     * Gets a one-line summary of the last call to {@link #load()}.
+     *
+     * @return The load report, or null if nothing has been loaded
+     */
+    String getLoadReport();
+
+    /**
+     * Looks up a stored patient that has not been loaded into memory.
+     * Backends that load every patient up front have nothing more to find.
+     *
+     * @param nric The NRIC of the patient, in any case
+     * @return The stored patient, or null if there is none that is not already loaded
+     * @throws UnloadedStorageException If the stored patients could not be read
+     */
+    default Patient findPatient(String nric) throws UnloadedStorageException {
+        return null;
+    }
+
+    /**
+     * Finds the prescriptions of a patient that were moved out of the loaded prescriptions into an archive.
+     *
+     * @param patientId The NRIC of the patient
+     * @return The archived prescriptions of the patient, or an empty list if there are none
+     * @throws UnloadedStorageException If the archive could not be read
+     */
+    default List<Prescription> findArchivedPrescriptions(String patientId) throws UnloadedStorageException {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Streams the stored patients that have not been loaded into memory.
+     * Backends that load every patient up front have none.
+     *
+     * @param loadedNrics The normalized NRICs of the patients already in memory, which are left out
+     * @param visitor     Receives each patient that is only in storage
+     * @throws IOException If the patients could not be read, or the visitor failed
+     */
+    default void forEachUnloadedPatient(Set<String> loadedNrics, RecordVisitor<Patient> visitor)
+            throws IOException {
+    }
+
+    /**
+     * Streams every prescription that was moved into an archive.
+     * Backends without an archive have none.
+     *
+     * @param visitor Receives each archived prescription
+     * @throws IOException If the archive could not be read, or the visitor failed
+     */
+    default void forEachArchivedPrescription(RecordVisitor<Prescription> visitor) throws IOException {
+    }
+
+    /**
+     * Records that a patient was added or updated.
+     *
+     * @param patient     The added or updated patient
+     * @param patientList The full list of patients
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    void recordPatientUpsert(Patient patient, List<Patient> patientList) throws UnloadedStorageException;
+
+    /**
+     * Records that a patient and their appointments were deleted.
+     *
+     * @param nric            The NRIC of the deleted patient
+     * @param patientList     The full list of patients
+     * @param appointmentList The full list of appointments
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    void recordPatientDelete(String nric, List<Patient> patientList, List<Appointment> appointmentList)
+            throws UnloadedStorageException;
+
+    /**
+     * Records that an appointment was added.
+     *
+     * @param appointment     The added appointment
+     * @param appointmentList The full list of appointments
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    void recordAppointmentAdd(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException;
+
+    /**
+     * Records that an appointment was deleted.
+     *
+     * @param appointment     The deleted appointment
+     * @param appointmentList The full list of appointments
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    void recordAppointmentDelete(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException;
+
+    /**
+     * Records that an appointment was marked or unmarked as done.
+     *
+     * @param appointment     The changed appointment
+     * @param appointmentList The full list of appointments
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    void recordAppointmentStatus(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException;
+
+    /**
+     * Records that a prescription was added.
+     *
+     * @param prescription     The added prescription
+     * @param prescriptionList The full list of prescriptions
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    void recordPrescriptionAdd(Prescription prescription, List<Prescription> prescriptionList)
+            throws UnloadedStorageException;
+
+    /**
+     * Records the patients, appointments and prescriptions added by a bulk import.
+     * Backends that can save many records at once should do so; by default each record is recorded on its own.
+     *
+     * @param addedPatients      The imported patients
+     * @param addedAppointments  The imported appointments
+     * @param addedPrescriptions The imported prescriptions
+     * @param system             The management system holding the full lists
+     * @throws UnloadedStorageException If there was an error saving to storage
+     */
+    default void recordImport(List<Patient> addedPatients, List<Appointment> addedAppointments,
+                              List<Prescription> addedPrescriptions, ManagementSystem system)
+            throws UnloadedStorageException {
+        for (Patient patient : addedPatients) {
+            recordPatientUpsert(patient, system.getPatients());
+        }
+        for (Appointment appointment : addedAppointments) {
+            recordAppointmentAdd(appointment, system.getAppointments());
+        }
+        for (Prescription prescription : addedPrescriptions) {
+            recordPrescriptionAdd(prescription, system.getPrescriptions());
+        }
+    }
+
+    /**
+     * Saves the printable HTML version of a prescription.
+     *
+     * @param prescription The prescription to save
+     * @param patient      The patient the prescription belongs to
+     * @throws UnloadedStorageException If the file could not be written
+     */
+    void savePrescriptionHtml(Prescription prescription, Patient patient) throws UnloadedStorageException;
+
+    /**
+     * Saves the printable HTML versions of a batch of prescriptions.
+     * Backends that can write files in parallel override this to do so.
+     *
+     * @param prescriptions The prescriptions to save
+     * @param patients      The patients the prescriptions belong to, by NRIC
+     * @return The number of files written, not counting those that were already current
+     * @throws UnloadedStorageException If a file could not be written
+     */
+    default int savePrescriptionHtml(List<Prescription> prescriptions, Map<String, Patient> patients)
+            throws UnloadedStorageException {
+        for (Prescription prescription : prescriptions) {
+            savePrescriptionHtml(prescription, patients.get(prescription.getPatientId()));
+        }
+        return prescriptions.size();
+    }
+
+    /**
+     * Writes out every change that is still buffered and waits for it to finish.
+     *
+     * @throws UnloadedStorageException If a buffered change could not be written
+     */
+    void flush() throws UnloadedStorageException;
+
+    /**
+     * Writes out buffered changes and releases the resources held by the backend.
+     *
+     * @throws UnloadedStorageException If buffered changes could not be written or resources not released
+     */
+    void close() throws UnloadedStorageException;
+
+    /**
+     * Brings the loaded records up to date with changes saved by another process.
+     * Backends that are the only writer of their records have nothing to do.
+     *
+     * @throws UnloadedStorageException If the changes could not be read
+     */
+    default void refresh() throws UnloadedStorageException {
+    }
+
+    /**
+     * Starts checking the stored records against their checksums in the background.
+     * The result is reported through {@link #pollReport()} once the check finishes.
+     *
+     * @return true if a check was started, false if one is already running or the backend keeps no checksums
+     */
+    default boolean startVerification() {
+        return false;
+    }
+
+    /**
+     * Takes a report of storage work that finished in the background since the last call, if any.
+     *
+     * @return A one-line report, or null if there is nothing new
+     */
+    default String pollReport() {
+        return null;
+    }
+}
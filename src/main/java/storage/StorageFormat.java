@@ -0,0 +1,29 @@
+package storage;
+
+/**
+ * On-disk encodings of the patient, appointment and prescription data files.
+ */
+public enum StorageFormat {
+    /** Pipe-delimited text, one record per line. */
+    TEXT,
+    /** The versioned binary encoding of {@link BinaryFormat}. */
+    BINARY;
+
+    /**
+     * Parses a format name, ignoring case.
+     *
+     * @param value    The format name, may be null
+     * @param fallback The format to use if the name is missing or not recognised
+     * @return The matching format, or the fallback
+     */
+    public static StorageFormat parse(String value, StorageFormat fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stores records in the text data files, rewriting a whole file whenever one of its records changes.
+ * The backend works through {@link Storage}, which holds a single storage directory for the whole
+ * application, so only one file-backed backend can be in use at a time. Loading opens the backend's
+ * directory, closing whichever was open before; a backend whose directory was closed that way can no
+ * longer save, and closing it leaves the other backend's directory open.
+ */
+public class TextStorageBackend implements StorageBackend {
+    private static final String CLOSED_MESSAGE =
+            "Storage was opened on another directory, so this backend can no longer save to its own.";
+
+    private final String directoryPath;
+    private final int patientCachePages;
+    private long session;
+    private int archiveAfterDays;
+    private boolean isLazyPrescriptions;
+    private String loadReport;
+    private String archiveReport;
+    private final AtomicBoolean isVerifying = new AtomicBoolean(false);
+    private final AtomicReference<String> verificationReport = new AtomicReference<>();
+
+    /**
+     * Constructs a backend on the storage session that is currently open, such as one started by
+     * constructing Storage, rather than opening a directory of its own.
+     */
+    public TextStorageBackend() {
+        this.directoryPath = null;
+        this.patientCachePages = 0;
+        this.session = Storage.getSession();
+    }
+
+    /**
+     * Constructs a backend that stores its files in a directory.
+     *
+     * @param directoryPath The directory where data files are stored
+     */
+    public TextStorageBackend(String directoryPath) {
+        this(directoryPath, 0);
+    }
+
+    /**
+     * Constructs a backend that stores its files in a directory, optionally paging patients in
+     * through an index of the patient file rather than loading them all.
+     *
+     * @param directoryPath     The directory where data files are stored
+     * @param patientCachePages The most pages of the patient index to keep in memory, or 0 to load all patients
+     */
+    public TextStorageBackend(String directoryPath, int patientCachePages) {
+        assert directoryPath != null : "Directory cannot be null";
+        assert patientCachePages >= 0 : "Cache size cannot be negative";
+        this.directoryPath = directoryPath;
+        this.patientCachePages = patientCachePages;
+    }
+
+    /**
+     * Locks the data directory for writing and loads the data files, first folding in any journal
+     * left by a journaled session, since this backend does not read the journal.
+     *
+     * @return The loaded management system
+     * @throws UnloadedStorageException If another process is writing to the directory or the data files
+     *                                  could not be loaded
+     */
+    @Override
+    public ManagementSystem load() throws UnloadedStorageException {
+        openSession();
+        Storage.lockForWriting();
+        Storage.foldJournal();
+        if (patientCachePages > 0) {
+            Storage.enablePatientIndex(patientCachePages);
+        }
+        if (isLazyPrescriptions) {
+            Storage.enableLazyPrescriptions();
+        }
+        ManagementSystem system = loadFiles();
+        archiveOldPrescriptions(system);
+        return system;
+    }
+
+    /**
+     * Opens this backend's directory, closing the directory storage had open before.
+     * A backend constructed without a directory keeps the session it was constructed on.
+     *
+     * @throws UnloadedStorageException If the previous directory could not be closed, or this backend's
+     *                                  session was already closed
+     */
+    protected void openSession() throws UnloadedStorageException {
+        if (directoryPath == null) {
+            checkSession();
+            return;
+        }
+        session = Storage.open(directoryPath);
+    }
+
+    private void checkSession() throws UnloadedStorageException {
+        if (session != Storage.getSession()) {
+            throw new UnloadedStorageException(CLOSED_MESSAGE);
+        }
+    }
+
+    /**
+     * Creates a follower of this backend's directory, for when another process is already writing to it.
+     *
+     * @return A follower that reads the directory in the format this backend saves in
+     */
+    public FollowerStorageBackend createFollower() {
+        assert directoryPath != null : "A backend without a directory cannot be followed";
+        return new FollowerStorageBackend(directoryPath, getFormat());
+    }
+
+    /**
+     * Gets the format this backend saves its data files in.
+     *
+     * @return The storage format
+     */
+    protected StorageFormat getFormat() {
+        return StorageFormat.TEXT;
+    }
+
+    /**
+     * Sets how old prescriptions must be for loading to move them into the prescription archive.
+     *
+     * @param days The age in days at which prescriptions are archived, or 0 to archive none
+     */
+    public void setArchiveAfterDays(int days) {
+        assert days >= 0 : "Archive age cannot be negative";
+        this.archiveAfterDays = days;
+    }
+
+    /**
+     * Sets loading to read prescription details from disk only when first needed.
+     */
+    public void enableLazyPrescriptions() {
+        this.isLazyPrescriptions = true;
+    }
+
+    /**
+     * Loads the data files into a new management system that reports its changes to this backend.
+     *
+     * @return The loaded management system
+     * @throws UnloadedStorageException If the data files could not be loaded
+     */
+    protected ManagementSystem loadFiles() throws UnloadedStorageException {
+        StartupLoader loader = new StartupLoader();
+        ManagementSystem system = loader.load(this);
+        loadReport = loader.getTimingReport();
+        return system;
+    }
+
+    /**
+     * Moves prescriptions past the archive age out of the prescription file, if an age is set.
+     *
+     * @param system The loaded management system
+     * @throws UnloadedStorageException If the prescriptions could not be archived
+     */
+    protected void archiveOldPrescriptions(ManagementSystem system) throws UnloadedStorageException {
+        if (archiveAfterDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(archiveAfterDays).atStartOfDay();
+        int count = Storage.archivePrescriptions(system, cutoff);
+        if (count > 0) {
+            archiveReport = "Archived " + count + " prescriptions issued before " + cutoff.toLocalDate() + ".";
+        }
+    }
+
+    @Override
+    public String getLoadReport() {
+        return loadReport;
+    }
+
+    @Override
+    public String pollReport() {
+        String report = archiveReport;
+        archiveReport = null;
+        return report != null ? report : verificationReport.getAndSet(null);
+    }
+
+    /**
+     * Starts checking the data files against their checksums on a daemon thread, so commands can keep running.
+     * Damaged records are copied into the quarantine file as they are found.
+     *
+     * @return true if a check was started, false if one is already running
+     */
+    @Override
+    public boolean startVerification() {
+        if (!isVerifying.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                verificationReport.set(Storage.verifyRecords().getSummary());
+            } catch (UnloadedStorageException e) {
+                verificationReport.set("Storage verification failed: " + e.getMessage());
+            } finally {
+                isVerifying.set(false);
+            }
+        }, "storage-verifier");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public List<Prescription> findArchivedPrescriptions(String patientId) throws UnloadedStorageException {
+        return Storage.findArchivedPrescriptions(patientId);
+    }
+
+    @Override
+    public Patient findPatient(String nric) throws UnloadedStorageException {
+        return Storage.findPatient(nric);
+    }
+
+    @Override
+    public void forEachUnloadedPatient(Set<String> loadedNrics, RecordVisitor<Patient> visitor)
+            throws IOException {
+        Storage.forEachPagedOutPatient(loadedNrics, visitor);
+    }
+
+    @Override
+    public void forEachArchivedPrescription(RecordVisitor<Prescription> visitor) throws IOException {
+        Storage.forEachArchivedPrescription(visitor);
+    }
+
+    @Override
+    public void recordPatientUpsert(Patient patient, List<Patient> patientList) throws UnloadedStorageException {
+        checkSession();
+        Storage.recordPatientUpsert(patient, patientList);
+    }
+
+    @Override
+    public void recordPatientDelete(String nric, List<Patient> patientList, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        checkSession();
+        Storage.recordPatientDelete(nric, patientList, appointmentList);
+    }
+
+    @Override
+    public void recordAppointmentAdd(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        checkSession();
+        Storage.recordAppointmentAdd(appointment, appointmentList);
+    }
+
+    @Override
+    public void recordAppointmentDelete(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        checkSession();
+        Storage.recordAppointmentDelete(appointment, appointmentList);
+    }
+
+    @Override
+    public void recordAppointmentStatus(Appointment appointment, List<Appointment> appointmentList)
+            throws UnloadedStorageException {
+        checkSession();
+        Storage.recordAppointmentStatus(appointment, appointmentList);
+    }
+
+    @Override
+    public void recordPrescriptionAdd(Prescription prescription, List<Prescription> prescriptionList)
+            throws UnloadedStorageException {
+        checkSession();
+        Storage.recordPrescriptionAdd(prescription, prescriptionList);
+    }
+
+    @Override
+    public void recordImport(List<Patient> addedPatients, List<Appointment> addedAppointments,
+                             List<Prescription> addedPrescriptions, ManagementSystem system)
+            throws UnloadedStorageException {
+        checkSession();
+        Storage.recordImport(addedPatients, addedAppointments, addedPrescriptions, system);
+    }
+
+    @Override
+    public void savePrescriptionHtml(Prescription prescription, Patient patient) throws UnloadedStorageException {
+        checkSession();
+        Storage.savePrescriptionHtml(prescription, patient);
+    }
+
+    @Override
+    public int savePrescriptionHtml(List<Prescription> prescriptions, Map<String, Patient> patients)
+            throws UnloadedStorageException {
+        checkSession();
+        return Storage.savePrescriptionHtml(prescriptions, patients);
+    }
+
+    @Override
+    public void flush() throws UnloadedStorageException {
+        checkSession();
+        Storage.flush();
+    }
+
+    @Override
+    public void close() throws UnloadedStorageException {
+        if (session != Storage.getSession()) {
+            // Opening the other directory already closed this one
+            return;
+        }
+        Storage.close();
+    }
+}
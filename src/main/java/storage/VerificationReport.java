@@ -0,0 +1,76 @@
+package storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of checking the stored records against their checksums: how many records were checked,
+ * how many were written before checksums were added, and how many were damaged and set aside.
+ */
+public class VerificationReport {
+    private final long start = System.nanoTime();
+    private long nanos;
+    private int fileCount;
+    private int recordCount;
+    private int unsealedCount;
+    private int corruptCount;
+    private int quarantinedCount;
+
+    void addFile(int records, int unsealed, int corrupt, int quarantined) {
+        fileCount++;
+        recordCount += records;
+        unsealedCount += unsealed;
+        corruptCount += corrupt;
+        quarantinedCount += quarantined;
+    }
+
+    void finish() {
+        nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * @return the number of records checked
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the number of records without a checksum, which are parsed but cannot be checked
+     */
+    public int getUnsealedCount() {
+        return unsealedCount;
+    }
+
+    /**
+     * @return the number of records that failed their checksum or could not be parsed
+     */
+    public int getCorruptCount() {
+        return corruptCount;
+    }
+
+    /**
+     * @return the number of damaged records newly copied into the quarantine file
+     */
+    public int getQuarantinedCount() {
+        return quarantinedCount;
+    }
+
+    /**
+     * Summarises the check in one line.
+     *
+     * @return The number of files and records checked, the problems found and the time taken
+     */
+    public String getSummary() {
+        String summary = "Verified " + recordCount + " records in " + fileCount + " data files in "
+                + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms: ";
+        if (corruptCount == 0) {
+            summary += "no damaged records";
+        } else {
+            summary += corruptCount + " damaged records (" + quarantinedCount + " newly quarantined)";
+        }
+        if (unsealedCount > 0) {
+            summary += ", " + unsealedCount + " records without a checksum";
+        }
+        return summary + ".";
+    }
+}
@@ -0,0 +1,211 @@
+package storage;
+
+import exception.UnloadedStorageException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defers storage writes to a background thread and coalesces them into group commits.
+ * Each dirty collection is queued under a key; queuing the same key again before the flush
+ * replaces the earlier write, so a burst of mutations costs a single write per collection.
+ * The flush waits for a short quiet window after the latest mutation, but never lets a queued
+ * write wait longer than the configured maximum staleness. A write that fails is kept and retried in the
+ * background after a delay that doubles with each failure, up to a limit. The failure is reported to the next
+ * caller unless a retry writes everything first.
+ */
+public class WriteBehindQueue {
+    public static final long DEFAULT_WINDOW_MILLIS = 50;
+    public static final long DEFAULT_MAX_STALENESS_MILLIS = 1000;
+    public static final long MIN_RETRY_MILLIS = 100;
+    public static final long MAX_RETRY_MILLIS = 30000;
+
+    /**
+     * A deferred write of one collection.
+     */
+    public interface PendingWrite {
+        void write() throws UnloadedStorageException;
+    }
+
+    private final long windowMillis;
+    private final long maxStalenessMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private ScheduledFuture<?> scheduledRetry;
+    private long retryDelayMillis;
+    private long firstDirtyNanos;
+    private String lastError;
+    private long flushCount;
+    private long coalescedCount;
+
+    /**
+     * Constructs a WriteBehindQueue with the given group commit window and staleness bound.
+     *
+     * @param windowMillis       Quiet period after the latest mutation before flushing
+     * @param maxStalenessMillis Longest time a queued write may wait before it is flushed
+     */
+    public WriteBehindQueue(long windowMillis, long maxStalenessMillis) {
+        assert windowMillis >= 0 : "Group commit window cannot be negative";
+        assert maxStalenessMillis >= windowMillis : "Maximum staleness cannot be shorter than the window";
+        this.windowMillis = windowMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a write, replacing any write still queued under the same key.
+     * A failure from an earlier background flush is reported here instead, without queuing the write,
+     * since it could not be thrown to the command that caused it.
+     *
+     * @param key   The collection being written
+     * @param write The write to perform
+     * @throws UnloadedStorageException If an earlier background flush failed, in which case nothing is queued
+     */
+    public synchronized void enqueue(String key, PendingWrite write) throws UnloadedStorageException {
+        assert key != null && write != null : "Key and write cannot be null";
+        throwPendingError();
+
+        long now = System.nanoTime();
+        if (pending.isEmpty()) {
+            firstDirtyNanos = now;
+        }
+        // Re-inserting moves the key to the end, so writes are flushed in the order they were last queued
+        if (pending.remove(key) != null) {
+            coalescedCount++;
+        }
+        pending.put(key, write);
+
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(now - firstDirtyNanos);
+        long delayMillis = Math.max(0, Math.min(windowMillis, maxStalenessMillis - waitedMillis));
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = scheduler.schedule(this::drain, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reports a failure from an earlier background flush, so that a caller can refuse a write before making it.
+     * The failure is reported once; the failed write stays queued and is retried.
+     *
+     * @throws UnloadedStorageException If an earlier background flush failed
+     */
+    public synchronized void throwPendingError() throws UnloadedStorageException {
+        if (lastError != null) {
+            String message = lastError;
+            lastError = null;
+            throw new UnloadedStorageException("Background save failed: " + message);
+        }
+    }
+
+    /**
+     * Writes everything that is queued on the calling thread and waits for it to finish.
+     *
+     * @throws UnloadedStorageException If a queued write fails, or an earlier background flush failed
+     */
+    public void flush() throws UnloadedStorageException {
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+        drain();
+        throwPendingError();
+    }
+
+    /**
+     * Flushes what is queued and stops the background thread.
+     *
+     * @throws UnloadedStorageException If the final flush fails
+     */
+    public void shutdown() throws UnloadedStorageException {
+        try {
+            flush();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the number of group commits performed.
+     *
+     * @return The number of flushes that wrote at least one collection
+     */
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Gets the number of writes that were absorbed into a later write of the same collection.
+     *
+     * @return The number of coalesced writes
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    private void drain() {
+        synchronized (flushLock) {
+            Map<String, PendingWrite> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                flushCount++;
+            }
+
+            boolean isFailed = false;
+            for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+                try {
+                    entry.getValue().write();
+                } catch (UnloadedStorageException | RuntimeException e) {
+                    isFailed = true;
+                    synchronized (this) {
+                        // Keep the failed write for the next flush unless a newer one has replaced it
+                        pending.putIfAbsent(entry.getKey(), entry.getValue());
+                        lastError = e.getMessage();
+                    }
+                }
+            }
+
+            synchronized (this) {
+                if (isFailed) {
+                    scheduleRetry();
+                } else {
+                    // Every failed write has now been written, so there is nothing left to report
+                    retryDelayMillis = 0;
+                    lastError = null;
+                }
+            }
+        }
+    }
+
+    private void scheduleRetry() {
+        if (scheduler.isShutdown() || (scheduledRetry != null && !scheduledRetry.isDone())) {
+            return;
+        }
+        retryDelayMillis = retryDelayMillis == 0
+                ? MIN_RETRY_MILLIS
+                : Math.min(retryDelayMillis * 2, MAX_RETRY_MILLIS);
+        scheduledRetry = scheduler.schedule(this::retry, retryDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void retry() {
+        synchronized (this) {
+            scheduledRetry = null;
+        }
+        drain();
+    }
+}
@@ -0,0 +1,65 @@
+package storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * Exclusive lock on a data directory, held by the one process allowed to write to it.
+ * The lock is taken on a marker file in the directory with {@link FileChannel#tryLock()}, so the operating
+ * system releases it if the process ends without releasing it. Only writers take the lock; readers can
+ * open the data files at any time, since they are always replaced whole.
+ */
+public class WriterLock {
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private WriterLock(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Takes the lock on a marker file without waiting, creating the file if needed.
+     *
+     * @param file The marker file
+     * @return The lock, or null if another process, or another writer in this one, holds it
+     * @throws IOException If the marker file could not be opened
+     */
+    public static WriterLock tryAcquire(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            return null;
+        }
+        return new WriterLock(channel, lock);
+    }
+
+    /**
+     * Releases the lock so another writer can take it.
+     *
+     * @throws IOException If the marker file could not be closed
+     */
+    public void release() throws IOException {
+        try {
+            if (lock.isValid()) {
+                lock.release();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
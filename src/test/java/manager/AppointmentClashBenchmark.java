@@ -0,0 +1,92 @@
+package manager;
+
+import exception.AppointmentClashException;
+import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
+import storage.InMemoryStorageBackend;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares checking a new appointment for clashes through the management system's time index with
+ * comparing it against every appointment, as adding an appointment did before the index was added.
+ * Most appointments are in the past, as in a clinic that has kept years of records.
+ * Run with {@code gradlew benchmark -Pbenchmark=manager.AppointmentClashBenchmark}.
+ */
+public class AppointmentClashBenchmark {
+    private static final int APPOINTMENT_COUNT = 1_000_000;
+    private static final int ADD_COUNT = 2_000;
+    private static final int ROUNDS = 5;
+    private static final String NRIC = "S1234567A";
+    private static final LocalDateTime FIRST = LocalDateTime.of(2000, 1, 1, 9, 0);
+
+    public static void main(String[] args) throws UnloadedStorageException, PatientNotFoundException,
+            AppointmentClashException {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(new Patient(NRIC, "Patient", LocalDate.of(1990, 1, 1), "F", "1 Main St", "81234567",
+                new ArrayList<>()));
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < APPOINTMENT_COUNT; i++) {
+            appointments.add(new Appointment("A" + i, NRIC, FIRST.plusHours(2L * i), "Checkup"));
+        }
+        ManagementSystem system = new ManagementSystem(patients, appointments, new ArrayList<>(),
+                new InMemoryStorageBackend());
+        LocalDateTime[] times = new LocalDateTime[ADD_COUNT];
+        for (int i = 0; i < ADD_COUNT; i++) {
+            times[i] = FIRST.plusHours(2L * APPOINTMENT_COUNT + 2L * i);
+        }
+
+        System.out.println("Checking " + ADD_COUNT + " new appointments for clashes among "
+                + APPOINTMENT_COUNT + " appointments");
+        for (int round = 1; round <= ROUNDS; round++) {
+            long scanNanos = time(() -> {
+                for (int i = 0; i < ADD_COUNT / 100; i++) {
+                    check(scan(appointments, times[i]));
+                }
+            }) * 100;
+            long indexNanos = time(() -> {
+                for (LocalDateTime dateTime : times) {
+                    check(system.findClashingAppointment(dateTime));
+                }
+            });
+            System.out.printf("round %d: scan %,d ns/check, findClashingAppointment %,d ns/check (%.0fx faster)%n",
+                    round, scanNanos / ADD_COUNT, indexNanos / ADD_COUNT, (double) scanNanos / indexNanos);
+        }
+
+        long start = System.nanoTime();
+        for (LocalDateTime dateTime : times) {
+            system.addAppointment(new Appointment(NRIC, dateTime, "Checkup"));
+        }
+        long addNanos = System.nanoTime() - start;
+        System.out.printf("addAppointment with clash check: %,d ns/appointment at %d appointments%n",
+                addNanos / ADD_COUNT, system.getAppointments().size());
+    }
+
+    /**
+     * Finds a clashing appointment the way addAppointment did before the index, for comparison.
+     */
+    private static Appointment scan(List<Appointment> appointments, LocalDateTime dateTime) {
+        for (Appointment appointment : appointments) {
+            if (Math.abs(Duration.between(appointment.getDateTime(), dateTime).toMinutes()) < 60) {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return Math.max(1, System.nanoTime() - start);
+    }
+
+    private static void check(Appointment clash) {
+        if (clash != null) {
+            throw new IllegalStateException("No new appointment clashes with another");
+        }
+    }
+}
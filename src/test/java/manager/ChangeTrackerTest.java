@@ -0,0 +1,89 @@
+package manager;
+
+import exception.InvalidInputFormatException;
+import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
+import org.junit.jupiter.api.Test;
+import storage.InMemoryStorageBackend;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeTrackerTest {
+
+    @Test
+    void isDirty_unchangedState_writeAvoided() {
+        ChangeTracker tracker = new ChangeTracker();
+        Object entity = new Object();
+        tracker.markClean(entity, "a|b");
+        assertFalse(tracker.isDirty(entity, "a|b"));
+        tracker.markClean(entity, "a|b");
+        assertTrue(tracker.isDirty(entity, "a|c"));
+        assertTrue(tracker.isDirty(entity, "a|c"));
+
+        assertEquals(1, tracker.getAvoidedWriteCount());
+        assertEquals(2, tracker.getWriteCount());
+    }
+
+    @Test
+    void markAppointment_alreadyMarked_secondSaveSkipped() throws UnloadedStorageException {
+        Patient patient = new Patient("S1234567A", "John Doe", LocalDate.of(1990, 1, 1), "M", "1 Main St",
+                "81234567", new ArrayList<>());
+        List<Appointment> appointments = new ArrayList<>();
+        appointments.add(new Appointment("A101", "S1234567A", LocalDateTime.of(2026, 5, 1, 10, 0), "Checkup"));
+        List<Patient> patients = new ArrayList<>();
+        patients.add(patient);
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ManagementSystem system = new ManagementSystem(patients, appointments, new ArrayList<>(), backend);
+
+        assertNotNull(system.markAppointment("A101"));
+        assertNotNull(system.markAppointment("A101"));
+        system.editPatientHistory("S1234567A", "Not recorded", "Asthma");
+
+        assertEquals(1, backend.getRecordCount());
+        assertEquals(2, system.getChangeTracker().getAvoidedWriteCount());
+    }
+
+    @Test
+    void editPatient_invalidDob_patientLeftUnchangedAndNextEditSaved() throws UnloadedStorageException,
+            PatientNotFoundException, InvalidInputFormatException {
+        Patient patient = new Patient("S1234567A", "John Doe", LocalDate.of(1990, 1, 1), "M", "1 Main St",
+                "81234567", new ArrayList<>());
+        List<Patient> patients = new ArrayList<>();
+        patients.add(patient);
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ManagementSystem system = new ManagementSystem(patients, new ArrayList<>(), new ArrayList<>(), backend);
+
+        assertThrows(InvalidInputFormatException.class,
+                () -> system.editPatient("S1234567A", "Jane Doe", "1990/01/01", null, null, null));
+        assertThrows(InvalidInputFormatException.class,
+                () -> system.editPatient("S1234567A", "Jane Doe", "2999-01-01", null, null, null));
+        assertEquals("John Doe", patient.getName());
+        assertEquals(0, backend.getRecordCount());
+
+        system.editPatient("S1234567A", "Jane Doe", null, null, null, null);
+        assertEquals("Jane Doe", patient.getName());
+        assertEquals(1, backend.getRecordCount());
+        assertEquals(1, system.getChangeTracker().getWriteCount());
+    }
+
+    @Test
+    void deleteAppointment_patientMissing_deletionStillSaved() throws UnloadedStorageException {
+        List<Appointment> appointments = new ArrayList<>();
+        appointments.add(new Appointment("A101", "S1234567A", LocalDateTime.of(2026, 5, 1, 10, 0), "Checkup"));
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), appointments, new ArrayList<>(), backend);
+
+        assertNotNull(system.deleteAppointment("A101"));
+        assertEquals(1, backend.getRecordCount());
+        assertTrue(system.getAppointments().isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ListIndexTest {
+
+    @Test
+    void get_idWrittenDifferently_foundThroughNormalizer() {
+        ListIndex<String> index = new ListIndex<>(new ArrayList<>(List.of("A100", "A101")), id -> id,
+                id -> id.trim().toUpperCase());
+
+        assertEquals("A101", index.get(" a101 "));
+        assertNull(index.get("A102"));
+    }
+
+    @Test
+    void removeAll_duplicateId_hiddenRecordFound() {
+        // StringBuilder compares by identity, so two records can share an ID and still be told apart
+        StringBuilder first = new StringBuilder("A100");
+        StringBuilder second = new StringBuilder("A100");
+        ListIndex<StringBuilder> index = new ListIndex<>(new ArrayList<>(List.of(first, second)),
+                StringBuilder::toString, id -> id);
+        assertSame(first, index.get("A100"));
+
+        assertTrue(index.removeAll(List.of(first)));
+        assertSame(second, index.get("A100"));
+    }
+
+    @Test
+    void addAndRemoveAll_throughIndex_listKeptInStep() {
+        List<String> records = new ArrayList<>(List.of("A100"));
+        ListIndex<String> index = new ListIndex<>(records, id -> id, id -> id);
+        index.add("A101");
+        assertEquals("A101", index.get("A101"));
+
+        assertTrue(index.removeAll(List.of("A100")));
+        assertFalse(index.removeAll(List.of("A100")));
+        assertNull(index.get("A100"));
+        assertEquals(List.of("A101"), records);
+    }
+
+    @Test
+    void rebuild_listChangedDirectly_changeSeen() {
+        List<String> records = new ArrayList<>(List.of("A100"));
+        ListIndex<String> index = new ListIndex<>(records, id -> id, id -> id);
+        assertEquals("A100", index.get("A100"));
+
+        // Same size, so only an explicit rebuild can tell the index
+        records.set(0, "A101");
+        index.rebuild();
+        assertNull(index.get("A100"));
+        assertEquals("A101", index.get("A101"));
+    }
+}
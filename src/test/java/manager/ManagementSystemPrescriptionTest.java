@@ -1,11 +1,14 @@
 package manager;
 
+import exception.UnloadedStorageException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
+import storage.InMemoryStorageBackend;
 import storage.Storage;
 
 import java.io.File;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,6 +16,39 @@ import java.util.List;
 //@@author Basudeb2005
 public class ManagementSystemPrescriptionTest {
 
+    /**
+     * Keeps records in memory, but fails to save every added prescription.
+     */
+    private static class PrescriptionRefusingBackend extends InMemoryStorageBackend {
+        @Override
+        public void recordPrescriptionAdd(Prescription prescription, List<Prescription> prescriptionList)
+                throws UnloadedStorageException {
+            throw new UnloadedStorageException("disk full");
+        }
+    }
+
+    /**
+     * Keeps records in memory, with a fixed set of archived prescriptions.
+     */
+    private static class ArchivingBackend extends InMemoryStorageBackend {
+        private final List<Prescription> archived;
+
+        ArchivingBackend(List<Prescription> archived) {
+            this.archived = archived;
+        }
+
+        @Override
+        public List<Prescription> findArchivedPrescriptions(String patientId) {
+            List<Prescription> matches = new ArrayList<>();
+            for (Prescription prescription : archived) {
+                if (prescription.getPatientId().equals(patientId)) {
+                    matches.add(prescription);
+                }
+            }
+            return matches;
+        }
+    }
+
     private ManagementSystem system;
     private Patient testPatient;
 
@@ -107,7 +143,7 @@ public class ManagementSystemPrescriptionTest {
     }
 
     @Test
-    public void getPrescriptionsForPatient_noExistingPrescriptions_returnsEmptyList() {
+    public void getPrescriptionsForPatient_noExistingPrescriptions_returnsEmptyList() throws UnloadedStorageException {
         // Get prescriptions for patient with no prescriptions
         List<Prescription> results = system.getPrescriptionsForPatient(testPatient.getId());
 
@@ -116,7 +152,7 @@ public class ManagementSystemPrescriptionTest {
     }
 
     @Test
-    public void getPrescriptionsForPatient_nonExistentPatient_returnsEmptyList() {
+    public void getPrescriptionsForPatient_nonExistentPatient_returnsEmptyList() throws UnloadedStorageException {
         // Get prescriptions for non-existent patient ID
         List<Prescription> results = system.getPrescriptionsForPatient("NONEXISTENT");
 
@@ -149,14 +185,136 @@ public class ManagementSystemPrescriptionTest {
     }
 
     @Test
-    public void getPrescriptionById_nonExistentPrescription_returnsNull() {
+    public void getPrescriptionById_nonExistentPrescription_returnsNull() throws UnloadedStorageException {
         // Get prescription with non-existent ID
         Prescription result = system.getPrescriptionById("NON-EXISTENT-ID");
 
         // Verify null is returned
         Assertions.assertNull(result);
     }
-} 
 
+    @Test
+    public void addPrescription_loadedPrescriptionsWithGap_numberedAfterHighestAndListedPerPatient()
+            throws Exception {
+        LocalDateTime issued = LocalDateTime.of(2025, 1, 1, 9, 0);
+        List<Prescription> prescriptions = new ArrayList<>();
+        prescriptions.add(new Prescription("S1234567A", "S1234567A-1", issued, List.of("Fever"),
+                List.of("Paracetamol"), ""));
+        prescriptions.add(new Prescription("S7654321B", "S7654321B-1", issued, List.of("Cough"),
+                List.of("Cough syrup"), ""));
+        prescriptions.add(new Prescription("S1234567A", "S1234567A-3", issued, List.of("Rash"),
+                List.of("Cream"), ""));
+        List<Patient> patients = new ArrayList<>(List.of(testPatient));
+        ManagementSystem loaded = new ManagementSystem(patients, new ArrayList<>(), prescriptions,
+                new InMemoryStorageBackend());
+
+        Prescription added = loaded.addPrescription(new Prescription("S1234567A", List.of("Flu"),
+                List.of("Rest"), ""));
+
+        Assertions.assertEquals("S1234567A-4", added.getPrescriptionId());
+        List<Prescription> results = loaded.getPrescriptionsForPatient("S1234567A");
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(added, results.get(2));
+        Assertions.assertEquals(1, loaded.getPrescriptionsForPatient("S7654321B").size());
+    }
+
+    @Test
+    public void addPrescription_saveFails_rolledBackFromIdIndex() throws Exception {
+        LocalDateTime issued = LocalDateTime.of(2025, 1, 1, 9, 0);
+        List<Prescription> prescriptions = new ArrayList<>();
+        prescriptions.add(new Prescription("S1234567A", "S1234567A-1", issued, List.of("Fever"),
+                List.of("Paracetamol"), ""));
+        ManagementSystem refusing = new ManagementSystem(new ArrayList<>(List.of(testPatient)), new ArrayList<>(),
+                prescriptions, new PrescriptionRefusingBackend());
+        Assertions.assertNotNull(refusing.getPrescriptionById("S1234567A-1"));
+
+        Assertions.assertThrows(UnloadedStorageException.class, () -> refusing.addPrescription(
+                new Prescription("S1234567A", List.of("Flu"), List.of("Rest"), "")));
+
+        Assertions.assertNull(refusing.getPrescriptionById("S1234567A-2"));
+        Assertions.assertNotNull(refusing.getPrescriptionById("S1234567A-1"));
+        Assertions.assertEquals(1, prescriptions.size());
+        Assertions.assertEquals(1, refusing.getPrescriptionsForPatient("S1234567A").size());
+        Assertions.assertEquals(2, refusing.nextPrescriptionSequence("S1234567A"));
+
+        refusing.addLoadedPrescription(new Prescription("S1234567A", "S1234567A-2", issued, List.of("Flu"),
+                List.of("Rest"), ""));
+        Assertions.assertEquals(List.of("Flu"), refusing.getPrescriptionById("S1234567A-2").getSymptoms());
+    }
 
+    @Test
+    public void addPrescription_fewPrescriptionsWithHighSequence_allowedUnderCountLimit() throws Exception {
+        List<Prescription> prescriptions = new ArrayList<>();
+        prescriptions.add(numberedPrescription(150));
+        ManagementSystem loaded = new ManagementSystem(new ArrayList<>(List.of(testPatient)), new ArrayList<>(),
+                prescriptions, new InMemoryStorageBackend());
+
+        Prescription added = loaded.addPrescription(new Prescription("S1234567A", List.of("Flu"),
+                List.of("Rest"), ""));
+
+        Assertions.assertEquals("S1234567A-151", added.getPrescriptionId());
+    }
 
+    @Test
+    public void addPrescription_hundredLoadedAndArchived_refused() {
+        List<Prescription> archived = new ArrayList<>();
+        for (int i = 1; i <= 40; i++) {
+            archived.add(numberedPrescription(i));
+        }
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (int i = 41; i <= 100; i++) {
+            prescriptions.add(numberedPrescription(i));
+        }
+        ManagementSystem full = new ManagementSystem(new ArrayList<>(List.of(testPatient)), new ArrayList<>(),
+                prescriptions, new ArchivingBackend(archived));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> full.addPrescription(
+                new Prescription("S1234567A", List.of("Flu"), List.of("Rest"), "")));
+        Assertions.assertEquals(60, prescriptions.size());
+    }
+
+    @Test
+    public void addPrescription_archivedCopyOfLoadedPrescription_countedOnce() throws Exception {
+        List<Prescription> archived = new ArrayList<>();
+        for (int i = 1; i <= 41; i++) {
+            archived.add(numberedPrescription(i));
+        }
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (int i = 41; i <= 99; i++) {
+            prescriptions.add(numberedPrescription(i));
+        }
+        ManagementSystem loaded = new ManagementSystem(new ArrayList<>(List.of(testPatient)), new ArrayList<>(),
+                prescriptions, new ArchivingBackend(archived));
+
+        Prescription added = loaded.addPrescription(new Prescription("S1234567A", List.of("Flu"),
+                List.of("Rest"), ""));
+
+        Assertions.assertEquals("S1234567A-100", added.getPrescriptionId());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> loaded.addPrescription(
+                new Prescription("S1234567A", List.of("Flu"), List.of("Rest"), "")));
+    }
+
+    @Test
+    public void getPrescriptionsForPatient_archiveUnreadable_throwsUnloadedStorageException() {
+        InMemoryStorageBackend unreadable = new InMemoryStorageBackend() {
+            @Override
+            public List<Prescription> findArchivedPrescriptions(String patientId) throws UnloadedStorageException {
+                throw new UnloadedStorageException("Unable to read prescription archive");
+            }
+        };
+        ManagementSystem broken = new ManagementSystem(new ArrayList<>(List.of(testPatient)), new ArrayList<>(),
+                new ArrayList<>(), unreadable);
+
+        Assertions.assertThrows(UnloadedStorageException.class,
+                () -> broken.getPrescriptionsForPatient("S1234567A"));
+        Assertions.assertThrows(UnloadedStorageException.class, () -> broken.getPrescriptionById("S1234567A-1"));
+        Assertions.assertThrows(UnloadedStorageException.class, () -> broken.addPrescription(
+                new Prescription("S1234567A", List.of("Flu"), List.of("Rest"), "")));
+        Assertions.assertTrue(broken.getPrescriptions().isEmpty());
+    }
+
+    private static Prescription numberedPrescription(int sequence) {
+        return new Prescription("S1234567A", "S1234567A-" + sequence, LocalDateTime.of(2025, 1, 1, 9, 0),
+                List.of("Fever"), List.of("Paracetamol"), "");
+    }
+}
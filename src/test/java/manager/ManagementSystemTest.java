@@ -7,7 +7,9 @@ import exception.InvalidInputFormatException;
 import exception.UnloadedStorageException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import storage.InMemoryStorageBackend;
 import storage.Storage;
+import storage.StorageBackend;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -135,7 +137,7 @@ class ManagementSystemTest {
     }
 
     @Test
-    void viewPatient_validNric_patientFound() throws InvalidInputFormatException {
+    void viewPatient_validNric_patientFound() throws InvalidInputFormatException, UnloadedStorageException {
         List<Patient> patients = new ArrayList<>();
         patients.add(new Patient("S1234567A", "John Doe", "1990-01-01",
                 "M", "123 Main St", "81234567", new ArrayList<>()));
@@ -149,7 +151,7 @@ class ManagementSystemTest {
     }
 
     @Test
-    void viewPatient_invalidNric_patientNotFound() throws InvalidInputFormatException {
+    void viewPatient_invalidNric_patientNotFound() throws InvalidInputFormatException, UnloadedStorageException {
         List<Patient> patients = new ArrayList<>();
         patients.add(new Patient("S1234567A", "John Doe", "1990-01-01",
                 "M", "123 Main St", "81234567", new ArrayList<>()));
@@ -161,7 +163,21 @@ class ManagementSystemTest {
     }
 
     @Test
-    void viewPatient_emptySystem_patientNotFound() {
+    void viewPatient_storageUnreadable_throwsUnloadedStorageException() {
+        StorageBackend unreadable = new InMemoryStorageBackend() {
+            @Override
+            public Patient findPatient(String nric) throws UnloadedStorageException {
+                throw new UnloadedStorageException("Unable to read patient " + nric);
+            }
+        };
+        ManagementSystem manager = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                unreadable);
+
+        assertThrows(UnloadedStorageException.class, () -> manager.viewPatient("S1234567A"));
+    }
+
+    @Test
+    void viewPatient_emptySystem_patientNotFound() throws UnloadedStorageException {
         List<Patient> patients = new ArrayList<>();
         ManagementSystem manager = new ManagementSystem(patients, new ArrayList<>());
 
@@ -470,4 +486,119 @@ class ManagementSystemTest {
                 () -> manager.editPatientHistory("T7654321B", "Headache", ""));
     }
 
+    @Test
+    void findPatientByNric_caseAndSpacesDiffer_foundThroughIndex() throws InvalidInputFormatException,
+            UnloadedStorageException {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(new Patient("S1234567A", "John Doe", "1990-01-01",
+                "M", "123 Main St", "81234567", new ArrayList<>()));
+        ManagementSystem manager = new ManagementSystem(patients, new ArrayList<>(), new ArrayList<>(),
+                new InMemoryStorageBackend());
+
+        assertEquals("John Doe", manager.findPatientByNric(" s1234567a ").getName());
+        assertNotNull(manager.viewPatient("S1234567A"));
+        assertNull(manager.viewPatient("S7654321A"));
+        assertThrows(UnsupportedOperationException.class, () -> manager.getPatients().clear());
+    }
+
+    @Test
+    void addPatient_afterDeleteAndWithDifferentCase_indexKeptInSync() throws DuplicatePatientIDException,
+            UnloadedStorageException, InvalidInputFormatException {
+        ManagementSystem manager = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(),
+                new InMemoryStorageBackend());
+        manager.addPatient(new Patient("S1234567A", "John Doe", "1990-01-01",
+                "M", "123 Main St", "81234567", new ArrayList<>()));
+
+        assertThrows(DuplicatePatientIDException.class, () -> manager.addPatient(new Patient("s1234567a",
+                "Jane Smith", "1992-02-02", "F", "456 Sample Rd", "90000000", new ArrayList<>())));
+        assertNotNull(manager.deletePatient("S1234567A"));
+        assertNull(manager.findPatientByNric("S1234567A"));
+
+        manager.addPatient(new Patient("S1234567A", "Jane Smith", "1992-02-02",
+                "F", "456 Sample Rd", "90000000", new ArrayList<>()));
+        assertEquals("Jane Smith", manager.findPatientByNric("S1234567A").getName());
+        assertEquals(1, manager.getPatients().size());
+    }
+
+    @Test
+    void getLists_changedDirectly_refused() throws InvalidInputFormatException, UnloadedStorageException {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(new Patient("S1234567A", "John Doe", "1990-01-01",
+                "M", "123 Main St", "81234567", new ArrayList<>()));
+        ManagementSystem manager = new ManagementSystem(patients, new ArrayList<>(), new ArrayList<>(),
+                new InMemoryStorageBackend());
+
+        assertNotNull(manager.findPatientByNric("S1234567A"));
+        assertThrows(UnsupportedOperationException.class, () -> manager.getAppointments().clear());
+        assertThrows(UnsupportedOperationException.class, () -> manager.getPrescriptions().clear());
+    }
+
+    @Test
+    void deleteAppointment_lowercaseId_unlinkedFromPatient() throws UnloadedStorageException,
+            PatientNotFoundException, AppointmentClashException, InvalidInputFormatException {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(new Patient("S1234567A", "John Doe", "1990-01-01",
+                "M", "123 Main St", "81234567", new ArrayList<>()));
+        ManagementSystem manager = new ManagementSystem(patients, new ArrayList<>(), new ArrayList<>(),
+                new InMemoryStorageBackend());
+        Appointment kept = new Appointment("S1234567A", LocalDateTime.of(2099, 1, 1, 9, 0), "Checkup");
+        Appointment removed = new Appointment("S1234567A", LocalDateTime.of(2099, 1, 2, 9, 0), "Follow-up");
+        manager.addAppointment(kept);
+        manager.addAppointment(removed);
+
+        assertTrue(manager.markAppointment(kept.getId().toLowerCase()).isDone());
+        assertEquals(removed, manager.deleteAppointment(removed.getId().toLowerCase()));
+        assertNull(manager.findAppointmentById(removed.getId()));
+        assertNull(manager.deleteAppointment(removed.getId()));
+        assertEquals(List.of(kept), manager.getAppointments());
+        assertEquals(List.of(kept), manager.findPatientByNric("S1234567A").getAppointments());
+    }
+
+    @Test
+    void getAppointments_patientAppointmentsChange_viewFollowsAndRefusesChanges() {
+        Patient patient = new Patient("S1234567A", "John Doe", LocalDate.of(1990, 1, 1), "M", "123 Main St",
+                "81234567", new ArrayList<>());
+        List<Appointment> view = patient.getAppointments();
+        Appointment first = new Appointment("S1234567A", LocalDateTime.of(2099, 1, 1, 9, 0), "Checkup");
+        Appointment second = new Appointment("S1234567A", LocalDateTime.of(2099, 1, 2, 9, 0), "Follow-up");
+
+        patient.addAppointment(first);
+        patient.addAppointment(second);
+        assertEquals(List.of(first, second), view);
+        assertEquals(second, view.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(2));
+
+        patient.removeAppointment(first);
+        assertEquals(List.of(second), view);
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> view.iterator().remove());
+    }
+
+    @Test
+    void addAppointment_nearClashWindowEdges_onlyAppointmentsWithinAnHourClash() throws UnloadedStorageException,
+            PatientNotFoundException, AppointmentClashException, InvalidInputFormatException {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(new Patient("S1234567A", "John Doe", "1990-01-01",
+                "M", "123 Main St", "81234567", new ArrayList<>()));
+        List<Appointment> appointments = new ArrayList<>();
+        ManagementSystem manager = new ManagementSystem(patients, appointments, new ArrayList<>(),
+                new InMemoryStorageBackend());
+        LocalDateTime noon = LocalDateTime.of(2099, 1, 1, 12, 0);
+        Appointment existing = new Appointment("S1234567A", noon, "Checkup");
+        manager.addAppointment(existing);
+
+        assertThrows(AppointmentClashException.class, () -> manager.addAppointment(
+                new Appointment("S1234567A", noon.minusMinutes(59), "Early")));
+        assertThrows(AppointmentClashException.class, () -> manager.addAppointment(
+                new Appointment("S1234567A", noon.plusMinutes(59), "Late")));
+        manager.addAppointment(new Appointment("S1234567A", noon.minusMinutes(60), "Before"));
+        manager.addAppointment(new Appointment("S1234567A", noon.plusMinutes(60), "After"));
+        assertEquals(3, manager.getAppointments().size());
+
+        manager.deleteAppointment(existing.getId());
+        assertNull(manager.findClashingAppointment(noon));
+        manager.addLoadedAppointment(new Appointment("S1234567A", noon.plusMinutes(30), "Loaded"));
+        assertNotNull(manager.findClashingAppointment(noon));
+    }
+
 }
@@ -0,0 +1,109 @@
+package manager;
+
+import exception.DuplicatePatientIDException;
+import exception.UnloadedStorageException;
+import storage.InMemoryStorageBackend;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares looking patients up by NRIC through the management system's index with scanning
+ * the patient list, as every lookup did before the index was added.
+ * Storage is kept in memory, so only the lookups are measured. Run with {@code gradlew benchmark}.
+ */
+public class PatientLookupBenchmark {
+    private static final int PATIENT_COUNT = 100_000;
+    private static final int LOOKUP_COUNT = 2_000;
+    private static final int ADD_COUNT = 2_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws DuplicatePatientIDException, UnloadedStorageException {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENT_COUNT; i++) {
+            patients.add(patient(i));
+        }
+        ManagementSystem system = new ManagementSystem(patients, new ArrayList<>(), new ArrayList<>(),
+                new InMemoryStorageBackend());
+
+        Random random = new Random(42);
+        String[] nrics = new String[LOOKUP_COUNT];
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            String nric = nricOf(random.nextInt(PATIENT_COUNT));
+            nrics[i] = i % 2 == 0 ? nric : nric.toLowerCase();
+        }
+
+        System.out.println("Looking up " + LOOKUP_COUNT + " NRICs among " + PATIENT_COUNT + " patients");
+        for (int round = 1; round <= ROUNDS; round++) {
+            long scanNanos = time(() -> {
+                for (String nric : nrics) {
+                    check(scan(system.getPatients(), nric));
+                }
+            });
+            long indexNanos = time(() -> {
+                for (String nric : nrics) {
+                    check(system.findPatientByNric(nric));
+                }
+            });
+            long viewNanos = time(() -> {
+                for (String nric : nrics) {
+                    system.viewPatient(nric);
+                }
+            });
+            System.out.printf("round %d: scan %,d ns/lookup, findPatientByNric %,d ns/lookup, "
+                    + "viewPatient %,d ns/lookup (%.0fx faster)%n", round, scanNanos / LOOKUP_COUNT,
+                    indexNanos / LOOKUP_COUNT, viewNanos / LOOKUP_COUNT, (double) scanNanos / indexNanos);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ADD_COUNT; i++) {
+            system.addPatient(patient(PATIENT_COUNT + i));
+        }
+        long addNanos = System.nanoTime() - start;
+        System.out.printf("addPatient with duplicate check: %,d ns/patient at %d patients%n",
+                addNanos / ADD_COUNT, system.getPatients().size());
+    }
+
+    /**
+     * Finds a patient the way findPatientByNric did before the index, for comparison.
+     */
+    private static Patient scan(List<Patient> patients, String nric) {
+        String object = nric.trim().toUpperCase();
+        for (Patient p : patients) {
+            if (p.getId().trim().toUpperCase().equals(object)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private static long time(Work work) throws UnloadedStorageException {
+        long start = System.nanoTime();
+        work.run();
+        return Math.max(1, System.nanoTime() - start);
+    }
+
+    private static void check(Patient patient) {
+        if (patient == null) {
+            throw new IllegalStateException("Every NRIC looked up belongs to a patient");
+        }
+    }
+
+    private static String nricOf(int number) {
+        return String.format("S%07dA", number);
+    }
+
+    private static Patient patient(int number) {
+        return new Patient(nricOf(number), "Patient " + number, LocalDate.of(1990, 1, 1), "F", "1 Main St",
+                "81234567", new ArrayList<>());
+    }
+
+    /**
+     * Work to be timed, which may page patients in from storage.
+     */
+    private interface Work {
+        void run() throws UnloadedStorageException;
+    }
+}
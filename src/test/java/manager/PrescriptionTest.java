@@ -137,9 +137,17 @@ public class PrescriptionTest {
         Assertions.assertTrue(html.contains("Paracetamol")); // Should contain medicine
         Assertions.assertTrue(html.contains("Take after meals")); // Should contain notes
     }
-}
-
-
 
+    @Test
+    public void generateHtml_markupInText_isEscaped() {
+        Prescription prescription = new Prescription("S1234567A", "S1234567A-1", LocalDateTime.now(),
+                Arrays.asList("<script>alert(1)</script>"), Arrays.asList("Salbutamol & saline"), "Don't \"skip\"");
 
+        String html = prescription.generateHtml(null);
 
+        Assertions.assertFalse(html.contains("<script>"));
+        Assertions.assertTrue(html.contains("<li>&lt;script&gt;alert(1)&lt;/script&gt;</li>"));
+        Assertions.assertTrue(html.contains("<li>Salbutamol &amp; saline</li>"));
+        Assertions.assertTrue(html.contains("<p>Don&#39;t &quot;skip&quot;</p>"));
+    }
+}
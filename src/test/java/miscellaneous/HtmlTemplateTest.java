@@ -0,0 +1,56 @@
+package miscellaneous;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HtmlTemplateTest {
+
+    private static String render(HtmlTemplate template, HtmlTemplate.Slots slots) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (HtmlOutput out = new HtmlOutput(bytes)) {
+            template.render(out, slots);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void render_namedSlots_filledInOrderAndEscaped() throws IOException {
+        HtmlTemplate template = HtmlTemplate.compile("<h1>{{ title }}</h1><p>{{body}}</p>");
+
+        String html = render(template, (slot, out) -> out.writeText(slot.equals("title") ? "A & B" : "<b>x</b>"));
+
+        assertEquals(List.of("title", "body"), template.getSlots());
+        assertEquals("<h1>A &amp; B</h1><p>&lt;b&gt;x&lt;/b&gt;</p>", html);
+    }
+
+    @Test
+    void renderEach_nestedTemplate_oneCopyPerEntry() throws IOException {
+        HtmlTemplate item = HtmlTemplate.compile("<li>{{item}}</li>");
+        HtmlTemplate list = HtmlTemplate.compile("<ul>{{items}}</ul>");
+
+        String html = render(list, (slot, out) -> item.renderEach(out, List.of("one", "'two'")));
+
+        assertEquals("<ul><li>one</li><li>&#39;two&#39;</li></ul>", html);
+    }
+
+    @Test
+    void writeText_nonAsciiAndLongText_encodedAsUtf8() throws IOException {
+        String text = "Caf\u00e9 \u65e5\u672c \ud83d\ude00 ".repeat(2000);
+        HtmlTemplate template = HtmlTemplate.compile("{{text}}");
+
+        assertEquals(text, render(template, (slot, out) -> out.writeText(text)));
+    }
+
+    @Test
+    void compile_unclosedOrEmptySlot_throws() {
+        assertThrows(IllegalArgumentException.class, () -> HtmlTemplate.compile("<p>{{name</p>"));
+        assertThrows(IllegalArgumentException.class, () -> HtmlTemplate.compile("<p>{{ }}</p>"));
+    }
+}
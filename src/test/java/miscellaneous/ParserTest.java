@@ -49,6 +49,15 @@ class ParserTest {
         assertEquals("Checkup", appointment.getDescription());
     }
 
+    @Test
+    void parse_descriptionWithToAndFrom_keptWhole() throws Exception {
+        String input = "add-appointment ic/S1234567D dt/2099-09-20 t/1430 dsc/referred to/from GP";
+
+        Appointment appointment = extractAppointment(input);
+
+        assertEquals("referred to/from GP", appointment.getDescription());
+    }
+
     @Test
     void parse_dateTimeInThePastOfAddAppointment_expectException() {
         String input = "add-appointment ic/S1234567D dt/2025-03-20 t/1300 dsc/Checkup";
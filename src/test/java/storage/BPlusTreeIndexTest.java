@@ -0,0 +1,77 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BPlusTreeIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File build(SortedMap<String, Long> entries) throws IOException {
+        File file = tempDir.resolve("index.bin").toFile();
+        BPlusTreeIndex.build(new DurableFileWriter(DurabilityPolicy.NONE), file.getPath(), entries, 123, 456);
+        return file;
+    }
+
+    @Test
+    void find_manyKeys_everyKeyFoundThroughInternalPages() throws IOException {
+        SortedMap<String, Long> entries = new TreeMap<>();
+        for (int i = 0; i < 50000; i++) {
+            entries.put(String.format("S%07dA", i * 2), (long) i);
+        }
+        File file = build(entries);
+        assertTrue(file.length() > 2L * BPlusTreeIndex.PAGE_SIZE);
+
+        BPlusTreeIndex index = BPlusTreeIndex.open(file, 8);
+        try {
+            assertEquals(50000, index.getEntryCount());
+            assertEquals(123, index.getSourceLength());
+            assertEquals(456, index.getSourceModified());
+            for (int i = 0; i < 50000; i += 7) {
+                assertEquals(i, index.find(String.format("S%07dA", i * 2)));
+            }
+            assertEquals(BPlusTreeIndex.NOT_FOUND, index.find("S0000001A"));
+            assertEquals(BPlusTreeIndex.NOT_FOUND, index.find("A"));
+            assertEquals(BPlusTreeIndex.NOT_FOUND, index.find("Z"));
+            assertTrue(index.getCache().size() <= 8);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void find_repeatedLookup_servedFromCache() throws IOException {
+        SortedMap<String, Long> entries = new TreeMap<>();
+        entries.put("S1234567A", 42L);
+        BPlusTreeIndex index = BPlusTreeIndex.open(build(entries), 4);
+        try {
+            assertEquals(42, index.find("S1234567A"));
+            assertEquals(42, index.find("S1234567A"));
+            assertEquals(1, index.getCache().getMissCount());
+            assertEquals(1, index.getCache().getHitCount());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void find_emptyIndex_notFound() throws IOException {
+        BPlusTreeIndex index = BPlusTreeIndex.open(build(new TreeMap<>()), 4);
+        try {
+            assertEquals(0, index.getEntryCount());
+            assertEquals(BPlusTreeIndex.NOT_FOUND, index.find("S1234567A"));
+        } finally {
+            index.close();
+        }
+    }
+}
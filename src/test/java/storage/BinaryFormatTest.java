@@ -0,0 +1,129 @@
+package storage;
+
+import exception.InvalidInputFormatException;
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryFormatTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void patients_roundTrip_fieldsPreserved() throws IOException {
+        Patient old = new Patient("S1234567A", "Tan Ah Kow", LocalDate.of(1935, 2, 28), "M",
+                "1 Jalan Besar", "81234567", List.of("Asthma", "Gout"));
+        Patient plain = new Patient("T7654321B", "Nur Aisyah", LocalDate.of(2001, 12, 31), "F",
+                "2 Orchard Rd", "91234567", new ArrayList<>());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writePatients(new DataOutputStream(bytes), List.of(old, plain));
+        List<Patient> restored = BinaryFormat.readPatients(toInput(bytes));
+
+        assertEquals(2, restored.size());
+        assertEquals(old.toFileFormat(), restored.get(0).toFileFormat());
+        assertEquals(plain.toFileFormat(), restored.get(1).toFileFormat());
+    }
+
+    @Test
+    void appointments_roundTrip_statusAndCounterRestored() throws IOException {
+        Appointment appointment = new Appointment("A142", "S1234567A",
+                LocalDateTime.of(2026, 3, 5, 14, 30), "Follow-up");
+        appointment.setIsDone(true);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writeAppointments(new DataOutputStream(bytes), List.of(appointment), 143);
+        Appointment.setRunningId(100);
+        List<Appointment> restored = BinaryFormat.readAppointments(toInput(bytes));
+
+        assertEquals(appointment.toFileFormat(), restored.get(0).toFileFormat());
+        assertTrue(restored.get(0).isDone());
+        assertEquals(143, Appointment.getRunningId());
+    }
+
+    @Test
+    void prescriptions_roundTrip_customIdAndNullNotesPreserved() throws IOException {
+        LocalDateTime time = LocalDateTime.of(2025, 4, 1, 9, 15);
+        Prescription numbered = new Prescription("S1234567A", "S1234567A-12", time,
+                List.of("Fever"), List.of("Paracetamol"), "Rest well");
+        Prescription custom = new Prescription("S1234567A", "legacy-7", time,
+                List.of("Cough"), List.of("Lozenges", "Syrup"), null);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writePrescriptions(new DataOutputStream(bytes), List.of(numbered, custom));
+        List<Prescription> restored = BinaryFormat.readPrescriptions(toInput(bytes));
+
+        assertEquals(numbered.toFileFormat(), restored.get(0).toFileFormat());
+        assertEquals("legacy-7", restored.get(1).getPrescriptionId());
+        assertEquals(List.of("Lozenges", "Syrup"), restored.get(1).getMedicines());
+        assertNull(restored.get(1).getNotes());
+    }
+
+    @Test
+    void readPatients_wrongKindOfFile_rejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryFormat.writeAppointments(new DataOutputStream(bytes), new ArrayList<>(), 100);
+
+        assertThrows(IOException.class, () -> BinaryFormat.readPatients(toInput(bytes)));
+    }
+
+    @Test
+    void convert_textToBinaryAndBack_dataPreserved() throws IOException, UnloadedStorageException,
+            InvalidInputFormatException {
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|Diabetes\n");
+        Appointment appointment = new Appointment("A101", "S1234567A", LocalDateTime.of(2026, 5, 1, 10, 0),
+                "Checkup");
+        Files.writeString(tempDir.resolve("appointment_data.txt"),
+                "countId:102\n" + appointment.toFileFormat() + "\n");
+        Files.writeString(tempDir.resolve("prescription_data.txt"),
+                "S1234567A-1|S1234567A|2025-04-01 09:15|Fever|Paracetamol|Rest\n");
+
+        assertEquals(3, FormatConverter.textToBinary(tempDir.toString()));
+        assertTrue(Files.exists(tempDir.resolve("patient_data.bin")));
+        Files.delete(tempDir.resolve("patient_data.txt"));
+        Files.delete(tempDir.resolve("appointment_data.txt"));
+        Files.delete(tempDir.resolve("prescription_data.txt"));
+
+        new Storage(tempDir.toString());
+        Storage.setFormat(StorageFormat.BINARY);
+        ManagementSystem system = new ManagementSystem(Storage.loadPatients(), new ArrayList<>(),
+                Storage.loadPrescriptions());
+        List<Appointment> appointments = Storage.loadAppointments(system);
+        assertEquals(1, appointments.size());
+        assertEquals(1, system.findPatientByNric("S1234567A").getAppointments().size());
+        assertEquals("S1234567A-1", system.getPrescriptions().get(0).getPrescriptionId());
+
+        assertEquals(3, FormatConverter.binaryToText(tempDir.toString()));
+        assertEquals(List.of("S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|Diabetes"),
+                Files.readAllLines(tempDir.resolve("patient_data.txt")).stream().map(RecordChecksum::strip).toList());
+        assertFalse(Files.readAllLines(tempDir.resolve("appointment_data.txt")).isEmpty());
+    }
+
+    private static DataInputStream toInput(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
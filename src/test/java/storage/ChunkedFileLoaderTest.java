@@ -0,0 +1,98 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedFileLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void load_manySmallChunks_recordsMergedInFileOrder() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add("record-" + i + "|payload");
+        }
+        Path file = tempDir.resolve("data.txt");
+        Files.write(file, lines);
+
+        ChunkedFileLoader.Result<String> result = new ChunkedFileLoader(256)
+                .load(file.toFile(), line -> line.split("\\|")[0]);
+
+        assertEquals(5000, result.getRecords().size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("record-" + i, result.getRecords().get(i));
+        }
+        assertTrue(result.getFailures().isEmpty());
+    }
+
+    @Test
+    void load_invalidLinesAcrossChunks_failuresReportFileLineNumbers() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 300; i++) {
+            content.append(i % 100 == 0 ? "bad" : i % 70 == 0 ? "skip" : "line " + i).append("\r\n");
+        }
+        content.append("\r\nlast line without newline");
+        Path file = tempDir.resolve("data.txt");
+        Files.writeString(file, content.toString());
+
+        ChunkedFileLoader.Result<String> result = new ChunkedFileLoader(100).load(file.toFile(), line -> {
+            if (line.equals("bad")) {
+                throw new IllegalArgumentException("bad line");
+            }
+            return line.equals("skip") ? null : line;
+        });
+
+        assertEquals(302, result.getLineCount());
+        assertEquals("line 1", result.getRecords().get(0));
+        assertEquals("last line without newline", result.getRecords().get(result.getRecords().size() - 1));
+        List<Integer> failedLines = new ArrayList<>();
+        for (ChunkedFileLoader.Failure failure : result.getFailures()) {
+            failedLines.add(failure.getLineNumber());
+        }
+        assertEquals(List.of(70, 100, 140, 200, 210, 280, 300), failedLines);
+        assertNull(result.getFailures().get(0).getError());
+        assertEquals("bad line", result.getFailures().get(1).getError().getMessage());
+    }
+
+    @Test
+    void load_fileWrittenByDurableWriter_decodedAsUtf8AndStillReplaceable() throws IOException {
+        Path file = tempDir.resolve("data.txt");
+        DurableFileWriter writer = new DurableFileWriter(DurabilityPolicy.NONE);
+        writer.write(file.toString(), out -> {
+            for (int i = 0; i < 200; i++) {
+                out.write("Zo\u00eb Ng\u00f4 " + i);
+                out.newLine();
+            }
+        });
+
+        ChunkedFileLoader.Result<String> result = new ChunkedFileLoader(64).load(file.toFile(), line -> line);
+
+        assertEquals(200, result.getRecords().size());
+        assertEquals("Zo\u00eb Ng\u00f4 199", result.getRecords().get(199));
+        writer.write(file.toString(), out -> out.write("replaced"));
+        assertEquals(List.of("replaced"), Files.readAllLines(file));
+    }
+
+    @Test
+    void load_emptyFile_noRecords() throws IOException {
+        Path file = tempDir.resolve("data.txt");
+        Files.createFile(file);
+
+        ChunkedFileLoader.Result<String> result = new ChunkedFileLoader(64).load(file.toFile(), line -> line);
+
+        assertEquals(0, result.getLineCount());
+        assertTrue(result.getRecords().isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package storage;
+
+import exception.DuplicatePatientIDException;
+import exception.InvalidInputFormatException;
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ManagementSystem system;
+
+    @BeforeEach
+    void setUp() throws UnloadedStorageException {
+        new Storage(tempDir.toString());
+        Storage.enableJournal();
+        system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        Storage.enableCompaction(system, Long.MAX_VALUE, 3);
+    }
+
+    private void addPatient(String nric, String name) throws InvalidInputFormatException,
+            DuplicatePatientIDException, UnloadedStorageException {
+        system.addPatient(new Patient(nric, name, "1990-01-01", "M", "1 Main St", "81234567", new ArrayList<>()));
+    }
+
+    @Test
+    void compaction_recordTriggerReached_writesSnapshotAndTruncatesJournal() throws Exception {
+        addPatient("S1234567A", "John Doe");
+        addPatient("S2345678B", "Jane Roe");
+        addPatient("S3456789C", "Ali Tan");
+        Storage.close();
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("patient_data.txt"));
+        assertEquals(3, lines.size());
+        assertFalse(Files.exists(tempDir.resolve("journal.txt.old")), "Rotated journal should be discarded");
+        assertFalse(Files.exists(tempDir.resolve("journal.txt")), "No records were written after rotation");
+
+        String report = Storage.pollCompactionReport();
+        assertNotNull(report);
+        assertTrue(report.startsWith("Storage compacted in "), report);
+    }
+
+    @Test
+    void compaction_patientEditedWhileSnapshotWritten_snapshotHoldsStateAtRotation() throws Exception {
+        addPatient("S1234567A", "John Doe");
+        addPatient("S2345678B", "Jane Roe");
+        addPatient("S3456789C", "Ali Tan");
+        // The third patient started a compaction; this edit goes to the new journal only
+        system.editPatient("S1234567A", "John Tan", null, null, null, null);
+        Storage.close();
+
+        assertTrue(Files.readAllLines(tempDir.resolve("patient_data.txt")).get(0).contains("John Doe"));
+        assertTrue(Files.readString(tempDir.resolve("journal.txt")).contains("John Tan"));
+
+        new Storage(tempDir.toString());
+        Storage.enableJournal();
+        ManagementSystem restored = new ManagementSystem(Storage.loadPatients(), new ArrayList<>(),
+                Storage.loadPrescriptions());
+        Storage.replayJournal(restored);
+        assertEquals("John Tan", restored.findPatientByNric("S1234567A").getName());
+    }
+
+    @Test
+    void compaction_recordsAfterRotation_survivesReload() throws Exception {
+        addPatient("S1234567A", "John Doe");
+        addPatient("S2345678B", "Jane Roe");
+        addPatient("S3456789C", "Ali Tan");
+        addPatient("S4567890D", "Mei Lim");
+        Storage.close();
+
+        new Storage(tempDir.toString());
+        Storage.enableJournal();
+        ManagementSystem restored = new ManagementSystem(Storage.loadPatients(), new ArrayList<>(),
+                Storage.loadPrescriptions());
+        Storage.replayJournal(restored);
+
+        assertEquals(4, restored.getPatients().size());
+        assertNotNull(restored.findPatientByNric("S4567890D"));
+    }
+
+    @Test
+    void compaction_previousCompactionUnfinished_keepsOldRecords() throws IOException, UnloadedStorageException,
+            InvalidInputFormatException, DuplicatePatientIDException {
+        Storage.enableJournal();
+        addPatient("S1234567A", "John Doe");
+        Storage.close();
+        Files.move(tempDir.resolve("journal.txt"), tempDir.resolve("journal.txt.old"));
+
+        Storage.enableJournal();
+        addPatient("S2345678B", "Jane Roe");
+        Storage.close();
+
+        ManagementSystem restored = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        Storage.enableJournal();
+        Storage.replayJournal(restored);
+        assertEquals(2, restored.getPatients().size());
+    }
+}
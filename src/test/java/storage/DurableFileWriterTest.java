@@ -0,0 +1,114 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DurableFileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write_existingFile_replacedWithoutLeavingTempFiles() throws IOException {
+        Path target = tempDir.resolve("patient_data.txt");
+        Files.writeString(target, "old\n");
+        DurableFileWriter writer = new DurableFileWriter(DurabilityPolicy.ALWAYS_FSYNC);
+
+        writer.write(target.toString(), out -> {
+            out.write("new");
+            out.newLine();
+        });
+
+        assertEquals(List.of("new"), Files.readAllLines(target));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count(), "Temporary file should be moved or removed");
+        }
+    }
+
+    @Test
+    void write_contentFails_originalFileKept() throws IOException {
+        Path target = tempDir.resolve("patient_data.txt");
+        Files.writeString(target, "old\n");
+        DurableFileWriter writer = new DurableFileWriter(DurabilityPolicy.NONE);
+
+        assertThrows(IOException.class, () -> writer.write(target.toString(), out -> {
+            out.write("partial");
+            throw new IOException("disk full");
+        }));
+
+        assertEquals(List.of("old"), Files.readAllLines(target));
+    }
+
+    @Test
+    void write_eachPolicy_forcesOnlyWhenRequired() throws IOException {
+        Path target = tempDir.resolve("data.txt");
+        DurableFileWriter none = new DurableFileWriter(DurabilityPolicy.NONE);
+        DurableFileWriter batched = new DurableFileWriter(DurabilityPolicy.BATCHED_FSYNC);
+
+        none.write(target.toString(), out -> out.write("a"));
+        batched.write(target.toString(), out -> out.write("b"));
+
+        assertEquals(0, none.getForceCount());
+        assertEquals(1, batched.getForceCount());
+    }
+
+    @Test
+    void write_alwaysFsync_directoryForcedAfterEveryWrite() throws IOException {
+        DurableFileWriter always = new DurableFileWriter(DurabilityPolicy.ALWAYS_FSYNC);
+
+        always.write(tempDir.resolve("a.txt").toString(), out -> out.write("a"));
+        always.write(tempDir.resolve("b.txt").toString(), out -> out.write("b"));
+        always.forceDirectories();
+
+        assertEquals(4, always.getForceCount(), "Each file and its directory, with nothing left for later");
+    }
+
+    @Test
+    void forceDirectories_batchedFsync_directoryForcedOnceForAllWrites() throws IOException {
+        DurableFileWriter batched = new DurableFileWriter(DurabilityPolicy.BATCHED_FSYNC);
+        DurableFileWriter none = new DurableFileWriter(DurabilityPolicy.NONE);
+
+        for (String name : List.of("a.txt", "b.txt", "c.txt")) {
+            batched.write(tempDir.resolve(name).toString(), out -> out.write(name));
+            none.write(tempDir.resolve(name).toString(), out -> out.write(name));
+        }
+        assertEquals(3, batched.getForceCount());
+
+        batched.forceDirectories();
+        none.forceDirectories();
+        assertEquals(4, batched.getForceCount());
+        assertEquals(0, none.getForceCount());
+
+        batched.forceDirectories();
+        assertEquals(4, batched.getForceCount(), "The directory was already forced");
+    }
+
+    @Test
+    void journalAppend_batchedVersusAlways_forcesAccordingToPolicy() throws IOException {
+        DurableFileWriter always = new DurableFileWriter(DurabilityPolicy.ALWAYS_FSYNC);
+        DurableFileWriter batched = new DurableFileWriter(DurabilityPolicy.BATCHED_FSYNC);
+        Journal alwaysJournal = new Journal(tempDir.resolve("always.txt").toString());
+        Journal batchedJournal = new Journal(tempDir.resolve("batched.txt").toString());
+        alwaysJournal.setFileWriter(always);
+        batchedJournal.setFileWriter(batched);
+
+        for (int i = 0; i < 40; i++) {
+            alwaysJournal.append(Journal.APPOINTMENT_MARK, "A" + i);
+            batchedJournal.append(Journal.APPOINTMENT_MARK, "A" + i);
+        }
+        alwaysJournal.close();
+        batchedJournal.close();
+
+        assertEquals(40, always.getForceCount());
+        assertEquals(2, batched.getForceCount(), "One full batch of 32 plus the remainder on close");
+    }
+}
@@ -0,0 +1,130 @@
+package storage;
+
+import exception.DuplicatePatientIDException;
+import exception.StorageLockedException;
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FollowerStorageBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Patient patient(String nric, String name) {
+        return new Patient(nric, name, LocalDate.of(1990, 1, 1), "M", "1 Main St", "81234567", new ArrayList<>());
+    }
+
+    @Test
+    void refresh_writerAppendsAndReplacesFiles_followerSeesChanges()
+            throws IOException, UnloadedStorageException {
+        Path patientFile = tempDir.resolve("patient_data.txt");
+        Files.writeString(patientFile, RecordChecksum.seal(patient("S1234567A", "John Doe").toFileFormat()) + "\n");
+        FollowerStorageBackend follower = new FollowerStorageBackend(tempDir.toString(), StorageFormat.TEXT);
+        ManagementSystem system = follower.load();
+        assertEquals(1, system.getPatients().size());
+
+        // The writer journals a new patient, which the follower replays without reloading
+        Journal writer = new Journal(tempDir.resolve("journal.txt").toString());
+        writer.append(Journal.PATIENT_UPSERT, patient("S2345678B", "Jane Roe").toFileFormat());
+        follower.refresh();
+        assertEquals(2, system.getPatients().size());
+        assertEquals(0, follower.getReloadCount());
+
+        // The writer compacts its journal into a new patient file, which the follower reloads
+        writer.rotate();
+        Files.writeString(patientFile, patient("S1234567A", "John Doe").toFileFormat() + "\n"
+                + patient("S2345678B", "Jane Roe").toFileFormat() + "\n"
+                + patient("S3456789C", "Bob Tan").toFileFormat() + "\n");
+        writer.discardPrevious();
+        follower.refresh();
+        assertEquals(3, system.getPatients().size());
+        assertEquals("Bob Tan", system.findPatientByNric("S3456789C").getName());
+        assertEquals(1, follower.getReloadCount());
+        writer.close();
+    }
+
+    @Test
+    void addPatient_follower_refusedAndUndoneOnRefresh() throws IOException, UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"), patient("S1234567A", "John Doe").toFileFormat() + "\n");
+        FollowerStorageBackend follower = new FollowerStorageBackend(tempDir.toString(), StorageFormat.TEXT);
+        ManagementSystem system = follower.load();
+
+        assertThrows(UnloadedStorageException.class, () -> system.addPatient(patient("S2345678B", "Jane Roe")));
+        follower.refresh();
+
+        assertEquals(1, system.getPatients().size());
+        assertEquals(1, Files.readAllLines(tempDir.resolve("patient_data.txt")).size());
+        assertFalse(Files.exists(tempDir.resolve("writer.lock")));
+    }
+
+    @Test
+    void savePrescriptionHtml_follower_refusedWithoutWriting() throws UnloadedStorageException {
+        FollowerStorageBackend follower = new FollowerStorageBackend(tempDir.toString(), StorageFormat.TEXT);
+        follower.load();
+        Patient patient = patient("S1234567A", "John Doe");
+        Prescription prescription = new Prescription("S1234567A", List.of("Fever"), List.of("Paracetamol"), "");
+
+        assertThrows(UnloadedStorageException.class, () -> follower.savePrescriptionHtml(prescription, patient));
+        assertThrows(UnloadedStorageException.class, () -> follower.savePrescriptionHtml(List.of(prescription),
+                Map.of("S1234567A", patient)));
+        assertFalse(Files.exists(tempDir.resolve("prescriptions")));
+        assertEquals(0, follower.getReloadCount());
+    }
+
+    @Test
+    void load_directoryLockedByAnotherWriter_throwsStorageLockedException()
+            throws IOException, UnloadedStorageException, DuplicatePatientIDException {
+        File lockFile = tempDir.resolve("writer.lock").toFile();
+        WriterLock other = WriterLock.tryAcquire(lockFile);
+        assertNotNull(other);
+
+        assertThrows(StorageLockedException.class, () -> new TextStorageBackend(tempDir.toString()).load());
+        other.release();
+
+        TextStorageBackend writer = new TextStorageBackend(tempDir.toString());
+        writer.load().addPatient(patient("S1234567A", "John Doe"));
+        assertNull(WriterLock.tryAcquire(lockFile));
+        writer.close();
+        WriterLock afterClose = WriterLock.tryAcquire(lockFile);
+        assertNotNull(afterClose);
+        afterClose.release();
+    }
+
+    @Test
+    void load_anotherDirectoryOpened_previousSessionClosedWithoutLosingSaves()
+            throws IOException, UnloadedStorageException, DuplicatePatientIDException {
+        JournaledStorageBackend first = new JournaledStorageBackend(tempDir.resolve("first").toString(),
+                StorageFormat.TEXT, DurabilityPolicy.BATCHED_FSYNC, 0);
+        ManagementSystem firstSystem = first.load();
+        firstSystem.addPatient(patient("S1234567A", "John Doe"));
+
+        TextStorageBackend second = new TextStorageBackend(tempDir.resolve("second").toString());
+        second.load();
+        assertTrue(Files.readString(tempDir.resolve("first").resolve("journal.txt")).contains("S1234567A"));
+        assertThrows(UnloadedStorageException.class, () -> firstSystem.addPatient(patient("S2345678B", "Jane Roe")));
+
+        first.close();
+        assertNull(WriterLock.tryAcquire(tempDir.resolve("second").resolve("writer.lock").toFile()));
+        second.close();
+    }
+}
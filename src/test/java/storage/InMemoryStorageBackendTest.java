@@ -0,0 +1,51 @@
+package storage;
+
+import exception.DuplicatePatientIDException;
+import exception.InvalidInputFormatException;
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryStorageBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void load_managementSystem_changesCountedWithoutWritingFiles() throws UnloadedStorageException,
+            DuplicatePatientIDException, InvalidInputFormatException {
+        // Point the text storage at a directory so any write that bypassed the backend would show up
+        new Storage(tempDir.toString());
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ManagementSystem system = backend.load();
+        assertSame(backend, system.getStorage());
+
+        system.addPatient(new Patient("S1234567A", "John Doe", "1990-10-01", "M", "123 Main St", "81234567",
+                new ArrayList<>()));
+        system.addPatient(new Patient("S2345678B", "Jane Roe", "1985-06-15", "F", "2 Main St", "91234567",
+                new ArrayList<>()));
+        assertNotNull(system.deletePatient("S1234567A"));
+
+        assertEquals(3, backend.getRecordCount());
+        assertEquals(1, system.getPatients().size());
+        File[] files = tempDir.toFile().listFiles();
+        assertTrue(files == null || files.length == 0);
+    }
+
+    @Test
+    void getLoadReport_initialRecords_reportsCounts() {
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        assertEquals("Loaded 0 patients, 0 appointments and 0 prescriptions from memory.", backend.getLoadReport());
+    }
+}
@@ -0,0 +1,157 @@
+package storage;
+
+import exception.AppointmentClashException;
+import exception.DuplicatePatientIDException;
+import exception.InvalidInputFormatException;
+import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws UnloadedStorageException {
+        new Storage(tempDir.toString());
+        Storage.enableJournal();
+    }
+
+    private ManagementSystem reload() throws UnloadedStorageException {
+        Storage.close();
+        ManagementSystem system = new ManagementSystem(Storage.loadPatients(), new ArrayList<>(),
+                Storage.loadPrescriptions());
+        system.setAppointments(Storage.loadAppointments(system));
+        Storage.replayJournal(system);
+        return system;
+    }
+
+    @Test
+    void addPatient_journalEnabled_appendsRecordWithoutWritingPatientFile() throws InvalidInputFormatException,
+            DuplicatePatientIDException, UnloadedStorageException, IOException {
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        system.addPatient(new Patient("S1234567A", "John Doe", "1990-01-01", "M",
+                "123 Main St", "81234567", new ArrayList<>()));
+
+        assertFalse(Files.exists(tempDir.resolve("patient_data.txt")), "Patient file should not be rewritten");
+        List<String> lines = Files.readAllLines(tempDir.resolve("journal.txt"));
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith(Journal.PATIENT_UPSERT + "|S1234567A|John Doe"));
+    }
+
+    @Test
+    void replayJournal_mixedMutations_restoresState() throws InvalidInputFormatException,
+            DuplicatePatientIDException, UnloadedStorageException, PatientNotFoundException,
+            AppointmentClashException {
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        system.addPatient(new Patient("S1234567A", "John Doe", "1990-01-01", "M",
+                "123 Main St", "81234567", new ArrayList<>()));
+        system.addPatient(new Patient("S7654321B", "Jane Roe", "1985-05-05", "F",
+                "9 Side Rd", "91234567", new ArrayList<>()));
+        system.storeMedicalHistory("S1234567A", "Asthma");
+
+        Appointment kept = new Appointment("S1234567A", LocalDateTime.of(2030, 1, 1, 9, 0), "Checkup");
+        Appointment removed = new Appointment("S1234567A", LocalDateTime.of(2030, 1, 2, 9, 0), "X-ray");
+        system.addAppointment(kept);
+        system.addAppointment(removed);
+        system.markAppointment(kept.getId());
+        system.deleteAppointment(removed.getId());
+        system.deletePatient("S7654321B");
+
+        ManagementSystem restored = reload();
+
+        assertEquals(1, restored.getPatients().size());
+        Patient patient = restored.findPatientByNric("S1234567A");
+        assertNotNull(patient);
+        assertTrue(patient.getMedicalHistory().contains("Asthma"));
+        assertEquals(1, restored.getAppointments().size());
+        assertEquals(kept.getId(), restored.getAppointments().get(0).getId());
+        assertTrue(restored.getAppointments().get(0).isDone());
+        assertEquals(1, patient.getAppointments().size());
+    }
+
+    @Test
+    void replayJournal_tornLastRecord_skipsOnlyThatRecord() throws InvalidInputFormatException,
+            DuplicatePatientIDException, UnloadedStorageException, IOException {
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        system.addPatient(new Patient("S1234567A", "John Doe", "1990-01-01", "M",
+                "123 Main St", "81234567", new ArrayList<>()));
+        Storage.close();
+        Files.writeString(tempDir.resolve("journal.txt"), Journal.PATIENT_UPSERT + "|S76543",
+                StandardOpenOption.APPEND);
+
+        ManagementSystem restored = reload();
+
+        assertEquals(1, restored.getPatients().size());
+        assertEquals("John Doe", restored.getPatients().get(0).getName());
+    }
+
+    @Test
+    void replayJournal_lastRecordCutInChecksum_notApplied() throws InvalidInputFormatException,
+            DuplicatePatientIDException, UnloadedStorageException, IOException {
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        system.addPatient(new Patient("S1234567A", "John Doe", "1990-01-01", "M",
+                "123 Main St", "81234567", new ArrayList<>()));
+        system.addPatient(new Patient("S7654321B", "Jane Roe", "1985-05-05", "F",
+                "9 Side Rd", "91234567", new ArrayList<>()));
+        Storage.close();
+        Path journalFile = tempDir.resolve("journal.txt");
+        String content = Files.readString(journalFile).stripTrailing();
+        Files.writeString(journalFile, content.substring(0, content.length() - 3));
+
+        ManagementSystem restored = reload();
+
+        assertEquals(1, restored.getPatients().size());
+        assertEquals("John Doe", restored.getPatients().get(0).getName());
+    }
+
+    @Test
+    void replayJournal_prescriptionAlreadyLoaded_checkedWithoutLoadingOrArchive() throws UnloadedStorageException {
+        LocalDateTime issued = LocalDateTime.of(2030, 1, 1, 9, 0);
+        Storage.recordPrescriptionAdd(new Prescription("S1234567A", "S1234567A-1", issued,
+                List.of("Cough"), List.of("Syrup"), ""), new ArrayList<>());
+        Storage.recordPrescriptionAdd(new Prescription("S1234567A", "S1234567A-2", issued,
+                List.of("Fever"), List.of("Paracetamol"), ""), new ArrayList<>());
+        Storage.close();
+
+        Prescription lazy = new Prescription("S1234567A", "S1234567A-1", issued, () -> {
+            throw new AssertionError("Details should not be read to check for a duplicate");
+        });
+        List<Prescription> prescriptions = new ArrayList<>();
+        prescriptions.add(lazy);
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), prescriptions,
+                new InMemoryStorageBackend() {
+                    @Override
+                    public List<Prescription> findArchivedPrescriptions(String patientId) {
+                        throw new AssertionError("The archive should not be searched to check for a duplicate");
+                    }
+                });
+
+        Storage.replayJournal(system);
+
+        assertEquals(2, system.getPrescriptions().size());
+        assertSame(lazy, system.getPrescriptions().get(0));
+        assertEquals("S1234567A-2", system.getPrescriptions().get(1).getPrescriptionId());
+    }
+}
@@ -0,0 +1,104 @@
+package storage;
+
+import exception.DuplicatePatientIDException;
+import exception.InvalidInputFormatException;
+import exception.PatientNotFoundException;
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatientIndexTest {
+
+    private static final String PATIENTS = "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|\n"
+            + "S2345678B|Jane Roe|1985-06-15|F|2 Main St|91234567|Asthma\n"
+            + "S3456789C|Ali Tan|1970-03-03|M|3 Main St|61234567|Diabetes, Gout\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void find_indexedPatientFile_readsSingleRecord() throws IOException {
+        Path data = tempDir.resolve("patient_data.txt");
+        Files.writeString(data, PATIENTS);
+        PatientIndex index = PatientIndex.open(data.toFile(), tempDir.resolve("patient_index.bin").toFile(), 4,
+                new DurableFileWriter(DurabilityPolicy.NONE));
+        try {
+            assertEquals(3, index.size());
+            Patient patient = index.find(" s3456789c ");
+            assertEquals("Ali Tan", patient.getName());
+            assertEquals(List.of("Diabetes", "Gout"), patient.getMedicalHistory());
+            assertNull(index.find("S9999999Z"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void loadPatients_pagedMode_patientsPagedInAndMergedOnSave() throws IOException, UnloadedStorageException,
+            PatientNotFoundException, InvalidInputFormatException {
+        Path data = tempDir.resolve("patient_data.txt");
+        Files.writeString(data, PATIENTS);
+        TextStorageBackend backend = new TextStorageBackend(tempDir.toString(), 4);
+        ManagementSystem system = backend.load();
+        assertTrue(system.getPatients().isEmpty());
+
+        assertNotNull(system.viewPatient("S2345678B"));
+        assertEquals(1, system.getPatients().size());
+        system.editPatient("S2345678B", "Jane Smith", null, null, null, null);
+        assertNotNull(system.deletePatient("S1234567A"));
+        assertNull(system.findPatientByNric("S1234567A"));
+
+        String saved = Files.readString(data);
+        assertTrue(saved.contains("Jane Smith"));
+        assertTrue(saved.contains("Ali Tan"));
+        assertFalse(saved.contains("John Doe"));
+
+        backend.close();
+        ManagementSystem reloaded = new TextStorageBackend(tempDir.toString(), 4).load();
+        assertEquals("Jane Smith", reloaded.findPatientByNric("s2345678b").getName());
+        assertNull(reloaded.findPatientByNric("S1234567A"));
+        Storage.close();
+    }
+
+    @Test
+    void forEachPatient_pagedMode_listsPatientsNotPagedIn() throws IOException, UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"), PATIENTS);
+        ManagementSystem system = new TextStorageBackend(tempDir.toString(), 4).load();
+        assertNotNull(system.viewPatient("S2345678B"));
+
+        List<String> listed = new ArrayList<>();
+        system.forEachPatient(patient -> listed.add(patient.getId()));
+
+        assertEquals(List.of("S2345678B", "S1234567A", "S3456789C"), listed);
+        assertEquals(1, system.getPatients().size());
+        Storage.close();
+    }
+
+    @Test
+    void addPatient_pagedMode_duplicateOnDiskRejected() throws IOException, UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"), PATIENTS);
+        ManagementSystem system = new TextStorageBackend(tempDir.toString(), 4).load();
+        Patient duplicate = new Patient("S3456789C", "Someone Else", LocalDate.of(2000, 1, 1), "F",
+                "4 Main St", "91111111", new ArrayList<>());
+
+        assertThrows(DuplicatePatientIDException.class, () -> system.addPatient(duplicate));
+        assertEquals(1, system.getPatients().size());
+        Storage.close();
+    }
+}
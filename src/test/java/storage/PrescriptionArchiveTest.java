@@ -0,0 +1,90 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Prescription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrescriptionArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Prescription prescription(String patientId, int number, LocalDateTime timestamp) {
+        return new Prescription(patientId, patientId + "-" + number, timestamp, List.of("Fever", "Cough"),
+                List.of("Paracetamol"), "Rest well and drink plenty of water, note " + number);
+    }
+
+    @Test
+    void find_manyBlocks_returnsOnlyThePatientsPrescriptions() throws IOException {
+        List<Prescription> prescriptions = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 9, 0);
+        for (int i = 0; i < 3000; i++) {
+            prescriptions.add(prescription(String.format("S%07dA", i % 300), i / 300 + 1, start.plusHours(i)));
+        }
+        String directory = tempDir.resolve("archive").toString();
+        PrescriptionArchive archive = PrescriptionArchive.open(directory);
+        long size = archive.append(prescriptions, new DurableFileWriter(DurabilityPolicy.NONE));
+        archive.append(List.of(prescription("S0000150A", 11, start)), new DurableFileWriter(DurabilityPolicy.NONE));
+        archive.close();
+
+        archive = PrescriptionArchive.open(directory);
+        try {
+            assertEquals(2, archive.getSegmentCount());
+            assertEquals(3001, archive.getRecordCount());
+            List<Prescription> found = archive.find("S0000150A");
+            assertEquals(11, found.size());
+            for (int i = 0; i < 11; i++) {
+                assertEquals("S0000150A-" + (i + 1), found.get(i).getPrescriptionId());
+            }
+            assertEquals("Rest well and drink plenty of water, note 3", found.get(2).getNotes());
+            assertEquals(10, archive.find("S0000000A").size());
+            assertEquals(10, archive.find("S0000299A").size());
+            assertTrue(archive.find("S9999999Z").isEmpty());
+            // Repetitive prescription text compresses well below its plain size
+            assertTrue(size < prescriptions.size() * 40L);
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Test
+    void load_archiveAge_oldPrescriptionsMovedOutButStillFound() throws IOException, UnloadedStorageException {
+        LocalDateTime old = LocalDateTime.now().minusYears(3).withNano(0).withSecond(0);
+        LocalDateTime recent = LocalDateTime.now().minusDays(1).withNano(0).withSecond(0);
+        Files.writeString(tempDir.resolve("patient_data.txt"), "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|\n");
+        Files.writeString(tempDir.resolve("prescription_data.txt"),
+                prescription("S1234567A", 1, old).toFileFormat() + "\n"
+                        + prescription("S1234567A", 2, recent).toFileFormat() + "\n");
+
+        TextStorageBackend backend = new TextStorageBackend(tempDir.toString());
+        backend.setArchiveAfterDays(365);
+        ManagementSystem system = backend.load();
+        assertEquals("Archived 1 prescriptions issued before " + LocalDateTime.now().minusDays(365).toLocalDate()
+                + ".", backend.pollReport());
+
+        assertEquals(1, system.getPrescriptions().size());
+        assertFalse(Files.readString(tempDir.resolve("prescription_data.txt")).contains("S1234567A-1"));
+        List<Prescription> forPatient = system.getPrescriptionsForPatient("S1234567A");
+        assertEquals(2, forPatient.size());
+        assertEquals("S1234567A-1", forPatient.get(0).getPrescriptionId());
+        assertNotNull(system.getPrescriptionById("S1234567A-1"));
+
+        Prescription added = system.addPrescription(prescription("S1234567A", 1, LocalDateTime.now()));
+        assertEquals("S1234567A-3", added.getPrescriptionId());
+        backend.close();
+    }
+}
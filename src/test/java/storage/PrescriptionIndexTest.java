@@ -0,0 +1,78 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Prescription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrescriptionIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(tempDir.resolve("prescription_data.txt"),
+                "S1234567A-1|S1234567A|2025-04-01 09:15|Fever,Cough|Paracetamol|Rest well\r\n"
+                        + "\n"
+                        + "broken line\n"
+                        + "S2345678B-1|S2345678B|2025-04-02 10:30|Rash|Cream,Antihistamine|\n"
+                        + "S1234567A-2|S1234567A|2025-04-03 11:45|Headache|Ibuprofen|Drink water");
+        new Storage(tempDir.toString());
+        Storage.enableLazyPrescriptions();
+    }
+
+    @Test
+    void loadPrescriptions_lazyMode_detailsReadOnlyWhenLookedUp() throws UnloadedStorageException {
+        List<Prescription> prescriptions = Storage.loadPrescriptions();
+        assertEquals(3, prescriptions.size());
+        for (Prescription prescription : prescriptions) {
+            assertFalse(prescription.isLoaded());
+        }
+
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), prescriptions);
+        Prescription found = system.getPrescriptionById("S2345678B-1");
+
+        assertTrue(found.isLoaded());
+        assertEquals(List.of("Cream", "Antihistamine"), found.getMedicines());
+        assertEquals(LocalDateTime.of(2025, 4, 2, 10, 30), found.getTimestamp());
+        assertFalse(prescriptions.get(0).isLoaded());
+        assertFalse(prescriptions.get(2).isLoaded());
+
+        List<Prescription> forPatient = system.getPrescriptionsForPatient("S1234567A");
+        assertEquals(List.of("Fever", "Cough"), forPatient.get(0).getSymptoms());
+        assertEquals("Drink water", forPatient.get(1).getNotes());
+    }
+
+    @Test
+    void savePrescriptions_lazyRecords_writtenWithoutLoadingAndStillReadableAfterReplace()
+            throws UnloadedStorageException, IOException {
+        List<Prescription> prescriptions = Storage.loadPrescriptions();
+        prescriptions.add(new Prescription("S3456789C", "S3456789C-1", LocalDateTime.of(2025, 5, 1, 8, 0),
+                List.of("Sore throat"), List.of("Lozenges"), "None"));
+
+        Storage.savePrescriptions(prescriptions);
+
+        assertFalse(prescriptions.get(0).isLoaded(), "Saving should copy the stored record without loading it");
+        List<String> lines = Files.readAllLines(tempDir.resolve("prescription_data.txt"));
+        assertEquals(4, lines.size());
+        assertEquals("S1234567A-1|S1234567A|2025-04-01 09:15|Fever,Cough|Paracetamol|Rest well",
+                RecordChecksum.strip(lines.get(0)));
+        assertTrue(RecordChecksum.isSealed(lines.get(0)));
+        assertEquals("Ibuprofen", prescriptions.get(2).getMedicines().get(0));
+        Storage.close();
+    }
+}
@@ -0,0 +1,104 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrescriptionPrinterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Prescription prescription(String patientId, int number, LocalDateTime issued) {
+        return new Prescription(patientId, patientId + "-" + number, issued, List.of("Fever"),
+                List.of("Paracetamol"), "Take after meals");
+    }
+
+    @Test
+    void printAll_manyPrescriptions_writesOneFilePerPrescription() throws IOException {
+        Patient patient = new Patient("S1234567A", "John Doe", LocalDate.of(1990, 1, 1), "M", "1 Main St",
+                "81234567", new ArrayList<>());
+        List<Prescription> prescriptions = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            prescriptions.add(prescription("S1234567A", i, LocalDateTime.of(2025, 4, 5, 9, 0)));
+        }
+        Path directory = tempDir.resolve("prescriptions");
+
+        int printed = new PrescriptionPrinter(directory.toFile(), 4)
+                .printAll(prescriptions, Map.of("S1234567A", patient));
+
+        assertEquals(50, printed);
+        for (int i = 1; i <= 50; i++) {
+            Path file = directory.resolve("prescription_S1234567A_" + i + ".html");
+            assertTrue(Files.readString(file).contains("John Doe"));
+        }
+    }
+
+    @Test
+    void printAll_withCache_rewritesOnlyChangedDocuments() throws IOException {
+        Patient patient = new Patient("S1234567A", "John Doe", LocalDate.of(1990, 1, 1), "M", "1 Main St",
+                "81234567", new ArrayList<>());
+        List<Prescription> prescriptions = List.of(prescription("S1234567A", 1, LocalDateTime.of(2025, 4, 5, 9, 0)),
+                prescription("S1234567A", 2, LocalDateTime.of(2025, 4, 5, 10, 0)));
+        Path directory = tempDir.resolve("prescriptions");
+        PrescriptionHtmlCache cache = new PrescriptionHtmlCache();
+        PrescriptionPrinter printer = new PrescriptionPrinter(directory.toFile(), 2, cache);
+
+        assertEquals(2, printer.printAll(prescriptions, Map.of("S1234567A", patient)));
+        assertEquals(0, printer.printAll(prescriptions, Map.of("S1234567A", patient)));
+        assertFalse(printer.print(prescriptions.get(0), patient));
+        assertEquals(3, cache.getHitCount());
+
+        Files.delete(directory.resolve("prescription_S1234567A_2.html"));
+        assertEquals(1, printer.printAll(prescriptions, Map.of("S1234567A", patient)));
+
+        patient.setName("John Smith");
+        assertEquals(2, printer.printAll(prescriptions, Map.of("S1234567A", patient)));
+        assertTrue(Files.readString(directory.resolve("prescription_S1234567A_1.html")).contains("John Smith"));
+        assertEquals(4, cache.getHitCount());
+        assertEquals(5, cache.getMissCount());
+    }
+
+    @Test
+    void printAll_noPrescriptions_createsNothing() throws IOException {
+        Path directory = tempDir.resolve("prescriptions");
+
+        assertEquals(0, new PrescriptionPrinter(directory.toFile(), 4).printAll(new ArrayList<>(), Map.of()));
+        assertFalse(Files.exists(directory));
+    }
+
+    @Test
+    void getPrescriptionsIssuedBetween_dateRangeAndPatient_onlyMatches() throws UnloadedStorageException {
+        List<Prescription> prescriptions = new ArrayList<>();
+        prescriptions.add(prescription("S1234567A", 1, LocalDateTime.of(2025, 4, 4, 23, 59)));
+        prescriptions.add(prescription("S1234567A", 2, LocalDateTime.of(2025, 4, 5, 0, 0)));
+        prescriptions.add(prescription("S2345678B", 1, LocalDateTime.of(2025, 4, 6, 12, 0)));
+        prescriptions.add(prescription("S2345678B", 2, LocalDateTime.of(2025, 4, 7, 0, 0)));
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>(), prescriptions,
+                new InMemoryStorageBackend());
+
+        List<Prescription> all = system.getPrescriptionsIssuedBetween(LocalDate.of(2025, 4, 5),
+                LocalDate.of(2025, 4, 6), null);
+        List<Prescription> one = system.getPrescriptionsIssuedBetween(LocalDate.of(2025, 4, 5),
+                LocalDate.of(2025, 4, 6), "S2345678B");
+
+        assertEquals(List.of("S1234567A-2", "S2345678B-1"), all.stream().map(Prescription::getPrescriptionId).toList());
+        assertEquals(List.of("S2345678B-1"), one.stream().map(Prescription::getPrescriptionId).toList());
+    }
+}
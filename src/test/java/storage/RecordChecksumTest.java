@@ -0,0 +1,106 @@
+package storage;
+
+import exception.CorruptRecordException;
+import exception.UnloadedStorageException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordChecksumTest {
+    private static final String RECORD = "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|Diabetes";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void unseal_sealedRecord_returnsRecord() throws CorruptRecordException {
+        String line = RecordChecksum.seal(RECORD);
+
+        assertTrue(RecordChecksum.isSealed(line));
+        assertEquals(RECORD, RecordChecksum.unseal(line, true));
+        assertEquals(RECORD, RecordChecksum.strip(line));
+    }
+
+    @Test
+    void unseal_changedRecord_throwsCorruptRecordException() {
+        String line = RecordChecksum.seal(RECORD).replace("Diabetes", "Diabetic");
+
+        assertThrows(CorruptRecordException.class, () -> RecordChecksum.unseal(line, false));
+    }
+
+    @Test
+    void unseal_lineWithoutChecksumFromFileBeforeChecksums_returnedAsIs() throws CorruptRecordException {
+        assertFalse(RecordChecksum.isSealed(RECORD));
+        assertEquals(RECORD, RecordChecksum.unseal(RECORD, false));
+    }
+
+    @Test
+    void unseal_lineCutShortWhereSealRequired_throwsCorruptRecordException() {
+        String sealed = RecordChecksum.seal(RECORD);
+        String cutInSuffix = sealed.substring(0, sealed.length() - 3);
+        String cutInRecord = RECORD.substring(0, 20);
+
+        assertThrows(CorruptRecordException.class, () -> RecordChecksum.unseal(cutInSuffix, true));
+        assertThrows(CorruptRecordException.class, () -> RecordChecksum.unseal(cutInRecord, true));
+    }
+
+    @Test
+    void isSealedFile_firstRecordDecides() throws IOException {
+        Path sealed = tempDir.resolve("sealed.txt");
+        Path legacy = tempDir.resolve("legacy.txt");
+        Files.writeString(sealed, "countId:105\n" + RecordChecksum.seal(RECORD) + "\n" + RECORD + "\n");
+        Files.writeString(legacy, RECORD + "\n");
+
+        assertTrue(RecordChecksum.isSealedFile(sealed.toFile()));
+        assertFalse(RecordChecksum.isSealedFile(legacy.toFile()));
+        assertFalse(RecordChecksum.isSealedFile(tempDir.resolve("missing.txt").toFile()));
+    }
+
+    @Test
+    void verifyRecords_damagedRecord_quarantinedOnce() throws IOException, UnloadedStorageException {
+        String damaged = RecordChecksum.seal("S2345678B|Jane Roe|1985-06-15|F|2 Main St|91234567|Asthma")
+                .replace("Asthma", "Asthmo");
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                RecordChecksum.seal(RECORD) + "\n" + damaged + "\n"
+                        + "S3456789C|Bob Tan|1970-03-03|M|3 Main St|81112222|\n");
+        new Storage(tempDir.toString());
+
+        VerificationReport first = Storage.verifyRecords();
+        VerificationReport second = Storage.verifyRecords();
+
+        // The file is sealed, so its record without a checksum counts as damaged too
+        assertEquals(3, first.getRecordCount());
+        assertEquals(0, first.getUnsealedCount());
+        assertEquals(2, first.getCorruptCount());
+        assertEquals(2, first.getQuarantinedCount());
+        assertEquals(2, second.getCorruptCount());
+        assertEquals(0, second.getQuarantinedCount());
+        assertTrue(first.getSummary().contains("2 damaged records (2 newly quarantined)"));
+        List<String> quarantined = Files.readAllLines(tempDir.resolve("quarantine.txt"));
+        assertEquals(4, quarantined.size());
+        assertEquals(damaged, quarantined.get(1));
+    }
+
+    @Test
+    void verifyRecords_fileFromBeforeChecksums_unsealedRecordsAccepted() throws IOException,
+            UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                RECORD + "\n" + "S3456789C|Bob Tan|1970-03-03|M|3 Main St|81112222|\n");
+        new Storage(tempDir.toString());
+
+        VerificationReport report = Storage.verifyRecords();
+
+        assertEquals(2, report.getRecordCount());
+        assertEquals(2, report.getUnsealedCount());
+        assertEquals(0, report.getCorruptCount());
+    }
+}
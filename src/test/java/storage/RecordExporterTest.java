@@ -0,0 +1,108 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import manager.Patient;
+import manager.Prescription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ManagementSystem sampleSystem() {
+        List<Patient> patients = new ArrayList<>();
+        patients.add(new Patient("S1234567A", "John \"JD\" Doe", LocalDate.of(1990, 1, 1), "M",
+                "1 Main St, #01-01", "81234567", List.of("Asthma", "Diabetes")));
+        patients.add(new Patient("S2345678B", "Jane Roe", LocalDate.of(1985, 6, 15), "F", "2 Main St",
+                "91234567", new ArrayList<>()));
+        List<Appointment> appointments = new ArrayList<>();
+        appointments.add(new Appointment("A101", "S1234567A", LocalDateTime.of(2099, 5, 1, 10, 0), "Checkup"));
+        appointments.add(new Appointment("A102", "S2345678B", LocalDateTime.of(2099, 6, 1, 9, 30), "Review"));
+        List<Prescription> prescriptions = new ArrayList<>();
+        prescriptions.add(new Prescription("S1234567A", "S1234567A-1", LocalDateTime.of(2099, 5, 1, 10, 15),
+                List.of("Fever"), List.of("Paracetamol", "Rest"), "Twice a day"));
+        return new ManagementSystem(patients, appointments, prescriptions, new InMemoryStorageBackend());
+    }
+
+    @Test
+    void exportFile_csvAndJsonl_importBackIntoEmptySystem() throws UnloadedStorageException {
+        for (String name : List.of("export.csv", "export.jsonl")) {
+            String file = tempDir.resolve(name).toString();
+            RecordExporter.Report report = RecordExporter.exportFile(file, sampleSystem(),
+                    RecordExporter.Filter.all());
+            assertEquals(5, report.getRecordCount());
+
+            ManagementSystem imported = new InMemoryStorageBackend().load();
+            RecordImporter.Report importReport = RecordImporter.importFile(file, imported);
+            assertEquals(0, importReport.getErrorCount(), name + ": " + importReport.getErrors());
+            Patient patient = imported.getPatients().get(0);
+            assertEquals("John \"JD\" Doe", patient.getName());
+            assertEquals("1 Main St, #01-01", patient.getAddress());
+            assertEquals(List.of("Asthma", "Diabetes"), patient.getMedicalHistory());
+            assertEquals(LocalDateTime.of(2099, 6, 1, 9, 30), imported.getAppointments().get(1).getDateTime());
+            Prescription prescription = imported.getPrescriptions().get(0);
+            assertEquals(List.of("Paracetamol", "Rest"), prescription.getMedicines());
+            assertEquals(LocalDateTime.of(2099, 5, 1, 10, 15), prescription.getTimestamp());
+        }
+    }
+
+    @Test
+    void exportFile_patientAndDateFilter_onlyMatchingRecords() throws UnloadedStorageException, IOException {
+        Path file = tempDir.resolve("filtered.csv");
+        RecordExporter.exportFile(file.toString(), sampleSystem(),
+                new RecordExporter.Filter("s1234567a", LocalDate.of(2099, 5, 1), LocalDate.of(2099, 5, 1)));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("patient,S1234567A,\"John \"\"JD\"\" Doe\""));
+        assertEquals("appointment,S1234567A,2099-05-01,1000,Checkup,false,A101", lines.get(1));
+
+        RecordExporter.exportFile(file.toString(), sampleSystem(),
+                new RecordExporter.Filter(null, LocalDate.of(2099, 5, 2), null));
+        lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).startsWith("appointment,S2345678B,"));
+    }
+
+    @Test
+    void exportFile_lazyPrescriptionsAndPagedPatients_streamedWithoutLoading()
+            throws IOException, UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|\n"
+                        + "S2345678B|Jane Roe|1985-06-15|F|2 Main St|91234567|Asthma\n");
+        Files.writeString(tempDir.resolve("prescription_data.txt"),
+                "S1234567A-1|S1234567A|2025-01-01 10:00|Fever|Paracetamol|Rest\n");
+        TextStorageBackend backend = new TextStorageBackend(tempDir.toString(), 4);
+        backend.enableLazyPrescriptions();
+        ManagementSystem system = backend.load();
+        assertTrue(system.getPatients().isEmpty());
+
+        Path file = tempDir.resolve("out").resolve("all.jsonl");
+        RecordExporter.Report report = RecordExporter.exportFile(file.toString(), system,
+                RecordExporter.Filter.all());
+        backend.close();
+
+        assertEquals(3, report.getRecordCount());
+        assertTrue(system.getPatients().isEmpty());
+        assertFalse(system.getPrescriptions().get(0).isLoaded());
+        String content = Files.readString(file);
+        assertTrue(content.contains("\"history\":[\"Asthma\"]"));
+        assertTrue(content.contains("\"medicines\":[\"Paracetamol\"],\"notes\":\"Rest\""));
+    }
+}
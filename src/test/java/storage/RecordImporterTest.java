@@ -0,0 +1,133 @@
+package storage;
+
+import exception.InvalidInputFormatException;
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecordImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importFile_csvWithBadLines_importsRestAndSavesOnce() throws IOException, UnloadedStorageException {
+        Path file = tempDir.resolve("clinic.csv");
+        Files.writeString(file, "type,nric,name,dob,gender,phone,address,history\n"
+                + "patient,S1234567A,John Doe,1990-01-01,M,81234567,\"1 Main St, #01-01\",Asthma;Diabetes\n"
+                + "patient,S1234567A,John Again,1990-01-01,M,81234567,1 Main St\n"
+                + "patient,S2345678B,Jane Roe,1985-06-15,X,91234567,2 Main St\n"
+                + "appointment,S1234567A,2099-05-01,1000,Checkup\n"
+                + "appointment,S1234567A,2099-05-01,1030,Too close\n"
+                + "prescription,S1234567A,Fever;Cough,Paracetamol,Rest well\n"
+                + "prescription,S9999999Z,Fever,Paracetamol\n");
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ManagementSystem system = backend.load();
+
+        RecordImporter.Report report = RecordImporter.importFile(file.toString(), system);
+
+        assertEquals(3, report.getImportedCount());
+        assertEquals(4, report.getErrorCount());
+        assertTrue(report.getErrors().get(0).startsWith("Line 3: "));
+        assertEquals(List.of("Asthma", "Diabetes"), system.getPatients().get(0).getMedicalHistory());
+        assertEquals("1 Main St, #01-01", system.getPatients().get(0).getAddress());
+        assertEquals("S1234567A-1", system.getPrescriptions().get(0).getPrescriptionId());
+        assertEquals(1, system.getPatients().get(0).getAppointments().size());
+        assertEquals(3, backend.getRecordCount());
+    }
+
+    @Test
+    void importFile_jsonl_readsArraysAndEscapes() throws IOException, UnloadedStorageException {
+        Path file = tempDir.resolve("clinic.jsonl");
+        Files.writeString(file, "{\"type\":\"patient\",\"nric\":\"S1234567A\",\"name\":\"John \\\"JD\\\" Doe\","
+                + "\"dob\":\"1990-01-01\",\"gender\":\"M\",\"phone\":\"81234567\",\"address\":\"1 Main St\","
+                + "\"history\":[\"Asthma\",\"Diabetes\"]}\n"
+                + "{\"type\":\"prescription\",\"nric\":\"S1234567A\",\"symptoms\":[\"Fever\"],"
+                + "\"medicines\":[\"Paracetamol\"],\"notes\":null}\n"
+                + "{\"type\":\"patient\",\"nric\":\n");
+        ManagementSystem system = new InMemoryStorageBackend().load();
+
+        RecordImporter.Report report = RecordImporter.importFile(file.toString(), system);
+
+        assertEquals(2, report.getImportedCount());
+        assertEquals(1, report.getErrorCount());
+        assertEquals("John \"JD\" Doe", system.getPatients().get(0).getName());
+        assertEquals("", system.getPrescriptions().get(0).getNotes());
+    }
+
+    @Test
+    void importFile_pastAppointmentFromExport_imported() throws IOException, UnloadedStorageException {
+        Path file = tempDir.resolve("clinic.csv");
+        Files.writeString(file, "patient,S1234567A,John Doe,1990-01-01,M,81234567,1 Main St\n"
+                + "appointment,S1234567A,2020-05-01,1000,Checkup,true,A100\n");
+        ManagementSystem system = new InMemoryStorageBackend().load();
+
+        RecordImporter.Report report = RecordImporter.importFile(file.toString(), system);
+
+        assertEquals(2, report.getImportedCount());
+        assertEquals(0, report.getErrorCount());
+        assertTrue(system.getAppointments().get(0).isDone());
+    }
+
+    @Test
+    void importFile_malformedTextPartway_nothingKept() throws IOException, UnloadedStorageException {
+        Path file = tempDir.resolve("clinic.csv");
+        byte[] valid = "patient,S1234567A,John Doe,1990-01-01,M,81234567,1 Main St\n".getBytes(StandardCharsets.UTF_8);
+        byte[] malformed = {'p', 'a', 't', 'i', 'e', 'n', 't', ',', (byte) 0xC3, '(', '\n'};
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(valid);
+        content.write(malformed);
+        Files.write(file, content.toByteArray());
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ManagementSystem system = backend.load();
+
+        assertThrows(UnloadedStorageException.class, () -> RecordImporter.importFile(file.toString(), system));
+
+        assertTrue(system.getPatients().isEmpty());
+        assertNull(system.findPatientByNric("S1234567A"));
+        assertEquals(0, backend.getRecordCount());
+    }
+
+    @Test
+    void parseCsvLine_header_skipped() throws InvalidInputFormatException {
+        assertNull(RecordImporter.parseCsvLine("TYPE,nric,name"));
+        Map<String, Object> fields =
+                RecordImporter.parseCsvLine("appointment,S1234567A,2099-05-01,1000,\"A \"\"B\"\"\"");
+        assertEquals("A \"B\"", fields.get("description"));
+        assertThrows(InvalidInputFormatException.class, () -> RecordImporter.parseCsvLine("patient,\"S1234567A"));
+    }
+
+    @Test
+    void importFile_textStorage_savedAndReloaded() throws IOException, UnloadedStorageException {
+        Path file = tempDir.resolve("clinic.csv");
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            csv.append(String.format("patient,S%07dA,Patient %d,1990-01-01,F,81234567,%d Main St%n", i, i, i));
+        }
+        Files.writeString(file, csv.toString());
+        Path dataDir = tempDir.resolve("data");
+        TextStorageBackend backend = new TextStorageBackend(dataDir.toString());
+        ManagementSystem system = backend.load();
+
+        RecordImporter.Report report = RecordImporter.importFile(file.toString(), system);
+        backend.close();
+
+        assertEquals(200, report.getImportedCount());
+        assertEquals(200, new TextStorageBackend(dataDir.toString()).load().getPatients().size());
+        Storage.close();
+    }
+}
@@ -0,0 +1,108 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedStorageTest {
+
+    private static final int SHARD_COUNT = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private static Patient patient(String nric, String name) {
+        return new Patient(nric, name, LocalDate.of(1990, 1, 1), "M", "1 Main St", "81234567",
+                new ArrayList<>());
+    }
+
+    @Test
+    void loadPatients_unshardedFile_migratedOnFirstSave() throws IOException, UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|\n"
+                        + "S2345678B|Jane Roe|1985-06-15|F|2 Main St|91234567|Asthma\n");
+        new Storage(tempDir.toString());
+        Storage.enableSharding(SHARD_COUNT);
+
+        List<Patient> patients = Storage.loadPatients();
+        assertEquals(2, patients.size());
+        assertFalse(Storage.hasShards());
+
+        Storage.savePatients(patients);
+        assertTrue(Storage.hasShards());
+
+        // Emptying the old file shows the patients are now read from the shards
+        Files.writeString(tempDir.resolve("patient_data.txt"), "");
+        new Storage(tempDir.toString());
+        Storage.enableSharding(SHARD_COUNT);
+        List<Patient> reloaded = Storage.loadPatients();
+        assertEquals(2, reloaded.size());
+        assertTrue(reloaded.stream().anyMatch(p -> p.getId().equals("S2345678B")
+                && p.getMedicalHistory().contains("Asthma")));
+    }
+
+    @Test
+    void recordPatientUpsert_shardedPatients_rewritesOnlyOneShard() throws IOException, UnloadedStorageException {
+        new Storage(tempDir.toString());
+        Storage.enableSharding(SHARD_COUNT);
+        ShardManifest manifest = ShardManifest.open(tempDir.resolve("shards").toString(), SHARD_COUNT);
+
+        List<Patient> patients = new ArrayList<>();
+        patients.add(patient("S1234567A", "John Doe"));
+        String otherNric = null;
+        for (int i = 0; otherNric == null; i++) {
+            String nric = String.format("T%07dZ", i);
+            if (manifest.shardOf(nric) != manifest.shardOf("S1234567A")) {
+                otherNric = nric;
+            }
+        }
+        patients.add(patient(otherNric, "Jane Roe"));
+        Storage.savePatients(patients);
+
+        Path edited = Path.of(manifest.textPath(ShardManifest.PATIENTS, manifest.shardOf("S1234567A")));
+        Path untouched = Path.of(manifest.textPath(ShardManifest.PATIENTS, manifest.shardOf(otherNric)));
+        String untouchedBefore = Files.readString(untouched);
+        Files.writeString(untouched, untouchedBefore + "\n");
+
+        patients.set(0, patient("S1234567A", "John Smith"));
+        Storage.recordPatientUpsert(patients.get(0), patients);
+
+        assertTrue(Files.readString(edited).contains("John Smith"));
+        assertEquals(untouchedBefore + "\n", Files.readString(untouched));
+    }
+
+    @Test
+    void parseAppointments_shardedAppointments_restoresHighestRunningId() throws UnloadedStorageException {
+        new Storage(tempDir.toString());
+        Storage.enableSharding(SHARD_COUNT);
+        List<Appointment> appointments = new ArrayList<>();
+        appointments.add(new Appointment("A101", "S1234567A", LocalDateTime.of(2026, 5, 1, 10, 0), "Checkup"));
+        appointments.add(new Appointment("A102", "S2345678B", LocalDateTime.of(2026, 5, 2, 15, 30), "Review"));
+        Appointment.setRunningId(103);
+        Storage.saveAppointments(appointments);
+
+        Appointment.setRunningId(100);
+        new Storage(tempDir.toString());
+        Storage.enableSharding(SHARD_COUNT);
+        List<Appointment> reloaded = Storage.parseAppointments();
+
+        assertEquals(2, reloaded.size());
+        assertEquals(103, Appointment.getRunningId());
+        assertNotEquals(reloaded.get(0).getId(), reloaded.get(1).getId());
+    }
+}
@@ -0,0 +1,67 @@
+package storage;
+
+import exception.UnloadedStorageException;
+import manager.Appointment;
+import manager.ManagementSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StartupLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void load_allDataFiles_appointmentsLinkedToPatients() throws IOException, UnloadedStorageException {
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                "S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|\n"
+                        + "S2345678B|Jane Roe|1985-06-15|F|2 Main St|91234567|Asthma\n");
+        Appointment first = new Appointment("A101", "S1234567A", LocalDateTime.of(2026, 5, 1, 10, 0), "Checkup");
+        Appointment second = new Appointment("A102", "S2345678B", LocalDateTime.of(2026, 5, 2, 15, 30), "Review");
+        Files.writeString(tempDir.resolve("appointment_data.txt"),
+                "countId:103\n" + first.toFileFormat() + "\n" + second.toFileFormat() + "\n");
+        Files.writeString(tempDir.resolve("prescription_data.txt"),
+                "S1234567A-1|S1234567A|2025-04-01 09:15|Fever|Paracetamol|Rest\n");
+        new Storage(tempDir.toString());
+
+        StartupLoader loader = new StartupLoader();
+        ManagementSystem system = loader.load();
+
+        assertEquals(2, system.getPatients().size());
+        assertEquals(2, system.getAppointments().size());
+        assertEquals(1, system.getPrescriptions().size());
+        assertEquals("A101", system.findPatientByNric("S1234567A").getAppointments().get(0).getId());
+        assertEquals("A102", system.findPatientByNric("S2345678B").getAppointments().get(0).getId());
+        assertEquals(103, Appointment.getRunningId());
+        assertTrue(loader.getTimingReport().startsWith("Loaded data in "));
+    }
+
+    @Test
+    void load_corruptPatientRecord_quarantinedAndRestLoaded() throws IOException, UnloadedStorageException {
+        String corrupt = RecordChecksum.seal("S2345678B|Jane Roe|1985-06-15|F|2 Main St|91234567|Asthma")
+                .replace("Jane", "Jake");
+        Files.writeString(tempDir.resolve("patient_data.txt"),
+                RecordChecksum.seal("S1234567A|John Doe|1990-01-01|M|1 Main St|81234567|") + "\n"
+                        + corrupt + "\n"
+                        + "S3456789C|Bob Tan|not-a-date|M|3 Main St|81112222|\n");
+        new Storage(tempDir.toString());
+
+        ManagementSystem system = new StartupLoader().load();
+
+        assertEquals(1, system.getPatients().size());
+        assertEquals("S1234567A", system.getPatients().get(0).getId());
+        List<String> quarantined = Files.readAllLines(tempDir.resolve("quarantine.txt"));
+        assertTrue(quarantined.contains(corrupt));
+        assertTrue(quarantined.contains("S3456789C|Bob Tan|not-a-date|M|3 Main St|81112222|"));
+        assertTrue(quarantined.get(0).contains("Record does not match its checksum"));
+    }
+}
@@ -0,0 +1,124 @@
+package storage;
+
+import exception.DuplicatePatientIDException;
+import exception.InvalidInputFormatException;
+import exception.UnloadedStorageException;
+import manager.ManagementSystem;
+import manager.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void savePatients_writeBehind_coalescedUntilFlush() throws InvalidInputFormatException,
+            DuplicatePatientIDException, UnloadedStorageException, IOException {
+        new Storage(tempDir.toString());
+        Storage.enableWriteBehind(60000, 60000);
+        ManagementSystem system = new ManagementSystem(new ArrayList<>(), new ArrayList<>());
+
+        system.addPatient(new Patient("S1234567A", "John Doe", "1990-01-01", "M",
+                "1 Main St", "81234567", new ArrayList<>()));
+        system.addPatient(new Patient("S2345678B", "Jane Roe", "1990-01-01", "F",
+                "2 Main St", "91234567", new ArrayList<>()));
+        Path patientFile = tempDir.resolve("patient_data.txt");
+        assertFalse(Files.exists(patientFile), "Saves should be deferred");
+
+        Storage.flush();
+        assertEquals(2, Files.readAllLines(patientFile).size());
+        Storage.close();
+    }
+
+    @Test
+    void enqueue_continuousMutations_flushedWithinStalenessBound() throws UnloadedStorageException,
+            InterruptedException {
+        WriteBehindQueue queue = new WriteBehindQueue(100, 200);
+        AtomicInteger writes = new AtomicInteger();
+
+        long end = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < end) {
+            queue.enqueue("patients", writes::incrementAndGet);
+            Thread.sleep(20);
+        }
+        queue.shutdown();
+
+        assertTrue(writes.get() >= 2, "Writes should not be starved by a steady stream of mutations");
+        assertTrue(queue.getCoalescedCount() > writes.get(), "Most mutations should be coalesced");
+    }
+
+    @Test
+    void flush_failedWrite_reportsErrorAndRetries() throws UnloadedStorageException {
+        WriteBehindQueue queue = new WriteBehindQueue(60000, 60000);
+        AtomicInteger attempts = new AtomicInteger();
+
+        queue.enqueue("patients", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new UnloadedStorageException("disk full");
+            }
+        });
+
+        assertThrows(UnloadedStorageException.class, queue::flush);
+        queue.flush();
+        assertEquals(2, attempts.get());
+        queue.shutdown();
+    }
+
+    @Test
+    void enqueue_afterFailedBackgroundFlush_refusedWithoutQueuing() throws UnloadedStorageException,
+            InterruptedException {
+        WriteBehindQueue queue = new WriteBehindQueue(0, 0);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger laterWrites = new AtomicInteger();
+        queue.enqueue("patients", () -> {
+            attempts.incrementAndGet();
+            throw new UnloadedStorageException("disk full");
+        });
+        long end = System.currentTimeMillis() + 5000;
+        while (attempts.get() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        // Give the failing flush time to record its error; retries keep failing, so the error stays recorded
+        Thread.sleep(50);
+
+        assertThrows(UnloadedStorageException.class, () -> queue.enqueue("prescriptions",
+                laterWrites::incrementAndGet));
+        assertThrows(UnloadedStorageException.class, queue::shutdown);
+
+        assertEquals(0, laterWrites.get(), "A write refused because of an earlier failure must not be made");
+    }
+
+    @Test
+    void drain_failedWrite_retriedWithoutAnotherMutation() throws UnloadedStorageException,
+            InterruptedException {
+        WriteBehindQueue queue = new WriteBehindQueue(0, 0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        queue.enqueue("patients", () -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new UnloadedStorageException("disk full");
+            }
+        });
+        long end = System.currentTimeMillis() + 5000;
+        while (attempts.get() < 3 && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(3, attempts.get(), "The failed write should be retried in the background");
+        queue.enqueue("appointments", () -> { });
+        queue.shutdown();
+    }
+}